@@ -25,6 +25,9 @@ package com.timvisee.voxeltex.architecture.component;
 import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
 import com.timvisee.voxeltex.architecture.scene.AbstractScene;
 import com.timvisee.voxeltex.engine.VoxelTexEngine;
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
+import com.timvisee.voxeltex.engine.update.UpdateRatePolicy;
+import com.timvisee.voxeltex.runtime.global.Time;
 import com.timvisee.voxeltex.module.transform.Transform;
 import com.timvisee.voxeltex.util.EnabledState;
 
@@ -38,6 +41,22 @@ public abstract class AbstractComponent {
      */
     private EnabledState enabled = EnabledState.UNDEFINED;
 
+    /**
+     * Update rate policy of this component, or null to use the policy of the owner.
+     */
+    private UpdateRatePolicy updateRatePolicy = null;
+
+    /**
+     * Time in seconds since the last update of this component, passed to the current update.
+     * Negative if the update scheduler hasn't updated this component yet.
+     */
+    private float deltaTime = -1.0f;
+
+    /**
+     * Time in seconds accumulated over the frames this component skipped.
+     */
+    private float skippedDeltaTime = 0.0f;
+
     /**
      * Check whether this component is enabled.
      * If the enabled state is yet undefined, false will be returned.
@@ -77,6 +96,73 @@ public abstract class AbstractComponent {
             else
                 onDisable();
         }
+
+        // Register or unregister the component in the scene
+        if(change && getOwner() != null && getOwner().getScene() != null)
+            getOwner().getScene().getComponentRegistry().refresh(this);
+    }
+
+    /**
+     * Get the update rate policy of this component.
+     * If this component doesn't have its own policy, the policy of the owner is returned.
+     *
+     * @return Update rate policy, or null if this component is updated every frame.
+     */
+    public UpdateRatePolicy getUpdateRatePolicy() {
+        // Return the policy of this component if set
+        if(this.updateRatePolicy != null)
+            return this.updateRatePolicy;
+
+        // Return the policy of the owner
+        return getOwner() != null ? getOwner().getUpdateRatePolicy() : null;
+    }
+
+    /**
+     * Set the update rate policy of this component.
+     *
+     * @param updateRatePolicy Update rate policy, or null to use the policy of the owner.
+     */
+    public void setUpdateRatePolicy(UpdateRatePolicy updateRatePolicy) {
+        this.updateRatePolicy = updateRatePolicy;
+    }
+
+    /**
+     * Get the time in seconds since the last update of this component.
+     * This is larger than the frame delta time if the component skipped frames because of its update rate policy.
+     * Components that integrate over time should use this instead of {@link Time#deltaTimeFloat}.
+     *
+     * @return Delta time in seconds.
+     */
+    public float getDeltaTime() {
+        return this.deltaTime >= 0.0f ? this.deltaTime : Time.deltaTimeFloat;
+    }
+
+    /**
+     * Advance the update timing of this component by a frame.
+     * Called by the update scheduler once each frame for every active component.
+     *
+     * @param frameDeltaTime Delta time of the frame in seconds.
+     * @param run True if the component is updated this frame, false if it skips the frame.
+     */
+    public void advanceUpdate(float frameDeltaTime, boolean run) {
+        // Accumulate the time of skipped frames
+        if(!run) {
+            this.skippedDeltaTime += frameDeltaTime;
+            return;
+        }
+
+        // Pass the accumulated time to the update
+        this.deltaTime = this.skippedDeltaTime + frameDeltaTime;
+        this.skippedDeltaTime = 0.0f;
+    }
+
+    /**
+     * Reset the time accumulated over skipped frames.
+     * Called by the update scheduler while this component is suspended, so it doesn't receive the whole suspended
+     * time as a single step when it resumes.
+     */
+    public void resetUpdateTime() {
+        this.skippedDeltaTime = 0.0f;
     }
 
     /**
@@ -232,6 +318,18 @@ public abstract class AbstractComponent {
      */
     public abstract <T extends AbstractComponent> T getComponent(Class<T> componentType);
 
+    /**
+     * Get all components of the given type on the owner game object, and add them to the given list.
+     * This method doesn't allocate, use it instead of filtering the component list when querying each frame.
+     *
+     * @param componentType Component type.
+     * @param dest List to add the components to.
+     * @param <T> Component type.
+     *
+     * @return Number of components that were added.
+     */
+    public abstract <T extends AbstractComponent> int getComponents(Class<T> componentType, List<T> dest);
+
     /**
      * Create the component.
      *
@@ -250,8 +348,31 @@ public abstract class AbstractComponent {
      * Update the component.
      *
      * Called once each frame before drawing.
+     * Components that don't override this method or {@link #mergeUpdate()} are skipped by the update loop entirely.
+     */
+    public void update() { }
+
+    /**
+     * Get the data the update of this component reads and writes, as {@link ComponentAccess} flags.
+     * Updates of components that don't conflict are run in parallel by the update scheduler.
+     *
+     * Components must only declare a narrower access if their update is safe to run on any thread.
+     * The default is {@link ComponentAccess#EXCLUSIVE}, which runs the update alone on the update thread.
+     *
+     * @return Access flags.
      */
-    public abstract void update();
+    public int getUpdateAccess() {
+        return ComponentAccess.EXCLUSIVE;
+    }
+
+    /**
+     * Merge the results of the update of this component.
+     *
+     * Called once each frame after all components have been updated, on the update thread and in scene order.
+     * This should be used for writes to structures that are shared by the whole scene, so they're applied
+     * deterministically even if the updates themselves run in parallel.
+     */
+    public void mergeUpdate() { }
 
     /**
      * Destroy the component.
@@ -276,6 +397,21 @@ public abstract class AbstractComponent {
      */
     public abstract void onDisable();
 
+    /**
+     * On activation of this component.
+     * This will be called when the component becomes active in its scene, because the component is enabled and its
+     * owner and all parents of the owner are enabled. Unlike {@link #onEnable()}, this is also called when a disabled
+     * owner or parent is enabled again.
+     */
+    public abstract void onActivate();
+
+    /**
+     * On deactivation of this component.
+     * This will be called when the component stops being active in its scene, because the component, its owner or any
+     * parent of the owner is disabled, or because the owner is removed from the scene.
+     */
+    public abstract void onDeactivate();
+
     /**
      * Get the name of the component type.
      *
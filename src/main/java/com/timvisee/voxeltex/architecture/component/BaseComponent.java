@@ -68,6 +68,12 @@ public abstract class BaseComponent extends AbstractComponent {
     @Override
     public void onDisable() { }
 
+    @Override
+    public void onActivate() { }
+
+    @Override
+    public void onDeactivate() { }
+
     @Override
     public AbstractGameObject getOwner() {
         return this.owner;
@@ -167,4 +173,9 @@ public abstract class BaseComponent extends AbstractComponent {
     public <T extends AbstractComponent> T getComponent(Class<T> componentType) {
         return getOwner().getComponent(componentType);
     }
+
+    @Override
+    public <T extends AbstractComponent> int getComponents(Class<T> componentType, List<T> dest) {
+        return getOwner().getComponents(componentType, dest);
+    }
 }
@@ -30,9 +30,6 @@ public abstract class AbstractCameraComponent extends BaseComponent {
     @Override
     public void create() { }
 
-    @Override
-    public synchronized void update() { }
-
     /**
      * Update the camera position.
      */
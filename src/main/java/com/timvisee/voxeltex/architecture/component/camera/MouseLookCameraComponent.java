@@ -72,6 +72,9 @@ public class MouseLookCameraComponent extends CameraComponent {
             getTransform().getRotation().rotateAxis(-xRot, 1, 0, 0);
             getTransform().getRotation().rotateAxis(-yRot, getTransform().up(upVectorCache));
         }
+
+        // Let the children follow the rotation right away
+        getTransform().markDirty();
     }
 
     /**
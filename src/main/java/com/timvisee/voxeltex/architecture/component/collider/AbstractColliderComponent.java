@@ -43,9 +43,6 @@ public abstract class AbstractColliderComponent extends BaseComponent implements
         super.start();
     }
 
-    @Override
-    public void update() { }
-
     /**
      * Get the collider offset in local space.
      *
@@ -65,18 +65,18 @@ public class MeshColliderComponent extends AbstractColliderComponent {
         if(this.meshShape == null) {
             // Configure the indexed mesh
             IndexedMesh indexedMesh = new IndexedMesh();
-            indexedMesh.numTriangles = rawMesh.getVertexCount() / 3;
-            indexedMesh.triangleIndexBase = BufferUtil.createByteBuffer(rawMesh.getVertexCount() * 4).order(ByteOrder.nativeOrder());
+            indexedMesh.numTriangles = rawMesh.getTriangleCount();
+            indexedMesh.triangleIndexBase = BufferUtil.createByteBuffer(rawMesh.getElementCount() * 4).order(ByteOrder.nativeOrder());
             indexedMesh.triangleIndexStride = 3 * 4;
             indexedMesh.numVertices = rawMesh.getVertexCount();
             indexedMesh.vertexBase = BufferUtil.createByteBuffer(rawMesh.getVertexCount() * 3 * 4).order(ByteOrder.nativeOrder());
             indexedMesh.vertexBase.asFloatBuffer().put(rawMesh.getVertexes());
             indexedMesh.vertexStride = 3 * 4;
 
-            // Put the proper indexes in the index base
+            // Put the proper indexes in the index base, using the indices of the mesh if it's indexed
             IntBuffer buff = indexedMesh.triangleIndexBase.asIntBuffer();
             for(int i = 0, size = indexedMesh.numTriangles * 3; i < size; i++)
-                buff.put(i);
+                buff.put(rawMesh.getElementVertex(i));
 
             // Create the triangle index vertex array and add the indexed mesh
             TriangleIndexVertexArray mesh = new TriangleIndexVertexArray();
@@ -34,7 +34,4 @@ public abstract class AbstractDrawableComponent extends BaseComponent implements
         // Call the super
         super.start();
     }
-
-    @Override
-    public synchronized void update() { }
 }
@@ -23,6 +23,7 @@
 package com.timvisee.voxeltex.architecture.component.drawable.line;
 
 import com.timvisee.voxeltex.architecture.component.drawable.AbstractDrawableComponent;
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
 import org.lwjgl.opengl.GL11;
 
 public class AxisDrawComponent extends AbstractDrawableComponent {
@@ -49,7 +50,7 @@ public class AxisDrawComponent extends AbstractDrawableComponent {
     @Override
     public synchronized void onDraw() {
         // Set the thickness of the axis drawn
-        GL11.glLineWidth(this.lineWidth);
+        RenderStateTracker.lineWidth(this.lineWidth);
 
         // Enable line drawing mode
         GL11.glBegin(GL11.GL_LINES);
@@ -34,7 +34,4 @@ public abstract class AbstractLightSourceComponent extends BaseComponent impleme
         // Call the super
         super.start();
     }
-
-    @Override
-    public synchronized void update() { }
 }
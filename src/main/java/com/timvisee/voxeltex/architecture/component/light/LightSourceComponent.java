@@ -23,6 +23,7 @@
 package com.timvisee.voxeltex.architecture.component.light;
 
 import com.timvisee.voxeltex.engine.light.Light;
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
 import com.timvisee.voxeltex.module.Color;
 import org.joml.Vector3f;
 
@@ -130,6 +131,11 @@ public class LightSourceComponent extends AbstractLightSourceComponent {
         this.light.updatePosition(getOwner());
     }
 
+    @Override
+    public int getUpdateAccess() {
+        return ComponentAccess.READ_TRANSFORM;
+    }
+
     @Override
     public void destroy() {
         // Make sure a light instance was created
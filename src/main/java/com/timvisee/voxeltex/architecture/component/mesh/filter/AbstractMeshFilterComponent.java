@@ -35,9 +35,6 @@ public abstract class AbstractMeshFilterComponent extends BaseComponent implemen
         super.start();
     }
 
-    @Override
-    public synchronized void update() { }
-
     @Override
     public boolean hasMesh() {
         return getMesh() != null;
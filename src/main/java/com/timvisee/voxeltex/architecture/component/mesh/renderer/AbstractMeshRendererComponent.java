@@ -39,9 +39,6 @@ public abstract class AbstractMeshRendererComponent extends BaseComponent implem
         super.start();
     }
 
-    @Override
-    public synchronized void update() { }
-
     @Override
     public boolean hasMeshFilterComponent() {
         return getMeshFilterComponent() != null;
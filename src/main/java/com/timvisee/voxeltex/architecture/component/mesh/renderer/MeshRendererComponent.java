@@ -24,9 +24,14 @@ package com.timvisee.voxeltex.architecture.component.mesh.renderer;
 
 import com.timvisee.voxeltex.architecture.component.mesh.filter.AbstractMeshFilterComponent;
 import com.timvisee.voxeltex.architecture.component.mesh.filter.MeshFilterComponentInterface;
+import com.timvisee.voxeltex.engine.light.LightSelection;
+import com.timvisee.voxeltex.engine.render.batch.StaticBatch;
+import com.timvisee.voxeltex.engine.render.queue.RenderQueue;
+import com.timvisee.voxeltex.engine.spatial.DynamicAabbTree;
+import com.timvisee.voxeltex.engine.update.UpdateRatePolicy;
 import com.timvisee.voxeltex.module.Color;
 import com.timvisee.voxeltex.module.material.Material;
-import com.timvisee.voxeltex.module.shader.Shader;
+import com.timvisee.voxeltex.module.mesh.Bounds;
 import org.joml.Matrix4f;
 
 import java.util.ArrayList;
@@ -49,6 +54,31 @@ public class MeshRendererComponent extends AbstractMeshRendererComponent {
      */
     private Color color = new Color(1, 1, 1, 1);
 
+    /**
+     * Static batch this renderer is baked into, or null if it isn't batched.
+     */
+    private StaticBatch staticBatch = null;
+
+    /**
+     * Proxy ID of the game object in the spatial index of the scene, or {@link DynamicAabbTree#NULL_NODE}.
+     */
+    private int spatialProxy = DynamicAabbTree.NULL_NODE;
+
+    /**
+     * World version of the transform the spatial index was last updated with.
+     */
+    private int spatialVersion = -1;
+
+    /**
+     * Selection of the lights with the most influence on the mesh, kept across frames while nothing moves.
+     */
+    private final LightSelection lightSelection = new LightSelection();
+
+    /**
+     * Cached world space bounds, used to update the spatial index.
+     */
+    private final Bounds tempWorldBounds = new Bounds();
+
     /**
      * Cached model matrix that is used for rendering from time to time.
      * Caching and recycling the instance adds a huge performance benefit.
@@ -99,6 +129,66 @@ public class MeshRendererComponent extends AbstractMeshRendererComponent {
         // Get the mesh filter if it hasn't been configured already
         if(!hasMeshFilterComponent())
             this.meshFilter = getComponent(AbstractMeshFilterComponent.class);
+
+        // Add the game object to the spatial index of the scene
+        updateSpatialIndex();
+    }
+
+    @Override
+    public synchronized void mergeUpdate() {
+        // Keep the spatial index up to date, static game objects don't move
+        if(!getOwner().isStatic())
+            updateSpatialIndex();
+    }
+
+    @Override
+    public UpdateRatePolicy getUpdateRatePolicy() {
+        // The spatial index must follow the game object every frame, or it might be culled while visible
+        return null;
+    }
+
+    /**
+     * Add or move the game object in the spatial index of the scene, based on the world bounds of the mesh.
+     * The index is only restructured if the game object moved outside its fattened bounds.
+     */
+    private void updateSpatialIndex() {
+        // Make sure a mesh is available
+        if(!hasMeshFilterComponent() || !getMeshFilterComponent().hasMesh())
+            return;
+
+        // Skip if the game object hasn't moved since the last update
+        final int version = getTransform().getWorldVersion();
+        if(this.spatialProxy != DynamicAabbTree.NULL_NODE && version == this.spatialVersion)
+            return;
+        this.spatialVersion = version;
+
+        // Determine the world bounds of the mesh
+        getTransform().getWorldBounds(this.meshFilter.getMesh().getBounds(), this.tempWorldBounds);
+
+        // Add the game object to the index, or move it
+        if(this.spatialProxy == DynamicAabbTree.NULL_NODE)
+            this.spatialProxy = getScene().getSpatialIndex().add(this.tempWorldBounds, getOwner());
+        else
+            getScene().getSpatialIndex().move(this.spatialProxy, this.tempWorldBounds);
+    }
+
+    /**
+     * Remove the game object from the spatial index of the scene, if it's indexed.
+     */
+    private void removeSpatialProxy() {
+        if(this.spatialProxy != DynamicAabbTree.NULL_NODE) {
+            getScene().getSpatialIndex().remove(this.spatialProxy);
+            this.spatialProxy = DynamicAabbTree.NULL_NODE;
+        }
+    }
+
+    /**
+     * Get the proxy ID of the game object in the spatial index of the scene.
+     *
+     * @return Proxy ID, or {@link DynamicAabbTree#NULL_NODE} if the game object isn't indexed.
+     */
+    public int getSpatialProxy() {
+        return this.spatialProxy;
     }
 
     @Override
@@ -107,42 +197,95 @@ public class MeshRendererComponent extends AbstractMeshRendererComponent {
         if(!hasMeshFilterComponent() || !getMeshFilterComponent().hasMesh())
             return;
 
+        // Skip the mesh if it's baked into a static batch, the batch draws it
+        if(isStaticBatched())
+            return;
+
         // TODO: Should we also render if no material is available, with a default color of some sort?
         // TODO: Add compatibility for multiple materials!
         // TODO: Use a default material if none is found!
 
         // Make sure a material is available before using it
         if(hasMaterial()) {
-            // Get the main material and shader
-            Material material = getMaterial();
-            Shader shader = material.getShader();
+            // Determine the render pass, based on the transparency of the color
+            final int pass = this.color.getAlpha() < 1.0f ? RenderQueue.PASS_TRANSPARENT : RenderQueue.PASS_OPAQUE;
 
-            // Bind material to OpenGL and update the shader
-            material.bind();
-            shader.update(getScene(), material);
-
-            // Get the model matrix and send it to the shader
+            // Submit the mesh to the render queue of the scene, along with its world matrix
             synchronized(this.tempModelMatrix) {
-                shader.setUniformMatrix4f("modelMatrix", getTransform().getWorldMatrix(this.tempModelMatrix));
+                getScene().getRenderQueue().submit(
+                        this.meshFilter.getMesh(),
+                        getMaterial(),
+                        getTransform().getWorldMatrix(this.tempModelMatrix),
+                        this.color,
+                        pass,
+                        this.lightSelection,
+                        getTransform().getWorldVersion()
+                );
             }
+        }
 
-            // Bind the texture if available
-            // TODO: Also bind the normal!
-            if(material.hasTexture())
-                shader.setUniform1f("texture", material.getTexture().getId());
+        // TODO: Also draw the mesh if no material is attached!
+    }
 
-            // Send the color
-            // TODO: Use buffering!
-            shader.setUniform4f("color", this.color.toVector4f());
+    @Override
+    public void onActivate() {
+        // Add the game object to the spatial index of the scene again
+        updateSpatialIndex();
 
-            // Draw the mesh attached to the mesh filter
-            this.meshFilter.getMesh().draw(material);
+        // Add a static renderer to the static batches again, if they were built already
+        if(isSceneStarted() && getOwner().isStatic() && !isStaticBatched())
+            getScene().getStaticBatcher().add(this);
+    }
 
-            // Unbind the material
-            material.unbind();
-        }
+    @Override
+    public void onDeactivate() {
+        // Remove the renderer from its static batch, so the batch is rebuilt without it
+        if(isStaticBatched())
+            this.staticBatch.remove(this);
 
-        // TODO: Also draw the mesh if no material is attached!
+        // Remove the game object from the spatial index, so it isn't found by queries while inactive
+        removeSpatialProxy();
+    }
+
+    @Override
+    public void destroy() {
+        // Remove the renderer from its static batch, so the batch is rebuilt without it
+        if(isStaticBatched())
+            this.staticBatch.remove(this);
+
+        // Remove the game object from the spatial index
+        removeSpatialProxy();
+
+        // Destroy the super
+        super.destroy();
+    }
+
+    /**
+     * Get the static batch this renderer is baked into.
+     *
+     * @return Static batch, or null if the renderer isn't batched.
+     */
+    public StaticBatch getStaticBatch() {
+        return this.staticBatch;
+    }
+
+    /**
+     * Check whether this renderer is baked into a static batch.
+     *
+     * @return True if batched, false if not.
+     */
+    public boolean isStaticBatched() {
+        return this.staticBatch != null;
+    }
+
+    /**
+     * Set the static batch this renderer is baked into.
+     * This is managed by the static batcher and shouldn't be called manually.
+     *
+     * @param staticBatch Static batch, or null.
+     */
+    public void setStaticBatch(StaticBatch staticBatch) {
+        this.staticBatch = staticBatch;
     }
 
     /**
@@ -25,7 +25,7 @@ package com.timvisee.voxeltex.architecture.component.other.follow;
 import com.timvisee.voxeltex.architecture.component.AbstractComponent;
 import com.timvisee.voxeltex.architecture.component.BaseComponent;
 import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
-import com.timvisee.voxeltex.runtime.global.Time;
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
@@ -147,11 +147,16 @@ public class SmoothTopDownFollowComponent extends BaseComponent {
         smoothUpdate();
     }
 
+    @Override
+    public int getUpdateAccess() {
+        return ComponentAccess.READ_TRANSFORM | ComponentAccess.WRITE_OWN_TRANSFORM;
+    }
+
     /**
      * Smoothly update the position with the default parameters.
      */
     public void smoothUpdate() {
-        smoothUpdate(this.positionDamping * Time.deltaTimeFloat, this.rotationDamping * Time.deltaTimeFloat);
+        smoothUpdate(this.positionDamping * getDeltaTime(), this.rotationDamping * getDeltaTime());
     }
 
     /**
@@ -175,6 +180,9 @@ public class SmoothTopDownFollowComponent extends BaseComponent {
         // Lerp to the target rotation with the specified rotation damping if set
         if(this.targetRotation != null)
             getTransform().getRotation().nlerp(targetRotation, rotationFactor);
+
+        // Let the children follow right away
+        getTransform().markDirty();
     }
 
     /**
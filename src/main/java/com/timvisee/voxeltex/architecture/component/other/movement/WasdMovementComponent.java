@@ -22,6 +22,7 @@
 
 package com.timvisee.voxeltex.architecture.component.other.movement;
 
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
 import com.timvisee.voxeltex.runtime.global.Input;
 import org.joml.Vector3f;
 
@@ -49,6 +50,11 @@ public class WasdMovementComponent extends AbstractMovementComponent {
         );
     }
 
+    @Override
+    public int getUpdateAccess() {
+        return ComponentAccess.READ_INPUT | ComponentAccess.WRITE_OWN_TRANSFORM;
+    }
+
     /**
      * Get the moment speed.
      *
@@ -22,11 +22,11 @@
 
 package com.timvisee.voxeltex.architecture.component.other.movement;
 
-import com.bulletphysics.dynamics.RigidBody;
 import com.timvisee.voxeltex.architecture.component.rigidbody.RigidbodyComponent;
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
+import com.timvisee.voxeltex.engine.update.UpdateRatePolicy;
 import com.timvisee.voxeltex.runtime.global.Input;
 import com.timvisee.voxeltex.util.math.vector.Vector3fFactory;
-import com.timvisee.voxeltex.util.math.vector.Vector3fUtil;
 import org.joml.Vector3f;
 
 import static org.lwjgl.glfw.GLFW.*;
@@ -67,16 +67,39 @@ public class WasdPhysicsMovementComponent extends AbstractMovementComponent {
                 (Input.isKeyDown(GLFW_KEY_W) ? -movementIntensity : 0) + (Input.isKeyDown(GLFW_KEY_S) ? movementIntensity : 0)
         );
 
-        // Get the rigidbody
-        RigidBody rigidbody = this.rigidbody.getPhysicsRigidbody();
+        // Buffer the force, the physics thread applies it before each step
+        this.rigidbody.setForce(target.x, target.y, target.z);
+    }
 
-        // Clear the current forces
-        rigidbody.clearForces();
+    @Override
+    public int getUpdateAccess() {
+        return ComponentAccess.READ_INPUT | ComponentAccess.WRITE_PHYSICS;
+    }
 
-        // TODO: Use buffering!
-        rigidbody.applyCentralForce(
-                    Vector3fUtil.toVecmath(target, new javax.vecmath.Vector3f())
-        );
+    @Override
+    public UpdateRatePolicy getUpdateRatePolicy() {
+        // The buffered force must follow the input every frame, or the body keeps accelerating while skipped
+        return null;
+    }
+
+    @Override
+    public void onDisable() {
+        // Call the super
+        super.onDisable();
+
+        // Stop pushing the rigidbody
+        if(this.rigidbody != null)
+            this.rigidbody.setForce(0.0f, 0.0f, 0.0f);
+    }
+
+    @Override
+    public void onDeactivate() {
+        // Call the super
+        super.onDeactivate();
+
+        // Stop pushing the rigidbody, also when the owner is disabled or despawned
+        if(this.rigidbody != null)
+            this.rigidbody.setForce(0.0f, 0.0f, 0.0f);
     }
 
     /**
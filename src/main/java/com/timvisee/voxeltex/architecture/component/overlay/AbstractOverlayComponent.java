@@ -34,7 +34,4 @@ public abstract class AbstractOverlayComponent extends BaseComponent implements
         // Call the super
         super.start();
     }
-
-    @Override
-    public synchronized void update() { }
 }
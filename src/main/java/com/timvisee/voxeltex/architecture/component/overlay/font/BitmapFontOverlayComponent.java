@@ -26,22 +26,16 @@ import com.timvisee.voxeltex.architecture.component.overlay.AbstractOverlayCompo
 import com.timvisee.voxeltex.module.Color;
 import com.timvisee.voxeltex.module.font.BitmapFont;
 import com.timvisee.voxeltex.module.font.BitmapFontManager;
-import com.timvisee.voxeltex.module.render.OverlayUtil;
-import com.timvisee.voxeltex.module.render.RenderOverlayHelper;
+import com.timvisee.voxeltex.module.font.BitmapFontText;
 import com.timvisee.voxeltex.util.math.vector.Vector2fFactory;
 import org.joml.Vector2f;
 
 public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
 
     /**
-     * Bitmap font that is used.
+     * Text to render, laid out in the bitmap font that is used.
      */
-    private BitmapFont font = BitmapFontManager.getDefault();
-
-    /**
-     * Text to render.
-     */
-    private String text = "";
+    private final BitmapFontText fontText;
 
     /**
      * Font color.
@@ -53,11 +47,6 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      */
     private Vector2f position = Vector2fFactory.identity();
 
-    /**
-     * Rectangle size.
-     */
-    private float size;
-
     /**
      * Constructor.
      *
@@ -79,9 +68,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      */
     public BitmapFontOverlayComponent(Vector2f position, float size, String text, BitmapFont font) {
         this.position.set(position);
-        this.size = size;
-        this.text = text;
-        this.font = font;
+        this.fontText = new BitmapFontText(font, text, size);
     }
 
     /**
@@ -107,9 +94,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      */
     public BitmapFontOverlayComponent(Vector2f position, float size, String text, BitmapFont font, Color color) {
         this.position.set(position);
-        this.size = size;
-        this.text = text;
-        this.font = font;
+        this.fontText = new BitmapFontText(font, text, size);
         this.color = color;
     }
 
@@ -133,37 +118,8 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
 
     @Override
     public void onDrawOverlay() {
-        // Apply the font color to the material
-        this.font.getMaterial().setColor(this.color);
-
-        // TODO: Use the font rendering code available in the RenderOverlayHelper class!
-
-        // Bind and render each character separately
-        for(int i = 0; i < text.length(); i++) {
-            // Get the current character
-            final char c = text.charAt(i);
-
-            // Calculate the width factor of the current character
-            final float widthFactor = this.font.getFontWidths().getCharacterWidthFactor(c);
-
-            // Bind the font material with the current character and the proper character width
-            this.font.getMaterial().bind(c, widthFactor);
-
-            // Calculate the character width offset
-            final float characterWidthOffset = this.size * this.font.getFontWidths().getStringWidthFactor(text.substring(0, i));
-
-            // Get the window ratio factor
-            final float windowRatio = OverlayUtil.getWindowRatioFactor();
-
-            // Render the rectangle, and compensate with the window ratio factor
-            RenderOverlayHelper.renderRectangle(
-                    position.x + characterWidthOffset / windowRatio, position.y,
-                    this.size * widthFactor / windowRatio, this.size
-            );
-
-            // Unbind the material
-            this.font.getMaterial().unbind();
-        }
+        // Draw the cached text layout at the text position
+        this.fontText.draw(this.position.x, this.position.y, this.color);
     }
 
     /**
@@ -172,7 +128,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      * @return Text.
      */
     public String getText() {
-        return this.text;
+        return this.fontText.getText();
     }
 
     /**
@@ -181,7 +137,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      * @param text Text.
      */
     public void setText(String text) {
-        this.text = text;
+        this.fontText.setText(text);
     }
 
     /**
@@ -190,7 +146,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      * @return Bitmap font.
      */
     public BitmapFont getFont() {
-        return this.font;
+        return this.fontText.getFont();
     }
 
     /**
@@ -199,7 +155,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      * @param font Bitmap font.
      */
     public void setFont(BitmapFont font) {
-        this.font = font;
+        this.fontText.setFont(font);
     }
 
     /**
@@ -226,7 +182,7 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      * @return Size.
      */
     public float getSize() {
-        return this.size;
+        return this.fontText.getSize();
     }
 
     /**
@@ -235,6 +191,6 @@ public class BitmapFontOverlayComponent extends AbstractOverlayComponent {
      * @param size Size.
      */
     public void setSize(float size) {
-        this.size = size;
+        this.fontText.setSize(size);
     }
 }
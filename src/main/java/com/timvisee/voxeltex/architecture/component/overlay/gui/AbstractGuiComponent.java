@@ -23,6 +23,7 @@
 package com.timvisee.voxeltex.architecture.component.overlay.gui;
 
 import com.timvisee.voxeltex.architecture.component.overlay.AbstractOverlayComponent;
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
 import com.timvisee.voxeltex.module.transform.rectangle.Rectangle;
 import com.timvisee.voxeltex.module.transform.rectangle.RectangleTransform;
 
@@ -57,6 +58,11 @@ public abstract class AbstractGuiComponent extends AbstractOverlayComponent {
         super.update();
     }
 
+    @Override
+    public int getUpdateAccess() {
+        return ComponentAccess.EXCLUSIVE;
+    }
+
     /**
      * Get the attached rectangle transform component.
      *
@@ -84,16 +84,14 @@ public class GuiImageComponent extends AbstractGuiComponent {
     public void onDrawOverlay() {
         // Bind the material if available
         if(this.material != null)
-            this.material.bind();
+            RenderOverlayHelper.bindMaterial(this.material);
 
-        // Set the color level if this is an GUI texture shader
-        if(this.material != null && this.material.getShader() instanceof GuiTextureShader) {
-            // Set the color intensity
-            ((GuiTextureShader) this.material.getShader()).setColor(this.color);
-
-            // Update the shader
+        // Update the shader if this is an GUI texture shader
+        if(this.material != null && this.material.getShader() instanceof GuiTextureShader)
             this.material.update(getScene());
-        }
+
+        // Set the color intensity, which is passed to the shader as vertex color
+        RenderOverlayHelper.color(this.color);
 
         // Synchronize to ensure we aren't using this temporary variable in multiple spots at the same time
         //noinspection Duplicates
@@ -116,7 +114,7 @@ public class GuiImageComponent extends AbstractGuiComponent {
 
         // Unbind the material if available
         if(this.material != null)
-            this.material.unbind();
+            RenderOverlayHelper.unbindMaterial(this.material);
     }
 
     /**
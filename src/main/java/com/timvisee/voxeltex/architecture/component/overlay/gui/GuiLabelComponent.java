@@ -25,6 +25,7 @@ package com.timvisee.voxeltex.architecture.component.overlay.gui;
 import com.timvisee.voxeltex.module.Color;
 import com.timvisee.voxeltex.module.font.BitmapFont;
 import com.timvisee.voxeltex.module.font.BitmapFontManager;
+import com.timvisee.voxeltex.module.font.BitmapFontText;
 import com.timvisee.voxeltex.module.render.RenderOverlayHelper;
 import com.timvisee.voxeltex.module.transform.rectangle.Rectangle;
 
@@ -40,6 +41,11 @@ public class GuiLabelComponent extends AbstractGuiComponent {
      */
     private String text;
 
+    /**
+     * Cached layout of the text, fitted to the label rectangle.
+     */
+    private BitmapFontText fontText;
+
     /**
      * Font color.
      */
@@ -68,6 +74,7 @@ public class GuiLabelComponent extends AbstractGuiComponent {
     public GuiLabelComponent(String text, BitmapFont font) {
         this.text = text;
         this.font = font;
+        this.fontText = new BitmapFontText(font, text, 0.0f);
     }
 
     /**
@@ -91,6 +98,7 @@ public class GuiLabelComponent extends AbstractGuiComponent {
         this.text = text;
         this.font = font;
         this.color = color;
+        this.fontText = new BitmapFontText(font, text, 0.0f);
     }
 
     /**
@@ -113,9 +121,6 @@ public class GuiLabelComponent extends AbstractGuiComponent {
 
     @Override
     public void onDrawOverlay() {
-        // Apply the font color to the material
-        this.font.getMaterial().setColor(this.color);
-
         // Synchronize to ensure we aren't using this temporary variable in multiple spots at the same time
         synchronized(this.tempRectangle) {
             // Make sure we've a valid transform component, if not, skip the following code with an error message
@@ -128,7 +133,7 @@ public class GuiLabelComponent extends AbstractGuiComponent {
             getRectangleTransform().getOverlayRectangle(this.tempRectangle);
 
             // Draw the font
-            RenderOverlayHelper.renderFont(this.tempRectangle, this.font, text);
+            RenderOverlayHelper.renderFont(this.tempRectangle, this.fontText, this.color);
         }
     }
 
@@ -148,6 +153,7 @@ public class GuiLabelComponent extends AbstractGuiComponent {
      */
     public void setText(String text) {
         this.text = text;
+        this.fontText.setText(text);
     }
 
     /**
@@ -166,5 +172,6 @@ public class GuiLabelComponent extends AbstractGuiComponent {
      */
     public void setFont(BitmapFont font) {
         this.font = font;
+        this.fontText.setFont(font);
     }
 }
@@ -31,7 +31,9 @@ import com.bulletphysics.linearmath.DefaultMotionState;
 import com.bulletphysics.linearmath.MotionState;
 import com.bulletphysics.linearmath.Transform;
 import com.timvisee.voxeltex.architecture.component.collider.AbstractColliderComponent;
+import com.timvisee.voxeltex.engine.physics.PhysicsBodyState;
 import com.timvisee.voxeltex.engine.physics.ScenePhysicsEngine;
+import com.timvisee.voxeltex.engine.update.ComponentAccess;
 import com.timvisee.voxeltex.util.math.matrix.Matrix4fUtil;
 
 import javax.vecmath.Matrix4f;
@@ -54,32 +56,44 @@ public class RigidbodyComponent extends AbstractRigidbodyComponent {
      */
     private boolean initKinematic = false;
 
+    /**
+     * True if the rigidbody is currently added to the physics world, false if not.
+     * The rigidbody is removed from the world while the component is disabled.
+     */
+    private boolean simulated = false;
+
+    /**
+     * State of the rigidbody in the physics engine, holding its interpolated pose, or null if it isn't simulated.
+     */
+    private PhysicsBodyState physicsState = null;
+
     /**
      * Shared lock for the temporary shared field usage.
      * These temporary fields are used to minimize object allocation at runtime,
      * which minimizes GC and greatly improved performance.
      * This ensures the temporary fields aren't used in multiple spots at the same time,
      * because that may cause unwanted behaviour.
+     * The fields are kept per instance, so rigidbodies can be updated in parallel.
      */
-    private static final Object tempSharedLock = new Object();
+    private final Object tempSharedLock = new Object();
 
     /**
      * Temporary transform, used for transform representations.
      * Using and recycling this temporary transform minimizes object allocation, resulting in better performance.
      */
-    private static final Transform tempTransform = new Transform();
+    private final Transform tempTransform = new Transform();
 
     /**
      * Temporary VecMath matrix, used for transform calculations.
      * Using and recycling this temporary matrix minimizes object allocation, resulting in better performance.
      */
-    private static final Matrix4f tempMatrixVecmath = new Matrix4f();
+    private final Matrix4f tempMatrixVecmath = new Matrix4f();
 
     /**
      * Temporary JOML matrix, used for transform calculations.
      * Using and recycling this temporary matrix minimizes object allocation, resulting in better performance.
      */
-    private static final org.joml.Matrix4f tempMatrixJoml = new org.joml.Matrix4f();
+    private final org.joml.Matrix4f tempMatrixJoml = new org.joml.Matrix4f();
 
     /**
      * Constructor.
@@ -109,24 +123,20 @@ public class RigidbodyComponent extends AbstractRigidbodyComponent {
 
     @Override
     public synchronized void update() {
-        // Update the transform of the game object according to the physics object if available
-        if(this.physicsRigidbody != null) {
-            // Ensure we aren't using the temporary transform and matrix in multiple spots at the same time
-            synchronized(tempSharedLock) {
-                // Get the world transform matrix of the physics object
-                this.physicsRigidbody.getWorldTransform(tempTransform);
-
-                // Convert the transformation matrix to a JOML matrix
-                Matrix4fUtil.toJoml(tempTransform.getMatrix(tempMatrixVecmath), tempMatrixJoml);
-
-                // Update the game object transform
-                tempMatrixJoml.getTranslation(getTransform().getPosition());
-                tempMatrixJoml.getUnnormalizedRotation(getTransform().getRotation());
-                //tempMatrixJoml.getScale(getTransform().getScale()); // TODO: Implement this!
-            }
+        // Update the transform of the game object to the interpolated pose of the physics object if it's simulated,
+        // the physics world itself is stepped on the physics thread and isn't touched here
+        if(this.physicsState != null) {
+            getTransform().getPosition().set(this.physicsState.getPosition());
+            getTransform().getRotation().set(this.physicsState.getRotation());
+            // TODO: Apply the scale of the physics object!
         }
     }
 
+    @Override
+    public int getUpdateAccess() {
+        return ComponentAccess.READ_PHYSICS | ComponentAccess.WRITE_OWN_TRANSFORM;
+    }
+
     /**
      * Create the actual rigidbody for this component.
      * This should be called when the scene the game object is in is started.
@@ -184,8 +194,31 @@ public class RigidbodyComponent extends AbstractRigidbodyComponent {
         // Set the user pointer to the game object
         this.physicsRigidbody.setUserPointer(getOwner());
 
-        // Add the rigidbody to the physics engine world
-        physicsEngine.addRigidbody(this.physicsRigidbody);
+        // Add the rigidbody to the physics engine world if the component is enabled
+        if(isEnabled()) {
+            this.physicsState = physicsEngine.addRigidbody(this.physicsRigidbody);
+            this.simulated = true;
+        }
+    }
+
+    /**
+     * Move the rigidbody to the current world transform of the game object, and clear its velocities and forces.
+     * This should be called after the game object is teleported, for example when it's recycled from a pool.
+     */
+    public void resetPhysicsRigidbody() {
+        // Make sure the rigidbody is created
+        if(this.physicsRigidbody == null)
+            return;
+
+        // Clear the buffered force
+        setForce(0.0f, 0.0f, 0.0f);
+
+        // Make sure the temporary fields being used aren't used in multiple spots at the same time
+        synchronized(tempSharedLock) {
+            // Move the rigidbody to the world transform of the game object, and clear its velocities and forces
+            tempTransform.set(Matrix4fUtil.toVecmath(getTransform().getWorldMatrix(tempMatrixJoml), tempMatrixVecmath));
+            getScene().getPhysicsEngine().teleportRigidbody(this.physicsRigidbody, tempTransform);
+        }
     }
 
     @Override
@@ -208,6 +241,13 @@ public class RigidbodyComponent extends AbstractRigidbodyComponent {
         setCollisionFlag(CollisionFlags.KINEMATIC_OBJECT, kinematic);
     }
 
+    @Override
+    public synchronized void setForce(float x, float y, float z) {
+        // Buffer the force in the physics state, it isn't simulated while the rigidbody is disabled
+        if(this.physicsState != null)
+            this.physicsState.setForce(x, y, z);
+    }
+
     /**
      * Set whether the given collision flag is set or not.
      *
@@ -215,18 +255,45 @@ public class RigidbodyComponent extends AbstractRigidbodyComponent {
      * @param enabled True to enable the flag, false to disable.
      */
     private void setCollisionFlag(int collisionFlag, boolean enabled) {
-        if(enabled)
-            this.physicsRigidbody.setCollisionFlags(this.physicsRigidbody.getCollisionFlags() | collisionFlag);
-        else
-            this.physicsRigidbody.setCollisionFlags(this.physicsRigidbody.getCollisionFlags() & ~collisionFlag);
+        // Don't change the flags while the physics thread is stepping the world
+        synchronized(getScene().getPhysicsEngine().getLock()) {
+            if(enabled)
+                this.physicsRigidbody.setCollisionFlags(this.physicsRigidbody.getCollisionFlags() | collisionFlag);
+            else
+                this.physicsRigidbody.setCollisionFlags(this.physicsRigidbody.getCollisionFlags() & ~collisionFlag);
+        }
+    }
+
+    @Override
+    public void onEnable() {
+        // Add the rigidbody back to the physics world at the current transform, if it was created before
+        if(this.physicsRigidbody != null && !this.simulated) {
+            resetPhysicsRigidbody();
+            this.physicsState = getScene().getPhysicsEngine().addRigidbody(this.physicsRigidbody);
+            this.simulated = true;
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        // Remove the rigidbody from the physics world, but keep it so it can be added again when enabled
+        if(this.physicsRigidbody != null && this.simulated) {
+            setForce(0.0f, 0.0f, 0.0f);
+            getScene().getPhysicsEngine().removeRigidbody(this.physicsRigidbody);
+            this.physicsState = null;
+            this.simulated = false;
+        }
     }
 
     @Override
     public void destroy() {
-        // Remove the rigidbody from the physics engine if created
-        if(this.physicsRigidbody != null)
+        // Remove the rigidbody from the physics engine if it's simulated
+        if(this.physicsRigidbody != null && this.simulated) {
             // Get the physics engine and remove the rigidbody from it
             getScene().getPhysicsEngine().removeRigidbody(this.physicsRigidbody);
+            this.physicsState = null;
+            this.simulated = false;
+        }
 
         // Destroy the super
         super.destroy();
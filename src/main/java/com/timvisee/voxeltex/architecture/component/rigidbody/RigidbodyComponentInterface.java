@@ -36,6 +36,7 @@ public interface RigidbodyComponentInterface {
 
     /**
      * Get the Bullet physics engine rigidbody if created.
+     * The rigidbody is simulated on the physics thread, hold the lock of the scene physics engine while using it.
      *
      * @return Bullet physics engine rigidbody or null.
      */
@@ -54,4 +55,14 @@ public interface RigidbodyComponentInterface {
      * @param kinematic True if kinematic, false if not.
      */
     void setKinematic(boolean kinematic);
+
+    /**
+     * Set the force that is applied to the center of this rigidbody before each physics step, until it's changed.
+     * The force is buffered, and applied on the physics thread, so this may be called without holding the physics lock.
+     *
+     * @param x Force along the X axis.
+     * @param y Force along the Y axis.
+     * @param z Force along the Z axis.
+     */
+    void setForce(float x, float y, float z);
 }
@@ -25,6 +25,7 @@ package com.timvisee.voxeltex.architecture.gameobject;
 import com.timvisee.voxeltex.architecture.component.AbstractComponent;
 import com.timvisee.voxeltex.architecture.scene.AbstractScene;
 import com.timvisee.voxeltex.engine.VoxelTexEngine;
+import com.timvisee.voxeltex.engine.update.UpdateRatePolicy;
 import com.timvisee.voxeltex.module.transform.Transform;
 import com.timvisee.voxeltex.util.EnabledState;
 
@@ -43,6 +44,17 @@ public abstract class AbstractGameObject {
      */
     private AbstractScene scene;
 
+    /**
+     * True if this game object is static, and won't move after the scene has started.
+     * The meshes of static game objects are baked into static batches when the scene starts.
+     */
+    private boolean staticObject = false;
+
+    /**
+     * Update rate policy for the components of this game object that don't have their own policy, or null.
+     */
+    private UpdateRatePolicy updateRatePolicy = null;
+
     /**
      * Constructor.
      *
@@ -91,6 +103,49 @@ public abstract class AbstractGameObject {
             else
                 onDisable();
         }
+
+        // Register or unregister the game object, its components and its children in the scene
+        if(change && getScene() != null)
+            getScene().getComponentRegistry().refresh(this);
+    }
+
+    /**
+     * Check whether this game object is static.
+     * Static game objects must not move after the scene has started.
+     *
+     * @return True if static, false if not.
+     */
+    public boolean isStatic() {
+        return this.staticObject;
+    }
+
+    /**
+     * Set whether this game object is static.
+     * Static game objects must not move after the scene has started,
+     * their meshes are baked into static batches when the scene starts.
+     *
+     * @param staticObject True if static, false if not.
+     */
+    public void setStatic(boolean staticObject) {
+        this.staticObject = staticObject;
+    }
+
+    /**
+     * Get the update rate policy for the components of this game object that don't have their own policy.
+     *
+     * @return Update rate policy, or null if the components are updated every frame.
+     */
+    public UpdateRatePolicy getUpdateRatePolicy() {
+        return this.updateRatePolicy;
+    }
+
+    /**
+     * Set the update rate policy for the components of this game object that don't have their own policy.
+     *
+     * @param updateRatePolicy Update rate policy, or null to update the components every frame.
+     */
+    public void setUpdateRatePolicy(UpdateRatePolicy updateRatePolicy) {
+        this.updateRatePolicy = updateRatePolicy;
     }
 
     /**
@@ -291,6 +346,18 @@ public abstract class AbstractGameObject {
      */
     public abstract <T extends AbstractComponent> T getComponent(Class<T> componentType);
 
+    /**
+     * Get all components of the given type, and add them to the given list.
+     * This method doesn't allocate, use it instead of filtering the component list when querying each frame.
+     *
+     * @param componentType Component type.
+     * @param dest List to add the components to.
+     * @param <T> Component type.
+     *
+     * @return Number of components that were added.
+     */
+    public abstract <T extends AbstractComponent> int getComponents(Class<T> componentType, List<T> dest);
+
     /**
      * Remove a component from the game object before the next update.
      * To destroy the component, call {@see AbstractComponent.destroy()} instead since this method doesn't imply
@@ -331,6 +398,12 @@ public abstract class AbstractGameObject {
      */
     public abstract void update();
 
+    /**
+     * Apply the queued removals of components and children of this game object.
+     * This is called at the end of each update.
+     */
+    public abstract void applyRemoveQueues();
+
     /**
      * Destroy the game object.
      * This will remove the game object from the parent game object or scene automatically before the next update.
@@ -340,6 +413,16 @@ public abstract class AbstractGameObject {
      */
     public abstract void destroy();
 
+    /**
+     * Prepare and start the drawing process of the components of this game object.
+     */
+    public abstract void drawStart();
+
+    /**
+     * End the drawing process of the components of this game object.
+     */
+    public abstract void drawEnd();
+
     /**
      * Draw the game object.
      * This will be called when drawing the game object.
@@ -27,6 +27,7 @@ import com.timvisee.voxeltex.architecture.component.drawable.DrawableComponentIn
 import com.timvisee.voxeltex.architecture.component.overlay.OverlayComponentInterface;
 import com.timvisee.voxeltex.module.transform.Transform;
 import com.timvisee.voxeltex.runtime.global.MainCamera;
+import com.timvisee.voxeltex.util.ListUtil;
 import org.joml.Matrix4f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
@@ -34,6 +35,7 @@ import org.lwjgl.opengl.GL11;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GameObject extends AbstractGameObject {
 
@@ -72,10 +74,23 @@ public class GameObject extends AbstractGameObject {
      */
     private List<AbstractComponent> componentsRemoveQueue = new ArrayList<>();
 
+    /**
+     * Cache of the components of each requested type, in component order.
+     * Requested types include superclasses and interfaces, and types without components are cached as empty arrays.
+     * The cache is cleared whenever a component is added or removed.
+     */
+    private final ConcurrentHashMap<Class<?>, AbstractComponent[]> componentTypeCache = new ConcurrentHashMap<>();
+
+    /**
+     * Cached array for types without any components.
+     */
+    private static final AbstractComponent[] NO_COMPONENTS = new AbstractComponent[0];
+
     /**
      * Float buffer for the rendering matrix.
+     * Shared by all game objects, it's only used while the view matrix cache is locked.
      */
-    private FloatBuffer fb = BufferUtils.createFloatBuffer(16);
+    private static final FloatBuffer fb = BufferUtils.createFloatBuffer(16);
 
     /**
      * View matrix cache.
@@ -120,6 +135,9 @@ public class GameObject extends AbstractGameObject {
     @Override
     public void setParent(AbstractGameObject parent) {
         this.parent = parent;
+
+        // The world matrices of this subtree depend on the parent
+        this.transform.markDirty();
     }
 
     @Override
@@ -152,7 +170,9 @@ public class GameObject extends AbstractGameObject {
 
     @Override
     public void addChild(AbstractGameObject gameObject) {
-        // Set the parent
+        // Set the parent, and keep the components in scene tree order if the game object was moved
+        if(getScene() != null)
+            getScene().getComponentRegistry().move(gameObject);
         gameObject.setParent(this);
 
         // Set the scene
@@ -160,6 +180,8 @@ public class GameObject extends AbstractGameObject {
 
         // Add the game object to the children
         this.children.add(gameObject);
+        if(getScene() != null)
+            getScene().getComponentRegistry().refresh(gameObject);
 
         // Create the game object
         if(getScene() != null)
@@ -207,11 +229,14 @@ public class GameObject extends AbstractGameObject {
 
     @Override
     public void addComponent(AbstractComponent component) {
-        // Add the component
+        // Add the component, and clear the component type cache
         this.components.add(component);
+        this.componentTypeCache.clear();
 
-        // Set the component owner
+        // Set the component owner, and register the component in the scene
         component.setOwner(this);
+        if(getScene() != null)
+            getScene().getComponentRegistry().refresh(component);
 
         // Create the component
         if(getScene() != null)
@@ -229,17 +254,55 @@ public class GameObject extends AbstractGameObject {
 
     @Override
     public <T extends AbstractComponent> T getComponent(Class<T> componentType) {
-        // Loop through all components to find an applicable one
+        // Get the cached components of this type, and return the first
+        final AbstractComponent[] components = getComponentsOfType(componentType);
+        //noinspection unchecked
+        return components.length > 0 ? (T) components[0] : null;
+    }
+
+    @Override
+    public <T extends AbstractComponent> int getComponents(Class<T> componentType, List<T> dest) {
+        // Get the cached components of this type
+        final AbstractComponent[] components = getComponentsOfType(componentType);
+
+        // Add the components to the list
         //noinspection ForLoopReplaceableByForEach
-        for(int i = 0, size = this.components.size(); i < size; i++) {
-            // Check whether this component is valid
-            if(componentType.isAssignableFrom(this.components.get(i).getClass()))
-                //noinspection unchecked
-                return (T) this.components.get(i);
-        }
+        for(int i = 0; i < components.length; i++)
+            //noinspection unchecked
+            dest.add((T) components[i]);
+        return components.length;
+    }
+
+    /**
+     * Get all components of the given type from the component type cache.
+     * The components are collected and cached if the type wasn't requested before.
+     *
+     * @param componentType Component type.
+     *
+     * @return Array of components, in component order. This array must not be modified.
+     */
+    private AbstractComponent[] getComponentsOfType(Class<?> componentType) {
+        // Return the cached components if available
+        AbstractComponent[] components = this.componentTypeCache.get(componentType);
+        if(components != null)
+            return components;
 
-        // None found, return null
-        return null;
+        // Count the applicable components
+        int count = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.components.size(); i < size; i++)
+            if(componentType.isInstance(this.components.get(i)))
+                count++;
+
+        // Collect the applicable components
+        components = count == 0 ? NO_COMPONENTS : new AbstractComponent[count];
+        for(int i = 0, j = 0, size = this.components.size(); j < count && i < size; i++)
+            if(componentType.isInstance(this.components.get(i)))
+                components[j++] = this.components.get(i);
+
+        // Cache and return the components
+        this.componentTypeCache.put(componentType, components);
+        return components;
     }
 
     @Override
@@ -298,30 +361,54 @@ public class GameObject extends AbstractGameObject {
             if(this.components.get(i).isEnabled())
                 this.components.get(i).update();
 
+        // Merge the updates of all components
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.components.size(); i < size; i++)
+            if(this.components.get(i).isEnabled())
+                this.components.get(i).mergeUpdate();
+
         // Update all children
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0, size = this.children.size(); i < size; i++)
             if(this.children.get(i).isEnabled())
                 this.children.get(i).update();
 
+        // Apply the queued removals
+        applyRemoveQueues();
+    }
+
+    @Override
+    public synchronized void applyRemoveQueues() {
         // Remove all components that were queued to be removed
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0, size = this.componentsRemoveQueue.size(); i < size; i++) {
+            // Unregister the component from the scene
+            if(getScene() != null)
+                getScene().getComponentRegistry().remove(this.componentsRemoveQueue.get(i));
+
             // Reset the owner of the component
             this.componentsRemoveQueue.get(i).setOwner(null);
-
-            // Remove the component
-            this.components.remove(this.componentsRemoveQueue.get(i));
         }
 
+        // Remove the components in a single pass
+        ListUtil.removeAll(this.components, this.componentsRemoveQueue);
+
+        // Clear the component type cache if any component was removed
+        if(!this.componentsRemoveQueue.isEmpty())
+            this.componentTypeCache.clear();
+
         // Clear the list of queued destroyed components
         this.componentsRemoveQueue.clear();
 
         // Remove all children that were queued to be removed
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0, size = this.childrenRemoveQueue.size(); i < size; i++)
-            // Remove the child
-            this.children.remove(this.childrenRemoveQueue.get(i));
+            // Unregister the child and its subtree from the scene
+            if(getScene() != null)
+                getScene().getComponentRegistry().remove(this.childrenRemoveQueue.get(i));
+
+        // Remove the children in a single pass
+        ListUtil.removeAll(this.children, this.childrenRemoveQueue);
 
         // Clear the list of queued destroyed children
         this.childrenRemoveQueue.clear();
@@ -409,10 +496,8 @@ public class GameObject extends AbstractGameObject {
                 this.children.get(i).onDrawOverlay();
     }
 
-    /**
-     * Prepare and start the drawing process.
-     */
-    private synchronized void drawStart() {
+    @Override
+    public synchronized void drawStart() {
         // Do not use the cached view matrix in multiple places at the same time
         synchronized(viewMatrixCache) {
             // Combine the world camera and game object matrix to construct the view matrix
@@ -423,10 +508,8 @@ public class GameObject extends AbstractGameObject {
         }
     }
 
-    /**
-     * End the current drawing process.
-     */
-    private synchronized void drawEnd() {
+    @Override
+    public synchronized void drawEnd() {
         // Pop the OpenGL matrix
         GL11.glPopMatrix();
     }
@@ -0,0 +1,275 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.architecture.pool;
+
+import com.timvisee.voxeltex.architecture.component.AbstractComponent;
+import com.timvisee.voxeltex.architecture.component.rigidbody.RigidbodyComponent;
+import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+import com.timvisee.voxeltex.architecture.scene.AbstractScene;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pool of game object instances that are recycled instead of being created and destroyed.
+ *
+ * Pooled game objects stay in the scene. Despawning a game object disables it and its rigidbodies, and returns it to
+ * the pool without destroying its components or physics bodies. Spawning takes a game object from the pool, resets its
+ * transform and enables it again. A new instance is only created if the pool is empty.
+ *
+ * Implement {@link #createInstance()} to create the pooled game objects, and override {@link #onSpawn(AbstractGameObject)}
+ * to reset any custom state when a game object is recycled.
+ *
+ * @param <T> Game object type.
+ */
+public abstract class GameObjectPool<T extends AbstractGameObject> {
+
+    /**
+     * The scene the pooled game objects are added to.
+     */
+    private final AbstractScene scene;
+
+    /**
+     * Despawned game objects that are available to be spawned.
+     */
+    private final List<T> available = new ArrayList<>();
+
+    /**
+     * Game objects that are currently spawned.
+     */
+    private final Set<T> spawned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Temporary list of components, used to find the rigidbodies of a game object.
+     * Using and recycling this temporary list minimizes object allocation, resulting in better performance.
+     */
+    private final List<RigidbodyComponent> tempRigidbodies = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param scene The scene the pooled game objects are added to.
+     */
+    public GameObjectPool(AbstractScene scene) {
+        this.scene = scene;
+    }
+
+    /**
+     * Create a new instance of the pooled game object.
+     * The instance must not be added to a scene yet, this is done by the pool.
+     *
+     * @return New game object.
+     */
+    protected abstract T createInstance();
+
+    /**
+     * Called when a game object is spawned, after its transform is reset and before it's enabled.
+     * Override this to reset custom state of recycled game objects.
+     *
+     * @param gameObject Spawned game object.
+     */
+    protected void onSpawn(T gameObject) { }
+
+    /**
+     * Called when a game object is despawned, after it's disabled.
+     *
+     * @param gameObject Despawned game object.
+     */
+    protected void onDespawn(T gameObject) { }
+
+    /**
+     * Get the scene the pooled game objects are added to.
+     *
+     * @return Scene.
+     */
+    public AbstractScene getScene() {
+        return this.scene;
+    }
+
+    /**
+     * Create game objects until at least the given number of game objects is available to be spawned.
+     * This should be called while loading, so spawning a wave of game objects doesn't allocate.
+     *
+     * @param count Number of available game objects.
+     */
+    public synchronized void prewarm(int count) {
+        while(this.available.size() < count)
+            this.available.add(createPooledInstance());
+    }
+
+    /**
+     * Spawn a game object at the origin.
+     *
+     * @return Spawned game object.
+     */
+    public T spawn() {
+        return spawn(null, null);
+    }
+
+    /**
+     * Spawn a game object at the given position.
+     *
+     * @param position World position.
+     *
+     * @return Spawned game object.
+     */
+    public T spawn(Vector3f position) {
+        return spawn(position, null);
+    }
+
+    /**
+     * Spawn a game object at the given position and rotation.
+     * A despawned game object is recycled if available, a new one is created otherwise.
+     *
+     * @param position World position, or null for the origin.
+     * @param rotation World rotation, or null for no rotation.
+     *
+     * @return Spawned game object.
+     */
+    public synchronized T spawn(Vector3f position, Quaternionf rotation) {
+        // Take an available game object, or create a new one
+        final T gameObject = this.available.isEmpty()
+                ? createPooledInstance()
+                : this.available.remove(this.available.size() - 1);
+        this.spawned.add(gameObject);
+
+        // Reset the transform
+        if(position != null)
+            gameObject.getTransform().getPosition().set(position);
+        else
+            gameObject.getTransform().getPosition().zero();
+        if(rotation != null)
+            gameObject.getTransform().getRotation().set(rotation);
+        else
+            gameObject.getTransform().getRotation().identity();
+        gameObject.getTransform().getLinearVelocity().zero();
+        gameObject.getTransform().getLinearAcceleration().zero();
+        gameObject.getTransform().getAngularVelocity().zero();
+        gameObject.getTransform().getAngularAcceleration().zero();
+        gameObject.getTransform().markDirty();
+
+        // Reset the custom state
+        onSpawn(gameObject);
+
+        // Enable the game object, and add its rigidbodies back to the physics world at the new transform
+        gameObject.setEnabled(true);
+        setRigidbodiesEnabled(gameObject, true);
+        return gameObject;
+    }
+
+    /**
+     * Despawn the given game object, and return it to the pool.
+     * The game object is disabled and its rigidbodies are removed from the physics world, but its components are kept.
+     *
+     * @param gameObject Game object to despawn.
+     *
+     * @return True if the game object was despawned, false if it wasn't spawned by this pool.
+     */
+    public synchronized boolean despawn(T gameObject) {
+        // Make sure the game object is spawned by this pool
+        if(!this.spawned.remove(gameObject))
+            return false;
+
+        // Disable the game object and its rigidbodies
+        setRigidbodiesEnabled(gameObject, false);
+        gameObject.setEnabled(false);
+        onDespawn(gameObject);
+
+        // Return the game object to the pool
+        this.available.add(gameObject);
+        return true;
+    }
+
+    /**
+     * Get the number of despawned game objects that are available to be spawned.
+     *
+     * @return Available game object count.
+     */
+    public synchronized int getAvailableCount() {
+        return this.available.size();
+    }
+
+    /**
+     * Get the number of game objects that are currently spawned.
+     *
+     * @return Spawned game object count.
+     */
+    public synchronized int getSpawnedCount() {
+        return this.spawned.size();
+    }
+
+    /**
+     * Destroy all game objects that are available to be spawned.
+     * Spawned game objects are kept, and are destroyed when they're despawned.
+     */
+    public synchronized void clear() {
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.available.size(); i < size; i++)
+            this.available.get(i).destroy();
+        this.available.clear();
+    }
+
+    /**
+     * Create a new instance and add it to the scene in a despawned state.
+     *
+     * @return Despawned game object.
+     */
+    private T createPooledInstance() {
+        // Create the instance, and disable it and its rigidbodies before it's started so they aren't enabled
+        // automatically, the rigidbodies won't be added to the physics world until the game object is spawned
+        final T gameObject = createInstance();
+        gameObject.setEnabled(false);
+        setRigidbodiesEnabled(gameObject, false);
+
+        // Add the game object to the scene
+        this.scene.addGameObject(gameObject);
+        return gameObject;
+    }
+
+    /**
+     * Enable or disable all rigidbodies of the given game object and its children.
+     *
+     * @param gameObject Game object.
+     * @param enabled True to enable, false to disable.
+     */
+    private void setRigidbodiesEnabled(AbstractGameObject gameObject, boolean enabled) {
+        // Enable or disable the rigidbodies of this game object
+        this.tempRigidbodies.clear();
+        gameObject.getComponents(RigidbodyComponent.class, this.tempRigidbodies);
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.tempRigidbodies.size(); i < size; i++)
+            this.tempRigidbodies.get(i).setEnabled(enabled);
+        this.tempRigidbodies.clear();
+
+        // Enable or disable the rigidbodies of all children
+        final List<AbstractGameObject> children = gameObject.getChildren();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = children.size(); i < size; i++)
+            setRigidbodiesEnabled(children.get(i), enabled);
+    }
+}
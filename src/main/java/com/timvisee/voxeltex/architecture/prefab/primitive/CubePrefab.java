@@ -27,7 +27,8 @@ import com.timvisee.voxeltex.architecture.component.mesh.filter.MeshFilterCompon
 import com.timvisee.voxeltex.architecture.component.mesh.renderer.MeshRendererComponent;
 import com.timvisee.voxeltex.architecture.gameobject.GameObject;
 import com.timvisee.voxeltex.module.material.Material;
-import com.timvisee.voxeltex.module.mesh.generator.CubeMeshGenerator;
+import com.timvisee.voxeltex.module.mesh.Mesh;
+import com.timvisee.voxeltex.module.mesh.PrimitiveMeshCache;
 import com.timvisee.voxeltex.module.shader.ShaderManager;
 import com.timvisee.voxeltex.util.math.vector.Vector3fFactory;
 import org.joml.Vector3f;
@@ -39,6 +40,11 @@ public class CubePrefab extends GameObject {
      */
     private static final String DEFAULT_NAME = "CubePrefab";
 
+    /**
+     * Shared cube mesh acquired from the primitive mesh cache, or null if it has been released.
+     */
+    private Mesh mesh;
+
     /**
      * Mesh filter component.
      */
@@ -80,8 +86,9 @@ public class CubePrefab extends GameObject {
         // Construct the super
         super(name);
 
-        // Create the mesh filter component
-        this.meshFilter = new MeshFilterComponent(new CubeMeshGenerator(size).createMesh());
+        // Create the mesh filter component with a shared mesh
+        this.mesh = PrimitiveMeshCache.acquireCube(size);
+        this.meshFilter = new MeshFilterComponent(this.mesh);
 
         // Create the mesh renderer component
         this.meshRenderer = new MeshRendererComponent(new Material(ShaderManager.SHADER_DEFAULT));
@@ -95,6 +102,19 @@ public class CubePrefab extends GameObject {
         addComponent(this.collider);
     }
 
+    @Override
+    public void destroy() {
+        // Release the shared mesh
+        synchronized(this) {
+            if(this.mesh != null)
+                PrimitiveMeshCache.release(this.mesh);
+            this.mesh = null;
+        }
+
+        // Destroy the game object
+        super.destroy();
+    }
+
     /**
      * Get the mesh filter component.
      *
@@ -27,6 +27,8 @@ import com.timvisee.voxeltex.architecture.component.mesh.filter.MeshFilterCompon
 import com.timvisee.voxeltex.architecture.component.mesh.renderer.MeshRendererComponent;
 import com.timvisee.voxeltex.architecture.gameobject.GameObject;
 import com.timvisee.voxeltex.module.material.Material;
+import com.timvisee.voxeltex.module.mesh.Mesh;
+import com.timvisee.voxeltex.module.mesh.PrimitiveMeshCache;
 import com.timvisee.voxeltex.module.mesh.generator.QuadMeshGenerator;
 import com.timvisee.voxeltex.module.shader.ShaderManager;
 import com.timvisee.voxeltex.util.math.vector.Vector2fFactory;
@@ -49,6 +51,11 @@ public class QuadPrefab extends GameObject {
      */
     private static final float COLLIDER_THICKNESS = 0.005f;
 
+    /**
+     * Shared quad mesh acquired from the primitive mesh cache, or null if it has been released.
+     */
+    private Mesh mesh;
+
     /**
      * Mesh filter component.
      */
@@ -90,8 +97,9 @@ public class QuadPrefab extends GameObject {
         // Construct the super
         super(name);
 
-        // Create the mesh filter component
-        this.meshFilter = new MeshFilterComponent(new QuadMeshGenerator(DEFAULT_ORIENTATION, size).createMesh());
+        // Create the mesh filter component with a shared mesh
+        this.mesh = PrimitiveMeshCache.acquireQuad(DEFAULT_ORIENTATION, size);
+        this.meshFilter = new MeshFilterComponent(this.mesh);
 
         // Create the mesh renderer component
         this.meshRenderer = new MeshRendererComponent(new Material(ShaderManager.SHADER_DEFAULT));
@@ -111,6 +119,19 @@ public class QuadPrefab extends GameObject {
         super.create();
     }
 
+    @Override
+    public void destroy() {
+        // Release the shared mesh
+        synchronized(this) {
+            if(this.mesh != null)
+                PrimitiveMeshCache.release(this.mesh);
+            this.mesh = null;
+        }
+
+        // Destroy the game object
+        super.destroy();
+    }
+
     /**
      * Get the mesh filter component.
      *
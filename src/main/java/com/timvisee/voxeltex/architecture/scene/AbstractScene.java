@@ -26,6 +26,13 @@ import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
 import com.timvisee.voxeltex.engine.VoxelTexEngine;
 import com.timvisee.voxeltex.engine.light.LightManager;
 import com.timvisee.voxeltex.engine.physics.ScenePhysicsEngine;
+import com.timvisee.voxeltex.engine.registry.ComponentRegistry;
+import com.timvisee.voxeltex.engine.render.batch.StaticBatcher;
+import com.timvisee.voxeltex.engine.render.lightmap.LightmapBaker;
+import com.timvisee.voxeltex.engine.render.lightmap.LightmapCache;
+import com.timvisee.voxeltex.engine.render.queue.RenderQueue;
+import com.timvisee.voxeltex.engine.spatial.SceneSpatialIndex;
+import com.timvisee.voxeltex.engine.update.UpdateScheduler;
 
 import java.util.List;
 
@@ -46,6 +53,46 @@ public abstract class AbstractScene {
      */
     private final ScenePhysicsEngine physicsEngine = new ScenePhysicsEngine(this);
 
+    /**
+     * Render queue for this scene, meshes are submitted to this queue and drawn in sorted order.
+     */
+    private final RenderQueue renderQueue = new RenderQueue();
+
+    /**
+     * Static batcher for this scene, which bakes the meshes of static game objects into combined meshes.
+     */
+    private final StaticBatcher staticBatcher = new StaticBatcher();
+
+    /**
+     * Lightmap baker for this scene, used to bake the lighting of static batches when the scene starts.
+     */
+    private final LightmapBaker lightmapBaker = new LightmapBaker();
+
+    /**
+     * Cache for baked lightmaps, or null to bake each time the scene starts.
+     */
+    private LightmapCache lightmapCache = new LightmapCache();
+
+    /**
+     * True to bake lightmaps for the static batches when the scene starts, false to light them at runtime.
+     */
+    private boolean lightmapBaking = false;
+
+    /**
+     * Spatial index for this scene, which holds the world space bounds of all rendered game objects.
+     */
+    private final SceneSpatialIndex spatialIndex = new SceneSpatialIndex();
+
+    /**
+     * Update scheduler for this scene, which updates independent components in parallel.
+     */
+    private final UpdateScheduler updateScheduler = new UpdateScheduler();
+
+    /**
+     * Registries of the active game objects and components in this scene, grouped by type.
+     */
+    private final ComponentRegistry componentRegistry = new ComponentRegistry();
+
     /**
      * Defines whether the scene has started. True if started, false if not.
      */
@@ -89,6 +136,98 @@ public abstract class AbstractScene {
         return this.physicsEngine;
     }
 
+    /**
+     * Get the render queue for this scene.
+     *
+     * @return Render queue.
+     */
+    public RenderQueue getRenderQueue() {
+        return this.renderQueue;
+    }
+
+    /**
+     * Get the static batcher for this scene.
+     *
+     * @return Static batcher.
+     */
+    public StaticBatcher getStaticBatcher() {
+        return this.staticBatcher;
+    }
+
+    /**
+     * Get the lightmap baker for this scene.
+     *
+     * @return Lightmap baker.
+     */
+    public LightmapBaker getLightmapBaker() {
+        return this.lightmapBaker;
+    }
+
+    /**
+     * Get the cache for baked lightmaps.
+     *
+     * @return Lightmap cache, or null if lightmaps aren't cached.
+     */
+    public LightmapCache getLightmapCache() {
+        return this.lightmapCache;
+    }
+
+    /**
+     * Set the cache for baked lightmaps.
+     *
+     * @param lightmapCache Lightmap cache, or null to bake each time the scene starts.
+     */
+    public void setLightmapCache(LightmapCache lightmapCache) {
+        this.lightmapCache = lightmapCache;
+    }
+
+    /**
+     * Check whether lightmaps are baked for the static batches when the scene starts.
+     *
+     * @return True if lightmaps are baked, false if not.
+     */
+    public boolean isLightmapBaking() {
+        return this.lightmapBaking;
+    }
+
+    /**
+     * Set whether to bake lightmaps for the static batches when the scene starts.
+     * Baked lighting doesn't change afterwards, so this should only be enabled for scenes with static lights. This must
+     * be set before the scene starts.
+     *
+     * @param lightmapBaking True to bake lightmaps, false to light the static batches at runtime.
+     */
+    public void setLightmapBaking(boolean lightmapBaking) {
+        this.lightmapBaking = lightmapBaking;
+    }
+
+    /**
+     * Get the spatial index for this scene.
+     *
+     * @return Spatial index.
+     */
+    public SceneSpatialIndex getSpatialIndex() {
+        return this.spatialIndex;
+    }
+
+    /**
+     * Get the update scheduler for this scene.
+     *
+     * @return Update scheduler.
+     */
+    public UpdateScheduler getUpdateScheduler() {
+        return this.updateScheduler;
+    }
+
+    /**
+     * Get the registries of the active game objects and components in this scene.
+     *
+     * @return Component registry.
+     */
+    public ComponentRegistry getComponentRegistry() {
+        return this.componentRegistry;
+    }
+
     /**
      * Check whether the scene is started.
      *
@@ -113,6 +252,13 @@ public abstract class AbstractScene {
         for(AbstractGameObject gameObject : this.getGameObjects())
             gameObject.start();
 
+        // Bake the meshes of all static game objects into static batches
+        this.staticBatcher.build(this);
+
+        // Bake the lighting of the static batches if enabled
+        if(this.lightmapBaking)
+            this.staticBatcher.bakeLightmaps(this.lightManager.getLights(), this.lightmapBaker, this.lightmapCache);
+
         // Set the started flag
         this.started = true;
     }
@@ -22,7 +22,12 @@
 
 package com.timvisee.voxeltex.architecture.scene;
 
+import com.timvisee.voxeltex.architecture.component.AbstractComponent;
+import com.timvisee.voxeltex.architecture.component.drawable.DrawableComponentInterface;
+import com.timvisee.voxeltex.architecture.component.overlay.OverlayComponentInterface;
 import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+import com.timvisee.voxeltex.engine.registry.RegistryList;
+import com.timvisee.voxeltex.util.ListUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -77,8 +82,10 @@ public class Scene extends AbstractScene {
         // Set the scene of the game object
         gameObject.setScene(this);
 
-        // Add the game object to the list
+        // Add the game object to the list, and keep the components in scene tree order if it was moved
+        getComponentRegistry().move(gameObject);
         this.gameObjects.add(gameObject);
+        getComponentRegistry().refresh(gameObject);
 
         // Create the game object
         gameObject.create();
@@ -116,45 +123,73 @@ public class Scene extends AbstractScene {
 
     @Override
     public void update() {
-        // Update all game objects
-        //noinspection ForLoopReplaceableByForEach
-        for(int i = 0, size = this.gameObjects.size(); i < size; i++)
-            if(this.gameObjects.get(i).isEnabled())
-                this.gameObjects.get(i).update();
+        // Remove the empty slots of components that were unregistered since the last frame
+        getComponentRegistry().compact();
 
-        // Update the physics engine and simulate the next physics step
+        // Interpolate the physics state for this frame, the physics steps are simulated on the physics thread
         getPhysicsEngine().update();
 
+        // Update all active game objects, running independent components in parallel
+        getUpdateScheduler().update(getComponentRegistry());
+
         // Remove all game objects that were queued to be removed
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0, size = this.gameObjectsRemoveQueue.size(); i < size; i++) {
+            // Unregister the game object and its subtree
+            getComponentRegistry().remove(this.gameObjectsRemoveQueue.get(i));
+
             // Reset the parent of the game object
             this.gameObjectsRemoveQueue.get(i).setParent(null);
-
-            // Remove the game object
-            this.gameObjects.remove(this.gameObjectsRemoveQueue.get(i));
         }
 
+        // Remove the game objects in a single pass
+        ListUtil.removeAll(this.gameObjects, this.gameObjectsRemoveQueue);
+
         // Clear the list of game objects queued to be removed
         this.gameObjectsRemoveQueue.clear();
     }
 
     @Override
     public void onDraw() {
-        // Draw all game objects if enabled
-        //noinspection ForLoopReplaceableByForEach
-        for(int i = 0, size = this.gameObjects.size(); i < size; i++)
-            if(this.gameObjects.get(i).isEnabled())
-                this.gameObjects.get(i).onDraw();
+        // Put components that were registered since the last frame in scene tree order, and get the active drawables
+        getComponentRegistry().sort(getGameObjects());
+        final RegistryList<AbstractComponent> drawables = getComponentRegistry().getDrawables();
+
+        // Draw all components, starting a drawing process for each consecutive run of components of the same owner
+        AbstractGameObject owner = null;
+        for(int i = 0, size = drawables.size(); i < size; i++) {
+            // Get the component, skip empty slots of components that were unregistered this frame
+            final AbstractComponent component = drawables.get(i);
+            if(component == null || !component.isEnabled())
+                continue;
+
+            // Switch the drawing process to the owner of the component
+            if(component.getOwner() != owner) {
+                if(owner != null)
+                    owner.drawEnd();
+                owner = component.getOwner();
+                owner.drawStart();
+            }
+
+            // Draw the component
+            ((DrawableComponentInterface) component).onDraw();
+        }
+
+        // End the last drawing process
+        if(owner != null)
+            owner.drawEnd();
     }
 
     @Override
     public void onDrawOverlay() {
-        // Draw the overlay of all game objects if enabled
-        //noinspection ForLoopReplaceableByForEach
-        for(int i = 0, size = this.gameObjects.size(); i < size; i++)
-            if(this.gameObjects.get(i).isEnabled())
-                this.gameObjects.get(i).onDrawOverlay();
+        // Put components that were registered since the last draw in scene tree order, and get the active overlays
+        getComponentRegistry().sort(getGameObjects());
+        final RegistryList<AbstractComponent> overlays = getComponentRegistry().getOverlays();
+
+        // Draw the overlay of all components, skip empty slots of components that were unregistered this frame
+        for(int i = 0, size = overlays.size(); i < size; i++)
+            if(overlays.get(i) != null && overlays.get(i).isEnabled())
+                ((OverlayComponentInterface) overlays.get(i)).onDrawOverlay();
     }
 
     @Override
@@ -164,6 +199,11 @@ public class Scene extends AbstractScene {
         for(int i = 0, size = this.gameObjects.size(); i < size; i++)
             this.gameObjects.get(i).destroy();
 
+        // Stop the physics thread, dispose the static batches, and clear the component registry
+        getPhysicsEngine().stop();
+        getStaticBatcher().clear();
+        getComponentRegistry().clear();
+
         // Show status message
         System.out.println(this + " is queued to be unloaded.");
 
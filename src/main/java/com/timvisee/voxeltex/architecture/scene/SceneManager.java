@@ -23,6 +23,7 @@
 package com.timvisee.voxeltex.architecture.scene;
 
 import com.timvisee.voxeltex.engine.VoxelTexEngine;
+import com.timvisee.voxeltex.module.render.RenderOverlayHelper;
 
 public class SceneManager {
 
@@ -124,19 +125,34 @@ public class SceneManager {
 
     /**
      * Draw the 3D scene that is currently loaded.
+     * Meshes are submitted to the render queue of the scene, which is sorted and executed afterwards.
      */
     public void draw() {
-        // Make sure a scene is loaded, then draw it
-        if(isSceneLoaded())
-            this.scene.onDraw();
+        // Make sure a scene is loaded
+        if(!isSceneLoaded())
+            return;
+
+        // Clear the render queue, and let the scene and its static batches submit their draw items
+        this.scene.getRenderQueue().clear();
+        this.scene.onDraw();
+        this.scene.getStaticBatcher().submit(this.scene.getRenderQueue());
+
+        // Sort and draw the submitted items
+        this.scene.getRenderQueue().execute(this.scene);
     }
 
     /**
      * Draw the overlay scene that is currently loaded.
      */
     public void drawOverlay() {
+        // Start with an empty overlay batch
+        RenderOverlayHelper.flush();
+
         // Make sure a scene is loaded, then draw it
         if(isSceneLoaded())
             this.scene.onDrawOverlay();
+
+        // Draw the overlay geometry that is still batched
+        RenderOverlayHelper.flush();
     }
 }
@@ -162,6 +162,7 @@ public class TestEnvironmentScene extends Scene {
                 CubePrefab matrixBox = new CubePrefab();
                 matrixBox.getTransform().setPosition(new Vector3f(2 + 1.5f * j, 1, 7 - 1.5f * i));
                 matrixBox.setMaterial(boxMaterial);
+                matrixBox.setStatic(true);
 //                matrixBox.addComponent(new RigidbodyComponent());
                 addGameObject(matrixBox);
             }
@@ -194,6 +195,7 @@ public class TestEnvironmentScene extends Scene {
         QuadPrefab quad = new QuadPrefab("SandSurface", new Vector2f(20.0f, 20.0f));
         quad.setMaterial(sandMaterial);
         quad.addComponent(new RigidbodyComponent(true));
+        quad.setStatic(true);
         addGameObject(quad);
 
         // Add a light
@@ -44,6 +44,17 @@ public class Light {
      */
     public static final int LIGHT_TYPE_SPOT = 3;
 
+    /**
+     * Intensity below which the contribution of a point light is considered invisible.
+     * This determines the range of point and spot lights.
+     */
+    public static final float INFLUENCE_THRESHOLD = 1.0f / 256.0f;
+
+    /**
+     * Factor the diffuse lighting is multiplied by in the shader.
+     */
+    private static final float SHADER_DIFFUSE_FACTOR = 3.0f;
+
     /**
      * Light type.
      */
@@ -223,6 +234,31 @@ public class Light {
         this.brightness = brightness;
     }
 
+    /**
+     * Get the intensity of the brightest color channel of the light, as it is applied by the light shader at a
+     * distance of one unit.
+     *
+     * @return Light intensity.
+     */
+    public float getIntensity() {
+        return Math.max(SHADER_DIFFUSE_FACTOR * this.brightness * Math.max(this.color.x, Math.max(this.color.y, this.color.z)), 0.0f);
+    }
+
+    /**
+     * Get the range of the light, at which its intensity falls below the {@link #INFLUENCE_THRESHOLD}.
+     * The intensity of point and spot lights falls off with the squared distance.
+     *
+     * @return Light range, or infinity for directional lights.
+     */
+    public float getRange() {
+        // Directional lights reach everything
+        if(this.type == LIGHT_TYPE_DIRECTIONAL)
+            return Float.POSITIVE_INFINITY;
+
+        // Determine the distance at which the brightest color channel drops below the threshold
+        return (float) Math.sqrt(getIntensity() / INFLUENCE_THRESHOLD);
+    }
+
     /**
      * Update the position of the light source to match the world space position the given game object.
      *
@@ -0,0 +1,173 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.light;
+
+import org.joml.Vector3f;
+
+/**
+ * Log of the regions in which point and spot lights changed, used to only select the lights of objects again when a
+ * light changed near them.
+ *
+ * Each change is recorded as the box of the light sphere before and after the change. The changes of a single light
+ * manager update share a version. A light selection that was made at an older version is only affected if any change
+ * recorded since overlaps its bounds. The log holds a limited number of changes, selections that are older than the
+ * oldest recorded change are always considered affected.
+ */
+public class LightChangeLog {
+
+    /**
+     * Maximum number of changes that are recorded, the oldest changes are dropped when the log is full.
+     */
+    public static final int CAPACITY = 1024;
+
+    /**
+     * Number of floats for each recorded box, the minimum and maximum corner.
+     */
+    private static final int BOX_FLOAT_COUNT = 6;
+
+    /**
+     * Recorded boxes, in a ring ordered from oldest to newest.
+     */
+    private final float[] boxes = new float[CAPACITY * BOX_FLOAT_COUNT];
+
+    /**
+     * Version of each recorded box.
+     */
+    private final int[] versions = new int[CAPACITY];
+
+    /**
+     * Ring index of the oldest recorded box.
+     */
+    private int first = 0;
+
+    /**
+     * Number of recorded boxes.
+     */
+    private int count = 0;
+
+    /**
+     * Current version, increased each time changes are committed.
+     */
+    private int version = 0;
+
+    /**
+     * Newest version of which changes were dropped because the log was full.
+     */
+    private int droppedVersion = 0;
+
+    /**
+     * Defines whether changes were recorded that haven't been committed yet.
+     */
+    private boolean pending = false;
+
+    /**
+     * Record a change in the given box, for the next version.
+     *
+     * @param min Minimum corner of the box.
+     * @param max Maximum corner of the box.
+     */
+    public void add(Vector3f min, Vector3f max) {
+        // Drop the oldest box if the log is full
+        if(this.count == CAPACITY) {
+            this.droppedVersion = this.versions[this.first];
+            this.first = (this.first + 1) % CAPACITY;
+            this.count--;
+        }
+
+        // Record the box
+        final int index = (this.first + this.count) % CAPACITY;
+        final int o = index * BOX_FLOAT_COUNT;
+        this.boxes[o] = min.x;
+        this.boxes[o + 1] = min.y;
+        this.boxes[o + 2] = min.z;
+        this.boxes[o + 3] = max.x;
+        this.boxes[o + 4] = max.y;
+        this.boxes[o + 5] = max.z;
+        this.versions[index] = this.version + 1;
+        this.count++;
+        this.pending = true;
+    }
+
+    /**
+     * Commit the recorded changes, and increase the version if there were any.
+     *
+     * @return True if any change was committed, false if nothing changed.
+     */
+    public boolean commit() {
+        // Make sure anything changed
+        if(!this.pending)
+            return false;
+
+        // Increase the version
+        this.version++;
+        this.pending = false;
+        return true;
+    }
+
+    /**
+     * Get the current version.
+     *
+     * @return Version.
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Check whether any change committed after the given version overlaps the given box.
+     *
+     * @param sinceVersion Version to check the changes after.
+     * @param min Minimum corner of the box.
+     * @param max Maximum corner of the box.
+     *
+     * @return True if the box is affected, or if the changes since the given version aren't all recorded anymore.
+     */
+    public boolean isAffected(int sinceVersion, Vector3f min, Vector3f max) {
+        // Nothing changed if the version is current
+        if(sinceVersion == this.version)
+            return false;
+
+        // Assume the box is affected if changes it depends on were dropped
+        if(sinceVersion < this.droppedVersion)
+            return true;
+
+        // Test the boxes of the committed changes after the version, from newest to oldest
+        for(int i = this.count - 1; i >= 0; i--) {
+            // Get the ring index, skip uncommitted changes and stop at changes the version already includes
+            final int index = (this.first + i) % CAPACITY;
+            if(this.versions[index] > this.version)
+                continue;
+            if(this.versions[index] <= sinceVersion)
+                break;
+
+            // Test whether the change overlaps the box
+            final int o = index * BOX_FLOAT_COUNT;
+            if(this.boxes[o] <= max.x && this.boxes[o + 3] >= min.x
+                    && this.boxes[o + 1] <= max.y && this.boxes[o + 4] >= min.y
+                    && this.boxes[o + 2] <= max.z && this.boxes[o + 5] >= min.z)
+                return true;
+        }
+
+        return false;
+    }
+}
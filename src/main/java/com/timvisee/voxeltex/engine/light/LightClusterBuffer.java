@@ -0,0 +1,291 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.light;
+
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Float textures on the graphics card holding the binned lights of a {@link LightClusterGrid}.
+ *
+ * Three textures are used, so they can be sampled from GLSL 1.20 shaders:
+ * <ul>
+ *     <li>The light data texture has a row of three RGBA texels for each light: position and range, color and
+ *     brightness, direction and type.</li>
+ *     <li>The grid texture has an RG texel for each cluster with the offset and count into the index list. The
+ *     clusters of a depth slice are stored in a single row.</li>
+ *     <li>The index texture holds the light index list, wrapped into rows of a fixed width.</li>
+ * </ul>
+ * Textures grow to the next power of two rows when they're too small, so they're rarely reallocated.
+ */
+public class LightClusterBuffer {
+
+    /**
+     * Texture unit the light data texture is bound to.
+     */
+    public static final int LIGHT_DATA_TEXTURE_UNIT = GL13.GL_TEXTURE1;
+
+    /**
+     * Texture unit the cluster grid texture is bound to.
+     */
+    public static final int GRID_TEXTURE_UNIT = GL13.GL_TEXTURE2;
+
+    /**
+     * Texture unit the light index texture is bound to.
+     */
+    public static final int INDEX_TEXTURE_UNIT = GL13.GL_TEXTURE3;
+
+    /**
+     * Width of the light index texture.
+     */
+    public static final int INDEX_TEXTURE_WIDTH = 1024;
+
+    /**
+     * Number of RGBA texels for each light in the light data texture.
+     */
+    public static final int LIGHT_DATA_TEXELS = LightClusterGrid.LIGHT_DATA_SIZE / 4;
+
+    /**
+     * Light data texture.
+     */
+    private final FloatTexture lightDataTexture = new FloatTexture(GL30.GL_RGBA32F, GL11.GL_RGBA, 4, LIGHT_DATA_TEXELS);
+
+    /**
+     * Cluster grid texture.
+     */
+    private final FloatTexture gridTexture = new FloatTexture(GL30.GL_RG32F, GL30.GL_RG, 2, LightClusterGrid.CLUSTER_COUNT_SLICE);
+
+    /**
+     * Light index texture.
+     */
+    private final FloatTexture indexTexture = new FloatTexture(GL30.GL_R32F, GL11.GL_RED, 1, INDEX_TEXTURE_WIDTH);
+
+    /**
+     * Upload the binned lights of the given grid.
+     *
+     * @param grid Light cluster grid.
+     */
+    public void upload(LightClusterGrid grid) {
+        // Upload the light data
+        final int lightCount = grid.getLightCount();
+        final FloatBuffer lightData = this.lightDataTexture.prepare(lightCount);
+        lightData.put(grid.getLightData(), 0, lightCount * LightClusterGrid.LIGHT_DATA_SIZE);
+        this.lightDataTexture.upload(lightCount);
+
+        // Upload the offset and count of each cluster
+        final FloatBuffer gridData = this.gridTexture.prepare(LightClusterGrid.CLUSTER_COUNT_Z);
+        for(int cluster = 0; cluster < LightClusterGrid.CLUSTER_COUNT; cluster++) {
+            gridData.put(grid.getClusterOffset(cluster));
+            gridData.put(grid.getClusterLightCount(cluster));
+        }
+        this.gridTexture.upload(LightClusterGrid.CLUSTER_COUNT_Z);
+
+        // Upload the light index list, padded to full rows
+        final int indexCount = grid.getIndexCount();
+        final int indexRows = (indexCount + INDEX_TEXTURE_WIDTH - 1) / INDEX_TEXTURE_WIDTH;
+        final FloatBuffer indexData = this.indexTexture.prepare(indexRows);
+        final int[] indices = grid.getIndices();
+        for(int i = 0; i < indexCount; i++)
+            indexData.put(indices[i]);
+        for(int i = indexCount, size = indexRows * INDEX_TEXTURE_WIDTH; i < size; i++)
+            indexData.put(0.0f);
+        this.indexTexture.upload(indexRows);
+    }
+
+    /**
+     * Bind the textures to their texture units.
+     * The first texture unit is activated again afterwards, because other textures are bound to it.
+     */
+    public void bind() {
+        RenderStateTracker.bindTexture(LIGHT_DATA_TEXTURE_UNIT, this.lightDataTexture.getId());
+        RenderStateTracker.bindTexture(GRID_TEXTURE_UNIT, this.gridTexture.getId());
+        RenderStateTracker.bindTexture(INDEX_TEXTURE_UNIT, this.indexTexture.getId());
+        RenderStateTracker.activeTexture(GL13.GL_TEXTURE0);
+    }
+
+    /**
+     * Get the number of rows allocated for the light data texture.
+     *
+     * @return Light data texture height.
+     */
+    public int getLightDataTextureHeight() {
+        return this.lightDataTexture.getHeight();
+    }
+
+    /**
+     * Get the number of rows allocated for the light index texture.
+     *
+     * @return Light index texture height.
+     */
+    public int getIndexTextureHeight() {
+        return this.indexTexture.getHeight();
+    }
+
+    /**
+     * Delete the textures from the graphics card.
+     */
+    public void dispose() {
+        this.lightDataTexture.dispose();
+        this.gridTexture.dispose();
+        this.indexTexture.dispose();
+    }
+
+    /**
+     * Float texture with a fixed width, and a number of rows that grows when required.
+     */
+    private static class FloatTexture {
+
+        /**
+         * OpenGL internal texture format.
+         */
+        private final int internalFormat;
+
+        /**
+         * OpenGL pixel data format.
+         */
+        private final int format;
+
+        /**
+         * Number of floats per texel.
+         */
+        private final int components;
+
+        /**
+         * Texture width in texels.
+         */
+        private final int width;
+
+        /**
+         * Number of allocated rows, or zero if the texture hasn't been created yet.
+         */
+        private int height = 0;
+
+        /**
+         * OpenGL texture ID, or zero if the texture hasn't been created yet.
+         */
+        private int id = 0;
+
+        /**
+         * Buffer holding the data to upload.
+         */
+        private FloatBuffer buffer = BufferUtils.createFloatBuffer(0);
+
+        /**
+         * Constructor.
+         *
+         * @param internalFormat OpenGL internal texture format.
+         * @param format OpenGL pixel data format.
+         * @param components Number of floats per texel.
+         * @param width Texture width in texels.
+         */
+        FloatTexture(int internalFormat, int format, int components, int width) {
+            this.internalFormat = internalFormat;
+            this.format = format;
+            this.components = components;
+            this.width = width;
+        }
+
+        /**
+         * Get the OpenGL texture ID.
+         *
+         * @return Texture ID.
+         */
+        int getId() {
+            return this.id;
+        }
+
+        /**
+         * Get the number of allocated rows.
+         *
+         * @return Texture height.
+         */
+        int getHeight() {
+            return this.height;
+        }
+
+        /**
+         * Prepare the upload buffer for the given number of rows.
+         *
+         * @param rows Number of rows to upload.
+         *
+         * @return Cleared upload buffer, with room for the given number of rows.
+         */
+        FloatBuffer prepare(int rows) {
+            // Grow the buffer if it's too small
+            final int size = Math.max(rows, 1) * this.width * this.components;
+            if(this.buffer.capacity() < size)
+                this.buffer = BufferUtils.createFloatBuffer(size);
+
+            // Clear and return the buffer
+            this.buffer.clear();
+            return this.buffer;
+        }
+
+        /**
+         * Upload the given number of rows from the upload buffer.
+         * The texture is created or grown if it doesn't have enough rows.
+         *
+         * @param rows Number of rows in the upload buffer.
+         */
+        void upload(int rows) {
+            // Create the texture if it doesn't exist yet
+            if(this.id == 0)
+                this.id = GL11.glGenTextures();
+            RenderStateTracker.bindTexture(GL13.GL_TEXTURE0, this.id);
+
+            // Allocate the texture with the next power of two number of rows if it's too small
+            if(rows > this.height || this.height == 0) {
+                this.height = Math.max(Integer.highestOneBit(Math.max(rows, 1) - 1) << 1, 1);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+                GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, this.internalFormat, this.width, this.height, 0, this.format, GL11.GL_FLOAT, 0L);
+            }
+
+            // Upload the rows
+            if(rows > 0) {
+                this.buffer.flip();
+                GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, this.width, rows, this.format, GL11.GL_FLOAT, this.buffer);
+            }
+        }
+
+        /**
+         * Delete the texture from the graphics card.
+         */
+        void dispose() {
+            if(this.id != 0) {
+                GL11.glDeleteTextures(this.id);
+                RenderStateTracker.forgetTexture(this.id);
+            }
+            this.id = 0;
+            this.height = 0;
+        }
+    }
+}
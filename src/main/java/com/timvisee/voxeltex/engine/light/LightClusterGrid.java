@@ -0,0 +1,586 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.light;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Grid of clusters the view frustum is split into, with the point and spot lights that reach each cluster.
+ *
+ * The frustum is split into screen space tiles, and into depth slices that grow exponentially with the distance to the
+ * camera. Each frame the lights are binned into the clusters their range intersects, so the shader only has to
+ * evaluate the lights of the cluster a fragment is in. The depth slices are binned in parallel, each slice only
+ * writes to its own clusters.
+ *
+ * The binned lights are packed into flat arrays: the light data of every binned light, a list of light indices, and
+ * the offset and count into that index list for every cluster. These are uploaded to the graphics card by the light
+ * manager. Directional lights reach every cluster, and aren't binned.
+ */
+public class LightClusterGrid {
+
+    /**
+     * Number of clusters along the horizontal screen axis.
+     */
+    public static final int CLUSTER_COUNT_X = 16;
+
+    /**
+     * Number of clusters along the vertical screen axis.
+     */
+    public static final int CLUSTER_COUNT_Y = 9;
+
+    /**
+     * Number of depth slices.
+     */
+    public static final int CLUSTER_COUNT_Z = 24;
+
+    /**
+     * Number of clusters in a single depth slice.
+     */
+    public static final int CLUSTER_COUNT_SLICE = CLUSTER_COUNT_X * CLUSTER_COUNT_Y;
+
+    /**
+     * Total number of clusters.
+     */
+    public static final int CLUSTER_COUNT = CLUSTER_COUNT_SLICE * CLUSTER_COUNT_Z;
+
+    /**
+     * Maximum number of lights in a single cluster. Lights beyond this limit are dropped from the cluster.
+     */
+    public static final int CLUSTER_LIGHT_LIMIT = 64;
+
+    /**
+     * Depth of the first slice boundary. Everything closer to the camera is in the first slice.
+     */
+    public static final float SLICE_DEPTH_NEAR = 0.5f;
+
+    /**
+     * Depth of the last slice boundary. Everything further away from the camera is in the last slice.
+     */
+    public static final float SLICE_DEPTH_FAR = 500.0f;
+
+    /**
+     * Number of floats of light data for each binned light: position and range, color and brightness,
+     * direction and type.
+     */
+    public static final int LIGHT_DATA_SIZE = 12;
+
+    /**
+     * Scale to convert the logarithm of a depth relative to the near slice depth into a slice index.
+     */
+    public static final float SLICE_DEPTH_SCALE = (CLUSTER_COUNT_Z - 2) / (float) Math.log(SLICE_DEPTH_FAR / SLICE_DEPTH_NEAR);
+
+    /**
+     * Minimum number of binned lights to bin the slices in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    /**
+     * Minimum view space depth used when projecting a light onto the tiles, to prevent dividing by zero.
+     */
+    private static final float MIN_PROJECTION_DEPTH = 0.001f;
+
+    /**
+     * Number of floats for the view space bounding box of each cluster.
+     */
+    private static final int BOUNDS_SIZE = 6;
+
+    /**
+     * View space bounding box of each cluster, as minimum x, y and depth followed by maximum x, y and depth.
+     * The depth is the distance in front of the camera along the view direction.
+     */
+    private final float[] clusterBounds = new float[CLUSTER_COUNT * BOUNDS_SIZE];
+
+    /**
+     * Projection parameters the cluster bounds were computed for, the x and y scale and near and far plane.
+     */
+    private final float[] boundsProjection = new float[4];
+
+    /**
+     * Number of lights in each cluster during binning.
+     */
+    private final int[] binCounts = new int[CLUSTER_COUNT];
+
+    /**
+     * Binned lights of each cluster, with room for the maximum number of lights of every cluster.
+     */
+    private final int[] binLights = new int[CLUSTER_COUNT * CLUSTER_LIGHT_LIMIT];
+
+    /**
+     * Number of lights dropped from full clusters in each slice.
+     */
+    private final int[] sliceOverflows = new int[CLUSTER_COUNT_Z];
+
+    /**
+     * Offset into the index list of each cluster.
+     */
+    private final int[] clusterOffsets = new int[CLUSTER_COUNT];
+
+    /**
+     * Number of lights of each cluster in the index list.
+     */
+    private final int[] clusterCounts = new int[CLUSTER_COUNT];
+
+    /**
+     * Light index list, the lights of each cluster are stored consecutively.
+     */
+    private int[] indices = new int[1024];
+
+    /**
+     * Number of used indices in the index list.
+     */
+    private int indexCount = 0;
+
+    /**
+     * Data of the binned lights, {@link #LIGHT_DATA_SIZE} floats for each light.
+     */
+    private float[] lightData = new float[16 * LIGHT_DATA_SIZE];
+
+    /**
+     * View space position and range of the binned lights, as x, y, depth and range.
+     */
+    private float[] lightViewSpheres = new float[16 * 4];
+
+    /**
+     * First and last depth slice reached by each binned light.
+     */
+    private int[] lightSlices = new int[16 * 2];
+
+    /**
+     * Number of binned lights.
+     */
+    private int lightCount = 0;
+
+    /**
+     * Number of lights dropped from full clusters during the last build.
+     */
+    private int overflowCount = 0;
+
+    /**
+     * Temporary vector for the view space position of a light.
+     * Using and recycling this temporary vector minimizes object allocation, resulting in better performance.
+     */
+    private final Vector3f tempPosition = new Vector3f();
+
+    /**
+     * Bin the point and spot lights of the given list into the clusters of the given camera.
+     * The projection must be a symmetric perspective projection.
+     *
+     * @param lights Lights.
+     * @param projection Camera projection matrix.
+     * @param view Camera view matrix.
+     */
+    public synchronized void build(List<Light> lights, Matrix4f projection, Matrix4f view) {
+        // Recompute the cluster bounds if the projection changed
+        updateBounds(projection);
+        final float far = this.boundsProjection[3];
+
+        // Collect the lights that are in front of the camera, and determine the slices they reach
+        this.lightCount = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = lights.size(); i < size; i++) {
+            // Skip directional lights, they reach every cluster
+            final Light light = lights.get(i);
+            if(light.getType() == Light.LIGHT_TYPE_DIRECTIONAL)
+                continue;
+
+            // Transform the light into view space, and skip it if it's completely behind the camera or too far away
+            final float range = light.getRange();
+            view.transformPosition(light.getPosition(), this.tempPosition);
+            final float depth = -this.tempPosition.z;
+            if(range <= 0.0f || depth + range < 0.0f || depth - range > far)
+                continue;
+
+            // Add the light
+            addLight(light, range, depth);
+        }
+
+        // Bin the lights into the clusters of each slice
+        this.overflowCount = 0;
+        if(this.lightCount >= PARALLEL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(new BinTask(0, CLUSTER_COUNT_Z));
+        else
+            binSlices(0, CLUSTER_COUNT_Z);
+
+        // Pack the binned lights of all clusters into the index list
+        pack();
+    }
+
+    /**
+     * Add a light to the binned lights.
+     *
+     * @param light Light.
+     * @param range Light range.
+     * @param depth View space depth of the light, which is stored in the temporary position.
+     */
+    private void addLight(Light light, float range, float depth) {
+        // Grow the arrays if they're full
+        final int i = this.lightCount++;
+        if(i * LIGHT_DATA_SIZE >= this.lightData.length) {
+            this.lightData = Arrays.copyOf(this.lightData, this.lightData.length * 2);
+            this.lightViewSpheres = Arrays.copyOf(this.lightViewSpheres, this.lightViewSpheres.length * 2);
+            this.lightSlices = Arrays.copyOf(this.lightSlices, this.lightSlices.length * 2);
+        }
+
+        // Store the light data
+        final int data = i * LIGHT_DATA_SIZE;
+        this.lightData[data] = light.getPosition().x;
+        this.lightData[data + 1] = light.getPosition().y;
+        this.lightData[data + 2] = light.getPosition().z;
+        this.lightData[data + 3] = range;
+        this.lightData[data + 4] = light.getColor().x;
+        this.lightData[data + 5] = light.getColor().y;
+        this.lightData[data + 6] = light.getColor().z;
+        this.lightData[data + 7] = light.getBrightness();
+        this.lightData[data + 8] = light.getRotation().x;
+        this.lightData[data + 9] = light.getRotation().y;
+        this.lightData[data + 10] = light.getRotation().z;
+        this.lightData[data + 11] = light.getType();
+
+        // Store the view space sphere and the slices it reaches
+        this.lightViewSpheres[i * 4] = this.tempPosition.x;
+        this.lightViewSpheres[i * 4 + 1] = this.tempPosition.y;
+        this.lightViewSpheres[i * 4 + 2] = depth;
+        this.lightViewSpheres[i * 4 + 3] = range;
+        this.lightSlices[i * 2] = getSlice(depth - range);
+        this.lightSlices[i * 2 + 1] = getSlice(depth + range);
+    }
+
+    /**
+     * Compute the view space bounds of all clusters, if the given projection differs from the last one.
+     *
+     * @param projection Camera projection matrix.
+     */
+    private void updateBounds(Matrix4f projection) {
+        // Skip if the projection parameters didn't change
+        final float scaleX = projection.m00();
+        final float scaleY = projection.m11();
+        final float near = projection.perspectiveNear();
+        final float far = projection.perspectiveFar();
+        if(this.boundsProjection[0] == scaleX && this.boundsProjection[1] == scaleY
+                && this.boundsProjection[2] == near && this.boundsProjection[3] == far)
+            return;
+        this.boundsProjection[0] = scaleX;
+        this.boundsProjection[1] = scaleY;
+        this.boundsProjection[2] = near;
+        this.boundsProjection[3] = far;
+
+        // Compute the bounds of each cluster
+        for(int z = 0; z < CLUSTER_COUNT_Z; z++) {
+            // Determine the depth range of the slice
+            final float depthMin = z == 0 ? near : getSliceDepth(z);
+            final float depthMax = z == CLUSTER_COUNT_Z - 1 ? far : getSliceDepth(z + 1);
+
+            for(int y = 0; y < CLUSTER_COUNT_Y; y++) {
+                // Determine the normalized device coordinates of the tile rows
+                final float ndcYMin = -1.0f + 2.0f * y / CLUSTER_COUNT_Y;
+                final float ndcYMax = -1.0f + 2.0f * (y + 1) / CLUSTER_COUNT_Y;
+
+                for(int x = 0; x < CLUSTER_COUNT_X; x++) {
+                    // Determine the normalized device coordinates of the tile columns
+                    final float ndcXMin = -1.0f + 2.0f * x / CLUSTER_COUNT_X;
+                    final float ndcXMax = -1.0f + 2.0f * (x + 1) / CLUSTER_COUNT_X;
+
+                    // The view space extent of the tile grows linearly with the depth, bound both depths
+                    final int bounds = getClusterIndex(x, y, z) * BOUNDS_SIZE;
+                    this.clusterBounds[bounds] = Math.min(ndcXMin * depthMin, ndcXMin * depthMax) / scaleX;
+                    this.clusterBounds[bounds + 1] = Math.min(ndcYMin * depthMin, ndcYMin * depthMax) / scaleY;
+                    this.clusterBounds[bounds + 2] = depthMin;
+                    this.clusterBounds[bounds + 3] = Math.max(ndcXMax * depthMin, ndcXMax * depthMax) / scaleX;
+                    this.clusterBounds[bounds + 4] = Math.max(ndcYMax * depthMin, ndcYMax * depthMax) / scaleY;
+                    this.clusterBounds[bounds + 5] = depthMax;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bin the lights into the clusters of the given depth slices.
+     *
+     * @param start First slice.
+     * @param end Slice after the last slice.
+     */
+    private void binSlices(int start, int end) {
+        final float scaleX = this.boundsProjection[0];
+        final float scaleY = this.boundsProjection[1];
+
+        for(int z = start; z < end; z++) {
+            // Reset the clusters of this slice
+            final int sliceStart = z * CLUSTER_COUNT_SLICE;
+            Arrays.fill(this.binCounts, sliceStart, sliceStart + CLUSTER_COUNT_SLICE, 0);
+            final float sliceDepthMin = this.clusterBounds[sliceStart * BOUNDS_SIZE + 2];
+            final float sliceDepthMax = this.clusterBounds[sliceStart * BOUNDS_SIZE + 5];
+            int overflows = 0;
+
+            // Test every light that reaches this slice against its clusters
+            for(int i = 0; i < this.lightCount; i++) {
+                if(z < this.lightSlices[i * 2] || z > this.lightSlices[i * 2 + 1])
+                    continue;
+
+                // Get the view space sphere of the light
+                final float x = this.lightViewSpheres[i * 4];
+                final float y = this.lightViewSpheres[i * 4 + 1];
+                final float depth = this.lightViewSpheres[i * 4 + 2];
+                final float range = this.lightViewSpheres[i * 4 + 3];
+
+                // Project the sphere onto the tiles over the depth range it shares with this slice, to limit the clusters to test
+                final float depthMin = Math.max(Math.max(depth - range, sliceDepthMin), MIN_PROJECTION_DEPTH);
+                final float depthMax = Math.max(Math.min(depth + range, sliceDepthMax), depthMin);
+                final int tileXMin = getTile(Math.min((x - range) / depthMin, (x - range) / depthMax) * scaleX, CLUSTER_COUNT_X);
+                final int tileXMax = getTile(Math.max((x + range) / depthMin, (x + range) / depthMax) * scaleX, CLUSTER_COUNT_X);
+                final int tileYMin = getTile(Math.min((y - range) / depthMin, (y - range) / depthMax) * scaleY, CLUSTER_COUNT_Y);
+                final int tileYMax = getTile(Math.max((y + range) / depthMin, (y + range) / depthMax) * scaleY, CLUSTER_COUNT_Y);
+
+                for(int tileY = tileYMin; tileY <= tileYMax; tileY++) {
+                    for(int tileX = tileXMin; tileX <= tileXMax; tileX++) {
+                        // Skip the cluster if the sphere doesn't intersect its bounds
+                        final int cluster = sliceStart + tileY * CLUSTER_COUNT_X + tileX;
+                        if(!intersects(cluster, x, y, depth, range))
+                            continue;
+
+                        // Add the light to the cluster, or count it as dropped if the cluster is full
+                        if(this.binCounts[cluster] < CLUSTER_LIGHT_LIMIT)
+                            this.binLights[cluster * CLUSTER_LIGHT_LIMIT + this.binCounts[cluster]++] = i;
+                        else
+                            overflows++;
+                    }
+                }
+            }
+
+            // Store the number of dropped lights
+            this.sliceOverflows[z] = overflows;
+        }
+    }
+
+    /**
+     * Get the tile a normalized device coordinate falls in, clamped to the grid.
+     *
+     * @param ndc Normalized device coordinate, from -1 to 1.
+     * @param tileCount Number of tiles on the axis.
+     *
+     * @return Tile index.
+     */
+    private static int getTile(float ndc, int tileCount) {
+        return Math.min(Math.max((int) Math.floor((ndc + 1.0f) * 0.5f * tileCount), 0), tileCount - 1);
+    }
+
+    /**
+     * Check whether the given sphere intersects the bounds of the given cluster.
+     *
+     * @param cluster Cluster index.
+     * @param x View space X coordinate of the sphere.
+     * @param y View space Y coordinate of the sphere.
+     * @param depth View space depth of the sphere.
+     * @param radius Sphere radius.
+     *
+     * @return True if the sphere intersects the cluster.
+     */
+    private boolean intersects(int cluster, float x, float y, float depth, float radius) {
+        // Determine the squared distance from the sphere center to the closest point in the bounds
+        final int bounds = cluster * BOUNDS_SIZE;
+        float distanceSquared = 0.0f;
+        float delta = Math.max(Math.max(this.clusterBounds[bounds] - x, x - this.clusterBounds[bounds + 3]), 0.0f);
+        distanceSquared += delta * delta;
+        delta = Math.max(Math.max(this.clusterBounds[bounds + 1] - y, y - this.clusterBounds[bounds + 4]), 0.0f);
+        distanceSquared += delta * delta;
+        delta = Math.max(Math.max(this.clusterBounds[bounds + 2] - depth, depth - this.clusterBounds[bounds + 5]), 0.0f);
+        distanceSquared += delta * delta;
+        return distanceSquared <= radius * radius;
+    }
+
+    /**
+     * Pack the binned lights of all clusters into the index list.
+     */
+    private void pack() {
+        // Determine the total number of indices, and grow the index list if required
+        int total = 0;
+        for(int z = 0; z < CLUSTER_COUNT_Z; z++)
+            this.overflowCount += this.sliceOverflows[z];
+        for(int cluster = 0; cluster < CLUSTER_COUNT; cluster++)
+            total += this.binCounts[cluster];
+        if(total > this.indices.length)
+            this.indices = new int[Math.max(total, this.indices.length * 2)];
+
+        // Copy the lights of each cluster, and store their offset and count
+        int offset = 0;
+        for(int cluster = 0; cluster < CLUSTER_COUNT; cluster++) {
+            final int count = this.binCounts[cluster];
+            System.arraycopy(this.binLights, cluster * CLUSTER_LIGHT_LIMIT, this.indices, offset, count);
+            this.clusterOffsets[cluster] = offset;
+            this.clusterCounts[cluster] = count;
+            offset += count;
+        }
+        this.indexCount = offset;
+    }
+
+    /**
+     * Get the index of the cluster at the given coordinates.
+     *
+     * @param x Tile column, from the left of the screen.
+     * @param y Tile row, from the bottom of the screen.
+     * @param z Depth slice.
+     *
+     * @return Cluster index.
+     */
+    public static int getClusterIndex(int x, int y, int z) {
+        return (z * CLUSTER_COUNT_Y + y) * CLUSTER_COUNT_X + x;
+    }
+
+    /**
+     * Get the depth slice the given view space depth is in.
+     * This must match the slice computation in the shader.
+     *
+     * @param depth View space depth.
+     *
+     * @return Depth slice.
+     */
+    public static int getSlice(float depth) {
+        if(depth < SLICE_DEPTH_NEAR)
+            return 0;
+        return Math.min((int) Math.floor(Math.log(depth / SLICE_DEPTH_NEAR) * SLICE_DEPTH_SCALE) + 1, CLUSTER_COUNT_Z - 1);
+    }
+
+    /**
+     * Get the view space depth at which the given depth slice starts.
+     *
+     * @param slice Depth slice, at least one.
+     *
+     * @return Slice start depth.
+     */
+    public static float getSliceDepth(int slice) {
+        return SLICE_DEPTH_NEAR * (float) Math.exp((slice - 1) / SLICE_DEPTH_SCALE);
+    }
+
+    /**
+     * Get the offset into the index list of the given cluster.
+     *
+     * @param cluster Cluster index.
+     *
+     * @return Index list offset.
+     */
+    public int getClusterOffset(int cluster) {
+        return this.clusterOffsets[cluster];
+    }
+
+    /**
+     * Get the number of lights in the given cluster.
+     *
+     * @param cluster Cluster index.
+     *
+     * @return Cluster light count.
+     */
+    public int getClusterLightCount(int cluster) {
+        return this.clusterCounts[cluster];
+    }
+
+    /**
+     * Get the light index list. Only the first {@link #getIndexCount()} indices are valid.
+     *
+     * @return Light indices.
+     */
+    public int[] getIndices() {
+        return this.indices;
+    }
+
+    /**
+     * Get the number of used indices in the index list.
+     *
+     * @return Index count.
+     */
+    public int getIndexCount() {
+        return this.indexCount;
+    }
+
+    /**
+     * Get the data of the binned lights, {@link #LIGHT_DATA_SIZE} floats for each light.
+     * Only the data of the first {@link #getLightCount()} lights is valid.
+     *
+     * @return Light data.
+     */
+    public float[] getLightData() {
+        return this.lightData;
+    }
+
+    /**
+     * Get the number of binned lights.
+     *
+     * @return Light count.
+     */
+    public int getLightCount() {
+        return this.lightCount;
+    }
+
+    /**
+     * Get the number of lights that were dropped from full clusters during the last build.
+     *
+     * @return Dropped light count.
+     */
+    public int getOverflowCount() {
+        return this.overflowCount;
+    }
+
+    /**
+     * Fork join task that bins the lights into a range of depth slices.
+     */
+    private class BinTask extends RecursiveAction {
+
+        /**
+         * First slice.
+         */
+        private final int start;
+
+        /**
+         * Slice after the last slice.
+         */
+        private final int end;
+
+        /**
+         * Constructor.
+         *
+         * @param start First slice.
+         * @param end Slice after the last slice.
+         */
+        BinTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            // Bin single slices on the current thread
+            if(this.end - this.start <= 1) {
+                binSlices(this.start, this.end);
+                return;
+            }
+
+            // Split the range in half
+            final int middle = this.start + (this.end - this.start) / 2;
+            invokeAll(new BinTask(this.start, middle), new BinTask(middle, this.end));
+        }
+    }
+}
@@ -23,23 +23,49 @@
 package com.timvisee.voxeltex.engine.light;
 
 import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+import com.timvisee.voxeltex.engine.spatial.LightSpatialIndex;
+import com.timvisee.voxeltex.module.mesh.Bounds;
+import com.timvisee.voxeltex.module.mesh.Mesh;
 import com.timvisee.voxeltex.module.shader.Shader;
+import com.timvisee.voxeltex.util.ListUtil;
+import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL13;
 
 import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LightManager {
 
     /**
-     * Maximum number of lights that can be handled by the light shader.
+     * Maximum number of directional lights that can be handled by the light shader.
+     * Point and spot lights are binned into light clusters, and aren't limited by this value.
      */
     public static final int SHADER_LIGHT_LIMIT = 16;
 
+    /**
+     * Minimum squared distance used to determine the influence of a light on an object, to prevent dividing by zero
+     * when the light is inside the object bounds.
+     */
+    private static final float MIN_INFLUENCE_DISTANCE_SQUARED = 0.0001f;
+
+    /**
+     * Counter used to create light data versions, which are unique across all light managers.
+     */
+    private static final AtomicInteger DATA_VERSION_COUNTER = new AtomicInteger();
+
+    /**
+     * Light data version each shader program received last, so the light uniforms are only sent to a program when
+     * they changed.
+     */
+    private static final Map<Shader, Integer> SHADER_DATA_VERSIONS = new WeakHashMap<>();
+
     /**
      * Light sources available in the current scene.
      */
@@ -51,30 +77,96 @@ public class LightManager {
     private List<Light> lightsRemoveQueue = new ArrayList<>();
 
     /**
-     * Number of buffered lights.
+     * Spatial index of the point and spot lights, used to select the lights that reach an object.
+     */
+    private final LightSpatialIndex spatialIndex = new LightSpatialIndex();
+
+    /**
+     * Log of the regions in which lights were added, removed, moved or changed their range.
+     * Light selections that were made for an older version are only selected again if a change overlaps their bounds.
      */
-    private int bufferedLightCount = -1;
+    private final LightChangeLog changeLog = new LightChangeLog();
 
     /**
-     * Types of the buffered lights.
+     * Temporary world bounds of an object, used while selecting lights.
      */
-    private IntBuffer lightTypeBuffer;
+    private final Bounds tempBounds = new Bounds();
 
     /**
-     * Positions of the buffered lights.
+     * Temporary list of lights found in the spatial index, used while selecting lights.
      */
-    private FloatBuffer lightPositionBuffer;
+    private final List<Light> tempLights = new ArrayList<>();
 
     /**
-     * Rotation of the buffered lights.
+     * Version of the light uniform data, changed each time the buffered lights or the cluster uniforms change.
+     */
+    private int dataVersion = DATA_VERSION_COUNTER.incrementAndGet();
+
+    /**
+     * Number of buffered directional lights.
+     */
+    private int bufferedLightCount = 0;
+
+    /**
+     * Rotation of the buffered directional lights.
      */
     private FloatBuffer lightRotationBuffer;
 
     /**
-     * Color of the buffered lights.
+     * Color of the buffered directional lights.
      */
     private FloatBuffer lightColorBuffer;
 
+    /**
+     * Grid of view frustum clusters the point and spot lights are binned into.
+     */
+    private final LightClusterGrid clusterGrid = new LightClusterGrid();
+
+    /**
+     * Textures the light cluster grid is uploaded to, for use in shaders.
+     */
+    private final LightClusterBuffer clusterBuffer = new LightClusterBuffer();
+
+    /**
+     * Defines whether the light cluster grid has been uploaded at least once.
+     */
+    private boolean clustersUploaded = false;
+
+    /**
+     * Camera position in world space, the light clusters were built for.
+     */
+    private final Vector3f clusterCameraPosition = new Vector3f();
+
+    /**
+     * Normalized camera forward direction in world space, the light clusters were built for.
+     */
+    private final Vector3f clusterCameraForward = new Vector3f(0, 0, -1);
+
+    /**
+     * Temporary camera position, used while updating the clusters.
+     */
+    private final Vector3f tempCameraPosition = new Vector3f();
+
+    /**
+     * Temporary camera forward direction, used while updating the clusters.
+     */
+    private final Vector3f tempCameraForward = new Vector3f();
+
+    /**
+     * Width of the screen in pixels, the light clusters were built for.
+     */
+    private int clusterScreenWidth = 1;
+
+    /**
+     * Height of the screen in pixels, the light clusters were built for.
+     */
+    private int clusterScreenHeight = 1;
+
+    /**
+     * Number of light cluster overflows that were reported last.
+     */
+    private int reportedOverflowCount = 0;
+
     /**
      * Constructor.
      */
@@ -127,10 +219,13 @@ public class LightManager {
         // Add the light
         this.lights.add(light);
 
-        // Show a warning if there are more lights than can be handled
-        if(this.lights.size() > SHADER_LIGHT_LIMIT)
-            System.out.println("Warning: Some lights might not be rendered because the current number of lights " +
-                    "exceeds the shader light limit of " + this.lights.size() + "/" + SHADER_LIGHT_LIMIT);
+        // Show a warning if there are more directional lights than can be handled
+        if(light.getType() == Light.LIGHT_TYPE_DIRECTIONAL) {
+            int directionalCount = getDirectionalLightCount();
+            if(directionalCount > SHADER_LIGHT_LIMIT)
+                System.out.println("Warning: Some lights might not be rendered because the current number of directional " +
+                        "lights exceeds the shader light limit of " + directionalCount + "/" + SHADER_LIGHT_LIMIT);
+        }
 
         // Return the instance
         return light;
@@ -154,6 +249,30 @@ public class LightManager {
         return this.lights.size();
     }
 
+    /**
+     * Get the number of directional lights in the manager.
+     *
+     * @return Directional light count.
+     */
+    public int getDirectionalLightCount() {
+        // Count the directional lights
+        int count = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.lights.size(); i < size; i++)
+            if(this.lights.get(i).getType() == Light.LIGHT_TYPE_DIRECTIONAL)
+                count++;
+        return count;
+    }
+
+    /**
+     * Get the light cluster grid, the point and spot lights are binned into.
+     *
+     * @return Light cluster grid.
+     */
+    public LightClusterGrid getClusterGrid() {
+        return this.clusterGrid;
+    }
+
     /**
      * Set the list of lights.
      *
@@ -194,83 +313,268 @@ public class LightManager {
      * Update the light manager.
      */
     public void update() {
-        // Remove all lights that were queued to be removed
+        // Remove the lights that were queued to be removed from the spatial index
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0, size = this.lightsRemoveQueue.size(); i < size; i++)
-            // Remove the lights
-            this.lights.remove(this.lightsRemoveQueue.get(i));
+            this.spatialIndex.remove(this.lightsRemoveQueue.get(i), this.changeLog);
+
+        // Remove all lights that were queued to be removed, in a single pass
+        ListUtil.removeAll(this.lights, this.lightsRemoveQueue);
 
         // Clear the list of lights queued to be removed
         this.lightsRemoveQueue.clear();
 
+        // Synchronize the spatial index with the lights, and commit the changed regions to invalidate nearby selections
+        this.spatialIndex.update(this.lights, this.changeLog);
+        this.changeLog.commit();
+
         // Buffer the lights
         buffer();
     }
 
     /**
-     * Buffer all current light data so it can be be send to shaders.
+     * Buffer all current directional light data so it can be be send to shaders.
+     * The light data version is only changed if the buffered data differs from the data that was buffered before.
+     * Point and spot lights are buffered per frame into the light clusters, see {@link #updateClusters(Matrix4f, Matrix4f, int, int)}.
      */
     public void buffer() {
-        // Compare the current number of lights to the buffered count, to check whether we should recreate the buffers
-        if(getLightCount() != this.bufferedLightCount) {
-            // Set the buffered count
-            this.bufferedLightCount = getLightCount();
-
-            // Recreate the buffers
-            this.lightTypeBuffer = BufferUtils.createIntBuffer(this.bufferedLightCount);
-            this.lightPositionBuffer = BufferUtils.createFloatBuffer(this.bufferedLightCount * 3);
-            this.lightRotationBuffer = BufferUtils.createFloatBuffer(this.bufferedLightCount * 3);
-            this.lightColorBuffer = BufferUtils.createFloatBuffer(this.bufferedLightCount * 4);
+        // Create the buffers if they haven't been created yet
+        if(this.lightRotationBuffer == null) {
+            this.lightRotationBuffer = BufferUtils.createFloatBuffer(SHADER_LIGHT_LIMIT * 3);
+            this.lightColorBuffer = BufferUtils.createFloatBuffer(SHADER_LIGHT_LIMIT * 4);
+            this.dataVersion = DATA_VERSION_COUNTER.incrementAndGet();
         }
 
-        // Clear the buffers
-        this.lightTypeBuffer.clear();
-        this.lightPositionBuffer.clear();
-        this.lightRotationBuffer.clear();
-        this.lightColorBuffer.clear();
+        // Write the directional lights into the buffers, keeping track of whether anything changed
+        boolean changed = false;
+        int count = 0;
+        for(int i = 0, size = this.lights.size(); i < size && count < SHADER_LIGHT_LIMIT; i++) {
+            // Get the light, and skip it if it isn't directional
+            final Light light = this.lights.get(i);
+            if(light.getType() != Light.LIGHT_TYPE_DIRECTIONAL)
+                continue;
+
+            changed |= put(this.lightRotationBuffer, count * 3, light.getRotation().x);
+            changed |= put(this.lightRotationBuffer, count * 3 + 1, light.getRotation().y);
+            changed |= put(this.lightRotationBuffer, count * 3 + 2, light.getRotation().z);
+
+            changed |= put(this.lightColorBuffer, count * 4, light.getColor().x);
+            changed |= put(this.lightColorBuffer, count * 4 + 1, light.getColor().y);
+            changed |= put(this.lightColorBuffer, count * 4 + 2, light.getColor().z);
+            changed |= put(this.lightColorBuffer, count * 4 + 3, light.getBrightness());
+
+            count++;
+        }
+
+        // Limit the buffers to the buffered lights
+        this.lightRotationBuffer.limit(count * 3);
+        this.lightColorBuffer.limit(count * 4);
 
-        // Add the lights to the buffers
-        for(int i = 0, size = Math.min(this.bufferedLightCount, SHADER_LIGHT_LIMIT); i < size; i++) {
-            this.lightTypeBuffer.put(this.lights.get(i).getType());
+        // Set the buffered count, and change the data version if anything changed
+        if(changed || count != this.bufferedLightCount)
+            this.dataVersion = DATA_VERSION_COUNTER.incrementAndGet();
+        this.bufferedLightCount = count;
+    }
 
-            this.lightPositionBuffer.put(this.lights.get(i).getPosition().x);
-            this.lightPositionBuffer.put(this.lights.get(i).getPosition().y);
-            this.lightPositionBuffer.put(this.lights.get(i).getPosition().z);
+    /**
+     * Put a value in the given buffer at the given index, if it differs from the current value.
+     *
+     * @param buffer Buffer.
+     * @param index Absolute index in the buffer.
+     * @param value Value.
+     *
+     * @return True if the value was changed, false if it was equal already.
+     */
+    private static boolean put(FloatBuffer buffer, int index, float value) {
+        // Make sure the index is inside the limit, values past the limit are treated as changed
+        final boolean inside = index < buffer.limit();
+        if(!inside)
+            buffer.limit(index + 1);
+        else if(buffer.get(index) == value)
+            return false;
+
+        // Put the value
+        buffer.put(index, value);
+        return true;
+    }
 
-            this.lightRotationBuffer.put(this.lights.get(i).getRotation().x);
-            this.lightRotationBuffer.put(this.lights.get(i).getRotation().y);
-            this.lightRotationBuffer.put(this.lights.get(i).getRotation().z);
+    /**
+     * Get the version of the light uniform data, which changes each time the buffered lights or the cluster uniforms
+     * change.
+     *
+     * @return Light data version.
+     */
+    public int getDataVersion() {
+        return this.dataVersion;
+    }
 
-            this.lightColorBuffer.put(this.lights.get(i).getColor().x);
-            this.lightColorBuffer.put(this.lights.get(i).getColor().y);
-            this.lightColorBuffer.put(this.lights.get(i).getColor().z);
-            this.lightColorBuffer.put(this.lights.get(i).getBrightness());
+    /**
+     * Get the version of the lights, which is increased each time a light is added, removed, moved or changes its
+     * range.
+     *
+     * @return Lights version.
+     */
+    public int getLightsVersion() {
+        return this.changeLog.getVersion();
+    }
+
+    /**
+     * Select the point lights with the most influence on an object into the given selection.
+     * The influence of a light is its intensity over the squared distance to the world bounds of the object.
+     * The selection is kept if it was made for the current mesh and transform version, and no light changed near its
+     * bounds since.
+     *
+     * @param selection Light selection of the object.
+     * @param mesh Mesh of the object.
+     * @param worldMatrix World matrix of the object.
+     * @param boundsVersion Transform version of the object, which changes when the object moves.
+     */
+    public synchronized void select(LightSelection selection, Mesh mesh, Matrix4f worldMatrix, int boundsVersion) {
+        // Keep the selection if the object didn't change, and no light changed near its bounds since it was made
+        final int lightsVersion = this.changeLog.getVersion();
+        if(selection.isValid(mesh, boundsVersion)) {
+            if(!this.changeLog.isAffected(selection.getLightsVersion(), selection.getBounds().getMin(), selection.getBounds().getMax())) {
+                selection.setLightsVersion(lightsVersion);
+                return;
+            }
+        }
+
+        // Determine the world bounds of the object, and reset the selection
+        mesh.getBounds().transform(worldMatrix, this.tempBounds);
+        selection.reset(lightsVersion, mesh, boundsVersion, this.tempBounds);
+
+        // Find the lights with a sphere box that overlaps the world bounds of the object
+        this.tempLights.clear();
+        this.spatialIndex.query(this.tempBounds, this.tempLights);
+
+        // Offer the lights that reach the object to the selection
+        final Vector3f min = this.tempBounds.getMin();
+        final Vector3f max = this.tempBounds.getMax();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.tempLights.size(); i < size; i++) {
+            // Get the light, spot lights aren't processed by the light shader yet
+            final Light light = this.tempLights.get(i);
+            if(light.getType() != Light.LIGHT_TYPE_POINT)
+                continue;
+
+            // Determine the squared distance from the light to the closest point of the bounds
+            final Vector3f position = light.getPosition();
+            final float dx = Math.max(Math.max(min.x - position.x, position.x - max.x), 0.0f);
+            final float dy = Math.max(Math.max(min.y - position.y, position.y - max.y), 0.0f);
+            final float dz = Math.max(Math.max(min.z - position.z, position.z - max.z), 0.0f);
+            final float distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            // Skip the light if it doesn't reach the bounds
+            final float range = light.getRange();
+            if(distanceSquared > range * range)
+                continue;
+
+            // Offer the light with its influence
+            selection.offer(light, light.getIntensity() / Math.max(distanceSquared, MIN_INFLUENCE_DISTANCE_SQUARED));
+        }
+    }
+
+    /**
+     * Bin the point and spot lights into the clusters of the given camera view, and upload the result to the graphics
+     * card. This should be called once each frame, after the camera has been updated and before the scene is drawn.
+     *
+     * @param projection Projection matrix of the camera.
+     * @param view View matrix of the camera.
+     * @param screenWidth Width of the screen in pixels.
+     * @param screenHeight Height of the screen in pixels.
+     */
+    public void updateClusters(Matrix4f projection, Matrix4f view, int screenWidth, int screenHeight) {
+        // Bin the lights and upload the clusters
+        final int indexTextureHeight = this.clusterBuffer.getIndexTextureHeight();
+        final int lightDataTextureHeight = this.clusterBuffer.getLightDataTextureHeight();
+        this.clusterGrid.build(this.lights, projection, view);
+        this.clusterBuffer.upload(this.clusterGrid);
+        this.clustersUploaded = true;
+
+        // Determine the camera position, forward direction and screen size the clusters are built for
+        view.origin(this.tempCameraPosition);
+        view.normalizedPositiveZ(this.tempCameraForward).negate();
+        screenWidth = Math.max(screenWidth, 1);
+        screenHeight = Math.max(screenHeight, 1);
+
+        // Store them and change the data version if any of the cluster uniforms changed
+        if(!this.tempCameraPosition.equals(this.clusterCameraPosition) || !this.tempCameraForward.equals(this.clusterCameraForward)
+                || screenWidth != this.clusterScreenWidth || screenHeight != this.clusterScreenHeight
+                || indexTextureHeight != this.clusterBuffer.getIndexTextureHeight()
+                || lightDataTextureHeight != this.clusterBuffer.getLightDataTextureHeight()) {
+            this.clusterCameraPosition.set(this.tempCameraPosition);
+            this.clusterCameraForward.set(this.tempCameraForward);
+            this.clusterScreenWidth = screenWidth;
+            this.clusterScreenHeight = screenHeight;
+            this.dataVersion = DATA_VERSION_COUNTER.incrementAndGet();
         }
 
-        // Flip all buffers
-        this.lightTypeBuffer.flip();
-        this.lightPositionBuffer.flip();
-        this.lightRotationBuffer.flip();
-        this.lightColorBuffer.flip();
+        // Show a warning if some clusters have more lights than can be handled
+        final int overflowCount = this.clusterGrid.getOverflowCount();
+        if(overflowCount > 0 && overflowCount != this.reportedOverflowCount)
+            System.out.println("Warning: Some lights might not be rendered because " + overflowCount + " light " +
+                    "assignments exceed the cluster light limit of " + LightClusterGrid.CLUSTER_LIGHT_LIMIT);
+        this.reportedOverflowCount = overflowCount;
     }
 
     /**
      * Send the currently buffered data to the shader.
+     * The light uniforms are only sent if the shader program didn't receive the current light data version yet, so
+     * they're sent once per frame at most, no matter how many materials use the program.
      *
      * @param shader The shader to send the light data to.
      */
     public void sendToShader(Shader shader) {
         // Buffer the lights if they haven't been buffered yet
-        if(this.lightTypeBuffer == null)
+        if(this.lightRotationBuffer == null)
             buffer();
 
-        // Send the number of lights
-        shader.setUniform1i("lightCount", this.bufferedLightCount);
+        // Upload the empty clusters if they haven't been built yet
+        if(!this.clustersUploaded) {
+            this.clusterBuffer.upload(this.clusterGrid);
+            this.clustersUploaded = true;
+            this.dataVersion = DATA_VERSION_COUNTER.incrementAndGet();
+        }
+
+        // Use the light clusters unless the lights of an object are selected
+        shader.setUniform1i("objectLightCount", LightSelection.LIGHT_COUNT_CLUSTERED);
+
+        // Bind the cluster textures
+        this.clusterBuffer.bind();
+
+        // Skip the light uniforms if the program received the current version already
+        synchronized(SHADER_DATA_VERSIONS) {
+            final Integer version = SHADER_DATA_VERSIONS.get(shader);
+            if(version != null && version == this.dataVersion)
+                return;
+            SHADER_DATA_VERSIONS.put(shader, this.dataVersion);
+        }
 
-        // Send the data
-        shader.setUniform1iv("lightType", this.lightTypeBuffer);
-        shader.setUniform3fv("lightPosition", this.lightPositionBuffer);
-        shader.setUniform3fv("lightRotation", this.lightRotationBuffer);
-        shader.setUniform4fv("lightColor", this.lightColorBuffer);
+        // Send the directional lights
+        shader.setUniform1i("directionalLightCount", this.bufferedLightCount);
+        shader.setUniform3fv("directionalLightDirection", this.lightRotationBuffer);
+        shader.setUniform4fv("directionalLightColor", this.lightColorBuffer);
+
+        // Send the samplers of the cluster textures
+        shader.setUniform1i("clusterLightData", LightClusterBuffer.LIGHT_DATA_TEXTURE_UNIT - GL13.GL_TEXTURE0);
+        shader.setUniform1i("clusterGrid", LightClusterBuffer.GRID_TEXTURE_UNIT - GL13.GL_TEXTURE0);
+        shader.setUniform1i("clusterLightIndices", LightClusterBuffer.INDEX_TEXTURE_UNIT - GL13.GL_TEXTURE0);
+
+        // Send the cluster layout
+        shader.getUniform("clusterCount").set3f(LightClusterGrid.CLUSTER_COUNT_X, LightClusterGrid.CLUSTER_COUNT_Y, LightClusterGrid.CLUSTER_COUNT_Z);
+        shader.getUniform("clusterScreenScale").set2f(
+                LightClusterGrid.CLUSTER_COUNT_X / (float) this.clusterScreenWidth,
+                LightClusterGrid.CLUSTER_COUNT_Y / (float) this.clusterScreenHeight
+        );
+        shader.getUniform("clusterDepth").set2f(LightClusterGrid.SLICE_DEPTH_NEAR, LightClusterGrid.SLICE_DEPTH_SCALE);
+        shader.getUniform("clusterTextureSize").set3f(
+                LightClusterBuffer.INDEX_TEXTURE_WIDTH,
+                this.clusterBuffer.getIndexTextureHeight(),
+                this.clusterBuffer.getLightDataTextureHeight()
+        );
+
+        // Send the camera the clusters were built for
+        shader.setUniform3f("cameraPosition", this.clusterCameraPosition);
+        shader.setUniform3f("cameraForward", this.clusterCameraForward);
     }
 }
@@ -0,0 +1,268 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.light;
+
+import com.timvisee.voxeltex.module.mesh.Bounds;
+import com.timvisee.voxeltex.module.mesh.Mesh;
+import com.timvisee.voxeltex.module.shader.uniform.UniformHandle;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Selection of the point lights that are most relevant to a drawn object, ranked by their influence on its bounds.
+ * A selection is owned by a renderer and kept across frames, it's only selected again when a light near the object
+ * changes, or when the object moves or changes its mesh.
+ */
+public class LightSelection {
+
+    /**
+     * Maximum number of lights in a selection, this matches the object light limit of the light shader.
+     */
+    public static final int LIGHT_LIMIT = 8;
+
+    /**
+     * Light count sent to shaders when the selection doesn't hold every light that reaches the object, to let the shader
+     * use the light clusters instead.
+     */
+    public static final int LIGHT_COUNT_CLUSTERED = -1;
+
+    /**
+     * Selected lights, ordered from most to least influence.
+     */
+    private final Light[] lights = new Light[LIGHT_LIMIT];
+
+    /**
+     * Influence of the selected lights.
+     */
+    private final float[] influences = new float[LIGHT_LIMIT];
+
+    /**
+     * Number of selected lights.
+     */
+    private int count = 0;
+
+    /**
+     * Number of lights that reach the object, which might be more than the number of selected lights.
+     */
+    private int reachingCount = 0;
+
+    /**
+     * Version of the lights in the light manager this selection is up to date with, or -1 if it hasn't been made yet.
+     */
+    private int lightsVersion = -1;
+
+    /**
+     * Mesh this selection was made for.
+     */
+    private Mesh mesh;
+
+    /**
+     * Transform version of the object this selection was made for.
+     */
+    private int boundsVersion;
+
+    /**
+     * World bounds of the object this selection was made for.
+     */
+    private final Bounds bounds = new Bounds();
+
+    /**
+     * Buffer for the position and range of the selected lights.
+     */
+    private final FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(LIGHT_LIMIT * 4);
+
+    /**
+     * Buffer for the color and brightness of the selected lights.
+     */
+    private final FloatBuffer colorBuffer = BufferUtils.createFloatBuffer(LIGHT_LIMIT * 4);
+
+    /**
+     * Check whether this selection was made for the given object state.
+     * The lights might have changed since, see {@link #getLightsVersion()}.
+     *
+     * @param mesh Mesh of the object.
+     * @param boundsVersion Current transform version of the object.
+     *
+     * @return True if the selection was made for the object state, false if the lights should be selected again.
+     */
+    public boolean isValid(Mesh mesh, int boundsVersion) {
+        return this.lightsVersion != -1 && this.mesh == mesh && this.boundsVersion == boundsVersion;
+    }
+
+    /**
+     * Get the version of the lights in the light manager this selection is up to date with.
+     *
+     * @return Lights version, or -1 if the selection hasn't been made yet.
+     */
+    public int getLightsVersion() {
+        return this.lightsVersion;
+    }
+
+    /**
+     * Mark the selection as up to date with the given version of the lights, because no light changed near the object.
+     *
+     * @param lightsVersion Current version of the lights in the light manager.
+     */
+    public void setLightsVersion(int lightsVersion) {
+        this.lightsVersion = lightsVersion;
+    }
+
+    /**
+     * Get the world bounds of the object this selection was made for.
+     *
+     * @return World bounds.
+     */
+    public Bounds getBounds() {
+        return this.bounds;
+    }
+
+    /**
+     * Clear the selection, to select the lights for the given state.
+     *
+     * @param lightsVersion Current version of the lights in the light manager.
+     * @param mesh Mesh of the object.
+     * @param boundsVersion Current transform version of the object.
+     * @param bounds World bounds of the object, these are copied.
+     */
+    public void reset(int lightsVersion, Mesh mesh, int boundsVersion, Bounds bounds) {
+        // Clear the references of the selected lights
+        for(int i = 0; i < this.count; i++)
+            this.lights[i] = null;
+
+        // Reset the counts and store the state
+        this.count = 0;
+        this.reachingCount = 0;
+        this.lightsVersion = lightsVersion;
+        this.mesh = mesh;
+        this.boundsVersion = boundsVersion;
+        this.bounds.set(bounds);
+    }
+
+    /**
+     * Invalidate the selection, so the lights are selected again the next time it's used.
+     */
+    public void invalidate() {
+        this.lightsVersion = -1;
+        this.mesh = null;
+    }
+
+    /**
+     * Offer a light that reaches the object to the selection.
+     * The light is inserted by its influence, the light with the least influence is dropped when the selection is full.
+     *
+     * @param light Light.
+     * @param influence Influence of the light on the object.
+     */
+    public void offer(Light light, float influence) {
+        // Count the light, and skip it if it has less influence than all lights in a full selection
+        this.reachingCount++;
+        if(this.count == LIGHT_LIMIT && influence <= this.influences[LIGHT_LIMIT - 1])
+            return;
+
+        // Shift the lights with less influence, and insert the light
+        int i = Math.min(this.count, LIGHT_LIMIT - 1);
+        while(i > 0 && this.influences[i - 1] < influence) {
+            this.lights[i] = this.lights[i - 1];
+            this.influences[i] = this.influences[i - 1];
+            i--;
+        }
+        this.lights[i] = light;
+        this.influences[i] = influence;
+        this.count = Math.min(this.count + 1, LIGHT_LIMIT);
+    }
+
+    /**
+     * Get the number of selected lights.
+     *
+     * @return Selected light count.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the selected light at the given index, ordered from most to least influence.
+     *
+     * @param i Light index.
+     *
+     * @return Light.
+     */
+    public Light getLight(int i) {
+        return this.lights[i];
+    }
+
+    /**
+     * Get the number of lights that reach the object, which might be more than the number of selected lights.
+     *
+     * @return Reaching light count.
+     */
+    public int getReachingCount() {
+        return this.reachingCount;
+    }
+
+    /**
+     * Check whether all lights that reach the object are selected.
+     *
+     * @return True if the selection is complete, false if some lights were dropped.
+     */
+    public boolean isComplete() {
+        return this.reachingCount <= LIGHT_LIMIT;
+    }
+
+    /**
+     * Send the selected lights to a shader.
+     * The light data is read from the lights each time, so color changes are applied without selecting again.
+     * If the selection isn't complete, the light count is set to {@link #LIGHT_COUNT_CLUSTERED} so the shader uses the
+     * light clusters instead, and no light is dropped.
+     *
+     * @param countUniform Object light count uniform.
+     * @param positionUniform Object light position uniform.
+     * @param colorUniform Object light color uniform.
+     */
+    public void upload(UniformHandle countUniform, UniformHandle positionUniform, UniformHandle colorUniform) {
+        // Let the shader use the light clusters if some lights weren't selected
+        if(!isComplete()) {
+            countUniform.set1i(LIGHT_COUNT_CLUSTERED);
+            return;
+        }
+
+        // Fill the buffers with the selected lights
+        this.positionBuffer.clear();
+        this.colorBuffer.clear();
+        for(int i = 0; i < this.count; i++) {
+            final Light light = this.lights[i];
+            this.positionBuffer.put(light.getPosition().x).put(light.getPosition().y).put(light.getPosition().z).put(light.getRange());
+            this.colorBuffer.put(light.getColor().x).put(light.getColor().y).put(light.getColor().z).put(light.getBrightness());
+        }
+        this.positionBuffer.flip();
+        this.colorBuffer.flip();
+
+        // Send the lights
+        countUniform.set1i(this.count);
+        if(this.count > 0) {
+            positionUniform.set4fv(this.positionBuffer);
+            colorUniform.set4fv(this.colorBuffer);
+        }
+    }
+}
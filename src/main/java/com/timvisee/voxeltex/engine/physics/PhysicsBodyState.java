@@ -0,0 +1,238 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.physics;
+
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.linearmath.Transform;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import javax.vecmath.Quat4f;
+
+/**
+ * Double-buffered state of a rigidbody that is simulated on the physics thread.
+ * The physics thread publishes the pose of the body after each fixed step, keeping the pose of the step before it.
+ * The rendering thread interpolates between both poses each frame, so bodies move smoothly at any frame rate.
+ *
+ * Forces set from other threads are buffered in the state, and are applied by the physics thread before each step.
+ * The physics world clears all forces after each step, so a force applied once per frame would be missing from the
+ * steps that are simulated to catch up, and the resulting acceleration would depend on the frame rate.
+ */
+public class PhysicsBodyState {
+
+    /**
+     * Rigidbody this state belongs to.
+     */
+    private final RigidBody rigidbody;
+
+    /**
+     * Index of this state in the list of states of the physics engine, or -1 if it isn't simulated.
+     */
+    int index = -1;
+
+    /**
+     * Position of the body after the previous step.
+     */
+    private final Vector3f previousPosition = new Vector3f();
+
+    /**
+     * Rotation of the body after the previous step.
+     */
+    private final Quaternionf previousRotation = new Quaternionf();
+
+    /**
+     * Position of the body after the last step.
+     */
+    private final Vector3f currentPosition = new Vector3f();
+
+    /**
+     * Rotation of the body after the last step.
+     */
+    private final Quaternionf currentRotation = new Quaternionf();
+
+    /**
+     * Interpolated position of the body for the current frame.
+     */
+    private final Vector3f position = new Vector3f();
+
+    /**
+     * Interpolated rotation of the body for the current frame.
+     */
+    private final Quaternionf rotation = new Quaternionf();
+
+    /**
+     * Force that is applied to the center of the body before each step.
+     */
+    private final Vector3f force = new Vector3f();
+
+    /**
+     * Temporary vector, used to apply the force to the body.
+     */
+    private final javax.vecmath.Vector3f tempForce = new javax.vecmath.Vector3f();
+
+    /**
+     * Temporary transform, used to read the pose of the body.
+     */
+    private final Transform tempTransform = new Transform();
+
+    /**
+     * Temporary quaternion, used to read the rotation of the body.
+     */
+    private final Quat4f tempRotation = new Quat4f();
+
+    /**
+     * Constructor.
+     *
+     * @param rigidbody Rigidbody.
+     */
+    PhysicsBodyState(RigidBody rigidbody) {
+        this.rigidbody = rigidbody;
+    }
+
+    /**
+     * Get the rigidbody this state belongs to.
+     *
+     * @return Rigidbody.
+     */
+    public RigidBody getRigidbody() {
+        return this.rigidbody;
+    }
+
+    /**
+     * Get the interpolated position of the body for the current frame.
+     * This must only be read from the rendering thread.
+     *
+     * @return Interpolated position.
+     */
+    public Vector3f getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Get the interpolated rotation of the body for the current frame.
+     * This must only be read from the rendering thread.
+     *
+     * @return Interpolated rotation.
+     */
+    public Quaternionf getRotation() {
+        return this.rotation;
+    }
+
+    /**
+     * Set the force that is applied to the center of the body before each step, until it's changed.
+     * This may be called from any thread.
+     *
+     * @param x Force along the X axis.
+     * @param y Force along the Y axis.
+     * @param z Force along the Z axis.
+     */
+    public void setForce(float x, float y, float z) {
+        synchronized(this.force) {
+            this.force.set(x, y, z);
+        }
+    }
+
+    /**
+     * Get the force that is applied to the center of the body before each step.
+     *
+     * @param dest Vector to store the force in.
+     *
+     * @return The dest vector.
+     */
+    public Vector3f getForce(Vector3f dest) {
+        synchronized(this.force) {
+            return dest.set(this.force);
+        }
+    }
+
+    /**
+     * Apply the buffered force to the body, before a step.
+     * The caller must hold the world lock of the physics engine.
+     */
+    void applyForce() {
+        // Copy the buffered force
+        synchronized(this.force) {
+            this.tempForce.set(this.force.x, this.force.y, this.force.z);
+        }
+
+        // Apply the force if there is any
+        if(this.tempForce.x != 0.0f || this.tempForce.y != 0.0f || this.tempForce.z != 0.0f)
+            this.rigidbody.applyCentralForce(this.tempForce);
+    }
+
+    /**
+     * Publish the pose of the body after a step, and keep the current pose as previous pose.
+     * The caller must hold the world lock and the publish lock of the physics engine.
+     */
+    void publish() {
+        // Keep the current pose as previous pose
+        this.previousPosition.set(this.currentPosition);
+        this.previousRotation.set(this.currentRotation);
+
+        // Read the new pose of the body
+        read(this.currentPosition, this.currentRotation);
+    }
+
+    /**
+     * Set all poses to the current pose of the body, so it isn't interpolated from where it was before, and clear the
+     * buffered force. The caller must hold the world lock and the publish lock of the physics engine.
+     */
+    void reset() {
+        // Read the pose of the body, and copy it to all poses
+        read(this.currentPosition, this.currentRotation);
+        this.previousPosition.set(this.currentPosition);
+        this.previousRotation.set(this.currentRotation);
+        this.position.set(this.currentPosition);
+        this.rotation.set(this.currentRotation);
+
+        // Clear the buffered force, so a teleported or re-added body doesn't keep accelerating
+        setForce(0.0f, 0.0f, 0.0f);
+    }
+
+    /**
+     * Interpolate between the previous and current pose.
+     * The caller must hold the publish lock of the physics engine.
+     *
+     * @param alpha Interpolation factor, zero for the previous pose and one for the current pose.
+     */
+    void interpolate(float alpha) {
+        this.previousPosition.lerp(this.currentPosition, alpha, this.position);
+        this.previousRotation.nlerp(this.currentRotation, alpha, this.rotation);
+    }
+
+    /**
+     * Read the pose of the body from its world transform.
+     *
+     * @param position Vector to store the position in.
+     * @param rotation Quaternion to store the rotation in.
+     */
+    private void read(Vector3f position, Quaternionf rotation) {
+        // Get the world transform of the body
+        this.rigidbody.getWorldTransform(this.tempTransform);
+
+        // Convert the position and rotation
+        position.set(this.tempTransform.origin.x, this.tempTransform.origin.y, this.tempTransform.origin.z);
+        this.tempTransform.getRotation(this.tempRotation);
+        rotation.set(this.tempRotation.x, this.tempRotation.y, this.tempRotation.z, this.tempRotation.w);
+    }
+}
@@ -32,13 +32,47 @@ import com.bulletphysics.dynamics.DynamicsWorld;
 import com.bulletphysics.dynamics.RigidBody;
 import com.bulletphysics.dynamics.constraintsolver.ConstraintSolver;
 import com.bulletphysics.dynamics.constraintsolver.SequentialImpulseConstraintSolver;
+import com.bulletphysics.linearmath.Transform;
 import com.timvisee.voxeltex.architecture.scene.AbstractScene;
-import com.timvisee.voxeltex.runtime.global.Time;
 
 import javax.vecmath.Vector3f;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Physics engine of a scene, which simulates the scene physics on a dedicated thread at a fixed tick.
+ *
+ * The physics thread holds the {@link #getLock() world lock} while it steps the world, anything that touches the world
+ * or its bodies from another thread must hold this lock as well. After each step, the pose of every body is published
+ * into its {@link PhysicsBodyState}. The rendering thread interpolates these poses once each frame in {@link #update()},
+ * so physics never blocks a frame and bodies move smoothly at any frame rate.
+ */
 public class ScenePhysicsEngine {
 
+    /**
+     * Duration of a single physics step in seconds.
+     */
+    public static final float FIXED_TIME_STEP = 1f / 60f;
+
+    /**
+     * Maximum number of steps that are simulated to catch up after the physics thread fell behind.
+     * Any remaining time is dropped, so a slow step can't cause an ever growing backlog of steps.
+     */
+    public static final int MAX_CATCH_UP_STEPS = 3;
+
+    /**
+     * Duration of a single physics step in nanoseconds.
+     */
+    private static final long FIXED_TIME_STEP_NANO = (long) (FIXED_TIME_STEP * 1.0e9);
+
+    /**
+     * Zero vector, used to reset the velocities of rigidbodies.
+     */
+    private static final Vector3f ZERO_VECTOR = new Vector3f();
+
     /**
      * The scene this physics engine is attached to.
      */
@@ -49,6 +83,41 @@ public class ScenePhysicsEngine {
      */
     private DynamicsWorld bulletDynamicsWorld;
 
+    /**
+     * Lock that must be held while touching the physics world or its bodies.
+     */
+    private final Object worldLock = new Object();
+
+    /**
+     * Lock that guards the published body states and step time.
+     */
+    private final Object publishLock = new Object();
+
+    /**
+     * States of the simulated bodies.
+     */
+    private final List<PhysicsBodyState> states = new ArrayList<>();
+
+    /**
+     * States of the simulated bodies, by their rigidbody.
+     */
+    private final Map<RigidBody, PhysicsBodyState> stateMap = new IdentityHashMap<>();
+
+    /**
+     * Scheduled time of the last step in nanoseconds, the published poses are the state of the world at this time.
+     */
+    private long stepTime = 0;
+
+    /**
+     * Number of steps that have been simulated.
+     */
+    private long stepCount = 0;
+
+    /**
+     * Thread the physics are simulated on, or null if it hasn't been started.
+     */
+    private StepThread stepThread = null;
+
     /**
      * Constructor.
      *
@@ -67,6 +136,16 @@ public class ScenePhysicsEngine {
         return this.scene;
     }
 
+    /**
+     * Get the lock that must be held while touching the physics world or its bodies from outside the physics thread,
+     * for example to apply forces.
+     *
+     * @return World lock.
+     */
+    public Object getLock() {
+        return this.worldLock;
+    }
+
     /**
      * Set up the physics engine for the scene.
      */
@@ -87,22 +166,134 @@ public class ScenePhysicsEngine {
     }
 
     /**
-     * Update the physics engine state.
-     * This will simulate a physics step, and will apply the physics to the game objects in the attached scene.
+     * Update the physics engine state for the current frame.
+     * This starts the physics thread if it isn't running yet, and interpolates the pose of all bodies between the last
+     * two steps, based on the time since the last step. This must be called from the rendering thread each frame,
+     * before the rigidbody components are updated.
      */
     public void update() {
-        // Simulate the next physics step
-        //bulletDynamicsWorld.stepSimulation(Time.deltaTimeFloat);
-        bulletDynamicsWorld.stepSimulation(Time.deltaTimeFloat, 3, 1f / 60f);
+        // Start the physics thread
+        if(this.stepThread == null)
+            start();
+
+        synchronized(this.publishLock) {
+            // Determine how far the current time is past the last step
+            final float alpha = Math.min(Math.max((System.nanoTime() - this.stepTime) / (float) FIXED_TIME_STEP_NANO, 0.0f), 1.0f);
+
+            // Interpolate the pose of all bodies
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0, size = this.states.size(); i < size; i++)
+                this.states.get(i).interpolate(alpha);
+        }
+    }
+
+    /**
+     * Start simulating the physics on the physics thread.
+     */
+    public synchronized void start() {
+        // Make sure the thread isn't running already
+        if(this.stepThread != null)
+            return;
+
+        // Schedule the first step one step from now, and start the thread
+        synchronized(this.publishLock) {
+            this.stepTime = System.nanoTime();
+        }
+        this.stepThread = new StepThread();
+        this.stepThread.start();
+    }
+
+    /**
+     * Stop simulating the physics, and wait for the physics thread to finish its current step.
+     */
+    public synchronized void stop() {
+        // Make sure the thread is running
+        if(this.stepThread == null)
+            return;
+
+        // Stop the thread and wait for it
+        this.stepThread.running = false;
+        LockSupport.unpark(this.stepThread);
+        try {
+            this.stepThread.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.stepThread = null;
+    }
+
+    /**
+     * Check whether the physics are simulated on the physics thread.
+     *
+     * @return True if running, false if not.
+     */
+    public boolean isRunning() {
+        return this.stepThread != null;
+    }
+
+    /**
+     * Get the number of steps that have been simulated.
+     *
+     * @return Step count.
+     */
+    public long getStepCount() {
+        synchronized(this.publishLock) {
+            return this.stepCount;
+        }
+    }
+
+    /**
+     * Apply the buffered forces, simulate a single fixed physics step, and publish the pose of all bodies.
+     * This is called on the physics thread.
+     *
+     * @param time Scheduled time of the step in nanoseconds.
+     */
+    private void step(long time) {
+        synchronized(this.worldLock) {
+            // Apply the buffered forces, the world clears them after each step
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0, size = this.states.size(); i < size; i++)
+                this.states.get(i).applyForce();
+
+            // Simulate the step, without substeps or motion state interpolation
+            this.bulletDynamicsWorld.stepSimulation(FIXED_TIME_STEP, 0, FIXED_TIME_STEP);
+
+            // Publish the new pose of all bodies
+            synchronized(this.publishLock) {
+                //noinspection ForLoopReplaceableByForEach
+                for(int i = 0, size = this.states.size(); i < size; i++)
+                    this.states.get(i).publish();
+                this.stepTime = time;
+                this.stepCount++;
+            }
+        }
     }
 
     /**
      * Add a rigidbody to the physics world.
      *
      * @param rigidbody Rigidbody to add.
+     *
+     * @return State of the rigidbody, holding its interpolated pose.
      */
-    public void addRigidbody(RigidBody rigidbody) {
-        this.bulletDynamicsWorld.addRigidBody(rigidbody);
+    public PhysicsBodyState addRigidbody(RigidBody rigidbody) {
+        synchronized(this.worldLock) {
+            // Add the rigidbody to the world
+            this.bulletDynamicsWorld.addRigidBody(rigidbody);
+
+            // Create the state of the rigidbody at its current pose
+            synchronized(this.publishLock) {
+                PhysicsBodyState state = this.stateMap.get(rigidbody);
+                if(state == null) {
+                    state = new PhysicsBodyState(rigidbody);
+                    state.index = this.states.size();
+                    this.states.add(state);
+                    this.stateMap.put(rigidbody, state);
+                }
+                state.reset();
+                return state;
+            }
+        }
     }
 
     /**
@@ -111,6 +302,96 @@ public class ScenePhysicsEngine {
      * @param rigidbody Rigidbody to remove.
      */
     public void removeRigidbody(RigidBody rigidbody) {
-        this.bulletDynamicsWorld.removeRigidBody(rigidbody);
+        synchronized(this.worldLock) {
+            // Remove the rigidbody from the world
+            this.bulletDynamicsWorld.removeRigidBody(rigidbody);
+
+            // Remove its state, by moving the last state into its slot
+            synchronized(this.publishLock) {
+                final PhysicsBodyState state = this.stateMap.remove(rigidbody);
+                if(state == null)
+                    return;
+                final PhysicsBodyState last = this.states.remove(this.states.size() - 1);
+                if(last != state) {
+                    this.states.set(state.index, last);
+                    last.index = state.index;
+                }
+                state.index = -1;
+            }
+        }
+    }
+
+    /**
+     * Move a rigidbody to the given world transform, and clear its velocities and forces.
+     * Its state is reset as well, so it isn't interpolated from its previous pose.
+     *
+     * @param rigidbody Rigidbody to move.
+     * @param transform World transform.
+     */
+    public void teleportRigidbody(RigidBody rigidbody, Transform transform) {
+        synchronized(this.worldLock) {
+            // Move the rigidbody and its motion state
+            rigidbody.setWorldTransform(transform);
+            rigidbody.getMotionState().setWorldTransform(transform);
+
+            // Clear the velocities and forces
+            rigidbody.setLinearVelocity(ZERO_VECTOR);
+            rigidbody.setAngularVelocity(ZERO_VECTOR);
+            rigidbody.clearForces();
+
+            // Reset the state of the rigidbody if it's simulated
+            synchronized(this.publishLock) {
+                final PhysicsBodyState state = this.stateMap.get(rigidbody);
+                if(state != null)
+                    state.reset();
+            }
+        }
+    }
+
+    /**
+     * Thread that simulates the physics at a fixed tick.
+     */
+    private class StepThread extends Thread {
+
+        /**
+         * True while the thread should keep simulating.
+         */
+        private volatile boolean running = true;
+
+        /**
+         * Constructor.
+         */
+        StepThread() {
+            super("VoxelTex physics");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            // Schedule the first step
+            long next;
+            synchronized(publishLock) {
+                next = stepTime + FIXED_TIME_STEP_NANO;
+            }
+
+            while(this.running) {
+                // Wait until the next step is due
+                final long now = System.nanoTime();
+                if(now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+
+                // Simulate the steps that are due, up to the catch up limit
+                for(int i = 0; i < MAX_CATCH_UP_STEPS && next <= now && this.running; i++) {
+                    step(next);
+                    next += FIXED_TIME_STEP_NANO;
+                }
+
+                // Drop the remaining time if the thread fell too far behind
+                if(next <= now)
+                    next = now + FIXED_TIME_STEP_NANO;
+            }
+        }
     }
 }
@@ -0,0 +1,506 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.registry;
+
+import com.timvisee.voxeltex.architecture.component.AbstractComponent;
+import com.timvisee.voxeltex.architecture.component.drawable.DrawableComponentInterface;
+import com.timvisee.voxeltex.architecture.component.light.LightSourceComponentInterface;
+import com.timvisee.voxeltex.architecture.component.overlay.OverlayComponentInterface;
+import com.timvisee.voxeltex.architecture.component.rigidbody.RigidbodyComponentInterface;
+import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scene wide registries of the active game objects and components, grouped by type.
+ *
+ * A game object is active if it's enabled, it's in the scene and all its parents are enabled. A component is active
+ * if it's enabled and its owner is active. The registries are updated incrementally when game objects and components
+ * are added, removed, enabled or disabled, so the update and render loops iterate dense lists instead of walking the
+ * whole scene and testing the type of every component each frame.
+ *
+ * The drawable and overlay registries are kept in scene tree order, so overlays are drawn in the order of the game
+ * objects and components they belong to. Components are appended when they're registered. The registries are only
+ * sorted again before they're drawn if an appended component comes before the previous last one in the scene tree, or
+ * if an active game object was moved to a different parent.
+ */
+public class ComponentRegistry {
+
+    /**
+     * Cache of whether each component class overrides the update or merge update method.
+     */
+    private static final ConcurrentHashMap<Class<?>, Boolean> updatableCache = new ConcurrentHashMap<>();
+
+    /**
+     * All active game objects.
+     */
+    private final RegistryList<AbstractGameObject> gameObjects = new RegistryList<>();
+
+    /**
+     * All active components.
+     */
+    private final RegistryList<AbstractComponent> components = new RegistryList<>();
+
+    /**
+     * All active components that override the update or merge update method.
+     */
+    private final RegistryList<AbstractComponent> updatables = new RegistryList<>();
+
+    /**
+     * All active drawable components.
+     */
+    private final RegistryList<AbstractComponent> drawables = new RegistryList<>();
+
+    /**
+     * All active overlay components.
+     */
+    private final RegistryList<AbstractComponent> overlays = new RegistryList<>();
+
+    /**
+     * All active light source components.
+     */
+    private final RegistryList<AbstractComponent> lights = new RegistryList<>();
+
+    /**
+     * All active rigidbody components.
+     */
+    private final RegistryList<AbstractComponent> rigidbodies = new RegistryList<>();
+
+    /**
+     * Defines whether the drawable and overlay registries might not be in scene tree order anymore.
+     */
+    private boolean orderDirty = false;
+
+    /**
+     * Temporary list of drawable components in scene tree order, used while sorting.
+     */
+    private final List<AbstractComponent> tempDrawables = new ArrayList<>();
+
+    /**
+     * Temporary list of overlay components in scene tree order, used while sorting.
+     */
+    private final List<AbstractComponent> tempOverlays = new ArrayList<>();
+
+    /**
+     * Get all active game objects.
+     *
+     * @return Game objects.
+     */
+    public RegistryList<AbstractGameObject> getGameObjects() {
+        return this.gameObjects;
+    }
+
+    /**
+     * Get all active components that override the update or merge update method.
+     *
+     * @return Updatable components.
+     */
+    public RegistryList<AbstractComponent> getUpdatables() {
+        return this.updatables;
+    }
+
+    /**
+     * Get all active components implementing {@link DrawableComponentInterface}.
+     *
+     * @return Drawable components.
+     */
+    public RegistryList<AbstractComponent> getDrawables() {
+        return this.drawables;
+    }
+
+    /**
+     * Get all active components implementing {@link OverlayComponentInterface}.
+     *
+     * @return Overlay components.
+     */
+    public RegistryList<AbstractComponent> getOverlays() {
+        return this.overlays;
+    }
+
+    /**
+     * Get all active components implementing {@link LightSourceComponentInterface}.
+     *
+     * @return Light source components.
+     */
+    public RegistryList<AbstractComponent> getLights() {
+        return this.lights;
+    }
+
+    /**
+     * Get all active components implementing {@link RigidbodyComponentInterface}.
+     *
+     * @return Rigidbody components.
+     */
+    public RegistryList<AbstractComponent> getRigidbodies() {
+        return this.rigidbodies;
+    }
+
+    /**
+     * Register or unregister the given game object, its components and all its children, based on whether they're
+     * active. This must be called when a game object is added to the scene, or when it's enabled or disabled.
+     *
+     * @param gameObject Game object.
+     */
+    public synchronized void refresh(AbstractGameObject gameObject) {
+        refresh(gameObject, isActive(gameObject));
+    }
+
+    /**
+     * Mark the drawable and overlay registries as out of order if the given game object is active.
+     * This must be called when a game object is moved to a different parent, before it's refreshed.
+     *
+     * @param gameObject Game object.
+     */
+    public synchronized void move(AbstractGameObject gameObject) {
+        if(this.gameObjects.contains(gameObject))
+            this.orderDirty = true;
+    }
+
+    /**
+     * Register or unregister the given game object, its components and all its children.
+     *
+     * @param gameObject Game object.
+     * @param parentActive True if the parent of the game object is active, or if the game object itself is active
+     *                     when refreshing the root of the subtree.
+     */
+    private void refresh(AbstractGameObject gameObject, boolean parentActive) {
+        // Determine whether the game object is active, and register or unregister it
+        final boolean active = parentActive && gameObject.isEnabled();
+        if(active)
+            this.gameObjects.add(gameObject);
+        else
+            this.gameObjects.remove(gameObject);
+
+        // Refresh the components
+        final List<AbstractComponent> components = gameObject.getComponents();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = components.size(); i < size; i++)
+            refresh(components.get(i), active);
+
+        // Refresh the children
+        final List<AbstractGameObject> children = gameObject.getChildren();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = children.size(); i < size; i++)
+            refresh(children.get(i), active);
+    }
+
+    /**
+     * Register or unregister the given component, based on whether it's active.
+     * This must be called when a component is added to a game object in the scene, or when it's enabled or disabled.
+     *
+     * @param component Component.
+     */
+    public synchronized void refresh(AbstractComponent component) {
+        refresh(component, component.getOwner() != null && isActive(component.getOwner()));
+    }
+
+    /**
+     * Register or unregister the given component.
+     *
+     * @param component Component.
+     * @param ownerActive True if the owner of the component is active.
+     */
+    private void refresh(AbstractComponent component, boolean ownerActive) {
+        if(ownerActive && component.isEnabled())
+            register(component);
+        else
+            unregister(component);
+    }
+
+    /**
+     * Unregister the given game object, its components and all its children.
+     * This must be called when a game object is removed from the scene.
+     *
+     * @param gameObject Game object.
+     */
+    public synchronized void remove(AbstractGameObject gameObject) {
+        refresh(gameObject, false);
+    }
+
+    /**
+     * Unregister the given component.
+     * This must be called when a component is removed from its game object.
+     *
+     * @param component Component.
+     */
+    public synchronized void remove(AbstractComponent component) {
+        unregister(component);
+    }
+
+    /**
+     * Add the component to all registries it belongs to, and notify it if it became active.
+     *
+     * @param component Component.
+     */
+    private void register(AbstractComponent component) {
+        // Skip the component if it's active already
+        if(!this.components.add(component))
+            return;
+
+        // Add the component to the typed registries
+        if(isUpdatable(component.getClass()))
+            this.updatables.add(component);
+        if(component instanceof DrawableComponentInterface)
+            addOrdered(this.drawables, component);
+        if(component instanceof OverlayComponentInterface)
+            addOrdered(this.overlays, component);
+        if(component instanceof LightSourceComponentInterface)
+            this.lights.add(component);
+        if(component instanceof RigidbodyComponentInterface)
+            this.rigidbodies.add(component);
+
+        // Notify the component
+        component.onActivate();
+    }
+
+    /**
+     * Append the component to the given ordered registry, and mark the order dirty if it doesn't come after the
+     * previous last component in scene tree order.
+     *
+     * @param registry Ordered registry.
+     * @param component Component.
+     */
+    private void addOrdered(RegistryList<AbstractComponent> registry, AbstractComponent component) {
+        // Add the component, skip if it was registered already or if the order is dirty already
+        if(!registry.add(component) || this.orderDirty)
+            return;
+
+        // Find the previous last component, skipping empty slots
+        AbstractComponent previous = null;
+        for(int i = registry.size() - 2; i >= 0 && previous == null; i--)
+            previous = registry.get(i);
+
+        // Mark the order dirty if the component must be drawn before it
+        if(previous != null && compareTreeOrder(component, previous) < 0)
+            this.orderDirty = true;
+    }
+
+    /**
+     * Remove the component from all registries, and notify it if it was active.
+     *
+     * @param component Component.
+     */
+    private void unregister(AbstractComponent component) {
+        // Skip the component if it isn't active
+        if(!this.components.remove(component))
+            return;
+
+        // Remove the component from the typed registries
+        this.updatables.remove(component);
+        this.drawables.remove(component);
+        this.overlays.remove(component);
+        this.lights.remove(component);
+        this.rigidbodies.remove(component);
+
+        // Notify the component
+        component.onDeactivate();
+    }
+
+    /**
+     * Remove the empty slots of removed items from all registries.
+     * This must not be called while any registry is being iterated.
+     */
+    public synchronized void compact() {
+        this.gameObjects.compact();
+        this.components.compact();
+        this.updatables.compact();
+        this.drawables.compact();
+        this.overlays.compact();
+        this.lights.compact();
+        this.rigidbodies.compact();
+    }
+
+    /**
+     * Sort the drawable and overlay registries in scene tree order, if components were added out of order or game
+     * objects were moved since they were last sorted. This must not be called while any registry is being iterated.
+     *
+     * @param gameObjects Root game objects of the scene, in order.
+     */
+    public synchronized void sort(List<AbstractGameObject> gameObjects) {
+        // Skip if the order didn't change
+        if(!this.orderDirty)
+            return;
+        this.orderDirty = false;
+
+        // Collect the registered components in scene tree order
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = gameObjects.size(); i < size; i++)
+            collectOrdered(gameObjects.get(i));
+
+        // Register the components again in this order
+        this.drawables.clear();
+        this.overlays.clear();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.tempDrawables.size(); i < size; i++)
+            this.drawables.add(this.tempDrawables.get(i));
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.tempOverlays.size(); i < size; i++)
+            this.overlays.add(this.tempOverlays.get(i));
+        this.tempDrawables.clear();
+        this.tempOverlays.clear();
+    }
+
+    /**
+     * Collect the registered drawable and overlay components of the given game object and its children, in scene tree
+     * order.
+     *
+     * @param gameObject Game object.
+     */
+    private void collectOrdered(AbstractGameObject gameObject) {
+        // Skip inactive game objects, their children are inactive as well
+        if(!this.gameObjects.contains(gameObject))
+            return;
+
+        // Collect the registered components
+        final List<AbstractComponent> components = gameObject.getComponents();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = components.size(); i < size; i++) {
+            final AbstractComponent component = components.get(i);
+            if(this.drawables.contains(component))
+                this.tempDrawables.add(component);
+            if(this.overlays.contains(component))
+                this.tempOverlays.add(component);
+        }
+
+        // Collect the children
+        final List<AbstractGameObject> children = gameObject.getChildren();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = children.size(); i < size; i++)
+            collectOrdered(children.get(i));
+    }
+
+    /**
+     * Unregister everything.
+     */
+    public synchronized void clear() {
+        this.gameObjects.clear();
+        this.components.clear();
+        this.updatables.clear();
+        this.drawables.clear();
+        this.overlays.clear();
+        this.lights.clear();
+        this.rigidbodies.clear();
+    }
+
+    /**
+     * Check whether the given game object is active.
+     *
+     * @param gameObject Game object.
+     *
+     * @return True if the game object is in a scene, and it and all its parents are enabled.
+     */
+    private static boolean isActive(AbstractGameObject gameObject) {
+        // Make sure the game object is in a scene
+        if(gameObject.getScene() == null)
+            return false;
+
+        // Make sure the game object and all its parents are enabled
+        for(AbstractGameObject current = gameObject; current != null; current = current.getParent())
+            if(!current.isEnabled())
+                return false;
+        return true;
+    }
+
+    /**
+     * Compare the position of two components in the scene tree.
+     * The components of a game object come before the components of its children.
+     *
+     * @param a First component.
+     * @param b Second component.
+     *
+     * @return Negative if the first component comes first, positive if the second comes first, zero if equal.
+     */
+    private static int compareTreeOrder(AbstractComponent a, AbstractComponent b) {
+        // Compare the index of components on the same game object
+        AbstractGameObject ownerA = a.getOwner();
+        AbstractGameObject ownerB = b.getOwner();
+        if(ownerA == ownerB)
+            return Integer.compare(ownerA.getComponents().indexOf(a), ownerA.getComponents().indexOf(b));
+
+        // Move the deepest game object up to the depth of the other, an ancestor comes before its descendants
+        int depthA = getDepth(ownerA);
+        int depthB = getDepth(ownerB);
+        for(; depthA > depthB; depthA--)
+            if((ownerA = ownerA.getParent()) == ownerB)
+                return 1;
+        for(; depthB > depthA; depthB--)
+            if((ownerB = ownerB.getParent()) == ownerA)
+                return -1;
+
+        // Move both up until they're siblings
+        while(ownerA.getParent() != ownerB.getParent()) {
+            ownerA = ownerA.getParent();
+            ownerB = ownerB.getParent();
+        }
+
+        // Compare the index of the siblings
+        final List<AbstractGameObject> siblings = ownerA.hasParent()
+                ? ownerA.getParent().getChildren()
+                : ownerA.getScene().getGameObjects();
+        return Integer.compare(siblings.indexOf(ownerA), siblings.indexOf(ownerB));
+    }
+
+    /**
+     * Get the depth of the given game object in the scene tree.
+     *
+     * @param gameObject Game object.
+     *
+     * @return Number of parents.
+     */
+    private static int getDepth(AbstractGameObject gameObject) {
+        int depth = 0;
+        for(AbstractGameObject current = gameObject.getParent(); current != null; current = current.getParent())
+            depth++;
+        return depth;
+    }
+
+    /**
+     * Check whether the given component class overrides the update or merge update method.
+     * Components that don't override either are never updated.
+     *
+     * @param componentClass Component class.
+     *
+     * @return True if the class is updatable, false if not.
+     */
+    private static boolean isUpdatable(Class<?> componentClass) {
+        // Return the cached result if available
+        final Boolean cached = updatableCache.get(componentClass);
+        if(cached != null)
+            return cached;
+
+        // Determine whether any of the methods is declared below the abstract component
+        boolean updatable;
+        try {
+            updatable = componentClass.getMethod("update").getDeclaringClass() != AbstractComponent.class
+                    || componentClass.getMethod("mergeUpdate").getDeclaringClass() != AbstractComponent.class;
+        } catch(NoSuchMethodException e) {
+            updatable = true;
+        }
+
+        // Cache and return the result
+        updatableCache.put(componentClass, updatable);
+        return updatable;
+    }
+}
@@ -0,0 +1,182 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.registry;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Dense, ordered list of registered objects with constant time registration checks.
+ *
+ * Items keep the order they were registered in. Removed items leave an empty slot, so the list may be safely
+ * modified while it's being iterated. The empty slots are removed when {@link #compact()} is called, which should be
+ * done at a point where the list isn't being iterated.
+ *
+ * @param <T> Item type.
+ */
+public class RegistryList<T> {
+
+    /**
+     * Initial capacity of the list, it grows automatically.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Items in the list, removed items are null.
+     */
+    private Object[] items = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Number of slots that are in use, including empty slots of removed items.
+     */
+    private int size = 0;
+
+    /**
+     * Number of empty slots.
+     */
+    private int emptyCount = 0;
+
+    /**
+     * Slot index of each registered item.
+     */
+    private final IdentityHashMap<T, Integer> indexes = new IdentityHashMap<>();
+
+    /**
+     * Add an item to the end of the list, if it isn't registered yet.
+     *
+     * @param item Item.
+     *
+     * @return True if the item was added, false if it was registered already.
+     */
+    public boolean add(T item) {
+        // Make sure the item isn't registered yet
+        if(this.indexes.containsKey(item))
+            return false;
+
+        // Grow the array if it's full
+        if(this.size == this.items.length)
+            this.items = Arrays.copyOf(this.items, this.items.length * 2);
+
+        // Add the item
+        this.indexes.put(item, this.size);
+        this.items[this.size++] = item;
+        return true;
+    }
+
+    /**
+     * Remove an item from the list, leaving an empty slot.
+     *
+     * @param item Item.
+     *
+     * @return True if the item was removed, false if it wasn't registered.
+     */
+    public boolean remove(T item) {
+        // Get the index of the item
+        final Integer index = this.indexes.remove(item);
+        if(index == null)
+            return false;
+
+        // Clear the slot
+        this.items[index] = null;
+        this.emptyCount++;
+        return true;
+    }
+
+    /**
+     * Check whether the given item is registered.
+     *
+     * @param item Item.
+     *
+     * @return True if registered, false if not.
+     */
+    public boolean contains(T item) {
+        return this.indexes.containsKey(item);
+    }
+
+    /**
+     * Get the number of slots, including empty slots of removed items.
+     * Use this as the bound when iterating.
+     *
+     * @return Slot count.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the number of registered items.
+     *
+     * @return Item count.
+     */
+    public int getCount() {
+        return this.size - this.emptyCount;
+    }
+
+    /**
+     * Get the item in the given slot.
+     *
+     * @param i Slot index.
+     *
+     * @return Item, or null if the slot is empty.
+     */
+    public T get(int i) {
+        //noinspection unchecked
+        return (T) this.items[i];
+    }
+
+    /**
+     * Remove the empty slots, keeping the order of the remaining items.
+     * This must not be called while the list is being iterated.
+     */
+    public void compact() {
+        // Skip if there are no empty slots
+        if(this.emptyCount == 0)
+            return;
+
+        // Move the items down over the empty slots, and update their indexes
+        int j = 0;
+        for(int i = 0; i < this.size; i++) {
+            if(this.items[i] == null)
+                continue;
+            this.items[j] = this.items[i];
+            //noinspection unchecked
+            this.indexes.put((T) this.items[j], j);
+            j++;
+        }
+
+        // Clear the remaining slots
+        Arrays.fill(this.items, j, this.size, null);
+        this.size = j;
+        this.emptyCount = 0;
+    }
+
+    /**
+     * Remove all items.
+     */
+    public void clear() {
+        Arrays.fill(this.items, 0, this.size, null);
+        this.indexes.clear();
+        this.size = 0;
+        this.emptyCount = 0;
+    }
+}
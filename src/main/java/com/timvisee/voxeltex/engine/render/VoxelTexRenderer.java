@@ -24,8 +24,12 @@ package com.timvisee.voxeltex.engine.render;
 
 import com.timvisee.voxeltex.VoxelTex;
 import com.timvisee.voxeltex.engine.VoxelTexEngine;
+import com.timvisee.voxeltex.engine.render.culling.FrustumCuller;
+import com.timvisee.voxeltex.engine.render.queue.RenderQueue;
 import com.timvisee.voxeltex.engine.window.VoxelTexWindow;
+import com.timvisee.voxeltex.module.render.OverlayBatcher;
 import com.timvisee.voxeltex.module.render.OverlayUtil;
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
 import com.timvisee.voxeltex.module.shader.ShaderManager;
 import com.timvisee.voxeltex.module.shader.ShaderTracker;
 import com.timvisee.voxeltex.module.texture.ImageTracker;
@@ -33,6 +37,7 @@ import com.timvisee.voxeltex.module.texture.TextureTracker;
 import com.timvisee.voxeltex.runtime.global.Input;
 import com.timvisee.voxeltex.runtime.global.MainCamera;
 import com.timvisee.voxeltex.runtime.global.Time;
+import org.joml.Matrix4f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWFramebufferSizeCallback;
@@ -69,6 +74,16 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
      */
     private long debugLastFreeMemory = -1L;
 
+    /**
+     * Number of submitted draw items last time the update debug loop ran.
+     */
+    private int debugLastSubmittedCount = -1;
+
+    /**
+     * Temporary camera view matrix, used to extract the view frustum each frame.
+     */
+    private final Matrix4f tempViewMatrix = new Matrix4f();
+
     /**
      * Constructor.
      *
@@ -160,6 +175,9 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
         // Create the rendering capabilities, required by LWJGL
         GL.createCapabilities();
 
+        // Invalidate the tracked render state, as it's unknown for the new context
+        RenderStateTracker.invalidate();
+
         // Print the OpenGL version
         System.out.println("OpenGL " + GL11.glGetString(GL11.GL_VERSION));
 
@@ -167,7 +185,7 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
         glClearColor(0.9f, 0.9f, 0.9f, 1.0f);
 
         // Enable depth testing
-        glEnable(GL_DEPTH_TEST);
+        RenderStateTracker.enable(GL_DEPTH_TEST);
 
         // Load the engine shaders
         ShaderManager.load();
@@ -191,10 +209,11 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
             // Destroy the window
             this.window.glDestroyWindow();
 
-            // Dispose all tracked textures, images and shaders
+            // Dispose all tracked textures, images and shaders, and the overlay batch
             TextureTracker.disposeAll();
             ImageTracker.disposeAll();
             ShaderTracker.disposeAll();
+            OverlayBatcher.dispose();
 
             // Free all callbacks
             fbCallback.release();
@@ -229,6 +248,11 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
             // Update time Time object
             Time.update();
 
+            // Start tracking the render state, overlay batches and culling for a new frame
+            RenderStateTracker.nextFrame();
+            OverlayBatcher.nextFrame();
+            FrustumCuller.nextFrame();
+
             // Update the overlay utils class
             OverlayUtil.setWindow(getEngine());
 
@@ -249,16 +273,27 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
             glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
             // Enable face culling for back faces
-            glEnable(GL_CULL_FACE);
-            glCullFace(GL_BACK);
+            RenderStateTracker.enable(GL_CULL_FACE);
+            RenderStateTracker.cullFace(GL_BACK);
 
             // Enable alpha channel usages
-            glEnable(GL_BLEND);
-            glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+            RenderStateTracker.enable(GL_BLEND);
+            RenderStateTracker.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
             // Enable 3D drawing
             enableDraw3d(matrixFrameBuffer);
 
+            // Extract the view frustum from the projection and camera view matrix, to cull meshes that aren't visible
+            FrustumCuller.update(MainCamera.getProjectionMatrix(), MainCamera.createCameraViewMatrix(this.tempViewMatrix));
+
+            // Bin the scene lights into the clusters of the current camera view
+            getEngine().getSceneManager().getScene().getLightManager().updateClusters(
+                    MainCamera.getProjectionMatrix(),
+                    this.tempViewMatrix,
+                    this.window.getWidth(),
+                    this.window.getHeight()
+            );
+
             // Draw the current 3D scene
             getEngine().getSceneManager().draw();
 
@@ -309,7 +344,7 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
         glMatrixMode(GL_MODELVIEW);
         glLoadIdentity();
 
-        glEnable(GL11.GL_DEPTH_TEST);
+        RenderStateTracker.enable(GL11.GL_DEPTH_TEST);
         //glEnable(GL11.GL_LIGHTING);
     }
 
@@ -320,8 +355,8 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
      */
     private void enableDrawOverlay(FloatBuffer matrixFrameBuffer) {
         // Disable lighting and depth testing because they aren't required in 2D mode
-        GL11.glDisable(GL11.GL_LIGHTING);
-        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        RenderStateTracker.disable(GL11.GL_LIGHTING);
+        RenderStateTracker.disable(GL11.GL_DEPTH_TEST);
 
         // Enable the projection mode to configure the camera, and revert back to model view mode
         glMatrixMode(GL_PROJECTION);
@@ -338,8 +373,12 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
      * Update the debug information and status.
      */
     public void updateDebug() {
-        // Compare the last free memory count with the current to see whether to update the debug status
-        if((Runtime.getRuntime().freeMemory() / 1000000) != debugLastFreeMemory) {
+        // Get the render queue of the current scene
+        final RenderQueue renderQueue = getEngine().getSceneManager().isSceneLoaded() ? getEngine().getSceneManager().getScene().getRenderQueue() : null;
+        final int submittedCount = renderQueue != null ? renderQueue.getSubmittedCount() : 0;
+
+        // Compare the last free memory count and draw count with the current to see whether to update the debug status
+        if((Runtime.getRuntime().freeMemory() / 1000000) != debugLastFreeMemory || submittedCount != debugLastSubmittedCount) {
             // Get the runtime instance
             Runtime runtime = Runtime.getRuntime();
 
@@ -348,11 +387,18 @@ public class VoxelTexRenderer extends VoxelTexBaseRenderer {
             final long freeMemory = runtime.freeMemory() / 1000000;
             final long usedMemory = totalMemory - freeMemory;
 
+            // Build the render queue statistics
+            final String renderStats = (renderQueue != null ? " - Draws: " + submittedCount + " in " + renderQueue.getDrawCallCount() + " calls (" + renderQueue.getStateChangesSavedCount() + " state changes saved)" : "")
+                    + " - Culled: " + FrustumCuller.getCulledCount() + " / " + (FrustumCuller.getCulledCount() + FrustumCuller.getVisibleCount())
+                    + " - Overlay: " + OverlayBatcher.getDrawCallCount() + " calls"
+                    + " - State cache: " + RenderStateTracker.getHitCount() + " hits / " + RenderStateTracker.getMissCount() + " misses";
+
             // Set the window title
-            this.window.setTitle(VoxelTex.getEngineNameFull() + " - Debug - Memory: " + (usedMemory) + " MB / " + (totalMemory) + " MB");
+            this.window.setTitle(VoxelTex.getEngineNameFull() + " - Debug - Memory: " + (usedMemory) + " MB / " + (totalMemory) + " MB" + renderStats);
 
-            // Update the last free memory
+            // Update the last free memory and draw count
             this.debugLastFreeMemory = freeMemory;
+            this.debugLastSubmittedCount = submittedCount;
         }
     }
 }
@@ -0,0 +1,438 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.batch;
+
+import com.timvisee.voxeltex.architecture.component.mesh.renderer.MeshRendererComponent;
+import com.timvisee.voxeltex.engine.render.lightmap.Lightmap;
+import com.timvisee.voxeltex.engine.render.queue.RenderQueue;
+import com.timvisee.voxeltex.module.Color;
+import com.timvisee.voxeltex.module.material.LightmapMaterial;
+import com.timvisee.voxeltex.module.material.Material;
+import com.timvisee.voxeltex.module.mesh.Mesh;
+import com.timvisee.voxeltex.module.mesh.RawMesh;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StaticBatch {
+
+    /**
+     * Material all meshes in this batch are drawn with.
+     */
+    private final Material material;
+
+    /**
+     * Color all meshes in this batch are drawn with.
+     */
+    private final Color color;
+
+    /**
+     * True if the meshes in this batch have normal data, false if not.
+     */
+    private final boolean normalData;
+
+    /**
+     * True if the meshes in this batch have texture data, false if not.
+     */
+    private final boolean textureData;
+
+    /**
+     * Mesh renderers that are baked into this batch.
+     */
+    private final List<MeshRendererComponent> renderers = new ArrayList<>();
+
+    /**
+     * Total number of vertices of all meshes in this batch.
+     */
+    private int vertexCount = 0;
+
+    /**
+     * Combined mesh, or null if the batch hasn't been built yet or if it's empty.
+     */
+    private Mesh mesh = null;
+
+    /**
+     * True if the batch must be rebuilt before it's drawn again.
+     */
+    private boolean dirty = true;
+
+    /**
+     * Baked lightmap of this batch, or null if the batch isn't lightmapped.
+     */
+    private Lightmap lightmap = null;
+
+    /**
+     * Unwrapped world space mesh the lightmap was baked for, which is drawn instead of the combined mesh.
+     */
+    private RawMesh lightmapMesh = null;
+
+    /**
+     * Material the batch is drawn with when it has a lightmap.
+     */
+    private LightmapMaterial lightmapMaterial = null;
+
+    /**
+     * Identity world matrix, the combined mesh is already in world space.
+     */
+    private static final Matrix4f IDENTITY_MATRIX = new Matrix4f();
+
+    /**
+     * Temporary world matrix, used while building the batch.
+     */
+    private final Matrix4f tempWorldMatrix = new Matrix4f();
+
+    /**
+     * Temporary normal matrix, used while building the batch.
+     */
+    private final Matrix3f tempNormalMatrix = new Matrix3f();
+
+    /**
+     * Temporary vector, used while building the batch.
+     */
+    private final Vector3f tempVector = new Vector3f();
+
+    /**
+     * Constructor.
+     *
+     * @param material Material of the batch.
+     * @param color Color of the batch.
+     * @param normalData True if the batched meshes have normal data.
+     * @param textureData True if the batched meshes have texture data.
+     */
+    public StaticBatch(Material material, Color color, boolean normalData, boolean textureData) {
+        this.material = material;
+        this.color = color;
+        this.normalData = normalData;
+        this.textureData = textureData;
+    }
+
+    /**
+     * Get the material of this batch.
+     *
+     * @return Material.
+     */
+    public Material getMaterial() {
+        return this.material;
+    }
+
+    /**
+     * Get the color of this batch.
+     *
+     * @return Color.
+     */
+    public Color getColor() {
+        return this.color;
+    }
+
+    /**
+     * Check whether the given mesh renderer can be added to this batch.
+     *
+     * @param renderer Mesh renderer.
+     * @param maxVertexCount Maximum number of vertices in the batch.
+     *
+     * @return True if the renderer is compatible and fits, false if not.
+     */
+    public boolean accepts(MeshRendererComponent renderer, int maxVertexCount) {
+        // Get the raw mesh of the renderer
+        final RawMesh raw = renderer.getMeshFilterComponent().getMesh().getRawMesh();
+
+        // The material, color and vertex data must match, and the mesh must fit
+        return renderer.getMaterial() == this.material
+                && renderer.getColor().toInt() == this.color.toInt()
+                && raw.hasNormalData() == this.normalData
+                && raw.hasTextureData() == this.textureData
+                && this.vertexCount + raw.getVertexCount() <= maxVertexCount;
+    }
+
+    /**
+     * Add a mesh renderer to this batch.
+     * The batch is rebuilt the next time it's drawn.
+     *
+     * @param renderer Mesh renderer.
+     */
+    public void add(MeshRendererComponent renderer) {
+        // Add the renderer and count its vertices
+        this.renderers.add(renderer);
+        this.vertexCount += renderer.getMeshFilterComponent().getMesh().getRawMesh().getVertexCount();
+
+        // Link the renderer to this batch, drop the lightmap which doesn't cover it, and mark the batch as dirty
+        renderer.setStaticBatch(this);
+        clearLightmap();
+        this.dirty = true;
+    }
+
+    /**
+     * Remove a mesh renderer from this batch, for example because it has been destroyed.
+     * The batch is rebuilt the next time it's drawn.
+     *
+     * @param renderer Mesh renderer.
+     *
+     * @return True if the renderer was removed, false if it wasn't part of this batch.
+     */
+    public boolean remove(MeshRendererComponent renderer) {
+        // Remove the renderer
+        if(!this.renderers.remove(renderer))
+            return false;
+
+        // Uncount its vertices, unlink it, drop the lightmap and mark the batch as dirty
+        this.vertexCount -= renderer.getMeshFilterComponent().getMesh().getRawMesh().getVertexCount();
+        renderer.setStaticBatch(null);
+        clearLightmap();
+        this.dirty = true;
+        return true;
+    }
+
+    /**
+     * Remove all mesh renderers from this batch.
+     * The renderers are unlinked, so they're drawn as usual again.
+     */
+    public void clear() {
+        // Unlink all renderers
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.renderers.size(); i < size; i++)
+            this.renderers.get(i).setStaticBatch(null);
+
+        // Clear the list of renderers, drop the lightmap and mark the batch as dirty
+        this.renderers.clear();
+        this.vertexCount = 0;
+        clearLightmap();
+        this.dirty = true;
+    }
+
+    /**
+     * Get the baked lightmap of this batch.
+     *
+     * @return Lightmap, or null if the batch isn't lightmapped.
+     */
+    public Lightmap getLightmap() {
+        return this.lightmap;
+    }
+
+    /**
+     * Check whether this batch has a baked lightmap.
+     *
+     * @return True if the batch is lightmapped, false if not.
+     */
+    public boolean hasLightmap() {
+        return this.lightmap != null;
+    }
+
+    /**
+     * Set the baked lightmap of this batch.
+     * The batch is drawn with the given unwrapped mesh and the lightmapped shader from now on, until renderers are added
+     * or removed. The batch is rebuilt the next time it's drawn.
+     *
+     * @param lightmap Baked lightmap.
+     * @param lightmapMesh Unwrapped world space mesh of this batch, as created from {@link #buildRawMesh()}.
+     */
+    public void setLightmap(Lightmap lightmap, RawMesh lightmapMesh) {
+        // Drop the current lightmap
+        clearLightmap();
+
+        // Set the lightmap, its mesh and material, and mark the batch as dirty
+        this.lightmap = lightmap;
+        this.lightmapMesh = lightmapMesh;
+        this.lightmapMaterial = new LightmapMaterial(this.material, lightmap);
+        this.dirty = true;
+    }
+
+    /**
+     * Drop the lightmap of this batch, and delete its texture.
+     */
+    private void clearLightmap() {
+        // Make sure the batch has a lightmap
+        if(this.lightmap == null)
+            return;
+
+        // Delete the texture, and reset the lightmap
+        this.lightmap.dispose();
+        this.lightmap = null;
+        this.lightmapMesh = null;
+        this.lightmapMaterial = null;
+        this.dirty = true;
+    }
+
+    /**
+     * Get the number of mesh renderers in this batch.
+     *
+     * @return Renderer count.
+     */
+    public int getRendererCount() {
+        return this.renderers.size();
+    }
+
+    /**
+     * Get the total number of vertices in this batch.
+     *
+     * @return Vertex count.
+     */
+    public int getVertexCount() {
+        return this.vertexCount;
+    }
+
+    /**
+     * Check whether the batch must be rebuilt.
+     *
+     * @return True if dirty, false if not.
+     */
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Get the combined mesh of this batch.
+     *
+     * @return Combined mesh, or null if the batch hasn't been built or is empty.
+     */
+    public Mesh getMesh() {
+        return this.mesh;
+    }
+
+    /**
+     * Bake the meshes of all renderers in this batch into a single world space mesh.
+     * If the batch has a lightmap, its unwrapped mesh is used instead.
+     * This must be called from the rendering thread.
+     */
+    public void rebuild() {
+        // Dispose the current mesh
+        dispose();
+        this.dirty = false;
+
+        // Build the combined mesh, if the batch isn't empty
+        final RawMesh raw = this.lightmapMesh != null ? this.lightmapMesh : buildRawMesh();
+        if(raw != null)
+            this.mesh = new Mesh(raw);
+    }
+
+    /**
+     * Combine the meshes of all renderers in this batch into a single world space raw mesh.
+     *
+     * @return Combined raw mesh, or null if the batch is empty.
+     */
+    public RawMesh buildRawMesh() {
+        // Don't build a mesh if the batch is empty
+        if(this.renderers.isEmpty())
+            return null;
+
+        // Count the number of elements in all meshes
+        int elementCount = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.renderers.size(); i < size; i++)
+            elementCount += this.renderers.get(i).getMeshFilterComponent().getMesh().getRawMesh().getElementCount();
+
+        // Allocate the combined vertex data
+        final float[] vertexes = new float[this.vertexCount * RawMesh.VERTEX_AXIS_COUNT];
+        final float[] normals = new float[this.normalData ? this.vertexCount * RawMesh.NORMAL_AXIS_COUNT : 0];
+        final float[] textures = new float[this.textureData ? this.vertexCount * RawMesh.TEXTURE_AXIS_COUNT : 0];
+        final int[] indices = new int[elementCount];
+
+        // Append the world space data of each renderer
+        int vertexOffset = 0;
+        int elementOffset = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.renderers.size(); i < size; i++) {
+            // Get the renderer and its raw mesh
+            final MeshRendererComponent renderer = this.renderers.get(i);
+            final RawMesh raw = renderer.getMeshFilterComponent().getMesh().getRawMesh();
+            final int rawVertexCount = raw.getVertexCount();
+
+            // Get the world and normal matrix of the renderer
+            renderer.getTransform().getWorldMatrix(this.tempWorldMatrix);
+            this.tempWorldMatrix.normal(this.tempNormalMatrix);
+
+            // Transform and copy the vertex positions
+            final float[] rawVertexes = raw.getVertexes();
+            for(int v = 0; v < rawVertexCount; v++) {
+                final int p = v * RawMesh.VERTEX_AXIS_COUNT;
+                final int d = (vertexOffset + v) * RawMesh.VERTEX_AXIS_COUNT;
+                this.tempWorldMatrix.transformPosition(rawVertexes[p], rawVertexes[p + 1], rawVertexes[p + 2], this.tempVector);
+                vertexes[d] = this.tempVector.x;
+                vertexes[d + 1] = this.tempVector.y;
+                vertexes[d + 2] = this.tempVector.z;
+            }
+
+            // Transform and copy the normals
+            if(this.normalData) {
+                final float[] rawNormals = raw.getNormals();
+                for(int v = 0; v < rawVertexCount; v++) {
+                    final int p = v * RawMesh.NORMAL_AXIS_COUNT;
+                    final int d = (vertexOffset + v) * RawMesh.NORMAL_AXIS_COUNT;
+                    this.tempNormalMatrix.transform(rawNormals[p], rawNormals[p + 1], rawNormals[p + 2], this.tempVector).normalize();
+                    normals[d] = this.tempVector.x;
+                    normals[d + 1] = this.tempVector.y;
+                    normals[d + 2] = this.tempVector.z;
+                }
+            }
+
+            // Copy the texture coordinates
+            if(this.textureData)
+                System.arraycopy(raw.getTextures(), 0, textures, vertexOffset * RawMesh.TEXTURE_AXIS_COUNT, rawVertexCount * RawMesh.TEXTURE_AXIS_COUNT);
+
+            // Copy the elements, offset by the vertices that were already added
+            final int rawElementCount = raw.getElementCount();
+            for(int e = 0; e < rawElementCount; e++)
+                indices[elementOffset + e] = vertexOffset + raw.getElementVertex(e);
+
+            // Move the offsets
+            vertexOffset += rawVertexCount;
+            elementOffset += rawElementCount;
+        }
+
+        // Create the combined mesh
+        return new RawMesh(vertexes, normals, textures, indices);
+    }
+
+    /**
+     * Submit the combined mesh of this batch to the given render queue.
+     * The batch is rebuilt first if it's dirty.
+     *
+     * @param renderQueue Render queue.
+     */
+    public void submit(RenderQueue renderQueue) {
+        // Rebuild the batch if it's dirty
+        if(this.dirty)
+            rebuild();
+
+        // Submit the mesh if there is any, with the lightmapped material if the batch has a lightmap
+        if(this.mesh != null)
+            renderQueue.submit(this.mesh, this.lightmapMaterial != null ? this.lightmapMaterial : this.material, IDENTITY_MATRIX, this.color, RenderQueue.PASS_OPAQUE);
+    }
+
+    /**
+     * Dispose the combined mesh of this batch, and the lightmap texture if there is any.
+     * The lightmap itself is kept, and is uploaded again when the batch is drawn.
+     */
+    public void dispose() {
+        // Clear the mesh buffers if a mesh is built
+        if(this.mesh != null)
+            this.mesh.clearMeshBuffer();
+        this.mesh = null;
+
+        // Delete the lightmap texture
+        if(this.lightmap != null)
+            this.lightmap.dispose();
+    }
+}
@@ -0,0 +1,280 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.batch;
+
+import com.timvisee.voxeltex.architecture.component.AbstractComponent;
+import com.timvisee.voxeltex.architecture.component.mesh.renderer.MeshRendererComponent;
+import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+import com.timvisee.voxeltex.architecture.scene.AbstractScene;
+import com.timvisee.voxeltex.engine.light.Light;
+import com.timvisee.voxeltex.engine.render.lightmap.Lightmap;
+import com.timvisee.voxeltex.engine.render.lightmap.LightmapBaker;
+import com.timvisee.voxeltex.engine.render.lightmap.LightmapCache;
+import com.timvisee.voxeltex.engine.render.lightmap.LightmapUnwrapper;
+import com.timvisee.voxeltex.engine.render.queue.RenderQueue;
+import com.timvisee.voxeltex.module.mesh.RawMesh;
+import com.timvisee.voxeltex.module.shader.specific.TexturedShader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StaticBatcher {
+
+    /**
+     * Default maximum number of vertices in a single batch.
+     * This keeps batches small enough to be drawn using 16-bit indices.
+     */
+    public static final int DEFAULT_MAX_VERTEX_COUNT = 0xFFFF + 1;
+
+    /**
+     * Maximum number of vertices in a single batch.
+     */
+    private int maxVertexCount = DEFAULT_MAX_VERTEX_COUNT;
+
+    /**
+     * List of batches.
+     */
+    private final List<StaticBatch> batches = new ArrayList<>();
+
+    /**
+     * Get the maximum number of vertices in a single batch.
+     *
+     * @return Maximum vertex count.
+     */
+    public int getMaxVertexCount() {
+        return this.maxVertexCount;
+    }
+
+    /**
+     * Set the maximum number of vertices in a single batch.
+     * This only affects batches that are built after this value is changed.
+     *
+     * @param maxVertexCount Maximum vertex count.
+     */
+    public void setMaxVertexCount(int maxVertexCount) {
+        this.maxVertexCount = maxVertexCount;
+    }
+
+    /**
+     * Get the list of batches.
+     *
+     * @return List of batches.
+     */
+    public List<StaticBatch> getBatches() {
+        return this.batches;
+    }
+
+    /**
+     * Get the number of batches.
+     *
+     * @return Batch count.
+     */
+    public int getBatchCount() {
+        return this.batches.size();
+    }
+
+    /**
+     * Build the batches for all static game objects in the given scene.
+     * The mesh renderers of static game objects are baked per material into combined meshes,
+     * and are skipped when drawing afterwards.
+     *
+     * @param scene Scene to batch.
+     */
+    public synchronized void build(AbstractScene scene) {
+        // Clear the current batches
+        clear();
+
+        // Collect the renderers of all static game objects
+        final List<AbstractGameObject> gameObjects = scene.getGameObjects();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = gameObjects.size(); i < size; i++)
+            collect(gameObjects.get(i));
+
+        // Count the number of batched renderers
+        int rendererCount = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.batches.size(); i < size; i++)
+            rendererCount += this.batches.get(i).getRendererCount();
+
+        // Show a status message
+        if(rendererCount > 0)
+            System.out.println("Baked " + rendererCount + " static meshes into " + this.batches.size() + " batches.");
+    }
+
+    /**
+     * Bake lightmaps for all batches that are drawn with the lit textured shader, and draw them with their lightmaps
+     * from now on. The lightmaps are loaded from the given cache if the same batches and lights were baked before, and
+     * are stored in it otherwise.
+     *
+     * The baked lighting doesn't change afterwards, so this should only be used for lights that don't move or change.
+     *
+     * @param lights Lights to bake.
+     * @param baker Lightmap baker.
+     * @param cache Lightmap cache, or null to always bake.
+     */
+    public synchronized void bakeLightmaps(List<Light> lights, LightmapBaker baker, LightmapCache cache) {
+        // Collect the lit batches, and unwrap their meshes into new lightmaps
+        final List<StaticBatch> bakedBatches = new ArrayList<>();
+        final List<RawMesh> meshes = new ArrayList<>();
+        final List<Lightmap> lightmaps = new ArrayList<>();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.batches.size(); i < size; i++) {
+            // Get the batch, and skip batches that aren't drawn with lighting
+            final StaticBatch batch = this.batches.get(i);
+            if(!(batch.getMaterial().getShader() instanceof TexturedShader))
+                continue;
+
+            // Combine and unwrap the batch mesh
+            final RawMesh raw = batch.buildRawMesh();
+            if(raw == null || raw.getTriangleCount() == 0)
+                continue;
+            final Lightmap lightmap = Lightmap.create(raw.getTriangleCount(), Lightmap.DEFAULT_CELL_SIZE);
+            bakedBatches.add(batch);
+            meshes.add(LightmapUnwrapper.unwrap(raw, lightmap));
+            lightmaps.add(lightmap);
+        }
+
+        // Make sure there is anything to bake
+        if(bakedBatches.isEmpty())
+            return;
+
+        // Load the lightmaps from the cache, or bake and cache them
+        final long start = System.currentTimeMillis();
+        final String key = baker.createKey(meshes, lightmaps, lights);
+        final boolean cached = cache != null && cache.load(key, lightmaps);
+        if(!cached) {
+            baker.bake(meshes, lightmaps, lights);
+            if(cache != null)
+                cache.save(key, lightmaps);
+        }
+
+        // Assign the lightmaps to their batches
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = bakedBatches.size(); i < size; i++)
+            bakedBatches.get(i).setLightmap(lightmaps.get(i), meshes.get(i));
+
+        // Show a status message
+        System.out.println((cached ? "Loaded cached lightmaps" : "Baked lightmaps") + " for " + bakedBatches.size() +
+                " static batches in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    /**
+     * Add the enabled mesh renderers of the given game object and its children to the batches if they're static.
+     * Disabled game objects and renderers are skipped, they're added when they're activated.
+     *
+     * @param gameObject Game object.
+     */
+    private void collect(AbstractGameObject gameObject) {
+        // Skip disabled game objects, along with their children
+        if(!gameObject.isEnabled())
+            return;
+
+        // Add the enabled, batchable renderers of static game objects
+        if(gameObject.isStatic()) {
+            final List<AbstractComponent> components = gameObject.getComponents();
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0, size = components.size(); i < size; i++)
+                if(components.get(i) instanceof MeshRendererComponent && components.get(i).isEnabled())
+                    add((MeshRendererComponent) components.get(i));
+        }
+
+        // Collect the children
+        final List<AbstractGameObject> children = gameObject.getChildren();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = children.size(); i < size; i++)
+            collect(children.get(i));
+    }
+
+    /**
+     * Add a mesh renderer to a compatible batch, or to a new batch if none has room.
+     * Renderers that can't be batched are ignored, and are drawn as usual.
+     * This is used to add static renderers that are activated again after the batches were built.
+     *
+     * @param renderer Mesh renderer.
+     */
+    public synchronized void add(MeshRendererComponent renderer) {
+        // Make sure the renderer has a mesh and an opaque material
+        if(!renderer.hasMeshFilterComponent() || !renderer.getMeshFilterComponent().hasMesh() || !renderer.hasMaterial())
+            return;
+        if(renderer.getColor().getAlpha() < 1.0f)
+            return;
+
+        // Make sure the mesh fits in a batch at all
+        final RawMesh raw = renderer.getMeshFilterComponent().getMesh().getRawMesh();
+        if(raw.getVertexCount() > this.maxVertexCount)
+            return;
+
+        // Add the renderer to the first batch that accepts it
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.batches.size(); i < size; i++) {
+            if(this.batches.get(i).accepts(renderer, this.maxVertexCount)) {
+                this.batches.get(i).add(renderer);
+                return;
+            }
+        }
+
+        // Create a new batch for the renderer
+        final StaticBatch batch = new StaticBatch(renderer.getMaterial(), renderer.getColor(), raw.hasNormalData(), raw.hasTextureData());
+        batch.add(renderer);
+        this.batches.add(batch);
+    }
+
+    /**
+     * Submit all batches to the given render queue.
+     * Batches that have changed are rebuilt, and batches that became empty are removed.
+     *
+     * @param renderQueue Render queue.
+     */
+    public synchronized void submit(RenderQueue renderQueue) {
+        // Loop through all batches in reverse, so empty batches can be removed
+        for(int i = this.batches.size() - 1; i >= 0; i--) {
+            // Get the batch
+            final StaticBatch batch = this.batches.get(i);
+
+            // Remove the batch if it became empty
+            if(batch.getRendererCount() == 0) {
+                batch.dispose();
+                this.batches.remove(i);
+                continue;
+            }
+
+            // Submit the batch
+            batch.submit(renderQueue);
+        }
+    }
+
+    /**
+     * Dispose and remove all batches.
+     * The renderers that were batched are drawn as usual again.
+     */
+    public synchronized void clear() {
+        // Dispose all batches and unlink their renderers
+        for(int i = this.batches.size() - 1; i >= 0; i--) {
+            this.batches.get(i).dispose();
+            this.batches.get(i).clear();
+        }
+
+        // Clear the list of batches
+        this.batches.clear();
+    }
+}
@@ -0,0 +1,179 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.culling;
+
+import com.timvisee.voxeltex.module.mesh.Bounds;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+/**
+ * Culls bounding volumes against the view frustum of the main camera.
+ *
+ * The frustum is extracted from the projection and view matrix once per frame, before the scene is drawn.
+ * Until the first frustum is set, everything is considered visible.
+ */
+public class FrustumCuller {
+
+    /**
+     * Frustum planes of the current frame.
+     */
+    private static final FrustumIntersection frustum = new FrustumIntersection();
+
+    /**
+     * True if culling is enabled, false if everything should be drawn.
+     */
+    private static boolean enabled = true;
+
+    /**
+     * True if a frustum has been set.
+     */
+    private static boolean frustumSet = false;
+
+    /**
+     * Number of visible volumes in the current frame.
+     */
+    private static int visible = 0;
+
+    /**
+     * Number of culled volumes in the current frame.
+     */
+    private static int culled = 0;
+
+    /**
+     * Number of visible volumes in the last frame.
+     */
+    private static int lastFrameVisible = 0;
+
+    /**
+     * Number of culled volumes in the last frame.
+     */
+    private static int lastFrameCulled = 0;
+
+    /**
+     * Temporary projection view matrix, used to extract the frustum planes.
+     */
+    private static final Matrix4f tempProjectionViewMatrix = new Matrix4f();
+
+    /**
+     * Temporary bounds, used to transform local bounds into world space.
+     */
+    private static final Bounds tempBounds = new Bounds();
+
+    /**
+     * Check whether culling is enabled.
+     *
+     * @return True if enabled, false if not.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set whether culling is enabled.
+     *
+     * @param enabled True to enable, false to draw everything.
+     */
+    public static void setEnabled(boolean enabled) {
+        FrustumCuller.enabled = enabled;
+    }
+
+    /**
+     * Extract the frustum from the given projection and view matrix.
+     *
+     * @param projectionMatrix Projection matrix.
+     * @param viewMatrix Camera view matrix.
+     */
+    public static synchronized void update(Matrix4f projectionMatrix, Matrix4f viewMatrix) {
+        frustum.set(projectionMatrix.mul(viewMatrix, tempProjectionViewMatrix));
+        frustumSet = true;
+    }
+
+    /**
+     * Check whether the given world space bounds are visible, and count the result.
+     * The bounding sphere is tested first, the bounding box is only tested if the sphere intersects the frustum.
+     *
+     * @param worldBounds Bounds in world space.
+     *
+     * @return True if visible, false if culled.
+     */
+    public static synchronized boolean isVisible(Bounds worldBounds) {
+        // Everything is visible if culling is disabled or no frustum is set yet
+        if(!enabled || !frustumSet) {
+            visible++;
+            return true;
+        }
+
+        // Test the sphere, and the box if required
+        final boolean result = frustum.testSphere(worldBounds.getCenter(), worldBounds.getRadius())
+                && frustum.testAab(worldBounds.getMin(), worldBounds.getMax());
+
+        // Count the result
+        if(result)
+            visible++;
+        else
+            culled++;
+        return result;
+    }
+
+    /**
+     * Check whether the given local bounds are visible when transformed with the given world matrix,
+     * and count the result.
+     *
+     * @param localBounds Bounds in local space.
+     * @param worldMatrix World matrix.
+     *
+     * @return True if visible, false if culled.
+     */
+    public static synchronized boolean isVisible(Bounds localBounds, Matrix4f worldMatrix) {
+        return isVisible(localBounds.transform(worldMatrix, tempBounds));
+    }
+
+    /**
+     * Start a new frame.
+     * This stores the visible and culled counts of the current frame, and resets them.
+     */
+    public static synchronized void nextFrame() {
+        lastFrameVisible = visible;
+        lastFrameCulled = culled;
+        visible = 0;
+        culled = 0;
+    }
+
+    /**
+     * Get the number of visible volumes in the last frame.
+     *
+     * @return Visible count.
+     */
+    public static int getVisibleCount() {
+        return lastFrameVisible;
+    }
+
+    /**
+     * Get the number of culled volumes in the last frame.
+     *
+     * @return Culled count.
+     */
+    public static int getCulledCount() {
+        return lastFrameCulled;
+    }
+}
@@ -0,0 +1,304 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.lightmap;
+
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Texture holding baked diffuse lighting for a set of triangles.
+ * Each triangle gets its own square cell in the texture, laid out in rows, so every triangle has the same texel
+ * density. The texels hold the lighting before the diffuse factor and ambient light of the light shader are applied.
+ */
+public class Lightmap {
+
+    /**
+     * Default size of a triangle cell in texels.
+     */
+    public static final int DEFAULT_CELL_SIZE = 8;
+
+    /**
+     * Minimum size of a triangle cell in texels, used when the triangles don't fit with a larger cell size.
+     */
+    public static final int MIN_CELL_SIZE = 4;
+
+    /**
+     * Maximum size of a triangle cell in texels.
+     */
+    public static final int MAX_CELL_SIZE = 16;
+
+    /**
+     * Maximum width and height of a lightmap texture.
+     */
+    public static final int MAX_SIZE = 4096;
+
+    /**
+     * Number of texels between the edge of a cell and its triangle, so filtering doesn't bleed between triangles.
+     */
+    public static final int MARGIN = 1;
+
+    /**
+     * Number of color components for each texel.
+     */
+    public static final int TEXEL_SIZE = 3;
+
+    /**
+     * Lightmap width in texels.
+     */
+    private final int width;
+
+    /**
+     * Lightmap height in texels.
+     */
+    private final int height;
+
+    /**
+     * Size of a triangle cell in texels.
+     */
+    private final int cellSize;
+
+    /**
+     * Number of triangle cells in each row.
+     */
+    private final int columns;
+
+    /**
+     * Number of triangles in the lightmap.
+     */
+    private final int triangleCount;
+
+    /**
+     * Texel colors, three components for each texel, stored row by row.
+     */
+    private final float[] data;
+
+    /**
+     * OpenGL texture ID, or zero if the lightmap hasn't been uploaded yet.
+     */
+    private int id = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param triangleCount Number of triangles.
+     * @param cellSize Size of a triangle cell in texels.
+     * @param columns Number of triangle cells in each row.
+     * @param data Texel colors, or null to create a black lightmap.
+     */
+    public Lightmap(int triangleCount, int cellSize, int columns, float[] data) {
+        // Set the layout
+        this.triangleCount = triangleCount;
+        this.cellSize = cellSize;
+        this.columns = Math.max(columns, 1);
+        this.width = this.columns * cellSize;
+        this.height = Math.max((triangleCount + this.columns - 1) / this.columns, 1) * cellSize;
+
+        // Set or allocate the texel data
+        if(data != null && data.length != this.width * this.height * TEXEL_SIZE)
+            throw new RuntimeException("Lightmap data doesn't match its size");
+        this.data = data != null ? data : new float[this.width * this.height * TEXEL_SIZE];
+    }
+
+    /**
+     * Create an empty lightmap for the given number of triangles.
+     * The cells are laid out in a square, and are shrunk when the lightmap would become larger than {@link #MAX_SIZE}.
+     *
+     * @param triangleCount Number of triangles.
+     * @param cellSize Preferred size of a triangle cell in texels.
+     *
+     * @return Lightmap.
+     */
+    public static Lightmap create(int triangleCount, int cellSize) {
+        // Lay out the cells in a square
+        final int columns = Math.max((int) Math.ceil(Math.sqrt(triangleCount)), 1);
+
+        // Shrink the cells until the lightmap fits
+        cellSize = Math.max(Math.min(cellSize, MAX_CELL_SIZE), MIN_CELL_SIZE);
+        while(cellSize > MIN_CELL_SIZE && columns * cellSize > MAX_SIZE)
+            cellSize--;
+        if(columns * cellSize > MAX_SIZE)
+            throw new RuntimeException("Too many triangles to fit in a lightmap: " + triangleCount);
+
+        return new Lightmap(triangleCount, cellSize, columns, null);
+    }
+
+    /**
+     * Get the lightmap width.
+     *
+     * @return Width in texels.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Get the lightmap height.
+     *
+     * @return Height in texels.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Get the size of a triangle cell.
+     *
+     * @return Cell size in texels.
+     */
+    public int getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Get the number of triangle cells in each row.
+     *
+     * @return Column count.
+     */
+    public int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Get the number of triangles in the lightmap.
+     *
+     * @return Triangle count.
+     */
+    public int getTriangleCount() {
+        return this.triangleCount;
+    }
+
+    /**
+     * Get the texel colors, three components for each texel, stored row by row.
+     *
+     * @return Texel data.
+     */
+    public float[] getData() {
+        return this.data;
+    }
+
+    /**
+     * Get the X coordinate of the first texel of the cell of the given triangle.
+     *
+     * @param triangle Triangle index.
+     *
+     * @return Texel X coordinate.
+     */
+    public int getCellX(int triangle) {
+        return (triangle % this.columns) * this.cellSize;
+    }
+
+    /**
+     * Get the Y coordinate of the first texel of the cell of the given triangle.
+     *
+     * @param triangle Triangle index.
+     *
+     * @return Texel Y coordinate.
+     */
+    public int getCellY(int triangle) {
+        return (triangle / this.columns) * this.cellSize;
+    }
+
+    /**
+     * Get a color component of a texel.
+     *
+     * @param x Texel X coordinate.
+     * @param y Texel Y coordinate.
+     * @param component Color component, zero to two.
+     *
+     * @return Component value.
+     */
+    public float getTexel(int x, int y, int component) {
+        return this.data[(y * this.width + x) * TEXEL_SIZE + component];
+    }
+
+    /**
+     * Set the color of a texel.
+     *
+     * @param x Texel X coordinate.
+     * @param y Texel Y coordinate.
+     * @param r Red component.
+     * @param g Green component.
+     * @param b Blue component.
+     */
+    public void setTexel(int x, int y, float r, float g, float b) {
+        final int i = (y * this.width + x) * TEXEL_SIZE;
+        this.data[i] = r;
+        this.data[i + 1] = g;
+        this.data[i + 2] = b;
+    }
+
+    /**
+     * Bind the lightmap texture to the given texture unit, uploading it first if it hasn't been uploaded yet.
+     * This must be called from the rendering thread. Texture unit zero is made active again afterwards.
+     *
+     * @param unit OpenGL texture unit.
+     */
+    public void bind(int unit) {
+        // Upload the lightmap through the given unit if it isn't on the graphics card yet, or bind the texture
+        if(this.id == 0)
+            upload(unit);
+        else
+            RenderStateTracker.bindTexture(unit, this.id);
+        RenderStateTracker.activeTexture(GL13.GL_TEXTURE0);
+    }
+
+    /**
+     * Upload the texel data to a new texture on the graphics card.
+     * The texture is uploaded through the given unit, and stays bound to it, so the textures bound to other units
+     * aren't touched.
+     *
+     * @param unit Texture unit, such as GL_TEXTURE0.
+     */
+    private void upload(int unit) {
+        // Copy the texel data into a buffer
+        final FloatBuffer buffer = BufferUtils.createFloatBuffer(this.data.length);
+        buffer.put(this.data).flip();
+
+        // Create and configure the texture, and upload the data
+        this.id = GL11.glGenTextures();
+        RenderStateTracker.bindTexture(unit, this.id);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL30.GL_RGB16F, this.width, this.height, 0, GL11.GL_RGB, GL11.GL_FLOAT, buffer);
+    }
+
+    /**
+     * Delete the lightmap texture from the graphics card.
+     * The texel data is kept, so the lightmap is uploaded again when it's bound.
+     */
+    public void dispose() {
+        if(this.id != 0) {
+            GL11.glDeleteTextures(this.id);
+            RenderStateTracker.forgetTexture(this.id);
+        }
+        this.id = 0;
+    }
+}
@@ -0,0 +1,658 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.lightmap;
+
+import com.timvisee.voxeltex.engine.light.Light;
+import com.timvisee.voxeltex.engine.spatial.TriangleBvh;
+import com.timvisee.voxeltex.module.mesh.RawMesh;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bakes the diffuse lighting of static geometry into lightmaps on the CPU.
+ *
+ * Lighting is baked in two passes. The direct pass traces a shadow ray from each texel to each directional and point
+ * light, and applies the same falloff as the light shader. The bounce pass traces cosine weighted rays over the
+ * hemisphere of each texel, and gathers the direct lighting of the geometry they hit to add a single diffuse bounce.
+ * Both passes are spread over all cores with a fork join pool, each task baking a range of lightmap rows.
+ *
+ * All baked meshes occlude each other, other geometry isn't taken into account. Spot lights aren't baked, as the light
+ * shader doesn't shade them either.
+ */
+public class LightmapBaker {
+
+    /**
+     * Default number of bounce rays traced for each texel.
+     */
+    public static final int DEFAULT_BOUNCE_SAMPLES = 16;
+
+    /**
+     * Default fraction of the light that is reflected by surfaces for the bounce pass.
+     */
+    public static final float DEFAULT_ALBEDO = 0.5f;
+
+    /**
+     * Version of the baked data, included in cache keys so older bakes are dropped when the baker changes.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Distance rays start away from the surface, to prevent them from hitting the surface they start from.
+     */
+    private static final float RAY_OFFSET = 0.001f;
+
+    /**
+     * Number of lightmap rows baked by a single task.
+     */
+    private static final int TASK_ROWS = 8;
+
+    /**
+     * Number of floats for each light in a light snapshot: type, position or direction, color multiplied by the
+     * brightness, and range.
+     */
+    private static final int LIGHT_DATA_SIZE = 8;
+
+    /**
+     * Number of bounce rays traced for each texel.
+     */
+    private int bounceSamples = DEFAULT_BOUNCE_SAMPLES;
+
+    /**
+     * Fraction of the light that is reflected by surfaces for the bounce pass.
+     */
+    private float albedo = DEFAULT_ALBEDO;
+
+    /**
+     * Meshes that are being baked.
+     */
+    private List<RawMesh> meshes;
+
+    /**
+     * Lightmaps that are being baked.
+     */
+    private List<Lightmap> lightmaps;
+
+    /**
+     * Index of the first triangle of each mesh in the triangle hierarchy.
+     */
+    private int[] triangleOffsets;
+
+    /**
+     * Triangle hierarchy of all baked meshes.
+     */
+    private TriangleBvh bvh;
+
+    /**
+     * Snapshot of the lights that are being baked.
+     */
+    private float[] lightData;
+
+    /**
+     * Bounced lighting of each lightmap, kept apart from the direct lighting while the bounce pass reads it.
+     */
+    private float[][] bounceData;
+
+    /**
+     * Get the number of bounce rays traced for each texel.
+     *
+     * @return Bounce sample count.
+     */
+    public int getBounceSamples() {
+        return this.bounceSamples;
+    }
+
+    /**
+     * Set the number of bounce rays traced for each texel.
+     *
+     * @param bounceSamples Bounce sample count, or zero to only bake direct lighting.
+     */
+    public void setBounceSamples(int bounceSamples) {
+        this.bounceSamples = Math.max(bounceSamples, 0);
+    }
+
+    /**
+     * Get the fraction of the light that is reflected by surfaces for the bounce pass.
+     *
+     * @return Albedo.
+     */
+    public float getAlbedo() {
+        return this.albedo;
+    }
+
+    /**
+     * Set the fraction of the light that is reflected by surfaces for the bounce pass.
+     *
+     * @param albedo Albedo.
+     */
+    public void setAlbedo(float albedo) {
+        this.albedo = albedo;
+    }
+
+    /**
+     * Create a key for baking the given meshes with the given lights and the current settings.
+     * The key is a hash of everything the baked lightmaps depend on, so it can be used to cache them.
+     *
+     * @param meshes Unwrapped world space meshes.
+     * @param lightmaps Lightmaps of the meshes.
+     * @param lights Lights.
+     *
+     * @return Hexadecimal key.
+     */
+    public String createKey(List<RawMesh> meshes, List<Lightmap> lightmaps, List<Light> lights) {
+        // Create the digest
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch(NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to create lightmap key", e);
+        }
+
+        // Hash the format and settings
+        update(digest, new float[]{FORMAT_VERSION, this.bounceSamples, this.albedo, meshes.size()});
+
+        // Hash the meshes and the layout of their lightmaps
+        for(int i = 0, size = meshes.size(); i < size; i++) {
+            final Lightmap lightmap = lightmaps.get(i);
+            update(digest, new float[]{lightmap.getTriangleCount(), lightmap.getCellSize(), lightmap.getColumns()});
+            update(digest, meshes.get(i).getVertexes());
+            update(digest, meshes.get(i).getNormals());
+        }
+
+        // Hash the lights
+        update(digest, snapshot(lights));
+
+        // Format the hash as hexadecimal string
+        final StringBuilder key = new StringBuilder();
+        for(byte b : digest.digest())
+            key.append(String.format("%02x", b & 0xFF));
+        return key.toString();
+    }
+
+    /**
+     * Update a digest with the given values.
+     *
+     * @param digest Digest.
+     * @param values Values.
+     */
+    private static void update(MessageDigest digest, float[] values) {
+        final ByteBuffer buffer = ByteBuffer.allocate((values.length + 1) * 4);
+        buffer.putInt(values.length);
+        buffer.asFloatBuffer().put(values);
+        digest.update(buffer.array());
+    }
+
+    /**
+     * Create a snapshot of the bakeable lights, so the lights can be read safely from multiple threads.
+     *
+     * @param lights Lights.
+     *
+     * @return Light data, {@link #LIGHT_DATA_SIZE} floats for each directional and point light.
+     */
+    private static float[] snapshot(List<Light> lights) {
+        // Count the directional and point lights
+        int count = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = lights.size(); i < size; i++)
+            if(lights.get(i).getType() != Light.LIGHT_TYPE_SPOT)
+                count++;
+
+        // Store the type, position or normalized direction, color and range of each light
+        final float[] data = new float[count * LIGHT_DATA_SIZE];
+        int offset = 0;
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = lights.size(); i < size; i++) {
+            final Light light = lights.get(i);
+            if(light.getType() == Light.LIGHT_TYPE_SPOT)
+                continue;
+            final boolean directional = light.getType() == Light.LIGHT_TYPE_DIRECTIONAL;
+            final float x = directional ? light.getRotation().x : light.getPosition().x;
+            final float y = directional ? light.getRotation().y : light.getPosition().y;
+            final float z = directional ? light.getRotation().z : light.getPosition().z;
+            final float length = directional ? (float) Math.sqrt(x * x + y * y + z * z) : 1.0f;
+            data[offset] = light.getType();
+            data[offset + 1] = length > 0.0f ? x / length : 0.0f;
+            data[offset + 2] = length > 0.0f ? y / length : 0.0f;
+            data[offset + 3] = length > 0.0f ? z / length : 0.0f;
+            data[offset + 4] = light.getColor().x * light.getBrightness();
+            data[offset + 5] = light.getColor().y * light.getBrightness();
+            data[offset + 6] = light.getColor().z * light.getBrightness();
+            data[offset + 7] = directional ? 0.0f : light.getRange();
+            offset += LIGHT_DATA_SIZE;
+        }
+
+        return data;
+    }
+
+    /**
+     * Bake the lighting of the given meshes into their lightmaps.
+     * The meshes must be unwrapped for their lightmaps, and must be in world space.
+     *
+     * @param meshes Unwrapped world space meshes.
+     * @param lightmaps Lightmap of each mesh, the baked lighting is written into these.
+     * @param lights Lights to bake.
+     */
+    public synchronized void bake(List<RawMesh> meshes, List<Lightmap> lightmaps, List<Light> lights) {
+        // Set the bake state
+        this.meshes = meshes;
+        this.lightmaps = lightmaps;
+        this.lightData = snapshot(lights);
+
+        // Collect the triangles of all meshes, and build the triangle hierarchy
+        this.triangleOffsets = new int[meshes.size()];
+        int triangleCount = 0;
+        for(int i = 0, size = meshes.size(); i < size; i++) {
+            this.triangleOffsets[i] = triangleCount;
+            triangleCount += meshes.get(i).getTriangleCount();
+        }
+        final float[] positions = new float[triangleCount * TriangleBvh.TRIANGLE_SIZE];
+        for(int i = 0, size = meshes.size(); i < size; i++) {
+            final float[] vertexes = meshes.get(i).getVertexes();
+            System.arraycopy(vertexes, 0, positions, this.triangleOffsets[i] * TriangleBvh.TRIANGLE_SIZE, meshes.get(i).getTriangleCount() * TriangleBvh.TRIANGLE_SIZE);
+        }
+        this.bvh = new TriangleBvh(positions);
+
+        try {
+            // Bake the direct lighting into the lightmaps
+            for(int i = 0, size = lightmaps.size(); i < size; i++)
+                ForkJoinPool.commonPool().invoke(new BakeTask(false, i, 0, lightmaps.get(i).getHeight()));
+
+            // Bake the bounced lighting, and add it to the direct lighting afterwards
+            if(this.bounceSamples > 0) {
+                this.bounceData = new float[lightmaps.size()][];
+                for(int i = 0, size = lightmaps.size(); i < size; i++) {
+                    this.bounceData[i] = new float[lightmaps.get(i).getData().length];
+                    ForkJoinPool.commonPool().invoke(new BakeTask(true, i, 0, lightmaps.get(i).getHeight()));
+                }
+                for(int i = 0, size = lightmaps.size(); i < size; i++) {
+                    final float[] data = lightmaps.get(i).getData();
+                    for(int j = 0; j < data.length; j++)
+                        data[j] += this.bounceData[i][j];
+                }
+            }
+
+        } finally {
+            // Release the bake state
+            this.meshes = null;
+            this.lightmaps = null;
+            this.triangleOffsets = null;
+            this.bvh = null;
+            this.lightData = null;
+            this.bounceData = null;
+        }
+    }
+
+    /**
+     * Bake a range of rows of a lightmap.
+     *
+     * @param bounce True to bake the bounced lighting, false to bake the direct lighting.
+     * @param lightmapIndex Lightmap index.
+     * @param start First row.
+     * @param end Row after the last row.
+     */
+    private void bakeRows(boolean bounce, int lightmapIndex, int start, int end) {
+        // Get the lightmap and its mesh
+        final Lightmap lightmap = this.lightmaps.get(lightmapIndex);
+        final RawMesh mesh = this.meshes.get(lightmapIndex);
+        final int cellSize = lightmap.getCellSize();
+        final float span = cellSize - 2 * Lightmap.MARGIN;
+
+        // Create the per task state
+        final TriangleBvh.Hit hit = new TriangleBvh.Hit();
+        final float[] surface = new float[9];
+        final float[] color = new float[3];
+        final float[] gathered = new float[3];
+
+        for(int y = start; y < end; y++) {
+            for(int x = 0, width = lightmap.getWidth(); x < width; x++) {
+                // Find the triangle of the cell this texel is in, and skip texels of unused cells
+                final int triangle = (y / cellSize) * lightmap.getColumns() + x / cellSize;
+                if(triangle >= lightmap.getTriangleCount())
+                    continue;
+
+                // Determine the barycentric coordinates of the texel center, clamped to the triangle so the margin
+                // texels repeat the lighting at the triangle edges
+                float s = Math.max((x - lightmap.getCellX(triangle) + 0.5f - Lightmap.MARGIN) / span, 0.0f);
+                float t = Math.max((y - lightmap.getCellY(triangle) + 0.5f - Lightmap.MARGIN) / span, 0.0f);
+                if(s + t > 1.0f) {
+                    final float scale = 1.0f / (s + t);
+                    s *= scale;
+                    t *= scale;
+                }
+
+                // Determine the surface position and normals of the texel
+                interpolate(mesh, triangle, s, t, surface);
+
+                // Bake the texel
+                if(bounce) {
+                    bounce(lightmapIndex, x, y, surface, hit, gathered, color);
+                    final int i = (y * lightmap.getWidth() + x) * Lightmap.TEXEL_SIZE;
+                    this.bounceData[lightmapIndex][i] = color[0];
+                    this.bounceData[lightmapIndex][i + 1] = color[1];
+                    this.bounceData[lightmapIndex][i + 2] = color[2];
+                } else {
+                    direct(surface, hit, color);
+                    lightmap.setTexel(x, y, color[0], color[1], color[2]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine the surface at the given barycentric coordinates of a triangle.
+     *
+     * @param mesh Mesh.
+     * @param triangle Triangle index.
+     * @param s Barycentric weight of the second vertex.
+     * @param t Barycentric weight of the third vertex.
+     * @param surface Array to store the position, the shading normal and the geometric normal in. The geometric normal
+     *                is flipped to the side of the shading normal.
+     */
+    private static void interpolate(RawMesh mesh, int triangle, float s, float t, float[] surface) {
+        // Get the triangle vertex positions
+        final float[] vertexes = mesh.getVertexes();
+        final int p = triangle * 3 * RawMesh.VERTEX_AXIS_COUNT;
+        final float edge1X = vertexes[p + 3] - vertexes[p], edge1Y = vertexes[p + 4] - vertexes[p + 1], edge1Z = vertexes[p + 5] - vertexes[p + 2];
+        final float edge2X = vertexes[p + 6] - vertexes[p], edge2Y = vertexes[p + 7] - vertexes[p + 1], edge2Z = vertexes[p + 8] - vertexes[p + 2];
+
+        // Determine the position
+        surface[0] = vertexes[p] + s * edge1X + t * edge2X;
+        surface[1] = vertexes[p + 1] + s * edge1Y + t * edge2Y;
+        surface[2] = vertexes[p + 2] + s * edge1Z + t * edge2Z;
+
+        // Determine the geometric normal
+        float geometricX = edge1Y * edge2Z - edge1Z * edge2Y;
+        float geometricY = edge1Z * edge2X - edge1X * edge2Z;
+        float geometricZ = edge1X * edge2Y - edge1Y * edge2X;
+        float length = (float) Math.sqrt(geometricX * geometricX + geometricY * geometricY + geometricZ * geometricZ);
+        if(length > 0.0f) {
+            geometricX /= length;
+            geometricY /= length;
+            geometricZ /= length;
+        }
+
+        // Determine the shading normal, use the geometric normal if the mesh doesn't have normals
+        float normalX = geometricX, normalY = geometricY, normalZ = geometricZ;
+        if(mesh.hasNormalData()) {
+            final float[] normals = mesh.getNormals();
+            final int n = triangle * 3 * RawMesh.NORMAL_AXIS_COUNT;
+            final float r = 1.0f - s - t;
+            normalX = r * normals[n] + s * normals[n + 3] + t * normals[n + 6];
+            normalY = r * normals[n + 1] + s * normals[n + 4] + t * normals[n + 7];
+            normalZ = r * normals[n + 2] + s * normals[n + 5] + t * normals[n + 8];
+            length = (float) Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+            if(length > 0.0f) {
+                normalX /= length;
+                normalY /= length;
+                normalZ /= length;
+            }
+        }
+        surface[3] = normalX;
+        surface[4] = normalY;
+        surface[5] = normalZ;
+
+        // Flip the geometric normal to the side of the shading normal
+        final float side = geometricX * normalX + geometricY * normalY + geometricZ * normalZ < 0.0f ? -1.0f : 1.0f;
+        surface[6] = geometricX * side;
+        surface[7] = geometricY * side;
+        surface[8] = geometricZ * side;
+    }
+
+    /**
+     * Determine the direct lighting of a surface point.
+     *
+     * @param surface Surface position, shading normal and geometric normal.
+     * @param hit Hit used for the shadow rays.
+     * @param color Array to store the lighting color in.
+     */
+    private void direct(float[] surface, TriangleBvh.Hit hit, float[] color) {
+        // Determine the ray origin, just above the surface
+        final float originX = surface[0] + surface[6] * RAY_OFFSET;
+        final float originY = surface[1] + surface[7] * RAY_OFFSET;
+        final float originZ = surface[2] + surface[8] * RAY_OFFSET;
+
+        color[0] = color[1] = color[2] = 0.0f;
+        for(int l = 0; l < this.lightData.length; l += LIGHT_DATA_SIZE) {
+            // Determine the direction and distance to the light, and the falloff
+            float directionX = this.lightData[l + 1];
+            float directionY = this.lightData[l + 2];
+            float directionZ = this.lightData[l + 3];
+            float maxDistance = Float.POSITIVE_INFINITY;
+            float falloff = 1.0f;
+            if((int) this.lightData[l] == Light.LIGHT_TYPE_POINT) {
+                // Skip lights that are out of range
+                directionX -= surface[0];
+                directionY -= surface[1];
+                directionZ -= surface[2];
+                final float distance = (float) Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+                if(distance > this.lightData[l + 7] || distance <= 0.0f)
+                    continue;
+
+                // Normalize the direction, and only trace up to the light
+                directionX /= distance;
+                directionY /= distance;
+                directionZ /= distance;
+                maxDistance = distance;
+                falloff = 1.0f / (distance * distance);
+            }
+
+            // Skip lights behind the surface, and lights that are occluded
+            final float brightness = directionX * surface[3] + directionY * surface[4] + directionZ * surface[5];
+            if(brightness <= 0.0f)
+                continue;
+            if(this.bvh.occluded(originX, originY, originZ, directionX, directionY, directionZ, maxDistance, hit))
+                continue;
+
+            // Add the light color
+            color[0] += brightness * falloff * this.lightData[l + 4];
+            color[1] += brightness * falloff * this.lightData[l + 5];
+            color[2] += brightness * falloff * this.lightData[l + 6];
+        }
+    }
+
+    /**
+     * Determine the bounced lighting of a surface point, by gathering the direct lighting of the geometry that is hit by
+     * cosine weighted rays over its hemisphere.
+     *
+     * @param lightmapIndex Lightmap index of the texel.
+     * @param x Texel X coordinate.
+     * @param y Texel Y coordinate.
+     * @param surface Surface position, shading normal and geometric normal.
+     * @param hit Hit used for the rays.
+     * @param gathered Array used to gather the lighting of a single ray.
+     * @param color Array to store the lighting color in.
+     */
+    private void bounce(int lightmapIndex, int x, int y, float[] surface, TriangleBvh.Hit hit, float[] gathered, float[] color) {
+        // Determine the ray origin, just above the surface
+        final float originX = surface[0] + surface[6] * RAY_OFFSET;
+        final float originY = surface[1] + surface[7] * RAY_OFFSET;
+        final float originZ = surface[2] + surface[8] * RAY_OFFSET;
+
+        // Build a tangent and bitangent perpendicular to the normal
+        final float normalX = surface[3], normalY = surface[4], normalZ = surface[5];
+        final boolean upright = Math.abs(normalX) > 0.9f;
+        float tangentX = upright ? -normalZ : 0.0f;
+        float tangentY = upright ? 0.0f : normalZ;
+        float tangentZ = upright ? normalX : -normalY;
+        final float tangentLength = (float) Math.sqrt(tangentX * tangentX + tangentY * tangentY + tangentZ * tangentZ);
+        tangentX /= tangentLength;
+        tangentY /= tangentLength;
+        tangentZ /= tangentLength;
+        final float bitangentX = normalY * tangentZ - normalZ * tangentY;
+        final float bitangentY = normalZ * tangentX - normalX * tangentZ;
+        final float bitangentZ = normalX * tangentY - normalY * tangentX;
+
+        // Seed the random generator from the texel, so bakes are deterministic
+        int seed = (lightmapIndex * 73856093) ^ (x * 19349663) ^ (y * 83492791);
+        if(seed == 0)
+            seed = 1;
+
+        float red = 0.0f, green = 0.0f, blue = 0.0f;
+        for(int i = 0; i < this.bounceSamples; i++) {
+            // Pick a cosine weighted direction over the hemisphere
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            final float angle = (float) (2.0 * Math.PI * ((seed >>> 8) / (float) (1 << 24)));
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            final float radiusSquared = (seed >>> 8) / (float) (1 << 24);
+            final float radius = (float) Math.sqrt(radiusSquared);
+            final float a = radius * (float) Math.cos(angle);
+            final float b = radius * (float) Math.sin(angle);
+            final float c = (float) Math.sqrt(Math.max(1.0f - radiusSquared, 0.0f));
+            final float directionX = tangentX * a + bitangentX * b + normalX * c;
+            final float directionY = tangentY * a + bitangentY * b + normalY * c;
+            final float directionZ = tangentZ * a + bitangentZ * b + normalZ * c;
+
+            // Gather the direct lighting of the hit surface
+            if(this.bvh.intersect(originX, originY, originZ, directionX, directionY, directionZ, Float.POSITIVE_INFINITY, hit)) {
+                gather(hit, directionX, directionY, directionZ, gathered);
+                red += gathered[0];
+                green += gathered[1];
+                blue += gathered[2];
+            }
+        }
+
+        // Reflect the average gathered lighting
+        final float scale = this.albedo / this.bounceSamples;
+        color[0] = red * scale;
+        color[1] = green * scale;
+        color[2] = blue * scale;
+    }
+
+    /**
+     * Look up the direct lighting at a ray hit in the lightmap of the hit triangle.
+     * Back faces of meshes with normals don't reflect any light.
+     *
+     * @param hit Ray hit.
+     * @param directionX Ray direction X coordinate.
+     * @param directionY Ray direction Y coordinate.
+     * @param directionZ Ray direction Z coordinate.
+     * @param result Array to store the lighting color in.
+     */
+    private void gather(TriangleBvh.Hit hit, float directionX, float directionY, float directionZ, float[] result) {
+        // Find the mesh of the hit triangle
+        int meshIndex = 0;
+        int low = 0, high = this.triangleOffsets.length - 1;
+        while(low <= high) {
+            final int middle = (low + high) >>> 1;
+            if(this.triangleOffsets[middle] <= hit.getTriangle()) {
+                meshIndex = middle;
+                low = middle + 1;
+            } else
+                high = middle - 1;
+        }
+        final RawMesh mesh = this.meshes.get(meshIndex);
+        final Lightmap lightmap = this.lightmaps.get(meshIndex);
+        final int triangle = hit.getTriangle() - this.triangleOffsets[meshIndex];
+        final float u = hit.getU(), v = hit.getV();
+
+        // Skip back faces
+        if(mesh.hasNormalData()) {
+            final float[] normals = mesh.getNormals();
+            final int n = triangle * 3 * RawMesh.NORMAL_AXIS_COUNT;
+            final float r = 1.0f - u - v;
+            final float facing = directionX * (r * normals[n] + u * normals[n + 3] + v * normals[n + 6])
+                    + directionY * (r * normals[n + 1] + u * normals[n + 4] + v * normals[n + 7])
+                    + directionZ * (r * normals[n + 2] + u * normals[n + 5] + v * normals[n + 8]);
+            if(facing >= 0.0f) {
+                result[0] = result[1] = result[2] = 0.0f;
+                return;
+            }
+        }
+
+        // Find the texel at the hit in the cell of the triangle
+        final int cellSize = lightmap.getCellSize();
+        final float span = cellSize - 2 * Lightmap.MARGIN;
+        final int cellX = lightmap.getCellX(triangle);
+        final int cellY = lightmap.getCellY(triangle);
+        final int x = Math.min(Math.max(cellX + (int) (Lightmap.MARGIN + u * span), cellX), cellX + cellSize - 1);
+        final int y = Math.min(Math.max(cellY + (int) (Lightmap.MARGIN + v * span), cellY), cellY + cellSize - 1);
+
+        // Read the direct lighting of the texel
+        result[0] = lightmap.getTexel(x, y, 0);
+        result[1] = lightmap.getTexel(x, y, 1);
+        result[2] = lightmap.getTexel(x, y, 2);
+    }
+
+    /**
+     * Fork join task that bakes a range of rows of a lightmap.
+     */
+    private class BakeTask extends RecursiveAction {
+
+        /**
+         * True to bake the bounced lighting, false to bake the direct lighting.
+         */
+        private final boolean bounce;
+
+        /**
+         * Lightmap index.
+         */
+        private final int lightmapIndex;
+
+        /**
+         * First row.
+         */
+        private final int start;
+
+        /**
+         * Row after the last row.
+         */
+        private final int end;
+
+        /**
+         * Constructor.
+         *
+         * @param bounce True to bake the bounced lighting, false to bake the direct lighting.
+         * @param lightmapIndex Lightmap index.
+         * @param start First row.
+         * @param end Row after the last row.
+         */
+        BakeTask(boolean bounce, int lightmapIndex, int start, int end) {
+            this.bounce = bounce;
+            this.lightmapIndex = lightmapIndex;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            // Bake small ranges on the current thread
+            if(this.end - this.start <= TASK_ROWS) {
+                bakeRows(this.bounce, this.lightmapIndex, this.start, this.end);
+                return;
+            }
+
+            // Split the range in half
+            final int middle = this.start + (this.end - this.start) / 2;
+            invokeAll(new BakeTask(this.bounce, this.lightmapIndex, this.start, middle),
+                    new BakeTask(this.bounce, this.lightmapIndex, middle, this.end));
+        }
+    }
+}
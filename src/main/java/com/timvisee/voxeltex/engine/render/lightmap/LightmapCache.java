@@ -0,0 +1,181 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.lightmap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Disk cache of baked lightmaps, so lightmaps only have to be baked again when the scene or its lights change.
+ * Each bake is stored in its own file, named after the key created by {@link LightmapBaker#createKey}.
+ */
+public class LightmapCache {
+
+    /**
+     * Magic number at the start of each cache file.
+     */
+    private static final int MAGIC = 0x564C4D50;
+
+    /**
+     * Version of the cache file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Directory the cache files are stored in.
+     */
+    private final File directory;
+
+    /**
+     * Constructor, using a directory in the temporary directory of the system.
+     */
+    public LightmapCache() {
+        this(new File(System.getProperty("java.io.tmpdir"), "voxeltex-lightmaps"));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directory Directory to store the cache files in.
+     */
+    public LightmapCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the directory the cache files are stored in.
+     *
+     * @return Cache directory.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Get the cache file for the given key.
+     *
+     * @param key Bake key.
+     *
+     * @return Cache file.
+     */
+    private File getFile(String key) {
+        return new File(this.directory, key + ".lightmap");
+    }
+
+    /**
+     * Load the lighting of a bake into the given lightmaps.
+     * The lightmaps must have the same layout as the lightmaps that were stored.
+     *
+     * @param key Bake key.
+     * @param lightmaps Lightmaps to load the lighting into.
+     *
+     * @return True if the lighting was loaded, false if it isn't cached or if the cache file doesn't match.
+     */
+    public boolean load(String key, List<Lightmap> lightmaps) {
+        // Make sure the bake is cached
+        final File file = getFile(key);
+        if(!file.isFile())
+            return false;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // Make sure the file format and lightmap count match
+            if(in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != lightmaps.size())
+                return false;
+
+            // Read the lighting of each lightmap, and make sure its size matches
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0, size = lightmaps.size(); i < size; i++) {
+                final Lightmap lightmap = lightmaps.get(i);
+                if(in.readInt() != lightmap.getWidth() || in.readInt() != lightmap.getHeight())
+                    return false;
+                final float[] data = lightmap.getData();
+                for(int j = 0; j < data.length; j++)
+                    data[j] = in.readFloat();
+            }
+            return true;
+
+        } catch(IOException e) {
+            System.out.println("Failed to load cached lightmaps: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Store the lighting of the given lightmaps.
+     *
+     * @param key Bake key.
+     * @param lightmaps Baked lightmaps.
+     *
+     * @return True if the lighting was stored, false if it failed.
+     */
+    public boolean save(String key, List<Lightmap> lightmaps) {
+        // Make sure the cache directory exists
+        if(!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            System.out.println("Failed to create lightmap cache directory: " + this.directory);
+            return false;
+        }
+
+        // Write to a temporary file first, so an interrupted write doesn't leave a broken cache file
+        final File file = getFile(key);
+        final File tempFile = new File(this.directory, key + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            // Write the header
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(lightmaps.size());
+
+            // Write the size and lighting of each lightmap
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0, size = lightmaps.size(); i < size; i++) {
+                final Lightmap lightmap = lightmaps.get(i);
+                out.writeInt(lightmap.getWidth());
+                out.writeInt(lightmap.getHeight());
+                final float[] data = lightmap.getData();
+                for(int j = 0; j < data.length; j++)
+                    out.writeFloat(data[j]);
+            }
+
+        } catch(IOException e) {
+            System.out.println("Failed to cache lightmaps: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return false;
+        }
+
+        // Move the temporary file into place
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        if(!tempFile.renameTo(file)) {
+            System.out.println("Failed to cache lightmaps: " + file);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.lightmap;
+
+import com.timvisee.voxeltex.module.mesh.RawMesh;
+
+/**
+ * Creates lightmap texture coordinates for meshes, by giving each triangle its own cell in a {@link Lightmap}.
+ */
+public class LightmapUnwrapper {
+
+    /**
+     * Create a copy of the given mesh with lightmap texture coordinates for the given lightmap.
+     * The copy isn't indexed, so each triangle has its own vertices. The first vertex of a triangle is mapped to the
+     * corner of its cell, and the other two vertices to the ends of both cell edges next to it, inside the margin.
+     * The second and third vertex are thus mapped along the lightmap X and Y axis, matching the barycentric coordinates
+     * used by the {@link LightmapBaker}.
+     *
+     * @param raw Raw mesh.
+     * @param lightmap Lightmap to map to, which must have a cell for each triangle of the mesh.
+     *
+     * @return Unwrapped raw mesh.
+     */
+    public static RawMesh unwrap(RawMesh raw, Lightmap lightmap) {
+        // Make sure the lightmap has a cell for each triangle
+        final int triangleCount = raw.getTriangleCount();
+        if(lightmap.getTriangleCount() < triangleCount)
+            throw new RuntimeException("Lightmap doesn't have enough cells for the mesh");
+
+        // Allocate the unwrapped vertex data
+        final int vertexCount = triangleCount * 3;
+        final float[] vertexes = new float[vertexCount * RawMesh.VERTEX_AXIS_COUNT];
+        final float[] normals = new float[raw.hasNormalData() ? vertexCount * RawMesh.NORMAL_AXIS_COUNT : 0];
+        final float[] textures = new float[raw.hasTextureData() ? vertexCount * RawMesh.TEXTURE_AXIS_COUNT : 0];
+        final float[] lightmapTextures = new float[vertexCount * RawMesh.TEXTURE_AXIS_COUNT];
+
+        // Determine the texel span of a triangle inside its cell
+        final float texelWidth = 1.0f / lightmap.getWidth();
+        final float texelHeight = 1.0f / lightmap.getHeight();
+        final int span = lightmap.getCellSize() - 2 * Lightmap.MARGIN;
+
+        for(int triangle = 0; triangle < triangleCount; triangle++) {
+            // Copy the vertex data of each corner
+            for(int corner = 0; corner < 3; corner++) {
+                final int source = raw.getElementVertex(triangle * 3 + corner);
+                final int dest = triangle * 3 + corner;
+                System.arraycopy(raw.getVertexes(), source * RawMesh.VERTEX_AXIS_COUNT, vertexes, dest * RawMesh.VERTEX_AXIS_COUNT, RawMesh.VERTEX_AXIS_COUNT);
+                if(raw.hasNormalData())
+                    System.arraycopy(raw.getNormals(), source * RawMesh.NORMAL_AXIS_COUNT, normals, dest * RawMesh.NORMAL_AXIS_COUNT, RawMesh.NORMAL_AXIS_COUNT);
+                if(raw.hasTextureData())
+                    System.arraycopy(raw.getTextures(), source * RawMesh.TEXTURE_AXIS_COUNT, textures, dest * RawMesh.TEXTURE_AXIS_COUNT, RawMesh.TEXTURE_AXIS_COUNT);
+            }
+
+            // Map the corners into the cell of the triangle
+            final int x = lightmap.getCellX(triangle) + Lightmap.MARGIN;
+            final int y = lightmap.getCellY(triangle) + Lightmap.MARGIN;
+            final int t = triangle * 3 * RawMesh.TEXTURE_AXIS_COUNT;
+            lightmapTextures[t] = x * texelWidth;
+            lightmapTextures[t + 1] = y * texelHeight;
+            lightmapTextures[t + 2] = (x + span) * texelWidth;
+            lightmapTextures[t + 3] = y * texelHeight;
+            lightmapTextures[t + 4] = x * texelWidth;
+            lightmapTextures[t + 5] = (y + span) * texelHeight;
+        }
+
+        // Create the unwrapped mesh
+        final RawMesh unwrapped = new RawMesh(vertexes, normals, textures);
+        unwrapped.setLightmapTextures(lightmapTextures);
+        return unwrapped;
+    }
+}
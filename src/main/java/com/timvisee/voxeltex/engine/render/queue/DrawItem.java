@@ -0,0 +1,179 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.queue;
+
+import com.timvisee.voxeltex.engine.light.LightSelection;
+import com.timvisee.voxeltex.module.Color;
+import com.timvisee.voxeltex.module.material.Material;
+import com.timvisee.voxeltex.module.mesh.Mesh;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+
+public class DrawItem {
+
+    /**
+     * Mesh to draw.
+     */
+    private Mesh mesh;
+
+    /**
+     * Material to draw the mesh with.
+     */
+    private Material material;
+
+    /**
+     * World matrix of the mesh, copied when the item was submitted.
+     */
+    private final Matrix4f worldMatrix = new Matrix4f();
+
+    /**
+     * Color of the mesh, copied when the item was submitted.
+     */
+    private final Vector4f color = new Vector4f(1, 1, 1, 1);
+
+    /**
+     * Render pass this item is drawn in.
+     */
+    private int pass;
+
+    /**
+     * Sort key of this item.
+     */
+    private long sortKey;
+
+    /**
+     * Light selection of the object this item is drawn for, or null to light it using the light clusters.
+     */
+    private LightSelection lightSelection;
+
+    /**
+     * Transform version of the object this item is drawn for, used to keep its light selection across frames.
+     */
+    private int boundsVersion;
+
+    /**
+     * Set the properties of this draw item.
+     * Draw items are recycled by the render queue, the given matrix and color are copied.
+     *
+     * @param mesh Mesh to draw.
+     * @param material Material to draw the mesh with.
+     * @param worldMatrix World matrix of the mesh.
+     * @param color Color of the mesh.
+     * @param pass Render pass.
+     * @param sortKey Sort key.
+     * @param lightSelection Light selection of the object, or null.
+     * @param boundsVersion Transform version of the object.
+     */
+    public void set(Mesh mesh, Material material, Matrix4f worldMatrix, Color color, int pass, long sortKey,
+                    LightSelection lightSelection, int boundsVersion) {
+        this.mesh = mesh;
+        this.material = material;
+        this.worldMatrix.set(worldMatrix);
+        color.toVector4f(this.color);
+        this.pass = pass;
+        this.sortKey = sortKey;
+        this.lightSelection = lightSelection;
+        this.boundsVersion = boundsVersion;
+    }
+
+    /**
+     * Clear the references held by this draw item, so the mesh and material can be garbage collected.
+     */
+    public void clear() {
+        this.mesh = null;
+        this.material = null;
+        this.lightSelection = null;
+    }
+
+    /**
+     * Get the mesh to draw.
+     *
+     * @return Mesh.
+     */
+    public Mesh getMesh() {
+        return this.mesh;
+    }
+
+    /**
+     * Get the material to draw the mesh with.
+     *
+     * @return Material.
+     */
+    public Material getMaterial() {
+        return this.material;
+    }
+
+    /**
+     * Get the world matrix of the mesh.
+     *
+     * @return World matrix.
+     */
+    public Matrix4f getWorldMatrix() {
+        return this.worldMatrix;
+    }
+
+    /**
+     * Get the color of the mesh.
+     *
+     * @return Color.
+     */
+    public Vector4f getColor() {
+        return this.color;
+    }
+
+    /**
+     * Get the light selection of the object this item is drawn for.
+     *
+     * @return Light selection, or null if the item is lit using the light clusters.
+     */
+    public LightSelection getLightSelection() {
+        return this.lightSelection;
+    }
+
+    /**
+     * Get the transform version of the object this item is drawn for.
+     *
+     * @return Bounds version.
+     */
+    public int getBoundsVersion() {
+        return this.boundsVersion;
+    }
+
+    /**
+     * Get the render pass this item is drawn in.
+     *
+     * @return Render pass.
+     */
+    public int getPass() {
+        return this.pass;
+    }
+
+    /**
+     * Get the sort key of this item.
+     *
+     * @return Sort key.
+     */
+    public long getSortKey() {
+        return this.sortKey;
+    }
+}
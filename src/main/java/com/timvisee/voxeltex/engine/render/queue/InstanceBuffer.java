@@ -0,0 +1,163 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.queue;
+
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
+import com.timvisee.voxeltex.module.shader.AbstractShader;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Streaming vertex buffer holding per-instance attributes for instanced drawing.
+ * Each instance consists of a model matrix and a color.
+ */
+public class InstanceBuffer {
+
+    /**
+     * Number of floats for each instance, a four by four matrix and a color.
+     */
+    public static final int INSTANCE_FLOAT_COUNT = 16 + 4;
+
+    /**
+     * Size of each instance in bytes.
+     */
+    private static final int INSTANCE_STRIDE = INSTANCE_FLOAT_COUNT * Float.BYTES;
+
+    /**
+     * Initial number of instances the buffer can hold, it grows automatically.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Client side buffer the instance data is written to.
+     */
+    private FloatBuffer data = BufferUtils.createFloatBuffer(INITIAL_CAPACITY * INSTANCE_FLOAT_COUNT);
+
+    /**
+     * VBO handle of the instance buffer, zero if it hasn't been created yet.
+     */
+    private int vboHandle = 0;
+
+    /**
+     * Number of instances in the buffer.
+     */
+    private int count = 0;
+
+    /**
+     * Clear the buffer, to start writing new instances.
+     */
+    public void clear() {
+        this.data.clear();
+        this.count = 0;
+    }
+
+    /**
+     * Add an instance to the buffer.
+     *
+     * @param modelMatrix Model matrix of the instance.
+     * @param color Color of the instance.
+     */
+    public void put(Matrix4f modelMatrix, Vector4f color) {
+        // Grow the buffer if it's full
+        if(this.data.remaining() < INSTANCE_FLOAT_COUNT) {
+            FloatBuffer grown = BufferUtils.createFloatBuffer(this.data.capacity() * 2);
+            this.data.flip();
+            grown.put(this.data);
+            this.data = grown;
+        }
+
+        // Put the matrix and color of the instance
+        modelMatrix.get(this.data.position(), this.data);
+        this.data.position(this.data.position() + 16);
+        this.data.put(color.x).put(color.y).put(color.z).put(color.w);
+        this.count++;
+    }
+
+    /**
+     * Get the number of instances in the buffer.
+     *
+     * @return Instance count.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Upload the instance data, and configure the per-instance attributes on the currently bound vertex array object.
+     * The attributes are read from {@link AbstractShader#ATTRIBUTE_INSTANCE_MODEL_MATRIX} and
+     * {@link AbstractShader#ATTRIBUTE_INSTANCE_COLOR}, and advance once per instance.
+     * {@link #disableAttributes()} must be called after drawing.
+     */
+    public void uploadAndEnableAttributes() {
+        // Create the buffer if it doesn't exist yet
+        if(this.vboHandle == 0)
+            this.vboHandle = GL15.glGenBuffers();
+
+        // Orphan the previous buffer storage and upload the instance data
+        this.data.flip();
+        RenderStateTracker.bindArrayBuffer(this.vboHandle);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, this.data.capacity() * Float.BYTES, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, this.data);
+
+        // Configure the model matrix columns
+        for(int column = 0; column < 4; column++) {
+            final int location = AbstractShader.ATTRIBUTE_INSTANCE_MODEL_MATRIX + column;
+            GL20.glVertexAttribPointer(location, 4, GL11.GL_FLOAT, false, INSTANCE_STRIDE, column * 4 * Float.BYTES);
+            GL33.glVertexAttribDivisor(location, 1);
+            GL20.glEnableVertexAttribArray(location);
+        }
+
+        // Configure the color
+        GL20.glVertexAttribPointer(AbstractShader.ATTRIBUTE_INSTANCE_COLOR, 4, GL11.GL_FLOAT, false, INSTANCE_STRIDE, 16 * Float.BYTES);
+        GL33.glVertexAttribDivisor(AbstractShader.ATTRIBUTE_INSTANCE_COLOR, 1);
+        GL20.glEnableVertexAttribArray(AbstractShader.ATTRIBUTE_INSTANCE_COLOR);
+    }
+
+    /**
+     * Disable the per-instance attributes on the currently bound vertex array object,
+     * so they don't affect regular draws of the same mesh.
+     */
+    public void disableAttributes() {
+        for(int column = 0; column < 4; column++)
+            GL20.glDisableVertexAttribArray(AbstractShader.ATTRIBUTE_INSTANCE_MODEL_MATRIX + column);
+        GL20.glDisableVertexAttribArray(AbstractShader.ATTRIBUTE_INSTANCE_COLOR);
+    }
+
+    /**
+     * Dispose the buffer on the graphics card.
+     */
+    public void dispose() {
+        if(this.vboHandle != 0) {
+            GL15.glDeleteBuffers(this.vboHandle);
+            RenderStateTracker.forgetBuffer(this.vboHandle);
+        }
+        this.vboHandle = 0;
+    }
+}
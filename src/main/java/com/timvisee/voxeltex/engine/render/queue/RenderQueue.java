@@ -0,0 +1,557 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.render.queue;
+
+import com.timvisee.voxeltex.architecture.scene.AbstractScene;
+import com.timvisee.voxeltex.engine.light.LightManager;
+import com.timvisee.voxeltex.engine.light.LightSelection;
+import com.timvisee.voxeltex.engine.render.culling.FrustumCuller;
+import com.timvisee.voxeltex.module.Color;
+import com.timvisee.voxeltex.module.material.Material;
+import com.timvisee.voxeltex.module.mesh.Mesh;
+import com.timvisee.voxeltex.module.shader.Shader;
+import com.timvisee.voxeltex.module.shader.uniform.UniformHandle;
+import com.timvisee.voxeltex.module.texture.Texture;
+import com.timvisee.voxeltex.runtime.global.MainCamera;
+import com.timvisee.voxeltex.util.SortUtil;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+public class RenderQueue {
+
+    /**
+     * Render pass for opaque geometry, drawn front to back and grouped by state.
+     */
+    public static final int PASS_OPAQUE = 0;
+
+    /**
+     * Render pass for transparent geometry, drawn back to front after all opaque geometry.
+     */
+    public static final int PASS_TRANSPARENT = 1;
+
+    /**
+     * Number of bits used for the pass in the sort key.
+     */
+    private static final int KEY_PASS_BITS = 4;
+
+    /**
+     * Number of bits used for the shader program in the sort key.
+     */
+    private static final int KEY_SHADER_BITS = 12;
+
+    /**
+     * Number of bits used for the texture in the sort key.
+     */
+    private static final int KEY_TEXTURE_BITS = 12;
+
+    /**
+     * Number of bits used for the material in the sort key of opaque items.
+     */
+    private static final int KEY_MATERIAL_BITS = 12;
+
+    /**
+     * Number of bits used for the mesh in the sort key.
+     */
+    private static final int KEY_MESH_BITS = 12;
+
+    /**
+     * Number of bits used for the depth in the sort key of opaque items.
+     */
+    private static final int KEY_DEPTH_BITS = 12;
+
+    /**
+     * Number of bits used for the depth in the sort key of transparent items.
+     */
+    private static final int KEY_TRANSPARENT_DEPTH_BITS = 24;
+
+    /**
+     * Maximum distance from the camera that is represented in the depth part of the sort key.
+     * Items further away share the maximum depth value.
+     */
+    private static final float KEY_DEPTH_RANGE = 1000.0f;
+
+    /**
+     * Number of state changes that would be made for each item if nothing was sorted.
+     * This is used to determine the number of state changes that were saved.
+     * A shader, texture and mesh bind is counted for each item.
+     */
+    private static final int STATE_CHANGES_PER_ITEM = 3;
+
+    /**
+     * Minimum number of consecutive opaque items sharing the same mesh and material, to draw them using instancing.
+     * Instancing is only used if the shader of the material has an instanced variant.
+     */
+    private static final int INSTANCING_MIN_COUNT = 4;
+
+    /**
+     * Initial capacity of the queue, the queue grows automatically when more items are submitted.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Pool of draw items, items are recycled each frame.
+     */
+    private DrawItem[] items = new DrawItem[0];
+
+    /**
+     * Sort keys of the submitted items.
+     */
+    private long[] keys = new long[0];
+
+    /**
+     * Indices of the submitted items, in sorted order after sorting.
+     */
+    private int[] order = new int[0];
+
+    /**
+     * Temporary keys array used while sorting.
+     */
+    private long[] tempKeys = new long[0];
+
+    /**
+     * Temporary indices array used while sorting.
+     */
+    private int[] tempOrder = new int[0];
+
+    /**
+     * Temporary histogram used while sorting.
+     */
+    private final int[] histogram = new int[256];
+
+    /**
+     * Number of items that are currently submitted.
+     */
+    private int count = 0;
+
+    /**
+     * Number of items that were submitted and drawn last frame.
+     */
+    private int submittedCount = 0;
+
+    /**
+     * Number of state changes that were made last frame.
+     */
+    private int stateChangeCount = 0;
+
+    /**
+     * Number of state changes that were saved by sorting last frame.
+     */
+    private int stateChangesSavedCount = 0;
+
+    /**
+     * Number of draw calls that were issued last frame.
+     */
+    private int drawCallCount = 0;
+
+    /**
+     * Number of items that were drawn using instancing last frame.
+     */
+    private int instancedCount = 0;
+
+    /**
+     * Buffer holding the per-instance attributes for instanced draws.
+     */
+    private final InstanceBuffer instanceBuffer = new InstanceBuffer();
+
+    /**
+     * Temporary camera view matrix, used while executing the queue.
+     */
+    private final Matrix4f tempViewMatrix = new Matrix4f();
+
+    /**
+     * Temporary model view matrix, used while executing the queue.
+     */
+    private final Matrix4f tempModelViewMatrix = new Matrix4f();
+
+    /**
+     * Temporary float buffer to send the model view matrix to OpenGL.
+     */
+    private final FloatBuffer tempMatrixBuffer = BufferUtils.createFloatBuffer(16);
+
+    /**
+     * Constructor.
+     */
+    public RenderQueue() {
+        ensureCapacity(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Clear the queue, to start submitting items for a new frame.
+     */
+    public synchronized void clear() {
+        // Clear the references of the items that were used
+        for(int i = 0; i < this.count; i++)
+            this.items[i].clear();
+
+        // Reset the item count
+        this.count = 0;
+    }
+
+    /**
+     * Submit a mesh to be drawn this frame.
+     * The mesh is skipped if its bounds are outside the view frustum.
+     *
+     * @param mesh Mesh to draw.
+     * @param material Material to draw the mesh with.
+     * @param worldMatrix World matrix of the mesh, this matrix is copied.
+     * @param color Color of the mesh, this color is copied.
+     * @param pass Render pass, such as {@link #PASS_OPAQUE} or {@link #PASS_TRANSPARENT}.
+     */
+    public void submit(Mesh mesh, Material material, Matrix4f worldMatrix, Color color, int pass) {
+        submit(mesh, material, worldMatrix, color, pass, null, 0);
+    }
+
+    /**
+     * Submit a mesh to be drawn this frame, lit by the most relevant lights of the given light selection.
+     * The mesh is skipped if its bounds are outside the view frustum.
+     *
+     * @param mesh Mesh to draw.
+     * @param material Material to draw the mesh with.
+     * @param worldMatrix World matrix of the mesh, this matrix is copied.
+     * @param color Color of the mesh, this color is copied.
+     * @param pass Render pass, such as {@link #PASS_OPAQUE} or {@link #PASS_TRANSPARENT}.
+     * @param lightSelection Light selection of the object, kept across frames, or null to use the light clusters.
+     * @param boundsVersion Transform version of the object, which changes when the object moves.
+     */
+    public synchronized void submit(Mesh mesh, Material material, Matrix4f worldMatrix, Color color, int pass,
+                                    LightSelection lightSelection, int boundsVersion) {
+        // Skip the mesh if it isn't visible
+        if(!FrustumCuller.isVisible(mesh.getBounds(), worldMatrix))
+            return;
+
+        // Make sure there's enough space for the item
+        if(this.count >= this.items.length)
+            ensureCapacity(this.items.length * 2);
+
+        // Create the sort key
+        final long sortKey = createSortKey(mesh, material, worldMatrix, pass);
+
+        // Configure the draw item and store its key
+        this.items[this.count].set(mesh, material, worldMatrix, color, pass, sortKey, lightSelection, boundsVersion);
+        this.keys[this.count] = sortKey;
+        this.order[this.count] = this.count;
+        this.count++;
+    }
+
+    /**
+     * Create the 64-bit sort key for a draw item.
+     *
+     * Opaque items are sorted by pass, shader program, texture, material, mesh and then front to back by depth,
+     * to minimize the number of state changes and to group items that can be instanced.
+     * Transparent items are sorted back to front by depth first, to keep blending correct, and by state after that.
+     *
+     * @param mesh Mesh to draw.
+     * @param material Material to draw the mesh with.
+     * @param worldMatrix World matrix of the mesh.
+     * @param pass Render pass.
+     *
+     * @return Sort key.
+     */
+    private static long createSortKey(Mesh mesh, Material material, Matrix4f worldMatrix, int pass) {
+        // Get the shader, texture, material and mesh identifiers, masked to fit in their part of the key
+        final long shader = material.getShader().getProgramId() & ((1L << KEY_SHADER_BITS) - 1);
+        final long texture = (material.hasTexture() ? material.getTexture().getId() : 0) & ((1L << KEY_TEXTURE_BITS) - 1);
+        final long materialId = material.getId() & ((1L << KEY_MATERIAL_BITS) - 1);
+        final long meshId = mesh.getVaoHandle() & ((1L << KEY_MESH_BITS) - 1);
+
+        // Determine the distance to the camera, relative to the depth range
+        final Vector3f cameraPosition = MainCamera.getCameraPositionLastUpdate();
+        final float dx = worldMatrix.m30() - cameraPosition.x;
+        final float dy = worldMatrix.m31() - cameraPosition.y;
+        final float dz = worldMatrix.m32() - cameraPosition.z;
+        final float depthFactor = Math.min((float) Math.sqrt(dx * dx + dy * dy + dz * dz) / KEY_DEPTH_RANGE, 1.0f);
+
+        // Put the pass in the most significant bits
+        long key = ((long) pass & ((1L << KEY_PASS_BITS) - 1)) << (Long.SIZE - KEY_PASS_BITS);
+
+        // Transparent items are sorted back to front before anything else
+        if(pass == PASS_TRANSPARENT) {
+            final long depthMax = (1L << KEY_TRANSPARENT_DEPTH_BITS) - 1;
+            final long depth = (long) (depthFactor * depthMax);
+            return key
+                    | ((depthMax - depth) << (KEY_SHADER_BITS + KEY_TEXTURE_BITS + KEY_MESH_BITS))
+                    | (shader << (KEY_TEXTURE_BITS + KEY_MESH_BITS))
+                    | (texture << KEY_MESH_BITS)
+                    | meshId;
+        }
+
+        // Opaque items are sorted by state, and front to back
+        final long depth = (long) (depthFactor * ((1L << KEY_DEPTH_BITS) - 1));
+        return key
+                | (shader << (KEY_TEXTURE_BITS + KEY_MATERIAL_BITS + KEY_MESH_BITS + KEY_DEPTH_BITS))
+                | (texture << (KEY_MATERIAL_BITS + KEY_MESH_BITS + KEY_DEPTH_BITS))
+                | (materialId << (KEY_MESH_BITS + KEY_DEPTH_BITS))
+                | (meshId << KEY_DEPTH_BITS)
+                | depth;
+    }
+
+    /**
+     * Sort the submitted items by their sort key.
+     */
+    public synchronized void sort() {
+        SortUtil.radixSort(this.keys, this.order, this.count, this.tempKeys, this.tempOrder, this.histogram);
+    }
+
+    /**
+     * Sort and draw all submitted items.
+     * Shaders, textures and meshes are only bound when they differ from the previous item.
+     * Consecutive opaque items sharing the same mesh and material are drawn in a single instanced draw call,
+     * if the shader of the material has an instanced variant.
+     *
+     * @param scene Scene the items are drawn for.
+     */
+    public synchronized void execute(AbstractScene scene) {
+        // Sort the submitted items
+        sort();
+
+        // Get the camera view matrix and the light manager
+        MainCamera.createCameraViewMatrix(this.tempViewMatrix);
+        final LightManager lightManager = scene.getLightManager();
+
+        // Keep track of the bound state
+        Shader boundShader = null;
+        Texture boundTexture = null;
+        Material boundMaterial = null;
+        Mesh boundMesh = null;
+        UniformHandle modelMatrixUniform = null;
+        UniformHandle colorUniform = null;
+        UniformHandle objectLightCountUniform = null;
+        UniformHandle objectLightPositionUniform = null;
+        UniformHandle objectLightColorUniform = null;
+        int stateChanges = 0;
+        int drawCalls = 0;
+        int instancedItems = 0;
+
+        // Draw each run of items in sorted order
+        int i = 0;
+        while(i < this.count) {
+            // Get the first item of the run, its material and mesh
+            final DrawItem item = this.items[this.order[i]];
+            final Material material = item.getMaterial();
+            final Texture texture = material.getTexture();
+            final Mesh mesh = item.getMesh();
+
+            // Find the end of the run of opaque items sharing this mesh and material
+            int runEnd = i + 1;
+            if(item.getPass() == PASS_OPAQUE)
+                while(runEnd < this.count
+                        && this.items[this.order[runEnd]].getMaterial() == material
+                        && this.items[this.order[runEnd]].getMesh() == mesh
+                        && this.items[this.order[runEnd]].getPass() == PASS_OPAQUE)
+                    runEnd++;
+
+            // Determine whether to use instancing for this run, and select the shader
+            Shader shader = material.getShader();
+            final boolean instanced = runEnd - i >= INSTANCING_MIN_COUNT && shader.getInstancedVariant() != null;
+            if(instanced)
+                shader = shader.getInstancedVariant();
+
+            // Bind the shader if it changed
+            if(shader != boundShader) {
+                shader.bind();
+                shader.getUniform("texture").set1i(0);
+                modelMatrixUniform = shader.getUniform("modelMatrix");
+                colorUniform = shader.getUniform("color");
+                objectLightCountUniform = shader.getUniform("objectLightCount");
+                objectLightPositionUniform = shader.getUniform("objectLightPosition");
+                objectLightColorUniform = shader.getUniform("objectLightColor");
+                boundShader = shader;
+                boundMaterial = null;
+                stateChanges++;
+            }
+
+            // Bind the texture if it changed
+            if(texture != boundTexture) {
+                if(texture != null)
+                    texture.bind(GL13.GL_TEXTURE0);
+                else
+                    Texture.unbind();
+                boundTexture = texture;
+                stateChanges++;
+            }
+
+            // Update the shader with the material properties if the material changed
+            if(material != boundMaterial) {
+                shader.update(scene, material);
+                boundMaterial = material;
+            }
+
+            // Bind the mesh if it changed
+            if(mesh != boundMesh) {
+                mesh.bind();
+                boundMesh = mesh;
+                stateChanges++;
+            }
+
+            // Draw the run
+            if(instanced) {
+                // Load the camera view matrix, the model matrix of each instance is applied in the shader
+                GL11.glLoadMatrixf(this.tempViewMatrix.get(this.tempMatrixBuffer));
+
+                // Fill the instance buffer with the model matrix and color of each item
+                this.instanceBuffer.clear();
+                for(int j = i; j < runEnd; j++) {
+                    final DrawItem instance = this.items[this.order[j]];
+                    this.instanceBuffer.put(instance.getWorldMatrix(), instance.getColor());
+                }
+
+                // Draw all instances at once
+                this.instanceBuffer.uploadAndEnableAttributes();
+                mesh.drawBufferedInstanced(this.instanceBuffer.getCount());
+                this.instanceBuffer.disableAttributes();
+                instancedItems += runEnd - i;
+                drawCalls++;
+
+            } else {
+                // Draw each item separately
+                for(int j = i; j < runEnd; j++) {
+                    // Get the item
+                    final DrawItem runItem = this.items[this.order[j]];
+
+                    // Load the model view matrix
+                    GL11.glLoadMatrixf(this.tempModelViewMatrix.set(this.tempViewMatrix).mul(runItem.getWorldMatrix()).get(this.tempMatrixBuffer));
+
+                    // Send the model matrix and color to the shader
+                    final Vector4f color = runItem.getColor();
+                    modelMatrixUniform.setMatrix4f(runItem.getWorldMatrix());
+                    colorUniform.set4f(color.x, color.y, color.z, color.w);
+
+                    // Send the most relevant lights of the item if the shader supports it, or use the light clusters
+                    final LightSelection lightSelection = runItem.getLightSelection();
+                    if(lightSelection != null && objectLightCountUniform.isValid()) {
+                        lightManager.select(lightSelection, mesh, runItem.getWorldMatrix(), runItem.getBoundsVersion());
+                        lightSelection.upload(objectLightCountUniform, objectLightPositionUniform, objectLightColorUniform);
+                    } else
+                        objectLightCountUniform.set1i(LightSelection.LIGHT_COUNT_CLUSTERED);
+
+                    // Draw the mesh
+                    mesh.drawBuffered();
+                    drawCalls++;
+                }
+            }
+
+            // Continue with the next run
+            i = runEnd;
+        }
+
+        // Unbind the state that is still bound
+        if(boundMesh != null)
+            boundMesh.unbind();
+        if(boundTexture != null)
+            Texture.unbind();
+        if(boundShader != null)
+            boundShader.unbind();
+
+        // Update the statistics
+        this.submittedCount = this.count;
+        this.stateChangeCount = stateChanges;
+        this.stateChangesSavedCount = this.count * STATE_CHANGES_PER_ITEM - stateChanges;
+        this.drawCallCount = drawCalls;
+        this.instancedCount = instancedItems;
+    }
+
+    /**
+     * Get the number of items that are currently submitted.
+     *
+     * @return Number of submitted items.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the number of draw items that were submitted and drawn last frame.
+     *
+     * @return Number of submitted draw items.
+     */
+    public int getSubmittedCount() {
+        return this.submittedCount;
+    }
+
+    /**
+     * Get the number of draw calls that were issued last frame.
+     *
+     * @return Number of draw calls.
+     */
+    public int getDrawCallCount() {
+        return this.drawCallCount;
+    }
+
+    /**
+     * Get the number of items that were drawn using instancing last frame.
+     *
+     * @return Number of instanced items.
+     */
+    public int getInstancedCount() {
+        return this.instancedCount;
+    }
+
+    /**
+     * Get the number of shader, texture and mesh state changes that were made last frame.
+     *
+     * @return Number of state changes.
+     */
+    public int getStateChangeCount() {
+        return this.stateChangeCount;
+    }
+
+    /**
+     * Get the number of shader, texture and mesh state changes that were saved by sorting last frame,
+     * compared to binding the state for each item separately.
+     *
+     * @return Number of saved state changes.
+     */
+    public int getStateChangesSavedCount() {
+        return this.stateChangesSavedCount;
+    }
+
+    /**
+     * Make sure the queue is able to hold the given number of items.
+     *
+     * @param capacity Required capacity.
+     */
+    private void ensureCapacity(int capacity) {
+        // Return if the capacity is already big enough
+        final int oldCapacity = this.items.length;
+        if(capacity <= oldCapacity)
+            return;
+
+        // Grow the arrays
+        this.items = Arrays.copyOf(this.items, capacity);
+        this.keys = Arrays.copyOf(this.keys, capacity);
+        this.order = Arrays.copyOf(this.order, capacity);
+        this.tempKeys = new long[capacity];
+        this.tempOrder = new int[capacity];
+
+        // Create the new draw items
+        for(int i = oldCapacity; i < capacity; i++)
+            this.items[i] = new DrawItem();
+    }
+}
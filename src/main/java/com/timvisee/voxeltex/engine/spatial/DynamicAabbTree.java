@@ -0,0 +1,865 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.spatial;
+
+import org.joml.FrustumIntersection;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dynamic bounding volume hierarchy of axis aligned bounding boxes.
+ *
+ * Each object is stored as a leaf proxy with a fattened bounding box. Moving an object only restructures the tree
+ * when its new bounds escape the fattened box, so small movements are free. Nodes are rotated on insertion and
+ * removal to keep their boxes tight, which keeps queries logarithmic in the number of objects.
+ *
+ * Nodes are stored in flat arrays indexed by node ID, to avoid allocating an object for each node.
+ * Queries test the fattened boxes, and may thus report objects slightly outside the queried volume.
+ *
+ * @param <T> Type of the objects in the tree.
+ */
+public class DynamicAabbTree<T> {
+
+    /**
+     * Node ID used to reference no node.
+     */
+    public static final int NULL_NODE = -1;
+
+    /**
+     * Default margin the bounding boxes of proxies are fattened with.
+     */
+    public static final float DEFAULT_MARGIN = 0.2f;
+
+    /**
+     * Initial number of nodes the tree can hold, it grows automatically.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Margin the bounding boxes of proxies are fattened with.
+     */
+    private final float margin;
+
+    /**
+     * Minimum X coordinate of the bounding box of each node.
+     */
+    private float[] minX;
+
+    /**
+     * Minimum Y coordinate of the bounding box of each node.
+     */
+    private float[] minY;
+
+    /**
+     * Minimum Z coordinate of the bounding box of each node.
+     */
+    private float[] minZ;
+
+    /**
+     * Maximum X coordinate of the bounding box of each node.
+     */
+    private float[] maxX;
+
+    /**
+     * Maximum Y coordinate of the bounding box of each node.
+     */
+    private float[] maxY;
+
+    /**
+     * Maximum Z coordinate of the bounding box of each node.
+     */
+    private float[] maxZ;
+
+    /**
+     * Parent of each node, or the next free node for nodes in the free list.
+     */
+    private int[] parent;
+
+    /**
+     * First child of each node, {@link #NULL_NODE} for leaves.
+     */
+    private int[] child1;
+
+    /**
+     * Second child of each node, {@link #NULL_NODE} for leaves.
+     */
+    private int[] child2;
+
+    /**
+     * Height of each node, zero for leaves and -1 for free nodes.
+     */
+    private int[] height;
+
+    /**
+     * Object of each leaf node.
+     */
+    private Object[] data;
+
+    /**
+     * Number of nodes the arrays can hold.
+     */
+    private int capacity = 0;
+
+    /**
+     * Root node, or {@link #NULL_NODE} if the tree is empty.
+     */
+    private int root = NULL_NODE;
+
+    /**
+     * First node of the free list, or {@link #NULL_NODE} if there are no free nodes.
+     */
+    private int freeList = NULL_NODE;
+
+    /**
+     * Number of proxies in the tree.
+     */
+    private int proxyCount = 0;
+
+    /**
+     * Stack of nodes that still have to be visited during queries.
+     */
+    private int[] stack = new int[64];
+
+    /**
+     * Number of nodes that were visited by the last query.
+     */
+    private int lastQueryNodeCount = 0;
+
+    /**
+     * Constructor.
+     */
+    public DynamicAabbTree() {
+        this(DEFAULT_MARGIN);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param margin Margin the bounding boxes of proxies are fattened with.
+     */
+    public DynamicAabbTree(float margin) {
+        this.margin = margin;
+        grow(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Get the margin the bounding boxes of proxies are fattened with.
+     *
+     * @return Margin.
+     */
+    public float getMargin() {
+        return this.margin;
+    }
+
+    /**
+     * Grow the node arrays to the given capacity, and add the new nodes to the free list.
+     *
+     * @param newCapacity New capacity.
+     */
+    private void grow(int newCapacity) {
+        // Grow the arrays
+        this.minX = Arrays.copyOf(this.minX != null ? this.minX : new float[0], newCapacity);
+        this.minY = Arrays.copyOf(this.minY != null ? this.minY : new float[0], newCapacity);
+        this.minZ = Arrays.copyOf(this.minZ != null ? this.minZ : new float[0], newCapacity);
+        this.maxX = Arrays.copyOf(this.maxX != null ? this.maxX : new float[0], newCapacity);
+        this.maxY = Arrays.copyOf(this.maxY != null ? this.maxY : new float[0], newCapacity);
+        this.maxZ = Arrays.copyOf(this.maxZ != null ? this.maxZ : new float[0], newCapacity);
+        this.parent = Arrays.copyOf(this.parent != null ? this.parent : new int[0], newCapacity);
+        this.child1 = Arrays.copyOf(this.child1 != null ? this.child1 : new int[0], newCapacity);
+        this.child2 = Arrays.copyOf(this.child2 != null ? this.child2 : new int[0], newCapacity);
+        this.height = Arrays.copyOf(this.height != null ? this.height : new int[0], newCapacity);
+        this.data = Arrays.copyOf(this.data != null ? this.data : new Object[0], newCapacity);
+
+        // Link the new nodes into the free list
+        for(int i = newCapacity - 1; i >= this.capacity; i--) {
+            this.parent[i] = this.freeList;
+            this.height[i] = -1;
+            this.freeList = i;
+        }
+        this.capacity = newCapacity;
+    }
+
+    /**
+     * Allocate a node from the free list, growing the arrays if required.
+     *
+     * @return Node ID.
+     */
+    private int allocateNode() {
+        // Grow the arrays if there are no free nodes
+        if(this.freeList == NULL_NODE)
+            grow(this.capacity * 2);
+
+        // Take the first free node, and reset it
+        final int node = this.freeList;
+        this.freeList = this.parent[node];
+        this.parent[node] = NULL_NODE;
+        this.child1[node] = NULL_NODE;
+        this.child2[node] = NULL_NODE;
+        this.height[node] = 0;
+        this.data[node] = null;
+        return node;
+    }
+
+    /**
+     * Return a node to the free list.
+     *
+     * @param node Node ID.
+     */
+    private void freeNode(int node) {
+        this.parent[node] = this.freeList;
+        this.height[node] = -1;
+        this.data[node] = null;
+        this.freeList = node;
+    }
+
+    /**
+     * Create a proxy for an object with the given bounding box.
+     *
+     * @param min Minimum corner of the bounding box.
+     * @param max Maximum corner of the bounding box.
+     * @param object Object.
+     *
+     * @return Proxy ID, used to move and destroy the proxy.
+     */
+    public synchronized int createProxy(Vector3f min, Vector3f max, T object) {
+        // Allocate a leaf with a fattened box
+        final int leaf = allocateNode();
+        setFattened(leaf, min, max);
+        this.data[leaf] = object;
+
+        // Insert the leaf into the tree
+        insertLeaf(leaf);
+        this.proxyCount++;
+        return leaf;
+    }
+
+    /**
+     * Destroy the given proxy, removing its object from the tree.
+     *
+     * @param proxy Proxy ID.
+     */
+    public synchronized void destroyProxy(int proxy) {
+        // Make sure the proxy is a valid leaf
+        if(proxy < 0 || proxy >= this.capacity || this.height[proxy] != 0)
+            throw new RuntimeException("Invalid spatial index proxy: " + proxy);
+
+        // Remove and free the leaf
+        removeLeaf(proxy);
+        freeNode(proxy);
+        this.proxyCount--;
+    }
+
+    /**
+     * Move the given proxy to a new bounding box.
+     * The tree is only restructured if the new box isn't contained by the fattened box of the proxy.
+     *
+     * @param proxy Proxy ID.
+     * @param min Minimum corner of the new bounding box.
+     * @param max Maximum corner of the new bounding box.
+     *
+     * @return True if the proxy was reinserted, false if its fattened box still contains the new box.
+     */
+    public synchronized boolean moveProxy(int proxy, Vector3f min, Vector3f max) {
+        // Skip if the fattened box still contains the new box
+        if(this.minX[proxy] <= min.x && this.minY[proxy] <= min.y && this.minZ[proxy] <= min.z
+                && this.maxX[proxy] >= max.x && this.maxY[proxy] >= max.y && this.maxZ[proxy] >= max.z)
+            return false;
+
+        // Reinsert the leaf with a new fattened box
+        removeLeaf(proxy);
+        setFattened(proxy, min, max);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    /**
+     * Get the object of the given proxy.
+     *
+     * @param proxy Proxy ID.
+     *
+     * @return Object.
+     */
+    public T getObject(int proxy) {
+        //noinspection unchecked
+        return (T) this.data[proxy];
+    }
+
+    /**
+     * Get the number of proxies in the tree.
+     *
+     * @return Proxy count.
+     */
+    public int getProxyCount() {
+        return this.proxyCount;
+    }
+
+    /**
+     * Get the height of the tree.
+     *
+     * @return Tree height, zero if the tree is empty or only has a single proxy.
+     */
+    public int getHeight() {
+        return this.root == NULL_NODE ? 0 : this.height[this.root];
+    }
+
+    /**
+     * Get the number of nodes that were visited by the last query.
+     * This is a measure for the cost of the query.
+     *
+     * @return Visited node count.
+     */
+    public int getLastQueryNodeCount() {
+        return this.lastQueryNodeCount;
+    }
+
+    /**
+     * Set the box of the given node to the given bounds, fattened by the margin.
+     *
+     * @param node Node ID.
+     * @param min Minimum corner.
+     * @param max Maximum corner.
+     */
+    private void setFattened(int node, Vector3f min, Vector3f max) {
+        this.minX[node] = min.x - this.margin;
+        this.minY[node] = min.y - this.margin;
+        this.minZ[node] = min.z - this.margin;
+        this.maxX[node] = max.x + this.margin;
+        this.maxY[node] = max.y + this.margin;
+        this.maxZ[node] = max.z + this.margin;
+    }
+
+    /**
+     * Set the box of the given node to enclose the boxes of two other nodes.
+     *
+     * @param node Node ID.
+     * @param a First node ID.
+     * @param b Second node ID.
+     */
+    private void setCombined(int node, int a, int b) {
+        this.minX[node] = Math.min(this.minX[a], this.minX[b]);
+        this.minY[node] = Math.min(this.minY[a], this.minY[b]);
+        this.minZ[node] = Math.min(this.minZ[a], this.minZ[b]);
+        this.maxX[node] = Math.max(this.maxX[a], this.maxX[b]);
+        this.maxY[node] = Math.max(this.maxY[a], this.maxY[b]);
+        this.maxZ[node] = Math.max(this.maxZ[a], this.maxZ[b]);
+    }
+
+    /**
+     * Get the surface area of the box of the given node.
+     *
+     * @param node Node ID.
+     *
+     * @return Surface area.
+     */
+    private float getArea(int node) {
+        final float dx = this.maxX[node] - this.minX[node];
+        final float dy = this.maxY[node] - this.minY[node];
+        final float dz = this.maxZ[node] - this.minZ[node];
+        return 2.0f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Get the surface area of the box enclosing the boxes of two nodes.
+     *
+     * @param a First node ID.
+     * @param b Second node ID.
+     *
+     * @return Surface area.
+     */
+    private float getCombinedArea(int a, int b) {
+        final float dx = Math.max(this.maxX[a], this.maxX[b]) - Math.min(this.minX[a], this.minX[b]);
+        final float dy = Math.max(this.maxY[a], this.maxY[b]) - Math.min(this.minY[a], this.minY[b]);
+        final float dz = Math.max(this.maxZ[a], this.maxZ[b]) - Math.min(this.minZ[a], this.minZ[b]);
+        return 2.0f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Insert the given leaf into the tree, next to the sibling that increases the surface area the least.
+     *
+     * @param leaf Leaf node ID.
+     */
+    private void insertLeaf(int leaf) {
+        // Make the leaf the root if the tree is empty
+        if(this.root == NULL_NODE) {
+            this.root = leaf;
+            this.parent[leaf] = NULL_NODE;
+            return;
+        }
+
+        // Find the best sibling for the leaf
+        final int sibling = findBestSibling(leaf);
+
+        // Create a new parent for the sibling and the leaf
+        final int oldParent = this.parent[sibling];
+        final int newParent = allocateNode();
+        this.parent[newParent] = oldParent;
+        setCombined(newParent, sibling, leaf);
+        this.height[newParent] = this.height[sibling] + 1;
+        this.child1[newParent] = sibling;
+        this.child2[newParent] = leaf;
+        this.parent[sibling] = newParent;
+        this.parent[leaf] = newParent;
+
+        // Link the new parent in place of the sibling
+        if(oldParent != NULL_NODE) {
+            if(this.child1[oldParent] == sibling)
+                this.child1[oldParent] = newParent;
+            else
+                this.child2[oldParent] = newParent;
+        } else
+            this.root = newParent;
+
+        // Walk back up the tree, balancing it and fixing the heights and boxes
+        refit(this.parent[leaf]);
+    }
+
+    /**
+     * Find the node that is the cheapest sibling for the given leaf, based on the surface area heuristic.
+     * The tree is descended along the most promising path, and the descent stops as soon as the lower bound of the
+     * cost below a node can't beat the best sibling found so far.
+     *
+     * @param leaf Leaf node ID.
+     *
+     * @return Best sibling node ID.
+     */
+    private int findBestSibling(int leaf) {
+        // Start with the root as best sibling
+        final float leafArea = getArea(leaf);
+        int best = this.root;
+        float bestCost = getCombinedArea(this.root, leaf);
+        float inheritedCost = 0.0f;
+
+        // Descend the tree
+        int index = this.root;
+        while(this.child1[index] != NULL_NODE) {
+            final int c1 = this.child1[index];
+            final int c2 = this.child2[index];
+
+            // Placing the leaf below this node grows its box, which is inherited by all nodes below it
+            inheritedCost += getCombinedArea(index, leaf) - getArea(index);
+
+            // Determine the cost of making each child the sibling
+            final float direct1 = getCombinedArea(c1, leaf);
+            final float direct2 = getCombinedArea(c2, leaf);
+            if(direct1 + inheritedCost < bestCost) {
+                bestCost = direct1 + inheritedCost;
+                best = c1;
+            }
+            if(direct2 + inheritedCost < bestCost) {
+                bestCost = direct2 + inheritedCost;
+                best = c2;
+            }
+
+            // Determine the lower bound of the cost of descending into each child
+            final float lower1 = this.child1[c1] == NULL_NODE ? Float.MAX_VALUE : leafArea + direct1 - getArea(c1) + inheritedCost;
+            final float lower2 = this.child1[c2] == NULL_NODE ? Float.MAX_VALUE : leafArea + direct2 - getArea(c2) + inheritedCost;
+
+            // Stop descending if neither child can beat the best sibling
+            if(lower1 >= bestCost && lower2 >= bestCost)
+                break;
+
+            // Descend into the most promising child
+            index = lower1 <= lower2 ? c1 : c2;
+        }
+
+        return best;
+    }
+
+    /**
+     * Remove the given leaf from the tree. The leaf node itself isn't freed.
+     *
+     * @param leaf Leaf node ID.
+     */
+    private void removeLeaf(int leaf) {
+        // Clear the tree if the leaf is the root
+        if(leaf == this.root) {
+            this.root = NULL_NODE;
+            return;
+        }
+
+        // Get the parent, grandparent and sibling of the leaf
+        final int parentNode = this.parent[leaf];
+        final int grandParent = this.parent[parentNode];
+        final int sibling = this.child1[parentNode] == leaf ? this.child2[parentNode] : this.child1[parentNode];
+
+        // Replace the parent with the sibling, and free the parent
+        if(grandParent != NULL_NODE) {
+            if(this.child1[grandParent] == parentNode)
+                this.child1[grandParent] = sibling;
+            else
+                this.child2[grandParent] = sibling;
+            this.parent[sibling] = grandParent;
+            freeNode(parentNode);
+
+            // Walk back up the tree, balancing it and fixing the heights and boxes
+            refit(grandParent);
+        } else {
+            this.root = sibling;
+            this.parent[sibling] = NULL_NODE;
+            freeNode(parentNode);
+        }
+    }
+
+    /**
+     * Walk up the tree from the given node to the root, fixing the height and box of each node and optimizing it
+     * with a rotation.
+     *
+     * @param node Node ID to start at.
+     */
+    private void refit(int node) {
+        int index = node;
+        while(index != NULL_NODE) {
+            // Fix the height and box
+            fixNode(index);
+
+            // Rotate the node to reduce the surface area of its children
+            if(rotate(index))
+                fixNode(index);
+
+            // Continue with the parent
+            index = this.parent[index];
+        }
+    }
+
+    /**
+     * Fix the height and box of the given internal node, based on its children.
+     *
+     * @param node Node ID.
+     */
+    private void fixNode(int node) {
+        final int c1 = this.child1[node];
+        final int c2 = this.child2[node];
+        this.height[node] = 1 + Math.max(this.height[c1], this.height[c2]);
+        setCombined(node, c1, c2);
+    }
+
+    /**
+     * Try to rotate the given node, by swapping one of its children with a grandchild on the other side.
+     * The rotation that reduces the surface area of the affected child the most is applied.
+     * Unlike rotations based on the height alone, this keeps the boxes tight when objects are inserted in random order,
+     * which is what keeps query cost low.
+     *
+     * @param a Node ID.
+     *
+     * @return True if the node was rotated, false if no rotation would improve the tree.
+     */
+    private boolean rotate(int a) {
+        // Leaves and nodes with only leaf children can't be rotated
+        if(this.height[a] < 2)
+            return false;
+
+        // Get the children
+        final int b = this.child1[a];
+        final int c = this.child2[a];
+
+        // Find the best rotation, a rotation must reduce the area of the affected child
+        float bestCost = 0.0f;
+        int bestChild = NULL_NODE;
+        int bestGrandChild = NULL_NODE;
+
+        // Consider swapping the first child with a child of the second child
+        if(this.child1[c] != NULL_NODE) {
+            final float area = getArea(c);
+            final float costF = getCombinedArea(b, this.child2[c]) - area;
+            final float costG = getCombinedArea(b, this.child1[c]) - area;
+            if(costF < bestCost) {
+                bestCost = costF;
+                bestChild = b;
+                bestGrandChild = this.child1[c];
+            }
+            if(costG < bestCost) {
+                bestCost = costG;
+                bestChild = b;
+                bestGrandChild = this.child2[c];
+            }
+        }
+
+        // Consider swapping the second child with a child of the first child
+        if(this.child1[b] != NULL_NODE) {
+            final float area = getArea(b);
+            final float costD = getCombinedArea(c, this.child2[b]) - area;
+            final float costE = getCombinedArea(c, this.child1[b]) - area;
+            if(costD < bestCost) {
+                bestCost = costD;
+                bestChild = c;
+                bestGrandChild = this.child1[b];
+            }
+            if(costE < bestCost) {
+                bestChild = c;
+                bestGrandChild = this.child2[b];
+            }
+        }
+
+        // Skip if no rotation improves the tree
+        if(bestChild == NULL_NODE)
+            return false;
+
+        // Swap the child and the grandchild
+        final int middle = this.parent[bestGrandChild];
+        if(this.child1[a] == bestChild)
+            this.child1[a] = bestGrandChild;
+        else
+            this.child2[a] = bestGrandChild;
+        if(this.child1[middle] == bestGrandChild)
+            this.child1[middle] = bestChild;
+        else
+            this.child2[middle] = bestChild;
+        this.parent[bestGrandChild] = a;
+        this.parent[bestChild] = middle;
+
+        // Fix the height and box of the node that received the child
+        fixNode(middle);
+        return true;
+    }
+
+    /**
+     * Push a node onto the query stack.
+     *
+     * @param size Current stack size.
+     * @param node Node ID.
+     *
+     * @return New stack size.
+     */
+    private int push(int size, int node) {
+        if(size == this.stack.length)
+            this.stack = Arrays.copyOf(this.stack, size * 2);
+        this.stack[size] = node;
+        return size + 1;
+    }
+
+    /**
+     * Find all objects with a box that overlaps the given box.
+     *
+     * @param min Minimum corner of the box.
+     * @param max Maximum corner of the box.
+     * @param results List to add the objects to.
+     *
+     * @return Number of objects that were added.
+     */
+    public synchronized int queryAabb(Vector3f min, Vector3f max, List<T> results) {
+        // Start at the root
+        int found = 0;
+        int visited = 0;
+        int size = this.root != NULL_NODE ? push(0, this.root) : 0;
+
+        // Visit the nodes that overlap the box
+        while(size > 0) {
+            final int node = this.stack[--size];
+            visited++;
+
+            // Skip the node if it doesn't overlap
+            if(this.maxX[node] < min.x || this.minX[node] > max.x
+                    || this.maxY[node] < min.y || this.minY[node] > max.y
+                    || this.maxZ[node] < min.z || this.minZ[node] > max.z)
+                continue;
+
+            // Add leaves, and visit the children of other nodes
+            if(this.child1[node] == NULL_NODE) {
+                //noinspection unchecked
+                results.add((T) this.data[node]);
+                found++;
+            } else {
+                size = push(size, this.child1[node]);
+                size = push(size, this.child2[node]);
+            }
+        }
+
+        // Store the query cost and return the number of results
+        this.lastQueryNodeCount = visited;
+        return found;
+    }
+
+    /**
+     * Find all objects with a box that overlaps the given sphere.
+     *
+     * @param center Sphere center.
+     * @param radius Sphere radius.
+     * @param results List to add the objects to.
+     *
+     * @return Number of objects that were added.
+     */
+    public synchronized int querySphere(Vector3f center, float radius, List<T> results) {
+        // Start at the root
+        final float radiusSquared = radius * radius;
+        int found = 0;
+        int visited = 0;
+        int size = this.root != NULL_NODE ? push(0, this.root) : 0;
+
+        // Visit the nodes that overlap the sphere
+        while(size > 0) {
+            final int node = this.stack[--size];
+            visited++;
+
+            // Determine the squared distance from the sphere center to the box, and skip the node if it's too far
+            final float dx = Math.max(0.0f, Math.max(this.minX[node] - center.x, center.x - this.maxX[node]));
+            final float dy = Math.max(0.0f, Math.max(this.minY[node] - center.y, center.y - this.maxY[node]));
+            final float dz = Math.max(0.0f, Math.max(this.minZ[node] - center.z, center.z - this.maxZ[node]));
+            if(dx * dx + dy * dy + dz * dz > radiusSquared)
+                continue;
+
+            // Add leaves, and visit the children of other nodes
+            if(this.child1[node] == NULL_NODE) {
+                //noinspection unchecked
+                results.add((T) this.data[node]);
+                found++;
+            } else {
+                size = push(size, this.child1[node]);
+                size = push(size, this.child2[node]);
+            }
+        }
+
+        // Store the query cost and return the number of results
+        this.lastQueryNodeCount = visited;
+        return found;
+    }
+
+    /**
+     * Find all objects with a box that intersects the given frustum.
+     * Subtrees that are fully inside the frustum are added without testing their nodes.
+     *
+     * @param frustum Frustum.
+     * @param results List to add the objects to.
+     *
+     * @return Number of objects that were added.
+     */
+    public synchronized int queryFrustum(FrustumIntersection frustum, List<T> results) {
+        // Start at the root
+        int found = 0;
+        int visited = 0;
+        int size = this.root != NULL_NODE ? push(0, this.root) : 0;
+
+        // Visit the nodes that intersect the frustum
+        while(size > 0) {
+            final int node = this.stack[--size];
+            visited++;
+
+            // Test the node against the frustum, and skip it if it's outside
+            final int result = frustum.intersectAab(this.minX[node], this.minY[node], this.minZ[node], this.maxX[node], this.maxY[node], this.maxZ[node]);
+            if(result != FrustumIntersection.INSIDE && result != FrustumIntersection.INTERSECT)
+                continue;
+
+            // Add all leaves of subtrees that are fully inside
+            if(result == FrustumIntersection.INSIDE) {
+                found += addLeaves(node, size, results);
+                continue;
+            }
+
+            // Add leaves, and visit the children of other nodes
+            if(this.child1[node] == NULL_NODE) {
+                //noinspection unchecked
+                results.add((T) this.data[node]);
+                found++;
+            } else {
+                size = push(size, this.child1[node]);
+                size = push(size, this.child2[node]);
+            }
+        }
+
+        // Store the query cost and return the number of results
+        this.lastQueryNodeCount = visited;
+        return found;
+    }
+
+    /**
+     * Add the objects of all leaves in the subtree of the given node, without testing them.
+     * The query stack above the given base is used, so a running query isn't affected.
+     *
+     * @param node Subtree root node ID.
+     * @param base Stack size of the running query.
+     * @param results List to add the objects to.
+     *
+     * @return Number of objects that were added.
+     */
+    private int addLeaves(int node, int base, List<T> results) {
+        int found = 0;
+        int size = push(base, node);
+        while(size > base) {
+            final int current = this.stack[--size];
+            if(this.child1[current] == NULL_NODE) {
+                //noinspection unchecked
+                results.add((T) this.data[current]);
+                found++;
+            } else {
+                size = push(size, this.child1[current]);
+                size = push(size, this.child2[current]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find all objects with a box that is hit by the given ray.
+     *
+     * @param origin Ray origin.
+     * @param direction Ray direction, doesn't have to be normalized.
+     * @param maxDistance Maximum distance along the ray, relative to the length of the direction.
+     * @param results List to add the objects to.
+     *
+     * @return Number of objects that were added.
+     */
+    public synchronized int raycast(Vector3f origin, Vector3f direction, float maxDistance, List<T> results) {
+        // Determine the inverse direction for the slab tests
+        final float invX = 1.0f / direction.x;
+        final float invY = 1.0f / direction.y;
+        final float invZ = 1.0f / direction.z;
+
+        // Start at the root
+        int found = 0;
+        int visited = 0;
+        int size = this.root != NULL_NODE ? push(0, this.root) : 0;
+
+        // Visit the nodes that are hit by the ray
+        while(size > 0) {
+            final int node = this.stack[--size];
+            visited++;
+
+            // Intersect the ray with the slabs of the box, and skip the node if it's missed
+            final float tx1 = (this.minX[node] - origin.x) * invX;
+            final float tx2 = (this.maxX[node] - origin.x) * invX;
+            final float ty1 = (this.minY[node] - origin.y) * invY;
+            final float ty2 = (this.maxY[node] - origin.y) * invY;
+            final float tz1 = (this.minZ[node] - origin.z) * invZ;
+            final float tz2 = (this.maxZ[node] - origin.z) * invZ;
+            final float tMin = Math.max(Math.max(Math.min(tx1, tx2), Math.min(ty1, ty2)), Math.min(tz1, tz2));
+            final float tMax = Math.min(Math.min(Math.max(tx1, tx2), Math.max(ty1, ty2)), Math.max(tz1, tz2));
+            if(tMax < 0.0f || tMin > tMax || tMin > maxDistance)
+                continue;
+
+            // Add leaves, and visit the children of other nodes
+            if(this.child1[node] == NULL_NODE) {
+                //noinspection unchecked
+                results.add((T) this.data[node]);
+                found++;
+            } else {
+                size = push(size, this.child1[node]);
+                size = push(size, this.child2[node]);
+            }
+        }
+
+        // Store the query cost and return the number of results
+        this.lastQueryNodeCount = visited;
+        return found;
+    }
+}
@@ -0,0 +1,225 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.spatial;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DynamicAabbTreeTest {
+
+    /**
+     * Size of the world the boxes are placed in, along each axis.
+     */
+    private static final float WORLD_SIZE = 1000.0f;
+
+    /**
+     * Size of each box along each axis.
+     */
+    private static final float BOX_SIZE = 1.0f;
+
+    /**
+     * Number of queries used to determine the average query cost.
+     */
+    private static final int QUERY_COUNT = 200;
+
+    /**
+     * Random generator with a fixed seed, to make the tests reproducible.
+     */
+    private final Random random = new Random(1337);
+
+    /**
+     * Build a tree of the given number of randomly placed boxes.
+     *
+     * @param count Number of boxes.
+     * @param mins List to add the minimum corner of each box to.
+     * @param maxs List to add the maximum corner of each box to.
+     * @param proxies List to add the proxy of each box to.
+     *
+     * @return Tree.
+     */
+    private DynamicAabbTree<Integer> buildTree(int count, List<Vector3f> mins, List<Vector3f> maxs, List<Integer> proxies) {
+        // Create the tree
+        final DynamicAabbTree<Integer> tree = new DynamicAabbTree<>();
+
+        // Add the boxes
+        for(int i = 0; i < count; i++) {
+            final Vector3f min = randomPoint();
+            final Vector3f max = new Vector3f(min).add(BOX_SIZE, BOX_SIZE, BOX_SIZE);
+            mins.add(min);
+            maxs.add(max);
+            proxies.add(tree.createProxy(min, max, i));
+        }
+
+        return tree;
+    }
+
+    /**
+     * Get a random point in the world.
+     *
+     * @return Random point.
+     */
+    private Vector3f randomPoint() {
+        return new Vector3f(this.random.nextFloat() * WORLD_SIZE, this.random.nextFloat() * WORLD_SIZE, this.random.nextFloat() * WORLD_SIZE);
+    }
+
+    /**
+     * Measure the average number of nodes visited by small box queries on a tree of the given size.
+     *
+     * @param count Number of boxes in the tree.
+     *
+     * @return Average number of visited nodes per query.
+     */
+    private double measureQueryCost(int count) {
+        // Build the tree
+        final DynamicAabbTree<Integer> tree = buildTree(count, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        final List<Integer> results = new ArrayList<>();
+
+        // Run the queries and count the visited nodes
+        long visited = 0;
+        for(int i = 0; i < QUERY_COUNT; i++) {
+            final Vector3f min = randomPoint();
+            results.clear();
+            tree.queryAabb(min, new Vector3f(min).add(2.0f, 2.0f, 2.0f), results);
+            visited += tree.getLastQueryNodeCount();
+        }
+        return (double) visited / QUERY_COUNT;
+    }
+
+    @org.junit.Test
+    public void queryCost() {
+        // Determine the query cost at increasing object counts
+        final double cost1k = measureQueryCost(1000);
+        final double cost16k = measureQueryCost(16000);
+
+        // A linear index would visit sixteen times as many nodes, make sure the cost stays roughly logarithmic
+        assertTrue("Query cost grows too fast: " + cost1k + " -> " + cost16k, cost16k < cost1k * 3.0);
+    }
+
+    @org.junit.Test
+    public void queriesMatchBruteForce() {
+        // Build the tree
+        final List<Vector3f> mins = new ArrayList<>();
+        final List<Vector3f> maxs = new ArrayList<>();
+        final DynamicAabbTree<Integer> tree = buildTree(5000, mins, maxs, new ArrayList<>());
+        final float margin = tree.getMargin();
+        final List<Integer> results = new ArrayList<>();
+
+        // Test box queries
+        final Vector3f queryMin = new Vector3f(200, 300, 400);
+        final Vector3f queryMax = new Vector3f(350, 420, 500);
+        tree.queryAabb(queryMin, queryMax, results);
+        final HashSet<Integer> expected = new HashSet<>();
+        for(int i = 0; i < mins.size(); i++)
+            if(mins.get(i).x - margin <= queryMax.x && maxs.get(i).x + margin >= queryMin.x
+                    && mins.get(i).y - margin <= queryMax.y && maxs.get(i).y + margin >= queryMin.y
+                    && mins.get(i).z - margin <= queryMax.z && maxs.get(i).z + margin >= queryMin.z)
+                expected.add(i);
+        assertEquals(expected, new HashSet<>(results));
+
+        // Test sphere queries, every box with its center inside the sphere must be found
+        final Vector3f center = new Vector3f(500, 500, 500);
+        results.clear();
+        tree.querySphere(center, 120.0f, results);
+        final HashSet<Integer> sphereResults = new HashSet<>(results);
+        for(int i = 0; i < mins.size(); i++) {
+            final Vector3f boxCenter = new Vector3f(mins.get(i)).add(maxs.get(i)).mul(0.5f);
+            if(boxCenter.distance(center) < 120.0f)
+                assertTrue(sphereResults.contains(i));
+            if(boxCenter.distance(center) > 125.0f)
+                assertTrue(!sphereResults.contains(i));
+        }
+
+        // Test frustum queries against a per-box frustum test
+        final Matrix4f projectionView = new Matrix4f()
+                .perspective((float) Math.toRadians(60.0f), 1.0f, 0.1f, 400.0f)
+                .lookAt(500, 500, 0, 500, 500, 1000, 0, 1, 0);
+        final FrustumIntersection frustum = new FrustumIntersection(projectionView);
+        results.clear();
+        tree.queryFrustum(frustum, results);
+        final HashSet<Integer> frustumResults = new HashSet<>(results);
+        for(int i = 0; i < mins.size(); i++) {
+            final Vector3f min = mins.get(i);
+            final Vector3f max = maxs.get(i);
+            if(frustum.testAab(min.x + 0.01f, min.y + 0.01f, min.z + 0.01f, max.x - 0.01f, max.y - 0.01f, max.z - 0.01f))
+                assertTrue(frustumResults.contains(i));
+        }
+        assertTrue(frustumResults.size() < mins.size());
+
+        // Test ray casts, the ray hits a box placed on its path
+        final Vector3f hitMin = new Vector3f(10, 10, 10);
+        final int hitProxy = tree.createProxy(hitMin, new Vector3f(11, 11, 11), -1);
+        results.clear();
+        tree.raycast(new Vector3f(0, 0, 0), new Vector3f(1, 1, 1), 50.0f, results);
+        assertTrue(results.contains(-1));
+        results.clear();
+        tree.raycast(new Vector3f(0, 0, 0), new Vector3f(1, 1, 1), 5.0f, results);
+        assertTrue(!results.contains(-1));
+        tree.destroyProxy(hitProxy);
+    }
+
+    @org.junit.Test
+    public void moveAndDestroy() {
+        // Build the tree
+        final List<Vector3f> mins = new ArrayList<>();
+        final List<Vector3f> maxs = new ArrayList<>();
+        final List<Integer> proxies = new ArrayList<>();
+        final DynamicAabbTree<Integer> tree = buildTree(10000, mins, maxs, proxies);
+
+        // Small movements inside the fattened box must not reinsert the proxy
+        final Vector3f nudge = new Vector3f(tree.getMargin() * 0.5f, 0, 0);
+        assertTrue(!tree.moveProxy(proxies.get(0), new Vector3f(mins.get(0)).add(nudge), new Vector3f(maxs.get(0)).add(nudge)));
+
+        // Move all boxes to a new random position
+        for(int i = 0; i < proxies.size(); i++) {
+            final Vector3f min = randomPoint();
+            mins.set(i, min);
+            maxs.set(i, new Vector3f(min).add(BOX_SIZE, BOX_SIZE, BOX_SIZE));
+            tree.moveProxy(proxies.get(i), mins.get(i), maxs.get(i));
+        }
+
+        // Destroy half of the boxes
+        for(int i = 0; i < proxies.size(); i += 2)
+            tree.destroyProxy(proxies.get(i));
+        assertEquals(5000, tree.getProxyCount());
+
+        // The tree must stay balanced, a balanced tree of 5000 leaves is roughly 13 levels high
+        assertTrue("Tree height " + tree.getHeight() + " is unbalanced", tree.getHeight() <= 24);
+
+        // Each remaining box must be found at its new position, and destroyed boxes must not be found
+        final List<Integer> results = new ArrayList<>();
+        for(int i = 0; i < proxies.size(); i++) {
+            results.clear();
+            tree.queryAabb(mins.get(i), maxs.get(i), results);
+            assertEquals(i % 2 != 0, results.contains(i));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.spatial;
+
+import com.timvisee.voxeltex.engine.light.Light;
+import com.timvisee.voxeltex.engine.light.LightChangeLog;
+import com.timvisee.voxeltex.module.mesh.Bounds;
+import org.joml.Vector3f;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of the point and spot lights in a scene, based on the sphere each light reaches.
+ * The index is synchronized with the lights of the light manager each frame, and only changes lights that moved or
+ * changed their range.
+ */
+public class LightSpatialIndex extends DynamicAabbTree<Light> {
+
+    /**
+     * Index entries of the indexed lights.
+     */
+    private final Map<Light, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * Temporary vector for the minimum corner of a light box.
+     */
+    private final Vector3f tempMin = new Vector3f();
+
+    /**
+     * Temporary vector for the maximum corner of a light box.
+     */
+    private final Vector3f tempMax = new Vector3f();
+
+    /**
+     * Synchronize the index with the given lights.
+     * Lights are added when they aren't indexed yet, moved when their position or range changed, and removed when they
+     * don't reach anything anymore. Directional lights aren't indexed.
+     * The old and new sphere box of each changed light is recorded in the given change log.
+     *
+     * @param lights Lights to index.
+     * @param changes Change log to record the changed regions in.
+     *
+     * @return True if any light was added, moved or removed, false if the index didn't change.
+     */
+    public synchronized boolean update(List<Light> lights, LightChangeLog changes) {
+        boolean changed = false;
+
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = lights.size(); i < size; i++) {
+            // Get the light, its entry and range
+            final Light light = lights.get(i);
+            final Entry entry = this.entries.get(light);
+            final float range = light.getType() != Light.LIGHT_TYPE_DIRECTIONAL ? light.getRange() : 0.0f;
+
+            // Remove the light if it doesn't reach anything anymore
+            if(range <= 0.0f) {
+                if(entry != null)
+                    changed |= remove(light, changes);
+                continue;
+            }
+
+            // Skip the light if it didn't change
+            if(entry != null && entry.range == range && entry.position.equals(light.getPosition()))
+                continue;
+
+            // Record the old box of a moved light as changed
+            if(entry != null)
+                recordBox(entry, changes);
+
+            // Determine the box of the light sphere, and record it as changed
+            light.getPosition().sub(range, range, range, this.tempMin);
+            light.getPosition().add(range, range, range, this.tempMax);
+            changes.add(this.tempMin, this.tempMax);
+
+            // Add the light, or move it
+            if(entry == null)
+                this.entries.put(light, new Entry(createProxy(this.tempMin, this.tempMax, light), light.getPosition(), range));
+            else {
+                moveProxy(entry.proxy, this.tempMin, this.tempMax);
+                entry.position.set(light.getPosition());
+                entry.range = range;
+            }
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Remove a light from the index.
+     *
+     * @param light Light to remove.
+     * @param changes Change log to record the region of the removed light in.
+     *
+     * @return True if the light was removed, false if it wasn't indexed.
+     */
+    public synchronized boolean remove(Light light, LightChangeLog changes) {
+        // Get and remove the entry of the light
+        final Entry entry = this.entries.remove(light);
+        if(entry == null)
+            return false;
+
+        // Remove the light from the tree, and record its box as changed
+        destroyProxy(entry.proxy);
+        recordBox(entry, changes);
+        return true;
+    }
+
+    /**
+     * Record the box of the sphere a light was indexed with as changed.
+     *
+     * @param entry Index entry of the light.
+     * @param changes Change log to record the box in.
+     */
+    private void recordBox(Entry entry, LightChangeLog changes) {
+        entry.position.sub(entry.range, entry.range, entry.range, this.tempMin);
+        entry.position.add(entry.range, entry.range, entry.range, this.tempMax);
+        changes.add(this.tempMin, this.tempMax);
+    }
+
+    /**
+     * Find all lights with a sphere box that overlaps the given world bounds.
+     *
+     * @param worldBounds World space bounds.
+     * @param results List to add the lights to.
+     *
+     * @return Number of lights that were added.
+     */
+    public int query(Bounds worldBounds, List<Light> results) {
+        return queryAabb(worldBounds.getMin(), worldBounds.getMax(), results);
+    }
+
+    /**
+     * Index entry of a light, holding the state the light was indexed with.
+     */
+    private static class Entry {
+
+        /**
+         * Proxy ID of the light.
+         */
+        private final int proxy;
+
+        /**
+         * Position the light was indexed at.
+         */
+        private final Vector3f position;
+
+        /**
+         * Range the light was indexed with.
+         */
+        private float range;
+
+        /**
+         * Constructor.
+         *
+         * @param proxy Proxy ID of the light.
+         * @param position Position the light was indexed at, this vector is copied.
+         * @param range Range the light was indexed with.
+         */
+        private Entry(int proxy, Vector3f position, float range) {
+            this.proxy = proxy;
+            this.position = new Vector3f(position);
+            this.range = range;
+        }
+    }
+}
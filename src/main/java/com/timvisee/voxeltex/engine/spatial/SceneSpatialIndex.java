@@ -0,0 +1,89 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.spatial;
+
+import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+import com.timvisee.voxeltex.module.mesh.Bounds;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.List;
+
+/**
+ * Spatial index of the game objects in a scene, based on their world space bounds.
+ * Renderers register their game object when started and update it when their transform changes,
+ * so spatial queries don't have to walk the whole scene.
+ */
+public class SceneSpatialIndex extends DynamicAabbTree<AbstractGameObject> {
+
+    /**
+     * Frustum used for frustum queries with a projection view matrix.
+     */
+    private final FrustumIntersection tempFrustum = new FrustumIntersection();
+
+    /**
+     * Add a game object to the index.
+     *
+     * @param worldBounds World space bounds of the game object.
+     * @param gameObject Game object.
+     *
+     * @return Proxy ID, used to move and remove the game object.
+     */
+    public int add(Bounds worldBounds, AbstractGameObject gameObject) {
+        return createProxy(worldBounds.getMin(), worldBounds.getMax(), gameObject);
+    }
+
+    /**
+     * Move a game object in the index to its new world space bounds.
+     *
+     * @param proxy Proxy ID of the game object.
+     * @param worldBounds New world space bounds of the game object.
+     *
+     * @return True if the game object was reinserted, false if its fattened bounds still contain the new bounds.
+     */
+    public boolean move(int proxy, Bounds worldBounds) {
+        return moveProxy(proxy, worldBounds.getMin(), worldBounds.getMax());
+    }
+
+    /**
+     * Remove a game object from the index.
+     *
+     * @param proxy Proxy ID of the game object.
+     */
+    public void remove(int proxy) {
+        destroyProxy(proxy);
+    }
+
+    /**
+     * Find all game objects that intersect the frustum of the given projection view matrix.
+     *
+     * @param projectionViewMatrix Combined projection and view matrix.
+     * @param results List to add the game objects to.
+     *
+     * @return Number of game objects that were added.
+     */
+    public synchronized int queryFrustum(Matrix4f projectionViewMatrix, List<AbstractGameObject> results) {
+        this.tempFrustum.set(projectionViewMatrix);
+        return queryFrustum(this.tempFrustum, results);
+    }
+}
@@ -0,0 +1,505 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.spatial;
+
+/**
+ * Static bounding volume hierarchy over a set of triangles, used to trace rays against static geometry.
+ * The hierarchy is built once, with nodes stored in flat arrays, and can be queried from multiple threads at once as
+ * long as each thread uses its own {@link Hit}.
+ */
+public class TriangleBvh {
+
+    /**
+     * Number of floats for each triangle: three vertex positions.
+     */
+    public static final int TRIANGLE_SIZE = 9;
+
+    /**
+     * Maximum number of triangles in a leaf node.
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /**
+     * Minimum determinant of a ray triangle intersection, rays that are more parallel to a triangle don't hit it.
+     */
+    private static final float EPSILON = 1.0e-7f;
+
+    /**
+     * Triangle data, ordered by the leaves that reference them: first vertex, first edge and second edge.
+     */
+    private final float[] triangles;
+
+    /**
+     * Original index of each ordered triangle.
+     */
+    private final int[] triangleIndices;
+
+    /**
+     * Bounding boxes of the nodes, six floats for each node: minimum and maximum corner.
+     */
+    private final float[] bounds;
+
+    /**
+     * Second child of each inner node, the first child directly follows its parent, or the first triangle of each leaf.
+     */
+    private final int[] offsets;
+
+    /**
+     * Number of triangles of each leaf node, zero for inner nodes.
+     */
+    private final int[] counts;
+
+    /**
+     * Axis each inner node is split along, used to visit the child nearest to the ray origin first.
+     */
+    private final byte[] axes;
+
+    /**
+     * Number of nodes.
+     */
+    private int nodeCount = 0;
+
+    /**
+     * Depth of the deepest node.
+     */
+    private int depth = 0;
+
+    /**
+     * Constructor, building the hierarchy over the given triangles.
+     *
+     * @param positions Triangle vertex positions, {@link #TRIANGLE_SIZE} floats for each triangle.
+     */
+    public TriangleBvh(float[] positions) {
+        // Determine the triangle count, and allocate the nodes for the worst case
+        final int triangleCount = positions.length / TRIANGLE_SIZE;
+        final int maxNodes = Math.max(2 * triangleCount - 1, 1);
+        this.triangles = new float[triangleCount * TRIANGLE_SIZE];
+        this.triangleIndices = new int[triangleCount];
+        this.bounds = new float[maxNodes * 6];
+        this.offsets = new int[maxNodes];
+        this.counts = new int[maxNodes];
+        this.axes = new byte[maxNodes];
+
+        // Determine the centroid of each triangle
+        final float[] centroids = new float[triangleCount * 3];
+        for(int i = 0; i < triangleCount; i++) {
+            this.triangleIndices[i] = i;
+            for(int axis = 0; axis < 3; axis++) {
+                final int p = i * TRIANGLE_SIZE + axis;
+                centroids[i * 3 + axis] = (positions[p] + positions[p + 3] + positions[p + 6]) / 3.0f;
+            }
+        }
+
+        // Build the nodes, and store the triangles in leaf order
+        if(triangleCount > 0)
+            build(positions, centroids, 0, triangleCount, 1);
+        else
+            this.nodeCount = 0;
+        for(int i = 0; i < triangleCount; i++) {
+            final int source = this.triangleIndices[i] * TRIANGLE_SIZE;
+            final int dest = i * TRIANGLE_SIZE;
+            for(int axis = 0; axis < 3; axis++) {
+                this.triangles[dest + axis] = positions[source + axis];
+                this.triangles[dest + 3 + axis] = positions[source + 3 + axis] - positions[source + axis];
+                this.triangles[dest + 6 + axis] = positions[source + 6 + axis] - positions[source + axis];
+            }
+        }
+    }
+
+    /**
+     * Build a node over the given range of triangles, and its children.
+     * Triangles are split at the median of their centroids along the longest axis of the centroid bounds.
+     *
+     * @param positions Triangle vertex positions.
+     * @param centroids Triangle centroids.
+     * @param start First triangle.
+     * @param end Triangle after the last triangle.
+     * @param level Depth of the node.
+     *
+     * @return Node index.
+     */
+    private int build(float[] positions, float[] centroids, int start, int end, int level) {
+        // Allocate the node
+        final int node = this.nodeCount++;
+        this.depth = Math.max(this.depth, level);
+
+        // Determine the bounds of the triangles, and of their centroids
+        final int b = node * 6;
+        float centroidMinX = Float.POSITIVE_INFINITY, centroidMinY = Float.POSITIVE_INFINITY, centroidMinZ = Float.POSITIVE_INFINITY;
+        float centroidMaxX = Float.NEGATIVE_INFINITY, centroidMaxY = Float.NEGATIVE_INFINITY, centroidMaxZ = Float.NEGATIVE_INFINITY;
+        this.bounds[b] = this.bounds[b + 1] = this.bounds[b + 2] = Float.POSITIVE_INFINITY;
+        this.bounds[b + 3] = this.bounds[b + 4] = this.bounds[b + 5] = Float.NEGATIVE_INFINITY;
+        for(int i = start; i < end; i++) {
+            final int triangle = this.triangleIndices[i];
+            for(int v = 0; v < 3; v++) {
+                final int p = triangle * TRIANGLE_SIZE + v * 3;
+                for(int axis = 0; axis < 3; axis++) {
+                    this.bounds[b + axis] = Math.min(this.bounds[b + axis], positions[p + axis]);
+                    this.bounds[b + 3 + axis] = Math.max(this.bounds[b + 3 + axis], positions[p + axis]);
+                }
+            }
+            centroidMinX = Math.min(centroidMinX, centroids[triangle * 3]);
+            centroidMinY = Math.min(centroidMinY, centroids[triangle * 3 + 1]);
+            centroidMinZ = Math.min(centroidMinZ, centroids[triangle * 3 + 2]);
+            centroidMaxX = Math.max(centroidMaxX, centroids[triangle * 3]);
+            centroidMaxY = Math.max(centroidMaxY, centroids[triangle * 3 + 1]);
+            centroidMaxZ = Math.max(centroidMaxZ, centroids[triangle * 3 + 2]);
+        }
+
+        // Create a leaf if there are few triangles left
+        if(end - start <= LEAF_SIZE) {
+            this.offsets[node] = start;
+            this.counts[node] = end - start;
+            return node;
+        }
+
+        // Split the triangles at the median along the longest axis of the centroid bounds
+        final float extentX = centroidMaxX - centroidMinX;
+        final float extentY = centroidMaxY - centroidMinY;
+        final float extentZ = centroidMaxZ - centroidMinZ;
+        final int axis = extentX >= extentY && extentX >= extentZ ? 0 : (extentY >= extentZ ? 1 : 2);
+        final int middle = (start + end) >>> 1;
+        select(centroids, axis, start, end - 1, middle);
+
+        // Build the children, the first child directly follows this node
+        this.counts[node] = 0;
+        this.axes[node] = (byte) axis;
+        build(positions, centroids, start, middle, level + 1);
+        this.offsets[node] = build(positions, centroids, middle, end, level + 1);
+        return node;
+    }
+
+    /**
+     * Partially order the given range of triangles, so the triangle at the given index is the one that would be there
+     * if the range was sorted by centroid along the given axis, with smaller triangles before it.
+     *
+     * @param centroids Triangle centroids.
+     * @param axis Axis to order by.
+     * @param left First triangle in the range.
+     * @param right Last triangle in the range.
+     * @param k Index to select.
+     */
+    private void select(float[] centroids, int axis, int left, int right, int k) {
+        while(right > left) {
+            // Partition the range around the value of the middle triangle
+            final float pivot = centroids[this.triangleIndices[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while(i <= j) {
+                while(centroids[this.triangleIndices[i] * 3 + axis] < pivot)
+                    i++;
+                while(centroids[this.triangleIndices[j] * 3 + axis] > pivot)
+                    j--;
+                if(i <= j) {
+                    final int swap = this.triangleIndices[i];
+                    this.triangleIndices[i] = this.triangleIndices[j];
+                    this.triangleIndices[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+
+            // Continue with the part that contains the index
+            if(k <= j)
+                right = j;
+            else if(k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Get the number of triangles in the hierarchy.
+     *
+     * @return Triangle count.
+     */
+    public int getTriangleCount() {
+        return this.triangleIndices.length;
+    }
+
+    /**
+     * Get the number of nodes in the hierarchy.
+     *
+     * @return Node count.
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Get the depth of the deepest node in the hierarchy.
+     *
+     * @return Depth.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Find the closest triangle hit by the given ray.
+     *
+     * @param originX Ray origin X coordinate.
+     * @param originY Ray origin Y coordinate.
+     * @param originZ Ray origin Z coordinate.
+     * @param directionX Ray direction X coordinate.
+     * @param directionY Ray direction Y coordinate.
+     * @param directionZ Ray direction Z coordinate.
+     * @param maxDistance Maximum distance along the ray, in units of the direction length.
+     * @param hit Hit to store the closest hit in.
+     *
+     * @return True if a triangle was hit, false if not.
+     */
+    public boolean intersect(float originX, float originY, float originZ,
+                             float directionX, float directionY, float directionZ, float maxDistance, Hit hit) {
+        return trace(originX, originY, originZ, directionX, directionY, directionZ, maxDistance, hit, false);
+    }
+
+    /**
+     * Check whether the given ray hits any triangle.
+     *
+     * @param originX Ray origin X coordinate.
+     * @param originY Ray origin Y coordinate.
+     * @param originZ Ray origin Z coordinate.
+     * @param directionX Ray direction X coordinate.
+     * @param directionY Ray direction Y coordinate.
+     * @param directionZ Ray direction Z coordinate.
+     * @param maxDistance Maximum distance along the ray, in units of the direction length.
+     * @param hit Hit used for the traversal state, its result is undefined afterwards.
+     *
+     * @return True if any triangle was hit, false if not.
+     */
+    public boolean occluded(float originX, float originY, float originZ,
+                            float directionX, float directionY, float directionZ, float maxDistance, Hit hit) {
+        return trace(originX, originY, originZ, directionX, directionY, directionZ, maxDistance, hit, true);
+    }
+
+    /**
+     * Trace a ray through the hierarchy.
+     *
+     * @param originX Ray origin X coordinate.
+     * @param originY Ray origin Y coordinate.
+     * @param originZ Ray origin Z coordinate.
+     * @param directionX Ray direction X coordinate.
+     * @param directionY Ray direction Y coordinate.
+     * @param directionZ Ray direction Z coordinate.
+     * @param maxDistance Maximum distance along the ray.
+     * @param hit Hit to store the closest hit in.
+     * @param any True to stop at the first hit, false to find the closest hit.
+     *
+     * @return True if a triangle was hit, false if not.
+     */
+    private boolean trace(float originX, float originY, float originZ,
+                          float directionX, float directionY, float directionZ, float maxDistance, Hit hit, boolean any) {
+        // Reset the hit, and make sure there is anything to trace against
+        hit.triangle = -1;
+        hit.distance = maxDistance;
+        if(this.nodeCount == 0)
+            return false;
+
+        // Determine the inverse ray direction for the box tests
+        final float inverseX = 1.0f / directionX;
+        final float inverseY = 1.0f / directionY;
+        final float inverseZ = 1.0f / directionZ;
+
+        // Make sure the traversal stack is large enough
+        if(hit.stack.length < this.depth + 1)
+            hit.stack = new int[this.depth + 1];
+        final int[] stack = hit.stack;
+        int size = 0;
+        stack[size++] = 0;
+
+        while(size > 0) {
+            final int node = stack[--size];
+
+            // Skip the node if the ray misses its box, or only hits it further away than the closest hit
+            final int b = node * 6;
+            float near = 0.0f;
+            float far = hit.distance;
+            float t1 = (this.bounds[b] - originX) * inverseX;
+            float t2 = (this.bounds[b + 3] - originX) * inverseX;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+            t1 = (this.bounds[b + 1] - originY) * inverseY;
+            t2 = (this.bounds[b + 4] - originY) * inverseY;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+            t1 = (this.bounds[b + 2] - originZ) * inverseZ;
+            t2 = (this.bounds[b + 5] - originZ) * inverseZ;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+            if(near > far)
+                continue;
+
+            // Visit the children of inner nodes, the child on the side the ray comes from first
+            final int count = this.counts[node];
+            if(count == 0) {
+                final int axis = this.axes[node];
+                final float direction = axis == 0 ? directionX : (axis == 1 ? directionY : directionZ);
+                if(direction >= 0.0f) {
+                    stack[size++] = this.offsets[node];
+                    stack[size++] = node + 1;
+                } else {
+                    stack[size++] = node + 1;
+                    stack[size++] = this.offsets[node];
+                }
+                continue;
+            }
+
+            // Test the triangles of leaf nodes
+            for(int i = this.offsets[node], last = i + count; i < last; i++) {
+                if(intersectTriangle(i, originX, originY, originZ, directionX, directionY, directionZ, hit)) {
+                    hit.triangle = this.triangleIndices[i];
+                    if(any)
+                        return true;
+                }
+            }
+        }
+
+        return hit.triangle >= 0;
+    }
+
+    /**
+     * Intersect a ray with a triangle, using the Möller-Trumbore algorithm.
+     * The hit is updated if the triangle is hit closer than the current hit distance.
+     *
+     * @param triangle Ordered triangle index.
+     * @param originX Ray origin X coordinate.
+     * @param originY Ray origin Y coordinate.
+     * @param originZ Ray origin Z coordinate.
+     * @param directionX Ray direction X coordinate.
+     * @param directionY Ray direction Y coordinate.
+     * @param directionZ Ray direction Z coordinate.
+     * @param hit Hit to update.
+     *
+     * @return True if the triangle was hit closer than the current hit, false if not.
+     */
+    private boolean intersectTriangle(int triangle, float originX, float originY, float originZ,
+                                      float directionX, float directionY, float directionZ, Hit hit) {
+        // Get the first vertex and both edges of the triangle
+        final int t = triangle * TRIANGLE_SIZE;
+        final float edge1X = this.triangles[t + 3], edge1Y = this.triangles[t + 4], edge1Z = this.triangles[t + 5];
+        final float edge2X = this.triangles[t + 6], edge2Y = this.triangles[t + 7], edge2Z = this.triangles[t + 8];
+
+        // Determine the determinant, and skip rays parallel to the triangle
+        final float pX = directionY * edge2Z - directionZ * edge2Y;
+        final float pY = directionZ * edge2X - directionX * edge2Z;
+        final float pZ = directionX * edge2Y - directionY * edge2X;
+        final float determinant = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+        if(determinant > -EPSILON && determinant < EPSILON)
+            return false;
+        final float inverseDeterminant = 1.0f / determinant;
+
+        // Determine the first barycentric coordinate
+        final float sX = originX - this.triangles[t];
+        final float sY = originY - this.triangles[t + 1];
+        final float sZ = originZ - this.triangles[t + 2];
+        final float u = (sX * pX + sY * pY + sZ * pZ) * inverseDeterminant;
+        if(u < 0.0f || u > 1.0f)
+            return false;
+
+        // Determine the second barycentric coordinate
+        final float qX = sY * edge1Z - sZ * edge1Y;
+        final float qY = sZ * edge1X - sX * edge1Z;
+        final float qZ = sX * edge1Y - sY * edge1X;
+        final float v = (directionX * qX + directionY * qY + directionZ * qZ) * inverseDeterminant;
+        if(v < 0.0f || u + v > 1.0f)
+            return false;
+
+        // Determine the distance, and keep the hit if it's closer
+        final float distance = (edge2X * qX + edge2Y * qY + edge2Z * qZ) * inverseDeterminant;
+        if(distance <= 0.0f || distance >= hit.distance)
+            return false;
+        hit.distance = distance;
+        hit.u = u;
+        hit.v = v;
+        return true;
+    }
+
+    /**
+     * Result and traversal state of a ray query.
+     */
+    public static class Hit {
+
+        /**
+         * Original index of the hit triangle, or -1 if nothing was hit.
+         */
+        private int triangle = -1;
+
+        /**
+         * Distance along the ray to the hit, in units of the ray direction length.
+         */
+        private float distance;
+
+        /**
+         * Barycentric weight of the second vertex of the hit triangle.
+         */
+        private float u;
+
+        /**
+         * Barycentric weight of the third vertex of the hit triangle.
+         */
+        private float v;
+
+        /**
+         * Traversal stack.
+         */
+        private int[] stack = new int[64];
+
+        /**
+         * Get the original index of the hit triangle.
+         *
+         * @return Triangle index, or -1 if nothing was hit.
+         */
+        public int getTriangle() {
+            return this.triangle;
+        }
+
+        /**
+         * Get the distance along the ray to the hit.
+         *
+         * @return Hit distance, in units of the ray direction length.
+         */
+        public float getDistance() {
+            return this.distance;
+        }
+
+        /**
+         * Get the barycentric weight of the second vertex of the hit triangle.
+         *
+         * @return Barycentric U coordinate.
+         */
+        public float getU() {
+            return this.u;
+        }
+
+        /**
+         * Get the barycentric weight of the third vertex of the hit triangle.
+         *
+         * @return Barycentric V coordinate.
+         */
+        public float getV() {
+            return this.v;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.update;
+
+/**
+ * Flags a component uses to declare which data its update reads and writes.
+ * The update scheduler uses these flags to run the updates of independent components in parallel.
+ */
+public final class ComponentAccess {
+
+    /**
+     * The update doesn't touch any shared data, and may run in parallel with anything.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * The update writes the local transform of its own game object, including its velocities.
+     * Components that only write their own transform may run in parallel with each other.
+     */
+    public static final int WRITE_OWN_TRANSFORM = 1;
+
+    /**
+     * The update reads the transform of other game objects, or the world space transform of its own game object.
+     */
+    public static final int READ_TRANSFORM = 1 << 1;
+
+    /**
+     * The update writes the transform of other game objects.
+     */
+    public static final int WRITE_TRANSFORM = 1 << 2;
+
+    /**
+     * The update reads the state of physics bodies.
+     */
+    public static final int READ_PHYSICS = 1 << 3;
+
+    /**
+     * The update writes the state of physics bodies, such as forces.
+     */
+    public static final int WRITE_PHYSICS = 1 << 4;
+
+    /**
+     * The update reads user input. Input is never written during updates.
+     */
+    public static final int READ_INPUT = 1 << 5;
+
+    /**
+     * The update must run alone on the update thread, because it touches the graphics context, the scene structure
+     * or other data that isn't declared. This is the default for components that don't declare their access.
+     */
+    public static final int EXCLUSIVE = 1 << 30;
+
+    /**
+     * Transform flags that write any transform.
+     */
+    private static final int TRANSFORM_WRITES = WRITE_OWN_TRANSFORM | WRITE_TRANSFORM;
+
+    /**
+     * Physics flags that touch physics bodies.
+     */
+    private static final int PHYSICS_ACCESS = READ_PHYSICS | WRITE_PHYSICS;
+
+    /**
+     * Private constructor, this class holds constants only.
+     */
+    private ComponentAccess() { }
+
+    /**
+     * Check whether updates with the given access flags conflict, and can't run in parallel.
+     * The flags of multiple updates may be combined with a binary or, to check against all of them at once.
+     *
+     * @param a Access flags of the first update.
+     * @param b Access flags of the second update.
+     *
+     * @return True if the updates conflict, false if they may run in parallel.
+     */
+    public static boolean conflicts(int a, int b) {
+        // Exclusive updates conflict with everything
+        if((a & EXCLUSIVE) != 0 || (b & EXCLUSIVE) != 0)
+            return true;
+
+        // Transform readers conflict with transform writers, and writers of other transforms conflict with all writers
+        if((a & READ_TRANSFORM) != 0 && (b & TRANSFORM_WRITES) != 0)
+            return true;
+        if((b & READ_TRANSFORM) != 0 && (a & TRANSFORM_WRITES) != 0)
+            return true;
+        if((a & WRITE_TRANSFORM) != 0 && (b & TRANSFORM_WRITES) != 0)
+            return true;
+        if((b & WRITE_TRANSFORM) != 0 && (a & TRANSFORM_WRITES) != 0)
+            return true;
+
+        // Physics writers conflict with all physics access
+        if((a & WRITE_PHYSICS) != 0 && (b & PHYSICS_ACCESS) != 0)
+            return true;
+        return (b & WRITE_PHYSICS) != 0 && (a & PHYSICS_ACCESS) != 0;
+    }
+}
@@ -0,0 +1,146 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.update;
+
+/**
+ * Policy that lowers the update rate of components based on their distance to the main camera.
+ *
+ * Components within the near distance are updated every frame. Components further away are updated once every few
+ * frames, and components beyond the cutoff distance are suspended until they come closer again. Components that skip
+ * frames receive the time accumulated since their last update through {@link
+ * com.timvisee.voxeltex.architecture.component.AbstractComponent#getDeltaTime()}.
+ *
+ * A policy may be set on a component, or on a game object to apply it to all its components. Policies may be shared
+ * between any number of components and game objects.
+ */
+public class UpdateRatePolicy {
+
+    /**
+     * Interval returned for components that are suspended.
+     */
+    public static final int SUSPENDED = 0;
+
+    /**
+     * Distance to the camera up to which components are updated every frame.
+     */
+    private float nearDistance;
+
+    /**
+     * Number of frames between updates for components beyond the near distance.
+     */
+    private int interval;
+
+    /**
+     * Distance to the camera beyond which components are suspended, or zero to never suspend components.
+     */
+    private float cutoffDistance;
+
+    /**
+     * Constructor.
+     *
+     * @param nearDistance Distance to the camera up to which components are updated every frame.
+     * @param interval Number of frames between updates for components beyond the near distance.
+     * @param cutoffDistance Distance to the camera beyond which components are suspended, or zero to never suspend.
+     */
+    public UpdateRatePolicy(float nearDistance, int interval, float cutoffDistance) {
+        setNearDistance(nearDistance);
+        setInterval(interval);
+        setCutoffDistance(cutoffDistance);
+    }
+
+    /**
+     * Get the distance to the camera up to which components are updated every frame.
+     *
+     * @return Near distance.
+     */
+    public float getNearDistance() {
+        return this.nearDistance;
+    }
+
+    /**
+     * Set the distance to the camera up to which components are updated every frame.
+     *
+     * @param nearDistance Near distance.
+     */
+    public void setNearDistance(float nearDistance) {
+        this.nearDistance = nearDistance;
+    }
+
+    /**
+     * Get the number of frames between updates for components beyond the near distance.
+     *
+     * @return Interval in frames.
+     */
+    public int getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Set the number of frames between updates for components beyond the near distance.
+     *
+     * @param interval Interval in frames, at least one.
+     */
+    public void setInterval(int interval) {
+        // Make sure the interval is valid
+        if(interval < 1)
+            throw new RuntimeException("Update interval must be at least one frame, got " + interval);
+
+        this.interval = interval;
+    }
+
+    /**
+     * Get the distance to the camera beyond which components are suspended.
+     *
+     * @return Cutoff distance, or zero if components are never suspended.
+     */
+    public float getCutoffDistance() {
+        return this.cutoffDistance;
+    }
+
+    /**
+     * Set the distance to the camera beyond which components are suspended.
+     *
+     * @param cutoffDistance Cutoff distance, or zero to never suspend components.
+     */
+    public void setCutoffDistance(float cutoffDistance) {
+        this.cutoffDistance = cutoffDistance;
+    }
+
+    /**
+     * Get the number of frames between updates for a component at the given squared distance to the camera.
+     *
+     * @param distanceSquared Squared distance to the camera.
+     *
+     * @return Interval in frames, or {@link #SUSPENDED} if the component shouldn't be updated at all.
+     */
+    public int getInterval(float distanceSquared) {
+        // Suspend components beyond the cutoff distance
+        if(this.cutoffDistance > 0.0f && distanceSquared > this.cutoffDistance * this.cutoffDistance)
+            return SUSPENDED;
+
+        // Update components within the near distance every frame
+        if(distanceSquared <= this.nearDistance * this.nearDistance)
+            return 1;
+        return this.interval;
+    }
+}
@@ -0,0 +1,464 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.engine.update;
+
+import com.timvisee.voxeltex.architecture.component.AbstractComponent;
+import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
+import com.timvisee.voxeltex.engine.registry.ComponentRegistry;
+import com.timvisee.voxeltex.engine.registry.RegistryList;
+import com.timvisee.voxeltex.runtime.global.MainCamera;
+import com.timvisee.voxeltex.runtime.global.Time;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scheduler that updates the game objects of a scene, running independent work in parallel.
+ *
+ * The game objects and components are taken from the component registry of the scene, so only active game objects
+ * and components that actually override an update method are visited. Components with an {@link UpdateRatePolicy}
+ * are only included in the frames they're due, based on the distance of their owner to the main camera.
+ * Each frame is updated in phases:
+ * <ol>
+ *     <li>The transforms of all active game objects are integrated, in parallel.</li>
+ *     <li>The components are updated in batches. Components are added to a batch in registry order, until a component
+ *     conflicts with the access flags declared by the components already in the batch. The components of a batch run
+ *     in parallel on a work stealing pool, while the components of a single game object always run in order.
+ *     Exclusive components run alone on the update thread.</li>
+ *     <li>The merge updates of all components run in registry order on the update thread, so writes to shared structures
+ *     are applied deterministically.</li>
+ *     <li>The queued component and child removals of all game objects are applied.</li>
+ * </ol>
+ * Because conflicting components keep their relative order, the result is the same as a serial update in registry
+ * order.
+ */
+public class UpdateScheduler {
+
+    /**
+     * Number of items below which work is done on the current thread instead of being split further.
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Defines whether independent work is run in parallel.
+     */
+    private boolean parallel = true;
+
+    /**
+     * Active game objects of the current frame, in registry order.
+     */
+    private final List<AbstractGameObject> gameObjects = new ArrayList<>();
+
+    /**
+     * Active updatable components of the current frame, in registry order.
+     */
+    private final List<AbstractComponent> components = new ArrayList<>();
+
+    /**
+     * Owners of the components in the batch that is currently being built.
+     */
+    private final Set<AbstractGameObject> batchOwners = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Number of frames updated by this scheduler, used to spread reduced rate updates over frames.
+     */
+    private long frame = 0;
+
+    /**
+     * Camera position of the current frame.
+     */
+    private final Vector3f cameraPosition = new Vector3f();
+
+    /**
+     * Temporary world position of a component owner.
+     */
+    private final Vector3f tempOwnerPosition = new Vector3f();
+
+    /**
+     * Number of updatable components that skipped the last update because of their update rate policy.
+     */
+    private int lastSkippedCount = 0;
+
+    /**
+     * Number of component batches during the last update.
+     */
+    private int lastBatchCount = 0;
+
+    /**
+     * Number of components that were updated in parallel batches during the last update.
+     */
+    private int lastParallelCount = 0;
+
+    /**
+     * Check whether independent work is run in parallel.
+     *
+     * @return True if parallel, false if not.
+     */
+    public boolean isParallel() {
+        return this.parallel;
+    }
+
+    /**
+     * Set whether independent work is run in parallel.
+     *
+     * @param parallel True to run in parallel, false to run everything on the update thread.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Get the number of component batches during the last update.
+     *
+     * @return Batch count.
+     */
+    public int getLastBatchCount() {
+        return this.lastBatchCount;
+    }
+
+    /**
+     * Get the number of components that were updated in parallel batches during the last update.
+     *
+     * @return Parallel component count.
+     */
+    public int getLastParallelCount() {
+        return this.lastParallelCount;
+    }
+
+    /**
+     * Get the number of updatable components that skipped the last update because of their update rate policy.
+     *
+     * @return Skipped component count.
+     */
+    public int getLastSkippedCount() {
+        return this.lastSkippedCount;
+    }
+
+    /**
+     * Update the active game objects and components in the given registry.
+     *
+     * @param registry Component registry of the scene.
+     */
+    public synchronized void update(ComponentRegistry registry) {
+        // Take a snapshot of the active game objects and updatable components, so they may be modified while updating
+        this.gameObjects.clear();
+        this.components.clear();
+        synchronized(registry) {
+            collect(registry.getGameObjects(), this.gameObjects);
+            collectDue(registry.getUpdatables());
+        }
+        this.frame++;
+
+        // Integrate the transforms of all game objects
+        if(this.parallel && this.gameObjects.size() > PARALLEL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(new TransformTask(0, this.gameObjects.size()));
+        else
+            updateTransforms(0, this.gameObjects.size());
+
+        // Update the components in batches of components that don't conflict
+        updateComponents();
+
+        // Run the merge updates of all components in scene order
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.components.size(); i < size; i++)
+            if(this.components.get(i).isEnabled())
+                this.components.get(i).mergeUpdate();
+
+        // Apply the queued removals of all game objects
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = this.gameObjects.size(); i < size; i++)
+            this.gameObjects.get(i).applyRemoveQueues();
+
+        // Release the references to the game objects and components
+        this.gameObjects.clear();
+        this.components.clear();
+    }
+
+    /**
+     * Copy the registered items of the given registry list, skipping the empty slots of removed items.
+     *
+     * @param source Registry list.
+     * @param dest Destination list.
+     * @param <T> Item type.
+     */
+    private static <T> void collect(RegistryList<T> source, List<T> dest) {
+        for(int i = 0, size = source.size(); i < size; i++)
+            if(source.get(i) != null)
+                dest.add(source.get(i));
+    }
+
+    /**
+     * Collect the updatable components that are due this frame according to their update rate policy.
+     *
+     * @param source Updatable components registry list.
+     */
+    private void collectDue(RegistryList<AbstractComponent> source) {
+        // Get the camera position of this frame
+        this.cameraPosition.set(MainCamera.getCameraPositionLastUpdate());
+        this.lastSkippedCount = 0;
+
+        // Determine which components are due, the distance is determined once for each owner
+        AbstractGameObject owner = null;
+        float distanceSquared = 0.0f;
+        for(int i = 0, size = source.size(); i < size; i++) {
+            // Get the component, skip empty slots
+            final AbstractComponent component = source.get(i);
+            if(component == null)
+                continue;
+
+            // Always update components without a policy
+            final UpdateRatePolicy policy = component.getUpdateRatePolicy();
+            if(policy == null) {
+                component.advanceUpdate(Time.deltaTimeFloat, true);
+                this.components.add(component);
+                continue;
+            }
+
+            // Determine the distance of the owner to the camera
+            if(component.getOwner() != owner) {
+                owner = component.getOwner();
+                owner.getTransform().getWorldPosition(this.tempOwnerPosition);
+                distanceSquared = this.tempOwnerPosition.distanceSquared(this.cameraPosition);
+            }
+
+            // Suspend the component if it's too far away
+            final int interval = policy.getInterval(distanceSquared);
+            if(interval == UpdateRatePolicy.SUSPENDED) {
+                component.resetUpdateTime();
+                this.lastSkippedCount++;
+                continue;
+            }
+
+            // Spread the components over the frames of the interval, and update the component if it's due
+            final boolean due = (this.frame + (System.identityHashCode(component) & 0xFFFF)) % interval == 0;
+            component.advanceUpdate(Time.deltaTimeFloat, due);
+            if(due)
+                this.components.add(component);
+            else
+                this.lastSkippedCount++;
+        }
+    }
+
+    /**
+     * Integrate the transforms of the game objects in the given range.
+     *
+     * @param start First game object index.
+     * @param end Index after the last game object.
+     */
+    private void updateTransforms(int start, int end) {
+        for(int i = start; i < end; i++)
+            this.gameObjects.get(i).getTransform().update();
+    }
+
+    /**
+     * Update all components in batches, running the components of each batch in parallel.
+     */
+    private void updateComponents() {
+        // Reset the statistics
+        this.lastBatchCount = 0;
+        this.lastParallelCount = 0;
+
+        // Build and run the batches
+        int batchStart = 0;
+        int batchAccess = ComponentAccess.NONE;
+        int ownerAccess = ComponentAccess.NONE;
+        AbstractGameObject owner = null;
+        for(int i = 0, size = this.components.size(); i < size; i++) {
+            final AbstractComponent component = this.components.get(i);
+            final int access = component.getUpdateAccess();
+
+            // Add the access of the previous game object to the batch when moving to the next game object,
+            // components of the same game object run in order and never conflict with each other
+            if(component.getOwner() != owner) {
+                batchAccess |= ownerAccess;
+                ownerAccess = ComponentAccess.NONE;
+                owner = component.getOwner();
+
+                // Start a new batch if the game object already had components earlier in this batch,
+                // the components of a game object must be contiguous within a batch to run in order
+                if(!this.batchOwners.add(owner)) {
+                    runBatch(batchStart, i);
+                    batchStart = i;
+                    batchAccess = ComponentAccess.NONE;
+                    this.batchOwners.add(owner);
+                }
+            }
+
+            // Run exclusive components alone, after the current batch
+            if((access & ComponentAccess.EXCLUSIVE) != 0) {
+                runBatch(batchStart, i);
+                if(component.isEnabled())
+                    component.update();
+                batchStart = i + 1;
+                batchAccess = ComponentAccess.NONE;
+                ownerAccess = ComponentAccess.NONE;
+                owner = null;
+                continue;
+            }
+
+            // Start a new batch if the component conflicts with the current batch
+            if(ComponentAccess.conflicts(batchAccess, access)) {
+                runBatch(batchStart, i);
+                batchStart = i;
+                batchAccess = ComponentAccess.NONE;
+                ownerAccess = ComponentAccess.NONE;
+                this.batchOwners.add(owner);
+            }
+            ownerAccess |= access;
+        }
+
+        // Run the last batch
+        runBatch(batchStart, this.components.size());
+    }
+
+    /**
+     * Run a batch of components that don't conflict, in parallel if the batch is large enough.
+     *
+     * @param start First component index.
+     * @param end Index after the last component.
+     */
+    private void runBatch(int start, int end) {
+        // Reset the owners of the batch, and skip empty batches
+        this.batchOwners.clear();
+        if(start >= end)
+            return;
+        this.lastBatchCount++;
+
+        // Run the batch
+        if(this.parallel && end - start > PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new ComponentTask(start, end));
+            this.lastParallelCount += end - start;
+        } else
+            updateComponentRange(start, end);
+    }
+
+    /**
+     * Update the components in the given range on the current thread.
+     *
+     * @param start First component index.
+     * @param end Index after the last component.
+     */
+    private void updateComponentRange(int start, int end) {
+        for(int i = start; i < end; i++)
+            if(this.components.get(i).isEnabled())
+                this.components.get(i).update();
+    }
+
+    /**
+     * Fork join task that integrates the transforms of a range of game objects.
+     */
+    private class TransformTask extends RecursiveAction {
+
+        /**
+         * First game object index.
+         */
+        private final int start;
+
+        /**
+         * Index after the last game object.
+         */
+        private final int end;
+
+        /**
+         * Constructor.
+         *
+         * @param start First game object index.
+         * @param end Index after the last game object.
+         */
+        TransformTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            // Integrate small ranges on the current thread
+            if(this.end - this.start <= PARALLEL_THRESHOLD) {
+                updateTransforms(this.start, this.end);
+                return;
+            }
+
+            // Split the range in half
+            final int middle = this.start + (this.end - this.start) / 2;
+            invokeAll(new TransformTask(this.start, middle), new TransformTask(middle, this.end));
+        }
+    }
+
+    /**
+     * Fork join task that updates a range of components of a batch.
+     * Ranges are only split between game objects, so the components of a game object run in order.
+     */
+    private class ComponentTask extends RecursiveAction {
+
+        /**
+         * First component index.
+         */
+        private final int start;
+
+        /**
+         * Index after the last component.
+         */
+        private final int end;
+
+        /**
+         * Constructor.
+         *
+         * @param start First component index.
+         * @param end Index after the last component.
+         */
+        ComponentTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            // Update small ranges on the current thread
+            if(this.end - this.start <= PARALLEL_THRESHOLD) {
+                updateComponentRange(this.start, this.end);
+                return;
+            }
+
+            // Move the split point forward to the first component of the next game object
+            int middle = this.start + (this.end - this.start) / 2;
+            final AbstractGameObject owner = components.get(middle - 1).getOwner();
+            while(middle < this.end && components.get(middle).getOwner() == owner)
+                middle++;
+
+            // Update on the current thread if the range belongs to a single game object
+            if(middle >= this.end) {
+                updateComponentRange(this.start, this.end);
+                return;
+            }
+
+            // Update both halves in parallel
+            invokeAll(new ComponentTask(this.start, middle), new ComponentTask(middle, this.end));
+        }
+    }
+}
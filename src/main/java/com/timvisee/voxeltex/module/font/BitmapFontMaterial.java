@@ -26,6 +26,7 @@ import com.timvisee.voxeltex.module.Color;
 import com.timvisee.voxeltex.module.material.Material;
 import com.timvisee.voxeltex.module.shader.ShaderManager;
 import com.timvisee.voxeltex.module.texture.Texture;
+import org.joml.Vector4f;
 
 public class BitmapFontMaterial extends Material {
 
@@ -34,6 +35,11 @@ public class BitmapFontMaterial extends Material {
      */
     private Color color = Color.WHITE;
 
+    /**
+     * Temporary vector, used to send the font color to the shader without allocating.
+     */
+    private final Vector4f tempVector4f = new Vector4f();
+
     /**
      * Constructor.
      *
@@ -64,35 +70,10 @@ public class BitmapFontMaterial extends Material {
 
     @Override
     public void bind() {
-        this.bind('?');
-    }
-
-    /**
-     * Character to draw with this material.
-     *
-     * @param c Character.
-     */
-    public void bind(char c) {
-        bind(c, 1.0f);
-    }
-
-    /**
-     * Character to draw with this material.
-     *
-     * @param c Character.
-     * @param characterWidthFactor Character width factor.
-     */
-    public void bind(char c, float characterWidthFactor) {
         // Bind the parent
         super.bind();
 
-        // Send the tile position to the font shader
-        getShader().setUniform2f("tilePosition", BitmapFontUtil.getCharCoords(c));
-
-        // Send the tile position to the font shader
-        getShader().setUniform4f("color", this.color.toVector4f());
-
-        // Send the character width factor
-        getShader().setUniform1f("charWidth", characterWidthFactor);
+        // Send the font color to the font shader
+        getShader().setUniform4f("color", this.color.toVector4f(this.tempVector4f));
     }
 }
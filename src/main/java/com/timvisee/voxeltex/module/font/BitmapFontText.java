@@ -0,0 +1,324 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.font;
+
+import com.timvisee.voxeltex.module.Color;
+import com.timvisee.voxeltex.module.render.OverlayBatcher;
+import com.timvisee.voxeltex.module.render.OverlayUtil;
+import com.timvisee.voxeltex.module.render.RenderOverlayHelper;
+
+/**
+ * A piece of text laid out in glyph quads for a bitmap font.
+ *
+ * The layout is cached, and is only computed again when the text, size, font, maximum width or window aspect ratio
+ * changes. Each glyph quad holds its own texture coordinates on the font atlas, so a whole text is drawn with a
+ * single material bind and ends up in a single overlay batch.
+ */
+public class BitmapFontText {
+
+    /**
+     * Number of floats for each glyph, a position, size and texture coordinate rectangle.
+     */
+    private static final int GLYPH_FLOAT_COUNT = 8;
+
+    /**
+     * Font the text is drawn with.
+     */
+    private BitmapFont font;
+
+    /**
+     * Text to draw.
+     */
+    private String text = "";
+
+    /**
+     * Size, or height, of the text in overlay space.
+     */
+    private float size;
+
+    /**
+     * Maximum width of the text in overlay space, the text is scaled down to fit. Zero or less if unlimited.
+     */
+    private float maxWidth = 0.0f;
+
+    /**
+     * Glyph data, a position, size and texture coordinate rectangle for each glyph, relative to the text origin.
+     */
+    private float[] glyphs = new float[0];
+
+    /**
+     * Number of glyphs in the layout.
+     */
+    private int glyphCount = 0;
+
+    /**
+     * Width of the laid out text in overlay space.
+     */
+    private float width = 0.0f;
+
+    /**
+     * Height of the laid out text in overlay space.
+     */
+    private float height = 0.0f;
+
+    /**
+     * Window ratio factor the layout was computed for.
+     */
+    private float layoutWindowRatio = Float.NaN;
+
+    /**
+     * True if the layout must be computed again.
+     */
+    private boolean dirty = true;
+
+    /**
+     * Constructor.
+     *
+     * @param font Font.
+     * @param text Text.
+     * @param size Text size in overlay space.
+     */
+    public BitmapFontText(BitmapFont font, String text, float size) {
+        this.font = font;
+        this.text = text != null ? text : "";
+        this.size = size;
+    }
+
+    /**
+     * Get the font.
+     *
+     * @return Font.
+     */
+    public BitmapFont getFont() {
+        return this.font;
+    }
+
+    /**
+     * Set the font.
+     *
+     * @param font Font.
+     */
+    public void setFont(BitmapFont font) {
+        if(this.font != font) {
+            this.font = font;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Get the text.
+     *
+     * @return Text.
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * Set the text.
+     *
+     * @param text Text.
+     */
+    public void setText(String text) {
+        // Use an empty string instead of null
+        if(text == null)
+            text = "";
+
+        // Update the text if it changed
+        if(!this.text.equals(text)) {
+            this.text = text;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Get the text size.
+     *
+     * @return Text size in overlay space.
+     */
+    public float getSize() {
+        return this.size;
+    }
+
+    /**
+     * Set the text size.
+     *
+     * @param size Text size in overlay space.
+     */
+    public void setSize(float size) {
+        if(this.size != size) {
+            this.size = size;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Get the maximum width.
+     *
+     * @return Maximum width in overlay space, zero or less if unlimited.
+     */
+    public float getMaxWidth() {
+        return this.maxWidth;
+    }
+
+    /**
+     * Set the maximum width. The text is scaled down to fit this width.
+     *
+     * @param maxWidth Maximum width in overlay space, zero or less if unlimited.
+     */
+    public void setMaxWidth(float maxWidth) {
+        if(this.maxWidth != maxWidth) {
+            this.maxWidth = maxWidth;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Get the width of the laid out text.
+     *
+     * @return Width in overlay space.
+     */
+    public float getWidth() {
+        updateLayout();
+        return this.width;
+    }
+
+    /**
+     * Get the height of the laid out text.
+     *
+     * @return Height in overlay space.
+     */
+    public float getHeight() {
+        updateLayout();
+        return this.height;
+    }
+
+    /**
+     * Compute the layout again if anything it depends on has changed.
+     */
+    private void updateLayout() {
+        // Get the window ratio factor, and mark the layout as dirty if it changed
+        final float windowRatio = OverlayUtil.getWindowRatioFactor();
+        if(windowRatio != this.layoutWindowRatio) {
+            this.layoutWindowRatio = windowRatio;
+            this.dirty = true;
+        }
+
+        // Compute the layout if it's dirty
+        if(this.dirty)
+            layout(windowRatio);
+    }
+
+    /**
+     * Lay out the text in glyph quads.
+     *
+     * @param windowRatio Window ratio factor to compensate the glyph widths with.
+     */
+    private void layout(float windowRatio) {
+        // Get the font widths and the number of characters
+        final BitmapFontWidths widths = this.font.getFontWidths();
+        final int length = this.text.length();
+
+        // Make sure the glyph buffer is big enough
+        if(this.glyphs.length < length * GLYPH_FLOAT_COUNT)
+            this.glyphs = new float[length * GLYPH_FLOAT_COUNT];
+
+        // Determine the size, and scale it down if the text doesn't fit the maximum width
+        float size = this.size;
+        final float widthFactor = widths.getStringWidthFactor(this.text);
+        if(this.maxWidth > 0.0f && widthFactor * size / windowRatio > this.maxWidth)
+            size = this.maxWidth * windowRatio / widthFactor;
+
+        // Lay out each character, accumulating the width of the characters before it
+        final float tileFactor = 1.0f / BitmapFont.BITMAP_FONT_TILE_SIZE;
+        float offsetFactor = 0.0f;
+        for(int i = 0; i < length; i++) {
+            // Get the character, its width factor and its tile on the font atlas
+            final char c = this.text.charAt(i);
+            final float charWidthFactor = widths.getCharacterWidthFactor(c);
+            final int charIndex = BitmapFontUtil.getCharIndex(c);
+            final int tileX = charIndex % BitmapFont.BITMAP_FONT_TILE_SIZE;
+            final int tileY = charIndex / BitmapFont.BITMAP_FONT_TILE_SIZE;
+
+            // Determine the texture coordinates, centered horizontally on the tile to the character width
+            final float u0 = (tileX + (1.0f - charWidthFactor) / 2.0f) * tileFactor;
+
+            // Store the glyph position, size and texture coordinates
+            final int g = i * GLYPH_FLOAT_COUNT;
+            this.glyphs[g] = size * offsetFactor / windowRatio;
+            this.glyphs[g + 1] = 0.0f;
+            this.glyphs[g + 2] = size * charWidthFactor / windowRatio;
+            this.glyphs[g + 3] = size;
+            this.glyphs[g + 4] = u0;
+            this.glyphs[g + 5] = tileY * tileFactor;
+            this.glyphs[g + 6] = u0 + charWidthFactor * tileFactor;
+            this.glyphs[g + 7] = (tileY + 1) * tileFactor;
+
+            // Move the offset past this character
+            offsetFactor += charWidthFactor;
+        }
+
+        // Store the glyph count and text dimensions
+        this.glyphCount = length;
+        this.width = size * offsetFactor / windowRatio;
+        this.height = length > 0 ? size : 0.0f;
+        this.dirty = false;
+    }
+
+    /**
+     * Draw the text at the given position.
+     *
+     * @param x X position of the bottom left of the text, in overlay space.
+     * @param y Y position of the bottom left of the text, in overlay space.
+     * @param color Text color.
+     */
+    public void draw(float x, float y, Color color) {
+        // Update the layout if required
+        updateLayout();
+
+        // Make sure there is anything to draw
+        if(this.glyphCount == 0)
+            return;
+
+        // Bind the font material
+        final BitmapFontMaterial material = this.font.getMaterial();
+        RenderOverlayHelper.bindMaterial(material);
+
+        // Add the glyph quads to the overlay batch
+        final float r = color.getRed();
+        final float g = color.getGreen();
+        final float b = color.getBlue();
+        final float a = color.getAlpha();
+        for(int i = 0; i < this.glyphCount; i++) {
+            final int o = i * GLYPH_FLOAT_COUNT;
+            OverlayBatcher.addQuad(
+                    x + this.glyphs[o], y + this.glyphs[o + 1], this.glyphs[o + 2], this.glyphs[o + 3],
+                    this.glyphs[o + 4], this.glyphs[o + 5], this.glyphs[o + 6], this.glyphs[o + 7],
+                    r, g, b, a
+            );
+        }
+
+        // Unbind the material, which draws the batched glyphs
+        RenderOverlayHelper.unbindMaterial(material);
+    }
+}
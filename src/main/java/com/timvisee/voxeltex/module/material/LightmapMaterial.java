@@ -0,0 +1,59 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.material;
+
+import com.timvisee.voxeltex.engine.render.lightmap.Lightmap;
+import com.timvisee.voxeltex.module.shader.ShaderManager;
+
+/**
+ * Material for geometry with baked lighting.
+ * It draws the texture of a base material with the lightmapped shader, which reads the diffuse lighting from a lightmap.
+ */
+public class LightmapMaterial extends Material {
+
+    /**
+     * Lightmap holding the baked lighting.
+     */
+    private final Lightmap lightmap;
+
+    /**
+     * Constructor.
+     *
+     * @param base Material to take the texture, normal and tiling from.
+     * @param lightmap Lightmap holding the baked lighting.
+     */
+    public LightmapMaterial(Material base, Lightmap lightmap) {
+        super(ShaderManager.SHADER_DEFAULT_LIGHTMAPPED, base.getTexture(), base.getNormal());
+        setTiling(base.getTiling());
+        this.lightmap = lightmap;
+    }
+
+    /**
+     * Get the lightmap holding the baked lighting.
+     *
+     * @return Lightmap.
+     */
+    public Lightmap getLightmap() {
+        return this.lightmap;
+    }
+}
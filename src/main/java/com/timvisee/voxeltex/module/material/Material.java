@@ -30,8 +30,20 @@ import com.timvisee.voxeltex.util.math.vector.Vector2fFactory;
 import org.joml.Vector2f;
 import org.lwjgl.opengl.GL13;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Material implements MaterialInterface {
 
+    /**
+     * Counter used to assign a unique ID to each material.
+     */
+    private static final AtomicInteger idCounter = new AtomicInteger(1);
+
+    /**
+     * Unique material ID, used to identify and sort materials when rendering.
+     */
+    private final int id = idCounter.getAndIncrement();
+
     /**
      * Material shader.
      */
@@ -93,6 +105,15 @@ public class Material implements MaterialInterface {
         this(ShaderManager.SHADER_DEFAULT_TEXTURED, texture, null);
     }
 
+    /**
+     * Get the unique ID of this material.
+     *
+     * @return Material ID.
+     */
+    public int getId() {
+        return this.id;
+    }
+
     @Override
     public Shader getShader() {
         return shader;
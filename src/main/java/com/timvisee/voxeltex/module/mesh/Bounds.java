@@ -0,0 +1,197 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.mesh;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * Bounding volume, consisting of an axis aligned bounding box and a bounding sphere.
+ */
+public class Bounds {
+
+    /**
+     * Minimum corner of the bounding box.
+     */
+    private final Vector3f min = new Vector3f();
+
+    /**
+     * Maximum corner of the bounding box.
+     */
+    private final Vector3f max = new Vector3f();
+
+    /**
+     * Center of the bounding sphere.
+     */
+    private final Vector3f center = new Vector3f();
+
+    /**
+     * Radius of the bounding sphere.
+     */
+    private float radius = 0.0f;
+
+    /**
+     * Constructor.
+     */
+    public Bounds() { }
+
+    /**
+     * Constructor.
+     *
+     * @param min Minimum corner of the bounding box.
+     * @param max Maximum corner of the bounding box.
+     */
+    public Bounds(Vector3f min, Vector3f max) {
+        set(min, max);
+    }
+
+    /**
+     * Get the minimum corner of the bounding box.
+     *
+     * @return Minimum corner.
+     */
+    public Vector3f getMin() {
+        return this.min;
+    }
+
+    /**
+     * Get the maximum corner of the bounding box.
+     *
+     * @return Maximum corner.
+     */
+    public Vector3f getMax() {
+        return this.max;
+    }
+
+    /**
+     * Get the center of the bounding sphere.
+     *
+     * @return Sphere center.
+     */
+    public Vector3f getCenter() {
+        return this.center;
+    }
+
+    /**
+     * Get the radius of the bounding sphere.
+     *
+     * @return Sphere radius.
+     */
+    public float getRadius() {
+        return this.radius;
+    }
+
+    /**
+     * Set the bounds to the given bounding box, with a bounding sphere around it.
+     *
+     * @param min Minimum corner of the bounding box.
+     * @param max Maximum corner of the bounding box.
+     *
+     * @return This instance.
+     */
+    public Bounds set(Vector3f min, Vector3f max) {
+        this.min.set(min);
+        this.max.set(max);
+        this.min.add(this.max, this.center).mul(0.5f);
+        this.radius = this.center.distance(this.max);
+        return this;
+    }
+
+    /**
+     * Copy the given bounds.
+     *
+     * @param bounds Bounds to copy.
+     *
+     * @return This instance.
+     */
+    public Bounds set(Bounds bounds) {
+        this.min.set(bounds.min);
+        this.max.set(bounds.max);
+        this.center.set(bounds.center);
+        this.radius = bounds.radius;
+        return this;
+    }
+
+    /**
+     * Set the bounds to enclose the given vertex positions.
+     * The bounding sphere is centered on the bounding box, with a radius that fits the farthest vertex.
+     *
+     * @param vertexes Vertex positions, three axis per vertex.
+     *
+     * @return This instance.
+     */
+    public Bounds setFromVertexes(float[] vertexes) {
+        // Reset the bounds if there are no vertexes
+        if(vertexes.length < RawMesh.VERTEX_AXIS_COUNT) {
+            this.min.zero();
+            this.max.zero();
+            this.center.zero();
+            this.radius = 0.0f;
+            return this;
+        }
+
+        // Determine the bounding box
+        this.min.set(Float.POSITIVE_INFINITY);
+        this.max.set(Float.NEGATIVE_INFINITY);
+        for(int i = 0; i + 2 < vertexes.length; i += RawMesh.VERTEX_AXIS_COUNT) {
+            this.min.set(Math.min(this.min.x, vertexes[i]), Math.min(this.min.y, vertexes[i + 1]), Math.min(this.min.z, vertexes[i + 2]));
+            this.max.set(Math.max(this.max.x, vertexes[i]), Math.max(this.max.y, vertexes[i + 1]), Math.max(this.max.z, vertexes[i + 2]));
+        }
+
+        // Center the sphere on the box, and fit its radius to the farthest vertex
+        this.min.add(this.max, this.center).mul(0.5f);
+        float radiusSquared = 0.0f;
+        for(int i = 0; i + 2 < vertexes.length; i += RawMesh.VERTEX_AXIS_COUNT)
+            radiusSquared = Math.max(radiusSquared, this.center.distanceSquared(vertexes[i], vertexes[i + 1], vertexes[i + 2]));
+        this.radius = (float) Math.sqrt(radiusSquared);
+        return this;
+    }
+
+    /**
+     * Transform these bounds with the given matrix.
+     * The resulting bounding box encloses the transformed box, and the sphere is scaled by the largest axis scale.
+     *
+     * @param matrix Transformation matrix.
+     * @param dest Destination bounds, may be this instance.
+     *
+     * @return Destination bounds.
+     */
+    public Bounds transform(Matrix4f matrix, Bounds dest) {
+        // Transform the sphere, scaled by the largest scale of the matrix axes
+        final float scaleX = matrix.m00() * matrix.m00() + matrix.m01() * matrix.m01() + matrix.m02() * matrix.m02();
+        final float scaleY = matrix.m10() * matrix.m10() + matrix.m11() * matrix.m11() + matrix.m12() * matrix.m12();
+        final float scaleZ = matrix.m20() * matrix.m20() + matrix.m21() * matrix.m21() + matrix.m22() * matrix.m22();
+        final float radius = this.radius * (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+        matrix.transformPosition(this.center.x, this.center.y, this.center.z, dest.center);
+        dest.radius = radius;
+
+        // Transform the bounding box
+        matrix.transformAab(this.min.x, this.min.y, this.min.z, this.max.x, this.max.y, this.max.z, dest.min, dest.max);
+        return dest;
+    }
+
+    @Override
+    public String toString() {
+        return "Bounds[min=" + this.min + ", max=" + this.max + ", center=" + this.center + ", radius=" + this.radius + "]";
+    }
+}
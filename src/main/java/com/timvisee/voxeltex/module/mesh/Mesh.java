@@ -24,61 +24,73 @@ package com.timvisee.voxeltex.module.mesh;
 
 import com.timvisee.voxeltex.module.material.Material;
 import com.timvisee.voxeltex.module.model.RawModel;
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
 
 import java.nio.FloatBuffer;
-
-import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
-import static org.lwjgl.opengl.GL15.glBindBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 public class Mesh {
 
+    /**
+     * Maximum number of vertexes a mesh may have to store its indices as 16-bit values.
+     */
+    private static final int MAX_SHORT_INDEX_VERTEX_COUNT = 0xFFFF + 1;
+
     /**
      * The raw mesh object containing the vertexes data.
      */
     private RawMesh raw;
 
+    /**
+     * Vertex format the mesh is buffered in, or null to derive the format from the raw mesh.
+     */
+    private VertexFormat format;
+
     /**
      * The number of vertexes in the buffered mesh.
      */
     private int vertexCount;
 
     /**
-     * The number of normals in the buffered mesh.
+     * The number of indices in the buffered mesh, zero if the mesh isn't indexed.
      */
-    private int normalCount;
+    private int indexCount;
 
     /**
-     * Vertex buffer.
+     * OpenGL type of the buffered indices, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT.
      */
-    private FloatBuffer vertexBuffer;
+    private int indexType;
 
     /**
-     * Vertex buffer.
+     * Interleaved vertex buffer.
      */
-    private FloatBuffer normalBuffer;
+    private FloatBuffer vertexBuffer;
 
     /**
-     * Texture buffer.
+     * Vertex array object handle, which stores the vertex layout.
      */
-    private FloatBuffer textureBuffer;
+    private int vaoHandle = 0;
 
     /**
-     * VBO vertex buffer handle.
+     * VBO handle of the interleaved vertex buffer.
      */
-    private int vboVertexHandle = 0;
+    private int vboHandle = 0;
 
     /**
-     * VBO normal buffer handle.
+     * Element buffer handle of the indices, zero if the mesh isn't indexed.
      */
-    private int vboNormalHandle = 0;
+    private int eboHandle = 0;
 
     /**
-     * VBO texture buffer handle.
+     * Bounds of the mesh in local space.
      */
-    private int vboTextureHandle = 0;
+    private final Bounds bounds = new Bounds();
 
     /**
      * Constructor.
@@ -86,8 +98,19 @@ public class Mesh {
      * @param raw Raw mesh.
      */
     public Mesh(RawMesh raw) {
-        // Set the raw mesh
+        this(raw, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param raw Raw mesh.
+     * @param format Vertex format to buffer the mesh in, or null to derive the format from the raw mesh.
+     */
+    public Mesh(RawMesh raw, VertexFormat format) {
+        // Set the raw mesh and format
         this.raw = raw;
+        this.format = format;
 
         // Buffer the mesh
         bufferMesh();
@@ -99,11 +122,7 @@ public class Mesh {
      * @param raw Raw model.
      */
     public Mesh(RawModel raw) {
-        // Set the raw mesh
-        this.raw = raw.toRawMesh();
-
-        // Buffer the mesh
-        bufferMesh();
+        this(raw.toRawMesh());
     }
 
     /**
@@ -116,7 +135,16 @@ public class Mesh {
     }
 
     /**
-     * Get the vertex buffer.
+     * Get the vertex format the mesh is buffered in.
+     *
+     * @return Vertex format.
+     */
+    public VertexFormat getVertexFormat() {
+        return this.format;
+    }
+
+    /**
+     * Get the interleaved vertex buffer.
      *
      * @return Vertex buffer.
      */
@@ -125,39 +153,66 @@ public class Mesh {
     }
 
     /**
-     * Get the normal buffer.
+     * Get the vertex array object handle.
      *
-     * @return Normal buffer.
+     * @return Vertex array object handle.
      */
-    public FloatBuffer getNormalBuffer() {
-        return normalBuffer;
+    public int getVaoHandle() {
+        return vaoHandle;
     }
 
     /**
-     * Get the texture buffer.
+     * Get the VBO handle of the interleaved vertex buffer.
      *
-     * @return Texture buffer.
+     * @return VBO handle.
      */
-    public FloatBuffer getTextureBuffer() {
-        return textureBuffer;
+    public int getVboHandle() {
+        return vboHandle;
     }
 
     /**
-     * Get the VBO vertex buffer handle.
+     * Get the number of vertexes in the buffered mesh.
      *
-     * @return VBO vertex buffer handle.
+     * @return Vertex count.
      */
-    public int getVboVertexHandle() {
-        return vboVertexHandle;
+    public int getVertexCount() {
+        return this.vertexCount;
     }
 
     /**
-     * Get the VBO texture buffer handle.
+     * Get the element buffer handle of the indices.
      *
-     * @return VBO texture buffer handle.
+     * @return Element buffer handle, zero if the mesh isn't indexed.
      */
-    public int getVboTextureHandle() {
-        return vboTextureHandle;
+    public int getEboHandle() {
+        return eboHandle;
+    }
+
+    /**
+     * Get the number of indices in the buffered mesh.
+     *
+     * @return Index count, zero if the mesh isn't indexed.
+     */
+    public int getIndexCount() {
+        return this.indexCount;
+    }
+
+    /**
+     * Check whether the buffered mesh is indexed.
+     *
+     * @return True if the mesh is drawn using indices, false if not.
+     */
+    public boolean isIndexed() {
+        return this.eboHandle > 0;
+    }
+
+    /**
+     * Get the OpenGL type of the buffered indices.
+     *
+     * @return GL_UNSIGNED_SHORT or GL_UNSIGNED_INT.
+     */
+    public int getIndexType() {
+        return this.indexType;
     }
 
     /**
@@ -166,23 +221,32 @@ public class Mesh {
      * @return True if this mesh has normal data, false if not.
      */
     public boolean hasNormalData() {
-        // Determine the result based on the stored buffers if data has been buffered
+        // Determine the result based on the vertex format if data has been buffered
         if(isBuffered())
-            return this.vboNormalHandle > 0;
+            return this.format.hasUsage(VertexAttribute.USAGE_NORMAL);
 
         // The mesh isn't buffered, determine the result based on the raw mesh
         return this.raw.hasNormalData();
     }
 
+    /**
+     * Get the bounds of the mesh in local space.
+     *
+     * @return Local bounds.
+     */
+    public Bounds getBounds() {
+        return this.bounds;
+    }
+
     /**
      * Check whether this mesh has any texture data.
      *
      * @return True if this mesh has texture data, false if not.
      */
     public boolean hasTextureData() {
-        // Determine the result based on the stored buffers if data has been buffered
+        // Determine the result based on the vertex format if data has been buffered
         if(isBuffered())
-            return this.vboTextureHandle > 0;
+            return this.format.hasUsage(VertexAttribute.USAGE_TEXTURE);
 
         // The mesh isn't buffered, determine the result based on the raw mesh
         return this.raw.hasTextureData();
@@ -194,55 +258,84 @@ public class Mesh {
      * @return True if this mash is buffered, false if not.
      */
     public boolean isBuffered() {
-        return this.vboVertexHandle > 0;
+        return this.vaoHandle > 0;
     }
 
     /**
      * Build and buffer the mesh on the graphics card.
+     * The raw mesh data is interleaved into a single buffer, and its layout is stored in a vertex array object.
      */
     public void bufferMesh() {
-        // Create a flipped float buffer for the vertexes
-        this.vertexBuffer = BufferUtils.createFloatBuffer(this.raw.getVertexCount() * this.raw.getVertexAxisCount());
-        this.vertexBuffer.put(this.raw.getVertexes());
-        this.vertexBuffer.flip();
-
-        // Create a VBO handle for the vertexes and bind the buffer
-        vboVertexHandle = GL15.glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, this.vboVertexHandle);
-        GL15.glBufferData(GL_ARRAY_BUFFER, this.vertexBuffer, GL15.GL_STATIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-
-        // Buffer the normal data if the mesh has any configured
-        if(this.raw.hasNormalData()) {
-            // Create a flipped float buffer for the normal coordinates
-            this.normalBuffer = BufferUtils.createFloatBuffer(this.raw.getNormalCount() * this.raw.getNormalAxisCount());
-            this.normalBuffer.put(this.raw.getNormals());
-            this.normalBuffer.flip();
-
-            // Create a VBO handle for the normal coordinates and bind the buffer
-            vboNormalHandle = GL15.glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, this.vboNormalHandle);
-            GL15.glBufferData(GL_ARRAY_BUFFER, this.normalBuffer, GL15.GL_STATIC_DRAW);
-            glBindBuffer(GL_ARRAY_BUFFER, 0);
-        }
+        // Derive the vertex format from the raw mesh if none is configured
+        if(this.format == null)
+            this.format = VertexFormat.fromRawMesh(this.raw);
 
-        // Buffer the texture data if the mesh has any configured
-        if(this.raw.hasTextureData()) {
-            // Create a flipped float buffer for the texture coordinates
-            this.textureBuffer = BufferUtils.createFloatBuffer(this.raw.getVertexCount() * this.raw.getTextureAxisCount());
-            this.textureBuffer.put(this.raw.getTextures());
-            this.textureBuffer.flip();
-
-            // Create a VBO handle for the texture coordinates and bind the buffer
-            vboTextureHandle = GL15.glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, this.vboTextureHandle);
-            GL15.glBufferData(GL_ARRAY_BUFFER, this.textureBuffer, GL15.GL_STATIC_DRAW);
-            glBindBuffer(GL_ARRAY_BUFFER, 0);
-        }
+        // Interleave the raw mesh data into a flipped buffer
+        this.vertexBuffer = this.format.interleave(this.raw);
+
+        // Create and bind the vertex array object
+        this.vaoHandle = GL30.glGenVertexArrays();
+        RenderStateTracker.bindVertexArray(this.vaoHandle);
+
+        // Create a VBO handle for the interleaved data and buffer it
+        this.vboHandle = GL15.glGenBuffers();
+        RenderStateTracker.bindArrayBuffer(this.vboHandle);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, this.vertexBuffer, GL15.GL_STATIC_DRAW);
 
-        // Set the number of vertexes and normals
+        // Configure the vertex layout, which is stored in the vertex array object
+        this.format.enableAttributes();
+
+        // Buffer the indices if the mesh is indexed, the element buffer binding is stored in the vertex array object
+        if(this.raw.hasIndexData())
+            bufferIndices();
+
+        // Unbind the vertex array object and buffer
+        RenderStateTracker.bindVertexArray(0);
+        RenderStateTracker.bindArrayBuffer(0);
+
+        // Set the number of vertexes
         this.vertexCount = this.raw.getVertexCount();
-        this.normalCount = this.raw.getNormalCount();
+
+        // Compute the local bounds of the mesh
+        this.bounds.setFromVertexes(this.raw.getVertexes());
+    }
+
+    /**
+     * Buffer the indices of the raw mesh in an element buffer, while the vertex array object is bound.
+     * Indices are stored as 16-bit values if all vertexes can be addressed, and as 32-bit values otherwise.
+     */
+    private void bufferIndices() {
+        // Get the indices
+        final int[] indices = this.raw.getIndices();
+
+        // Create and bind the element buffer
+        this.eboHandle = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, this.eboHandle);
+
+        // Buffer the indices with the smallest type that fits
+        if(this.raw.getVertexCount() <= MAX_SHORT_INDEX_VERTEX_COUNT) {
+            // Pack the indices into 16-bit values
+            ShortBuffer indexBuffer = BufferUtils.createShortBuffer(indices.length);
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0; i < indices.length; i++)
+                indexBuffer.put((short) indices[i]);
+            indexBuffer.flip();
+
+            // Buffer the indices
+            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL15.GL_STATIC_DRAW);
+            this.indexType = GL11.GL_UNSIGNED_SHORT;
+
+        } else {
+            // Buffer the indices as 32-bit values
+            IntBuffer indexBuffer = BufferUtils.createIntBuffer(indices.length);
+            indexBuffer.put(indices);
+            indexBuffer.flip();
+            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL15.GL_STATIC_DRAW);
+            this.indexType = GL11.GL_UNSIGNED_INT;
+        }
+
+        // Set the number of indices
+        this.indexCount = indices.length;
     }
 
     /**
@@ -260,75 +353,87 @@ public class Mesh {
      * Clear the buffers for this mesh on the graphics card.
      */
     public void clearMeshBuffer() {
-        // Delete data from old buffers if available
+        // Delete data from the old buffer if available
         if(this.vertexBuffer != null)
             this.vertexBuffer.clear();
-        if(this.normalBuffer != null)
-            this.normalBuffer.clear();
-        if(this.textureBuffer != null)
-            this.textureBuffer.clear();
-
-        // Reset the buffer instances
         this.vertexBuffer = null;
-        this.normalBuffer = null;
-        this.textureBuffer = null;
-
-        // Clear old VBO buffers
-        if(this.vboVertexHandle != 0)
-            GL15.glDeleteBuffers(this.vboVertexHandle);
-        if(this.vboNormalHandle != 0)
-            GL15.glDeleteBuffers(this.vboNormalHandle);
-        if(this.vboTextureHandle != 0)
-            GL15.glDeleteBuffers(this.vboTextureHandle);
-
-        // Reset the VBO handles
-        this.vboVertexHandle = 0;
-        this.vboNormalHandle = 0;
-        this.vboTextureHandle = 0;
-
-        // Reset the vertex and normal count
+
+        // Clear the old vertex array object and VBO buffer
+        if(this.vaoHandle != 0) {
+            GL30.glDeleteVertexArrays(this.vaoHandle);
+            RenderStateTracker.forgetVertexArray(this.vaoHandle);
+        }
+        if(this.vboHandle != 0) {
+            GL15.glDeleteBuffers(this.vboHandle);
+            RenderStateTracker.forgetBuffer(this.vboHandle);
+        }
+        if(this.eboHandle != 0)
+            GL15.glDeleteBuffers(this.eboHandle);
+
+        // Reset the handles
+        this.vaoHandle = 0;
+        this.vboHandle = 0;
+        this.eboHandle = 0;
+
+        // Reset the vertex and index count
         this.vertexCount = 0;
-        this.normalCount = 0;
+        this.indexCount = 0;
     }
 
     /**
      * Render or draw the mesh using OpenGL.
+     * This binds the mesh, draws it and unbinds it again.
+     *
+     * @param material Material the mesh is drawn with.
      */
     public void draw(Material material) {
-        // Bind the vertex buffer
-        glBindBuffer(GL_ARRAY_BUFFER, vboVertexHandle);
-        GL11.glVertexPointer(this.raw.getVertexAxisCount(), GL11.GL_FLOAT, 0, 0L);
-
-        // Bind the normal coordinate buffer if available
-        if(hasNormalData()) {
-            glBindBuffer(GL_ARRAY_BUFFER, vboNormalHandle);
-            GL11.glNormalPointer(GL11.GL_FLOAT, 0, 0L);
-        }
+        // Bind the mesh
+        bind();
 
-        // Bind the texture coordinate buffer if available
-        if(hasTextureData()) {
-            glBindBuffer(GL_ARRAY_BUFFER, vboTextureHandle);
-            GL11.glTexCoordPointer(this.raw.getTextureAxisCount(), GL11.GL_FLOAT, 0, 0L);
-        }
+        // Draw the mesh
+        drawBuffered();
 
-        // Enable the client states for the buffers that were bound
-        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
-        if(hasNormalData())
-            GL11.glEnableClientState(GL11.GL_NORMAL_ARRAY);
-        if(hasTextureData())
-            GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        // Unbind the mesh
+        unbind();
+    }
 
-        // Draw the mesh
-        GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, this.vertexCount);
+    /**
+     * Bind the vertex array object of this mesh, so it can be drawn using {@link #drawBuffered()}.
+     * The mesh may stay bound to draw it multiple times, without binding it again.
+     */
+    public void bind() {
+        RenderStateTracker.bindVertexArray(this.vaoHandle);
+    }
 
-        // Disable the client used states
-        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
-        if(hasNormalData())
-            GL11.glDisableClientState(GL11.GL_NORMAL_ARRAY);
-        if(hasTextureData())
-            GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+    /**
+     * Draw the mesh, assuming it has been bound using {@link #bind()}.
+     */
+    public void drawBuffered() {
+        // Draw the indexed triangles if the mesh is indexed, draw the vertexes in order otherwise
+        if(isIndexed())
+            GL11.glDrawElements(GL11.GL_TRIANGLES, this.indexCount, this.indexType, 0L);
+        else
+            GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, this.vertexCount);
+    }
+
+    /**
+     * Draw multiple instances of the mesh, assuming it has been bound using {@link #bind()}.
+     * The per-instance attributes must be configured before drawing.
+     *
+     * @param instanceCount Number of instances to draw.
+     */
+    public void drawBufferedInstanced(int instanceCount) {
+        // Draw the indexed triangles if the mesh is indexed, draw the vertexes in order otherwise
+        if(isIndexed())
+            GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, this.indexCount, this.indexType, 0L, instanceCount);
+        else
+            GL31.glDrawArraysInstanced(GL11.GL_TRIANGLES, 0, this.vertexCount, instanceCount);
+    }
 
-        // Unbind all buffers
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    /**
+     * Unbind the vertex array object of this mesh after it has been drawn.
+     */
+    public void unbind() {
+        RenderStateTracker.bindVertexArray(0);
     }
 }
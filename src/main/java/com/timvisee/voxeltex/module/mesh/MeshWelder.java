@@ -0,0 +1,169 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.mesh;
+
+import java.util.Arrays;
+
+public class MeshWelder {
+
+    /**
+     * Value used for empty slots in the hash table.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Weld the given raw mesh.
+     * Vertexes are hashed by their position, normal and texture coordinates, and vertexes with identical data
+     * are merged into a single vertex that is referenced through indices. The given mesh may be indexed already.
+     *
+     * @param raw Raw mesh to weld.
+     *
+     * @return Welded, indexed raw mesh.
+     */
+    public static RawMesh weld(RawMesh raw) {
+        // Get the source data
+        final float[] vertexes = raw.getVertexes();
+        final float[] normals = raw.getNormals();
+        final float[] textures = raw.getTextures();
+        final boolean hasNormals = raw.hasNormalData();
+        final boolean hasTextures = raw.hasTextureData();
+        final int elementCount = raw.getElementCount();
+
+        // Create the welded data arrays, which are sized for the worst case and trimmed afterwards
+        final float[] weldedVertexes = new float[elementCount * RawMesh.VERTEX_AXIS_COUNT];
+        final float[] weldedNormals = new float[hasNormals ? elementCount * RawMesh.NORMAL_AXIS_COUNT : 0];
+        final float[] weldedTextures = new float[hasTextures ? elementCount * RawMesh.TEXTURE_AXIS_COUNT : 0];
+        final int[] indices = new int[elementCount];
+        int uniqueCount = 0;
+
+        // Create an open addressing hash table, mapping vertex data to welded vertex indices
+        int tableSize = Integer.highestOneBit(Math.max(elementCount, 1) * 2) * 2;
+        final int[] table = new int[tableSize];
+        Arrays.fill(table, EMPTY);
+        final int tableMask = tableSize - 1;
+
+        // Weld each element
+        for(int element = 0; element < elementCount; element++) {
+            // Get the source vertex
+            final int vertex = raw.getElementVertex(element);
+
+            // Hash the vertex data
+            int hash = hashVertex(vertexes, vertex * RawMesh.VERTEX_AXIS_COUNT, RawMesh.VERTEX_AXIS_COUNT, 17);
+            if(hasNormals)
+                hash = hashVertex(normals, vertex * RawMesh.NORMAL_AXIS_COUNT, RawMesh.NORMAL_AXIS_COUNT, hash);
+            if(hasTextures)
+                hash = hashVertex(textures, vertex * RawMesh.TEXTURE_AXIS_COUNT, RawMesh.TEXTURE_AXIS_COUNT, hash);
+
+            // Find a welded vertex with identical data, or an empty slot
+            int slot = mix(hash) & tableMask;
+            while(table[slot] != EMPTY) {
+                final int candidate = table[slot];
+                if(equals(vertexes, vertex * RawMesh.VERTEX_AXIS_COUNT, weldedVertexes, candidate * RawMesh.VERTEX_AXIS_COUNT, RawMesh.VERTEX_AXIS_COUNT)
+                        && (!hasNormals || equals(normals, vertex * RawMesh.NORMAL_AXIS_COUNT, weldedNormals, candidate * RawMesh.NORMAL_AXIS_COUNT, RawMesh.NORMAL_AXIS_COUNT))
+                        && (!hasTextures || equals(textures, vertex * RawMesh.TEXTURE_AXIS_COUNT, weldedTextures, candidate * RawMesh.TEXTURE_AXIS_COUNT, RawMesh.TEXTURE_AXIS_COUNT)))
+                    break;
+                slot = (slot + 1) & tableMask;
+            }
+
+            // Add the vertex if no identical vertex was found
+            if(table[slot] == EMPTY) {
+                System.arraycopy(vertexes, vertex * RawMesh.VERTEX_AXIS_COUNT, weldedVertexes, uniqueCount * RawMesh.VERTEX_AXIS_COUNT, RawMesh.VERTEX_AXIS_COUNT);
+                if(hasNormals)
+                    System.arraycopy(normals, vertex * RawMesh.NORMAL_AXIS_COUNT, weldedNormals, uniqueCount * RawMesh.NORMAL_AXIS_COUNT, RawMesh.NORMAL_AXIS_COUNT);
+                if(hasTextures)
+                    System.arraycopy(textures, vertex * RawMesh.TEXTURE_AXIS_COUNT, weldedTextures, uniqueCount * RawMesh.TEXTURE_AXIS_COUNT, RawMesh.TEXTURE_AXIS_COUNT);
+                table[slot] = uniqueCount++;
+            }
+
+            // Reference the welded vertex
+            indices[element] = table[slot];
+        }
+
+        // Trim the arrays, and create the welded raw mesh
+        return new RawMesh(
+                Arrays.copyOf(weldedVertexes, uniqueCount * RawMesh.VERTEX_AXIS_COUNT),
+                hasNormals ? Arrays.copyOf(weldedNormals, uniqueCount * RawMesh.NORMAL_AXIS_COUNT) : new float[0],
+                hasTextures ? Arrays.copyOf(weldedTextures, uniqueCount * RawMesh.TEXTURE_AXIS_COUNT) : new float[0],
+                indices
+        );
+    }
+
+    /**
+     * Combine the hash of a vertex attribute with the given hash.
+     *
+     * @param data Attribute data.
+     * @param offset Offset of the attribute in the data.
+     * @param count Number of components.
+     * @param hash Hash to combine with.
+     *
+     * @return Combined hash.
+     */
+    private static int hashVertex(float[] data, int offset, int count, int hash) {
+        for(int i = 0; i < count; i++)
+            hash = hash * 31 + floatBits(data[offset + i]);
+        return hash;
+    }
+
+    /**
+     * Get the bits of a float value, treating negative and positive zero as equal.
+     *
+     * @param value Float value.
+     *
+     * @return Float bits.
+     */
+    private static int floatBits(float value) {
+        return value == 0.0f ? 0 : Float.floatToIntBits(value);
+    }
+
+    /**
+     * Mix the bits of a hash, to spread similar hashes over the hash table.
+     *
+     * @param hash Hash.
+     *
+     * @return Mixed hash.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /**
+     * Check whether two attributes are equal.
+     *
+     * @param a First data array.
+     * @param offsetA Offset of the attribute in the first array.
+     * @param b Second data array.
+     * @param offsetB Offset of the attribute in the second array.
+     * @param count Number of components.
+     *
+     * @return True if equal, false if not.
+     */
+    private static boolean equals(float[] a, int offsetA, float[] b, int offsetB, int count) {
+        for(int i = 0; i < count; i++)
+            if(floatBits(a[offsetA + i]) != floatBits(b[offsetB + i]))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,257 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.mesh;
+
+import com.timvisee.voxeltex.module.mesh.generator.CubeMeshGenerator;
+import com.timvisee.voxeltex.module.mesh.generator.QuadMeshGenerator;
+import com.timvisee.voxeltex.util.math.vector.Vector3fFactory;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Reference counted cache of generated primitive meshes.
+ *
+ * Primitives with the same generator parameters share a single mesh, so they're generated and buffered on the
+ * graphics card only once. Every mesh acquired from the cache must be released again when it's no longer used, the
+ * buffers of a mesh are cleared when its last user releases it. Shared meshes must not be modified.
+ */
+public class PrimitiveMeshCache {
+
+    /**
+     * Primitive type of cube meshes.
+     */
+    private static final int TYPE_CUBE = 1;
+
+    /**
+     * Primitive type of quad meshes.
+     */
+    private static final int TYPE_QUAD = 2;
+
+    /**
+     * Cached meshes by their generator parameters.
+     */
+    private static final Map<Key, Entry> entries = new HashMap<>();
+
+    /**
+     * Cached meshes by mesh instance, used to release them.
+     */
+    private static final Map<Mesh, Entry> meshEntries = new IdentityHashMap<>();
+
+    /**
+     * Acquire a cube mesh with the given size, centered on the origin.
+     *
+     * @param size Cube size.
+     *
+     * @return Shared cube mesh.
+     */
+    public static Mesh acquireCube(Vector3f size) {
+        return acquireCube(size, Vector3fFactory.zero());
+    }
+
+    /**
+     * Acquire a cube mesh with the given size and offset.
+     *
+     * @param size Cube size.
+     * @param offset Cube offset.
+     *
+     * @return Shared cube mesh.
+     */
+    public static synchronized Mesh acquireCube(Vector3f size, Vector3f offset) {
+        // Get the cached entry, or generate the mesh
+        final Key key = new Key(TYPE_CUBE, size.x, size.y, size.z, offset.x, offset.y, offset.z);
+        Entry entry = entries.get(key);
+        if(entry == null)
+            entry = add(key, new CubeMeshGenerator(new Vector3f(size), new Vector3f(offset)).createMesh());
+
+        // Add a reference and return the mesh
+        entry.references++;
+        return entry.mesh;
+    }
+
+    /**
+     * Acquire a quad mesh with the given orientation and size, centered on the origin.
+     *
+     * @param orientation Quad orientation, as defined in {@link QuadMeshGenerator}.
+     * @param size Quad size.
+     *
+     * @return Shared quad mesh.
+     */
+    public static Mesh acquireQuad(int orientation, Vector2f size) {
+        return acquireQuad(orientation, size, Vector3fFactory.zero());
+    }
+
+    /**
+     * Acquire a quad mesh with the given orientation, size and offset.
+     *
+     * @param orientation Quad orientation, as defined in {@link QuadMeshGenerator}.
+     * @param size Quad size.
+     * @param offset Quad offset.
+     *
+     * @return Shared quad mesh.
+     */
+    public static synchronized Mesh acquireQuad(int orientation, Vector2f size, Vector3f offset) {
+        // Get the cached entry, or generate the mesh
+        final Key key = new Key(TYPE_QUAD, orientation, size.x, size.y, offset.x, offset.y, offset.z);
+        Entry entry = entries.get(key);
+        if(entry == null)
+            entry = add(key, new QuadMeshGenerator(orientation, new Vector2f(size), new Vector3f(offset)).createMesh());
+
+        // Add a reference and return the mesh
+        entry.references++;
+        return entry.mesh;
+    }
+
+    /**
+     * Release a mesh that was acquired from this cache.
+     * The buffers of the mesh are cleared if this was the last reference.
+     *
+     * @param mesh Mesh to release.
+     */
+    public static synchronized void release(Mesh mesh) {
+        // Get the entry of the mesh
+        final Entry entry = meshEntries.get(mesh);
+        if(entry == null)
+            throw new RuntimeException("Released mesh isn't acquired from the primitive mesh cache");
+
+        // Remove the reference, and keep the mesh while it's still in use
+        if(--entry.references > 0)
+            return;
+
+        // Remove the entry and clear the mesh buffers
+        entries.remove(entry.key);
+        meshEntries.remove(mesh);
+        mesh.clearMeshBuffer();
+    }
+
+    /**
+     * Get the number of references to the given mesh.
+     *
+     * @param mesh Mesh.
+     *
+     * @return Reference count, or zero if the mesh isn't in this cache.
+     */
+    public static synchronized int getReferenceCount(Mesh mesh) {
+        final Entry entry = meshEntries.get(mesh);
+        return entry != null ? entry.references : 0;
+    }
+
+    /**
+     * Get the number of distinct meshes in the cache.
+     *
+     * @return Mesh count.
+     */
+    public static synchronized int getMeshCount() {
+        return entries.size();
+    }
+
+    /**
+     * Add a generated mesh to the cache, without any references.
+     *
+     * @param key Generator parameters key.
+     * @param mesh Generated mesh.
+     *
+     * @return Cache entry.
+     */
+    private static Entry add(Key key, Mesh mesh) {
+        final Entry entry = new Entry(key, mesh);
+        entries.put(key, entry);
+        meshEntries.put(mesh, entry);
+        return entry;
+    }
+
+    /**
+     * Key of a cached mesh, consisting of the primitive type and its generator parameters.
+     */
+    private static final class Key {
+
+        /**
+         * Primitive type.
+         */
+        private final int type;
+
+        /**
+         * Generator parameters.
+         */
+        private final float[] parameters;
+
+        /**
+         * Constructor.
+         *
+         * @param type Primitive type.
+         * @param parameters Generator parameters.
+         */
+        Key(int type, float... parameters) {
+            this.type = type;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof Key))
+                return false;
+            return this.type == ((Key) other).type && Arrays.equals(this.parameters, ((Key) other).parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type + Arrays.hashCode(this.parameters);
+        }
+    }
+
+    /**
+     * Cached mesh and its reference count.
+     */
+    private static final class Entry {
+
+        /**
+         * Generator parameters key.
+         */
+        private final Key key;
+
+        /**
+         * Shared mesh.
+         */
+        private final Mesh mesh;
+
+        /**
+         * Number of users that acquired the mesh and didn't release it yet.
+         */
+        private int references = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param key Generator parameters key.
+         * @param mesh Shared mesh.
+         */
+        Entry(Key key, Mesh mesh) {
+            this.key = key;
+            this.mesh = mesh;
+        }
+    }
+}
@@ -54,6 +54,16 @@ public class RawMesh {
      */
     private float[] textures = new float[0];
 
+    /**
+     * Triangle indices of this mesh, referencing the vertexes. Empty if the mesh isn't indexed.
+     */
+    private int[] indices = new int[0];
+
+    /**
+     * The lightmap texture coordinates data, used to sample baked lighting.
+     */
+    private float[] lightmapTextures = new float[0];
+
     /**
      * Constructor.
      *
@@ -77,6 +87,20 @@ public class RawMesh {
         this.textures = textures;
     }
 
+    /**
+     * Constructor.
+     *
+     * @param vertexes The vertexes data.
+     * @param normals The normals data.
+     * @param textures The textures data.
+     * @param indices The triangle indices, referencing the vertexes.
+     */
+    public RawMesh(float[] vertexes, float[] normals, float[] textures, int[] indices) {
+        // Set the fields
+        this(vertexes, normals, textures);
+        this.indices = indices;
+    }
+
     /**
      * Get the number of vertexes in this this mesh.
      *
@@ -140,6 +164,100 @@ public class RawMesh {
         return this.textures.length > 0;
     }
 
+    /**
+     * Get all raw lightmap texture coordinates of this mesh.
+     *
+     * @return Lightmap textures.
+     */
+    public float[] getLightmapTextures() {
+        return this.lightmapTextures;
+    }
+
+    /**
+     * Set the raw lightmap texture coordinates of this mesh, two for each vertex.
+     *
+     * @param lightmapTextures Lightmap textures.
+     */
+    public void setLightmapTextures(float[] lightmapTextures) {
+        this.lightmapTextures = lightmapTextures;
+    }
+
+    /**
+     * Check whether this mesh has any lightmap texture data.
+     *
+     * @return True if this mesh has lightmap texture data, false if not.
+     */
+    public boolean hasLightmapTextureData() {
+        return this.lightmapTextures.length > 0;
+    }
+
+    /**
+     * Get the triangle indices of this mesh, referencing the vertexes.
+     *
+     * @return Indices, or an empty array if the mesh isn't indexed.
+     */
+    public int[] getIndices() {
+        return this.indices;
+    }
+
+    /**
+     * Get the number of indices in this mesh.
+     *
+     * @return Index count.
+     */
+    public int getIndexCount() {
+        return this.indices.length;
+    }
+
+    /**
+     * Check whether this mesh has any index data.
+     * If not, every three vertexes form a triangle.
+     *
+     * @return True if this mesh has index data, false if not.
+     */
+    public boolean hasIndexData() {
+        return this.indices.length > 0;
+    }
+
+    /**
+     * Get the number of elements that are drawn for this mesh.
+     * This is the number of indices for indexed meshes, and the number of vertexes otherwise.
+     *
+     * @return Element count.
+     */
+    public int getElementCount() {
+        return hasIndexData() ? getIndexCount() : getVertexCount();
+    }
+
+    /**
+     * Get the number of triangles in this mesh.
+     *
+     * @return Triangle count.
+     */
+    public int getTriangleCount() {
+        return getElementCount() / 3;
+    }
+
+    /**
+     * Get the index of the vertex that is used for the given element.
+     *
+     * @param element Element index.
+     *
+     * @return Vertex index.
+     */
+    public int getElementVertex(int element) {
+        return hasIndexData() ? this.indices[element] : element;
+    }
+
+    /**
+     * Create a welded copy of this mesh, in which duplicate vertexes are merged and referenced through indices.
+     *
+     * @return Welded raw mesh.
+     */
+    public RawMesh weld() {
+        return MeshWelder.weld(this);
+    }
+
     /**
      * Get the number of axis used for vertex data.
      *
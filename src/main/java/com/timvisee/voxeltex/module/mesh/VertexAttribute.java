@@ -0,0 +1,136 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.mesh;
+
+public class VertexAttribute {
+
+    /**
+     * Usage for vertex positions, bound as the vertex array.
+     */
+    public static final int USAGE_POSITION = 1;
+
+    /**
+     * Usage for vertex normals, bound as the normal array.
+     */
+    public static final int USAGE_NORMAL = 2;
+
+    /**
+     * Usage for texture coordinates, bound as the texture coordinate array of the texture unit at the attribute index.
+     */
+    public static final int USAGE_TEXTURE = 3;
+
+    /**
+     * Usage for vertex colors, bound as the color array.
+     */
+    public static final int USAGE_COLOR = 4;
+
+    /**
+     * Usage for generic attributes, bound as the generic vertex attribute at the attribute index.
+     */
+    public static final int USAGE_GENERIC = 5;
+
+    /**
+     * Default position attribute, with three components.
+     */
+    public static final VertexAttribute POSITION = new VertexAttribute(USAGE_POSITION, RawMesh.VERTEX_AXIS_COUNT, 0);
+
+    /**
+     * Default normal attribute, with three components.
+     */
+    public static final VertexAttribute NORMAL = new VertexAttribute(USAGE_NORMAL, RawMesh.NORMAL_AXIS_COUNT, 0);
+
+    /**
+     * Default texture coordinate attribute for the first texture unit, with two components.
+     */
+    public static final VertexAttribute TEXTURE = new VertexAttribute(USAGE_TEXTURE, RawMesh.TEXTURE_AXIS_COUNT, 0);
+
+    /**
+     * Default lightmap texture coordinate attribute for the second texture unit, with two components.
+     */
+    public static final VertexAttribute LIGHTMAP_TEXTURE = new VertexAttribute(USAGE_TEXTURE, RawMesh.TEXTURE_AXIS_COUNT, 1);
+
+    /**
+     * Attribute usage.
+     */
+    private final int usage;
+
+    /**
+     * Number of float components of this attribute.
+     */
+    private final int componentCount;
+
+    /**
+     * Index of the attribute. This is the texture unit for texture coordinates, and the attribute location for
+     * generic attributes.
+     */
+    private final int index;
+
+    /**
+     * Constructor.
+     *
+     * @param usage Attribute usage, such as {@link #USAGE_POSITION}.
+     * @param componentCount Number of float components.
+     * @param index Texture unit for texture coordinates, attribute location for generic attributes, zero otherwise.
+     */
+    public VertexAttribute(int usage, int componentCount, int index) {
+        this.usage = usage;
+        this.componentCount = componentCount;
+        this.index = index;
+    }
+
+    /**
+     * Get the attribute usage.
+     *
+     * @return Attribute usage.
+     */
+    public int getUsage() {
+        return this.usage;
+    }
+
+    /**
+     * Get the number of float components of this attribute.
+     *
+     * @return Component count.
+     */
+    public int getComponentCount() {
+        return this.componentCount;
+    }
+
+    /**
+     * Get the size of this attribute in bytes.
+     *
+     * @return Size in bytes.
+     */
+    public int getSize() {
+        return this.componentCount * Float.BYTES;
+    }
+
+    /**
+     * Get the index of the attribute.
+     *
+     * @return Texture unit for texture coordinates, attribute location for generic attributes, zero otherwise.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+}
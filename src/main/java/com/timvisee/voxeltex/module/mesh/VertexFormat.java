@@ -0,0 +1,273 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.mesh;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL20;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Interleaved vertex format.
+ * All attributes of a vertex are stored next to each other in a single buffer, in the order of the attributes.
+ */
+public class VertexFormat {
+
+    /**
+     * Attributes of this format, in the order they're stored in.
+     */
+    private final VertexAttribute[] attributes;
+
+    /**
+     * Byte offset of each attribute in a vertex.
+     */
+    private final int[] offsets;
+
+    /**
+     * Size of a single vertex in bytes.
+     */
+    private final int stride;
+
+    /**
+     * Constructor.
+     *
+     * @param attributes Attributes of this format, in the order they're stored in.
+     */
+    public VertexFormat(VertexAttribute... attributes) {
+        // Set the attributes
+        this.attributes = attributes;
+        this.offsets = new int[attributes.length];
+
+        // Determine the offset of each attribute, and the stride
+        int offset = 0;
+        for(int i = 0; i < attributes.length; i++) {
+            this.offsets[i] = offset;
+            offset += attributes[i].getSize();
+        }
+        this.stride = offset;
+    }
+
+    /**
+     * Create the vertex format for the given raw mesh.
+     * The format contains the position, and the normal, texture and lightmap texture coordinates if the mesh has that
+     * data.
+     *
+     * @param raw Raw mesh.
+     *
+     * @return Vertex format.
+     */
+    public static VertexFormat fromRawMesh(RawMesh raw) {
+        // Determine the number of attributes
+        int count = 1;
+        if(raw.hasNormalData())
+            count++;
+        if(raw.hasTextureData())
+            count++;
+        if(raw.hasLightmapTextureData())
+            count++;
+
+        // Build the list of attributes
+        VertexAttribute[] attributes = new VertexAttribute[count];
+        int i = 0;
+        attributes[i++] = VertexAttribute.POSITION;
+        if(raw.hasNormalData())
+            attributes[i++] = VertexAttribute.NORMAL;
+        if(raw.hasTextureData())
+            attributes[i++] = VertexAttribute.TEXTURE;
+        if(raw.hasLightmapTextureData())
+            attributes[i] = VertexAttribute.LIGHTMAP_TEXTURE;
+
+        // Create the format
+        return new VertexFormat(attributes);
+    }
+
+    /**
+     * Get the attributes of this format.
+     *
+     * @return Attributes.
+     */
+    public VertexAttribute[] getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Check whether this format has an attribute with the given usage.
+     *
+     * @param usage Attribute usage.
+     *
+     * @return True if an attribute with this usage is available, false if not.
+     */
+    public boolean hasUsage(int usage) {
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0; i < this.attributes.length; i++)
+            if(this.attributes[i].getUsage() == usage)
+                return true;
+        return false;
+    }
+
+    /**
+     * Get the size of a single vertex in bytes.
+     *
+     * @return Stride in bytes.
+     */
+    public int getStride() {
+        return this.stride;
+    }
+
+    /**
+     * Get the number of floats in a single vertex.
+     *
+     * @return Float count.
+     */
+    public int getFloatCount() {
+        return this.stride / Float.BYTES;
+    }
+
+    /**
+     * Interleave the data of the given raw mesh into a new flipped buffer, using this format.
+     * Attributes the raw mesh doesn't provide data for are filled with zeros.
+     *
+     * @param raw Raw mesh.
+     *
+     * @return Interleaved vertex buffer.
+     */
+    public FloatBuffer interleave(RawMesh raw) {
+        // Create the buffer
+        final int vertexCount = raw.getVertexCount();
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(vertexCount * getFloatCount());
+
+        // Put the attributes of each vertex
+        for(int vertex = 0; vertex < vertexCount; vertex++) {
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0; i < this.attributes.length; i++) {
+                // Get the attribute and its source data
+                final VertexAttribute attribute = this.attributes[i];
+                final float[] source = getSourceData(raw, attribute);
+                final int components = attribute.getComponentCount();
+                final int sourceComponents = getSourceComponentCount(attribute);
+
+                // Put each component, or zero if it isn't available
+                for(int c = 0; c < components; c++) {
+                    final int sourceIndex = vertex * sourceComponents + c;
+                    buffer.put(source != null && c < sourceComponents && sourceIndex < source.length ? source[sourceIndex] : 0f);
+                }
+            }
+        }
+
+        // Flip and return the buffer
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Get the source data in a raw mesh for the given attribute.
+     *
+     * @param raw Raw mesh.
+     * @param attribute Attribute.
+     *
+     * @return Source data, or null if the raw mesh doesn't have data for this attribute.
+     */
+    private static float[] getSourceData(RawMesh raw, VertexAttribute attribute) {
+        switch(attribute.getUsage()) {
+            case VertexAttribute.USAGE_POSITION:
+                return raw.getVertexes();
+            case VertexAttribute.USAGE_NORMAL:
+                return raw.getNormals();
+            case VertexAttribute.USAGE_TEXTURE:
+                if(attribute.getIndex() == 0)
+                    return raw.getTextures();
+                return attribute.getIndex() == 1 ? raw.getLightmapTextures() : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the number of components for each vertex in the raw mesh source data of the given attribute.
+     *
+     * @param attribute Attribute.
+     *
+     * @return Source component count.
+     */
+    private static int getSourceComponentCount(VertexAttribute attribute) {
+        switch(attribute.getUsage()) {
+            case VertexAttribute.USAGE_POSITION:
+                return RawMesh.VERTEX_AXIS_COUNT;
+            case VertexAttribute.USAGE_NORMAL:
+                return RawMesh.NORMAL_AXIS_COUNT;
+            case VertexAttribute.USAGE_TEXTURE:
+                return RawMesh.TEXTURE_AXIS_COUNT;
+            default:
+                return attribute.getComponentCount();
+        }
+    }
+
+    /**
+     * Configure the attribute pointers for this format, and enable their arrays.
+     * The buffer holding the interleaved data must be bound as array buffer.
+     * When a vertex array object is bound, this configuration is stored in it.
+     */
+    public void enableAttributes() {
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0; i < this.attributes.length; i++) {
+            // Get the attribute and its offset
+            final VertexAttribute attribute = this.attributes[i];
+            final long offset = this.offsets[i];
+
+            // Configure and enable the attribute based on its usage
+            switch(attribute.getUsage()) {
+                case VertexAttribute.USAGE_POSITION:
+                    GL11.glVertexPointer(attribute.getComponentCount(), GL11.GL_FLOAT, this.stride, offset);
+                    GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+                    break;
+
+                case VertexAttribute.USAGE_NORMAL:
+                    GL11.glNormalPointer(GL11.GL_FLOAT, this.stride, offset);
+                    GL11.glEnableClientState(GL11.GL_NORMAL_ARRAY);
+                    break;
+
+                case VertexAttribute.USAGE_TEXTURE:
+                    GL13.glClientActiveTexture(GL13.GL_TEXTURE0 + attribute.getIndex());
+                    GL11.glTexCoordPointer(attribute.getComponentCount(), GL11.GL_FLOAT, this.stride, offset);
+                    GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+                    GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+                    break;
+
+                case VertexAttribute.USAGE_COLOR:
+                    GL11.glColorPointer(attribute.getComponentCount(), GL11.GL_FLOAT, this.stride, offset);
+                    GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+                    break;
+
+                case VertexAttribute.USAGE_GENERIC:
+                    GL20.glVertexAttribPointer(attribute.getIndex(), attribute.getComponentCount(), GL11.GL_FLOAT, false, this.stride, offset);
+                    GL20.glEnableVertexAttribArray(attribute.getIndex());
+                    break;
+
+                default:
+                    throw new RuntimeException("Unknown vertex attribute usage: " + attribute.getUsage());
+            }
+        }
+    }
+}
@@ -89,48 +89,42 @@ public class CubeMeshGenerator extends AbstractMeshGenerator {
             quadOffset.set(0f).add(offset).add(-(size.x / 2.0f), 0f, 0f);
 
             // Generate the quad for this position and add the raw mesh to the list
-            QuadMeshGenerator quadMesh = new QuadMeshGenerator(QuadMeshGenerator.ORIENTATION_X_NEGATIVE, quadSize, quadOffset);
-            quadMeshes.add(quadMesh.getRawMesh());
+            quadMeshes.add(QuadMeshGenerator.generateRawMesh(QuadMeshGenerator.ORIENTATION_X_NEGATIVE, quadSize, quadOffset));
 
             // Determine the quad size and offset for the Y axis orientation
             quadSize.set(size.x, size.z);
             quadOffset.set(0f).add(offset).add(0f, -(size.y / 2.0f), 0f);
 
             // Generate the quad for this position and add the raw mesh to the list
-            quadMesh = new QuadMeshGenerator(QuadMeshGenerator.ORIENTATION_Y_NEGATIVE, quadSize, quadOffset);
-            quadMeshes.add(quadMesh.getRawMesh());
+            quadMeshes.add(QuadMeshGenerator.generateRawMesh(QuadMeshGenerator.ORIENTATION_Y_NEGATIVE, quadSize, quadOffset));
 
             // Determine the quad size and offset for the Z axis orientation
             quadSize.set(size.x, size.y);
             quadOffset.set(0f).add(offset).add(0f, 0f, -(size.z / 2.0f));
 
             // Generate the quad for this position and add the raw mesh to the list
-            quadMesh = new QuadMeshGenerator(QuadMeshGenerator.ORIENTATION_Z_NEGATIVE, quadSize, quadOffset);
-            quadMeshes.add(quadMesh.getRawMesh());
+            quadMeshes.add(QuadMeshGenerator.generateRawMesh(QuadMeshGenerator.ORIENTATION_Z_NEGATIVE, quadSize, quadOffset));
 
             // Determine the quad size and offset for the X axis orientation
             quadSize.set(size.y, size.z);
             quadOffset.set(0f).add(offset).add(size.x / 2.0f, 0f, 0f);
 
             // Generate the quad for this position and add the raw mesh to the list
-            quadMesh = new QuadMeshGenerator(QuadMeshGenerator.ORIENTATION_X_POSITIVE, quadSize, quadOffset);
-            quadMeshes.add(quadMesh.getRawMesh());
+            quadMeshes.add(QuadMeshGenerator.generateRawMesh(QuadMeshGenerator.ORIENTATION_X_POSITIVE, quadSize, quadOffset));
 
             // Determine the quad size and offset for the Y axis orientation
             quadSize.set(size.x, size.z);
             quadOffset.set(0f).add(offset).add(0f, size.y / 2.0f, 0f);
 
             // Generate the quad for this position and add the raw mesh to the list
-            quadMesh = new QuadMeshGenerator(QuadMeshGenerator.ORIENTATION_Y_POSITIVE, quadSize, quadOffset);
-            quadMeshes.add(quadMesh.getRawMesh());
+            quadMeshes.add(QuadMeshGenerator.generateRawMesh(QuadMeshGenerator.ORIENTATION_Y_POSITIVE, quadSize, quadOffset));
 
             // Determine the quad size and offset for the Z axis orientation
             quadSize.set(size.x, size.y);
             quadOffset.set(0f).add(offset).add(0f, 0f, size.z / 2.0f);
 
             // Generate the quad for this position and add the raw mesh to the list
-            quadMesh = new QuadMeshGenerator(QuadMeshGenerator.ORIENTATION_Z_POSITIVE, quadSize, quadOffset);
-            quadMeshes.add(quadMesh.getRawMesh());
+            quadMeshes.add(QuadMeshGenerator.generateRawMesh(QuadMeshGenerator.ORIENTATION_Z_POSITIVE, quadSize, quadOffset));
         }
 
         // Calculate the number of vertexes for each mesh, and all of them combined
@@ -162,8 +156,8 @@ public class CubeMeshGenerator extends AbstractMeshGenerator {
             System.arraycopy(quadTextures, 0, textures, i * 12, 12);
         }
 
-        // Create and store the raw mesh
-        this.raw = new RawMesh(vertexes, normals, textures);
+        // Create the raw mesh, and weld the shared vertexes of each face
+        this.raw = new RawMesh(vertexes, normals, textures).weld();
     }
 
     @Override
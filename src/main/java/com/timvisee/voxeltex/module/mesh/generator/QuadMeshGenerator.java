@@ -147,6 +147,25 @@ public class QuadMeshGenerator extends AbstractMeshGenerator {
      * @param offset Offset.
      */
     public QuadMeshGenerator(int orientation, Vector2f size, Vector3f offset) {
+        // Generate the quad, and weld the shared corner vertexes
+        this.raw = generateRawMesh(orientation, size, offset).weld();
+    }
+
+    @Override
+    public RawMesh getRawMesh() {
+        return this.raw;
+    }
+
+    /**
+     * Generate the raw, non-indexed mesh for a quad, containing six vertexes.
+     *
+     * @param orientation Quad orientation.
+     * @param size Size.
+     * @param offset Offset.
+     *
+     * @return Raw quad mesh.
+     */
+    public static RawMesh generateRawMesh(int orientation, Vector2f size, Vector3f offset) {
         // Generate and store the quad vertexes
         float[] vertexes = generateVertexes(orientation, size, offset);
 
@@ -156,13 +175,8 @@ public class QuadMeshGenerator extends AbstractMeshGenerator {
         // Generate the texture coordinates in the same order
         float[] textures = generateTextures();
 
-        // Create and store the raw mesh
-        this.raw = new RawMesh(vertexes, normals, textures);
-    }
-
-    @Override
-    public RawMesh getRawMesh() {
-        return this.raw;
+        // Create the raw mesh
+        return new RawMesh(vertexes, normals, textures);
     }
 
     /**
@@ -185,8 +185,8 @@ public class RawModel {
             normals[i * 3 + 2] = normal.z;
         }
 
-        // Create and return the raw mesh
+        // Create the raw mesh, and weld the vertexes that are shared between faces
         // TODO: Load texture coordinates, or skip it?
-        return new RawMesh(vertexes, normals, new float[0]);
+        return new RawMesh(vertexes, normals, new float[0]).weld();
     }
 }
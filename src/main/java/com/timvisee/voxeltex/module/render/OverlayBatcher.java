@@ -0,0 +1,261 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.render;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Batches overlay quads and lines into a streaming vertex buffer, to draw them with as few draw calls as possible.
+ *
+ * Geometry is accumulated until the render state it depends on changes. The overlay helpers flush the batch at these
+ * boundaries, before binding or unbinding a material and before changing the line width, so the batched geometry is
+ * always drawn with the state it was added with. The batch is also flushed at the start and end of each overlay pass.
+ */
+public class OverlayBatcher {
+
+    /**
+     * Number of floats for each vertex, a position, texture coordinate and color.
+     */
+    private static final int VERTEX_FLOAT_COUNT = 2 + 2 + 4;
+
+    /**
+     * Size of each vertex in bytes.
+     */
+    private static final int VERTEX_STRIDE = VERTEX_FLOAT_COUNT * Float.BYTES;
+
+    /**
+     * Initial number of vertices the batch can hold, it grows automatically.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Client side buffer the vertex data is written to.
+     */
+    private static FloatBuffer data = BufferUtils.createFloatBuffer(INITIAL_CAPACITY * VERTEX_FLOAT_COUNT);
+
+    /**
+     * Number of vertices in the batch.
+     */
+    private static int vertexCount = 0;
+
+    /**
+     * Primitive mode of the batched vertices, such as GL_TRIANGLES or GL_LINES.
+     */
+    private static int mode = GL11.GL_TRIANGLES;
+
+    /**
+     * VBO handle of the batch, zero if it hasn't been created yet.
+     */
+    private static int vboHandle = 0;
+
+    /**
+     * Number of draw calls in the current frame.
+     */
+    private static int drawCalls = 0;
+
+    /**
+     * Number of draw calls in the last frame.
+     */
+    private static int lastFrameDrawCalls = 0;
+
+    /**
+     * Add a quad to the batch.
+     *
+     * @param x Quad X position.
+     * @param y Quad Y position.
+     * @param w Quad width.
+     * @param h Quad height.
+     * @param u0 Texture U coordinate at the left side.
+     * @param v0 Texture V coordinate at the top side.
+     * @param u1 Texture U coordinate at the right side.
+     * @param v1 Texture V coordinate at the bottom side.
+     * @param r Red channel intensity.
+     * @param g Green channel intensity.
+     * @param b Blue channel intensity.
+     * @param a Alpha channel intensity.
+     */
+    public static void addQuad(float x, float y, float w, float h, float u0, float v0, float u1, float v1, float r, float g, float b, float a) {
+        // Make sure the batch is drawing triangles, and has room for the quad
+        prepare(GL11.GL_TRIANGLES, 6);
+
+        // Add the two triangles of the quad
+        putVertex(x, y, u0, v1, r, g, b, a);
+        putVertex(x + w, y, u1, v1, r, g, b, a);
+        putVertex(x + w, y + h, u1, v0, r, g, b, a);
+        putVertex(x, y, u0, v1, r, g, b, a);
+        putVertex(x + w, y + h, u1, v0, r, g, b, a);
+        putVertex(x, y + h, u0, v0, r, g, b, a);
+    }
+
+    /**
+     * Add a line to the batch.
+     *
+     * @param x0 Line start X position.
+     * @param y0 Line start Y position.
+     * @param x1 Line end X position.
+     * @param y1 Line end Y position.
+     * @param r Red channel intensity.
+     * @param g Green channel intensity.
+     * @param b Blue channel intensity.
+     * @param a Alpha channel intensity.
+     */
+    public static void addLine(float x0, float y0, float x1, float y1, float r, float g, float b, float a) {
+        // Make sure the batch is drawing lines, and has room for the line
+        prepare(GL11.GL_LINES, 2);
+
+        // Add the line
+        putVertex(x0, y0, 0, 0, r, g, b, a);
+        putVertex(x1, y1, 0, 0, r, g, b, a);
+    }
+
+    /**
+     * Prepare the batch for adding vertices with the given primitive mode.
+     * The batch is flushed if the mode changes, and grows if it doesn't have enough room.
+     *
+     * @param primitiveMode Primitive mode.
+     * @param count Number of vertices that will be added.
+     */
+    private static void prepare(int primitiveMode, int count) {
+        // Flush the batch if the primitive mode changes
+        if(mode != primitiveMode) {
+            flush();
+            mode = primitiveMode;
+        }
+
+        // Grow the buffer if it's full
+        if(data.remaining() < count * VERTEX_FLOAT_COUNT) {
+            FloatBuffer grown = BufferUtils.createFloatBuffer(Math.max(data.capacity() * 2, data.position() + count * VERTEX_FLOAT_COUNT));
+            data.flip();
+            grown.put(data);
+            data = grown;
+        }
+    }
+
+    /**
+     * Put a vertex into the batch.
+     *
+     * @param x X position.
+     * @param y Y position.
+     * @param u Texture U coordinate.
+     * @param v Texture V coordinate.
+     * @param r Red channel intensity.
+     * @param g Green channel intensity.
+     * @param b Blue channel intensity.
+     * @param a Alpha channel intensity.
+     */
+    private static void putVertex(float x, float y, float u, float v, float r, float g, float b, float a) {
+        data.put(x).put(y).put(u).put(v).put(r).put(g).put(b).put(a);
+        vertexCount++;
+    }
+
+    /**
+     * Check whether the batch has any geometry that hasn't been drawn yet.
+     *
+     * @return True if there is pending geometry, false if not.
+     */
+    public static boolean hasPending() {
+        return vertexCount > 0;
+    }
+
+    /**
+     * Draw all batched geometry with the current render state, and clear the batch.
+     * Nothing is drawn if the batch is empty.
+     */
+    public static void flush() {
+        // Make sure there's anything to draw
+        if(vertexCount == 0)
+            return;
+
+        // Create the buffer if it doesn't exist yet
+        if(vboHandle == 0)
+            vboHandle = GL15.glGenBuffers();
+
+        // Orphan the previous buffer storage and upload the vertex data, without a vertex array object bound
+        data.flip();
+        RenderStateTracker.bindVertexArray(0);
+        RenderStateTracker.bindArrayBuffer(vboHandle);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data.capacity() * Float.BYTES, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+
+        // Configure the vertex, texture coordinate and color arrays
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glVertexPointer(2, GL11.GL_FLOAT, VERTEX_STRIDE, 0);
+        GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+        GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glTexCoordPointer(2, GL11.GL_FLOAT, VERTEX_STRIDE, 2 * Float.BYTES);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glColorPointer(4, GL11.GL_FLOAT, VERTEX_STRIDE, 4 * Float.BYTES);
+
+        // Draw the batch
+        GL11.glDrawArrays(mode, 0, vertexCount);
+        drawCalls++;
+
+        // Disable the arrays again
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+
+        // Clear the batch
+        data.clear();
+        vertexCount = 0;
+    }
+
+    /**
+     * Start a new frame.
+     * This stores the draw call count of the current frame, and resets it.
+     */
+    public static void nextFrame() {
+        lastFrameDrawCalls = drawCalls;
+        drawCalls = 0;
+    }
+
+    /**
+     * Get the number of overlay draw calls that were issued last frame.
+     *
+     * @return Draw call count.
+     */
+    public static int getDrawCallCount() {
+        return lastFrameDrawCalls;
+    }
+
+    /**
+     * Dispose the batch buffer on the graphics card.
+     */
+    public static void dispose() {
+        // Clear the pending geometry
+        data.clear();
+        vertexCount = 0;
+
+        // Delete the buffer
+        if(vboHandle != 0) {
+            GL15.glDeleteBuffers(vboHandle);
+            RenderStateTracker.forgetBuffer(vboHandle);
+        }
+        vboHandle = 0;
+    }
+}
@@ -23,20 +23,68 @@
 package com.timvisee.voxeltex.module.render;
 
 import com.timvisee.voxeltex.module.Color;
-import com.timvisee.voxeltex.module.font.BitmapFont;
+import com.timvisee.voxeltex.module.font.BitmapFontText;
+import com.timvisee.voxeltex.module.material.Material;
 import com.timvisee.voxeltex.module.transform.rectangle.Rectangle;
 import org.joml.Vector2f;
-import org.lwjgl.opengl.GL11;
 
 public class RenderOverlayHelper {
 
+    /**
+     * Red channel intensity of the current drawing color.
+     */
+    private static float colorRed = 1.0f;
+
+    /**
+     * Green channel intensity of the current drawing color.
+     */
+    private static float colorGreen = 1.0f;
+
+    /**
+     * Blue channel intensity of the current drawing color.
+     */
+    private static float colorBlue = 1.0f;
+
+    /**
+     * Alpha channel intensity of the current drawing color.
+     */
+    private static float colorAlpha = 1.0f;
+
     /**
      * Set the width of lines being rendered.
+     * The batched overlay geometry is drawn first if the width changes, because it depends on the current width.
      *
      * @param lineWidth Line width.
      */
     public static void lineWidth(float lineWidth) {
-        GL11.glLineWidth(lineWidth);
+        // Draw the batched geometry with the current width before changing it
+        if(RenderStateTracker.getLineWidth() != lineWidth)
+            OverlayBatcher.flush();
+
+        // Set the line width
+        RenderStateTracker.lineWidth(lineWidth);
+    }
+
+    /**
+     * Bind the given material for the overlay geometry that is rendered next.
+     * The batched overlay geometry is drawn first, because it depends on the previously bound state.
+     *
+     * @param material Material to bind.
+     */
+    public static void bindMaterial(Material material) {
+        OverlayBatcher.flush();
+        material.bind();
+    }
+
+    /**
+     * Unbind the given material.
+     * The batched overlay geometry is drawn first, because it depends on the material.
+     *
+     * @param material Material to unbind.
+     */
+    public static void unbindMaterial(Material material) {
+        OverlayBatcher.flush();
+        material.unbind();
     }
 
     /**
@@ -56,7 +104,7 @@ public class RenderOverlayHelper {
      * @param b Blue channel intensity.
      */
     public static void color(float r, float g, float b) {
-        GL11.glColor3f(r, g, b);
+        color(r, g, b, 1.0f);
     }
 
     /**
@@ -68,7 +116,10 @@ public class RenderOverlayHelper {
      * @param a Alpha channel intensity.
      */
     public static void color(float r, float g, float b, float a) {
-        GL11.glColor4f(r, g, b, a);
+        colorRed = r;
+        colorGreen = g;
+        colorBlue = b;
+        colorAlpha = a;
     }
 
     /**
@@ -83,6 +134,7 @@ public class RenderOverlayHelper {
 
     /**
      * Render a rectangle at the given position.
+     * The rectangle is batched, and drawn at the next material or line width change, or when the overlay pass ends.
      *
      * @param x Rectangle X position.
      * @param y Rectangle Y position.
@@ -90,21 +142,7 @@ public class RenderOverlayHelper {
      * @param h Rectangle height.
      */
     public static void renderRectangle(float x, float y, float w, float h) {
-        // Enable line drawing mode
-        GL11.glBegin(GL11.GL_QUADS);
-
-        // Draw the grid
-        GL11.glVertex3f(x, y, 0f);
-        GL11.glTexCoord2f(1, 1);
-        GL11.glVertex3f(x + w, y, 0f);
-        GL11.glTexCoord2f(1, 0);
-        GL11.glVertex3f(x + w, y + h, 0f);
-        GL11.glTexCoord2f(0, 0);
-        GL11.glVertex3f(x, y + h, 0f);
-        GL11.glTexCoord2f(0, 1);
-
-        // Finish drawing
-        GL11.glEnd();
+        OverlayBatcher.addQuad(x, y, w, h, 0, 0, 1, 1, colorRed, colorGreen, colorBlue, colorAlpha);
     }
 
     /**
@@ -119,6 +157,7 @@ public class RenderOverlayHelper {
 
     /**
      * Render a line at the given position.
+     * The line is batched, and drawn at the next material or line width change, or when the overlay pass ends.
      *
      * @param x Line X position.
      * @param y Line Y position.
@@ -126,67 +165,36 @@ public class RenderOverlayHelper {
      * @param h Line height.
      */
     public static void renderLine(float x, float y, float w, float h) {
-        // Enable line drawing mode
-        GL11.glBegin(GL11.GL_LINES);
-
-        // Draw the grid
-        GL11.glVertex3f(x, y, 0f);
-        GL11.glVertex3f(x + w, y + h, 0f);
+        OverlayBatcher.addLine(x, y, x + w, y + h, colorRed, colorGreen, colorBlue, colorAlpha);
+    }
 
-        // Finish drawing
-        GL11.glEnd();
+    /**
+     * Draw all overlay geometry that has been batched, but hasn't been drawn yet.
+     * This must be called at the start and end of each overlay pass.
+     */
+    public static void flush() {
+        OverlayBatcher.flush();
     }
 
     /**
-     * Render a font inside the given rectangle with the given text.
-     * The size of the font will be adjusted automatically to fit the rectangle.
+     * Render a text inside the given rectangle.
+     * The size of the text will be adjusted automatically to fit the rectangle, and the text is centered in it.
+     * The layout of the text is only computed again if the rectangle size or window aspect ratio changed.
      *
      * @param rectangle Rectangle to draw in, in overlay space.
-     * @param font The font to draw.
-     * @param text The text to draw.
+     * @param text The text to draw, laid out in its font.
+     * @param color The text color.
      */
-    public static void renderFont(Rectangle rectangle, BitmapFont font, String text) {
-        // Get the window ratio factor
-        final float windowRatio = OverlayUtil.getWindowRatioFactor();
-
-        // Determine the size, to fit the button
-        float size = rectangle.getHeight();
-
-        // Calculate the total width of the string
-        float fontWidthX = font.getFontWidths().getStringWidthFactor(text) / windowRatio * size;
-
-        // Make sure the string will fit, if not decrease the size and update the width accordingly
-        if(fontWidthX > rectangle.getWidth()) {
-            size *= rectangle.getWidth() / fontWidthX;
-            fontWidthX *= rectangle.getWidth() / fontWidthX;
-        }
-
-        // Determine the X and Y offset of the string
-        float fontOffsetX = (rectangle.getWidth() - fontWidthX) / 2.0f;
-        float fontOffsetY = (rectangle.getHeight() - size) / 2.0f;
-
-        // Bind and render each character separately
-        for(int i = 0; i < text.length(); i++) {
-            // Get the current character
-            final char c = text.charAt(i);
-
-            // Calculate the width factor of the current character
-            final float widthFactor = font.getFontWidths().getCharacterWidthFactor(c);
-
-            // Bind the font material with the current character and the proper character width
-            font.getMaterial().bind(c, widthFactor);
-
-            // Calculate the character width offset
-            final float characterWidthOffset = size * font.getFontWidths().getStringWidthFactor(text.substring(0, i));
+    public static void renderFont(Rectangle rectangle, BitmapFontText text, Color color) {
+        // Fit the text to the rectangle
+        text.setSize(rectangle.getHeight());
+        text.setMaxWidth(rectangle.getWidth());
 
-            // Render the rectangle, and compensate with the window ratio factor
-            renderRectangle(
-                    rectangle.getX() + characterWidthOffset / windowRatio + fontOffsetX, rectangle.getY() + fontOffsetY,
-                    size * widthFactor / windowRatio, size
-            );
+        // Determine the X and Y offset of the text, to center it
+        final float offsetX = (rectangle.getWidth() - text.getWidth()) / 2.0f;
+        final float offsetY = (rectangle.getHeight() - text.getHeight()) / 2.0f;
 
-            // Unbind the material
-            font.getMaterial().unbind();
-        }
+        // Draw the text
+        text.draw(rectangle.getX() + offsetX, rectangle.getY() + offsetY, color);
     }
 }
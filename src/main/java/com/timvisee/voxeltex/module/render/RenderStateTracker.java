@@ -0,0 +1,489 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.render;
+
+import com.timvisee.voxeltex.util.EnabledState;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the OpenGL render state that is set by the engine.
+ * All state changes should go through this tracker, so calls that wouldn't change the current state are skipped.
+ * The number of skipped (hits) and executed (misses) calls is counted for each frame.
+ *
+ * The tracker assumes that all state is changed through it. If state is changed directly, {@link #invalidate()}
+ * must be called to make sure the tracked state is queried from scratch again.
+ */
+public class RenderStateTracker {
+
+    /**
+     * Maximum number of texture units that are tracked.
+     */
+    private static final int TEXTURE_UNIT_COUNT = 32;
+
+    /**
+     * Value used for state that isn't known.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Currently used shader program.
+     */
+    private static int program = UNKNOWN;
+
+    /**
+     * Currently active texture unit, as index from the first unit.
+     */
+    private static int activeTextureUnit = UNKNOWN;
+
+    /**
+     * Bound 2D textures, for each texture unit.
+     */
+    private static final int[] textures = new int[TEXTURE_UNIT_COUNT];
+
+    /**
+     * Currently bound array buffer.
+     */
+    private static int arrayBuffer = UNKNOWN;
+
+    /**
+     * Currently bound vertex array object.
+     */
+    private static int vertexArray = UNKNOWN;
+
+    /**
+     * Capabilities that have been tracked, such as GL_BLEND and GL_CULL_FACE.
+     */
+    private static int[] capabilities = new int[0];
+
+    /**
+     * State of each tracked capability.
+     */
+    private static EnabledState[] capabilityStates = new EnabledState[0];
+
+    /**
+     * Current source blending factor.
+     */
+    private static int blendSource = UNKNOWN;
+
+    /**
+     * Current destination blending factor.
+     */
+    private static int blendDestination = UNKNOWN;
+
+    /**
+     * Current face culling mode.
+     */
+    private static int cullFace = UNKNOWN;
+
+    /**
+     * Current line width.
+     */
+    private static float lineWidth = UNKNOWN;
+
+    /**
+     * Number of skipped calls this frame.
+     */
+    private static int hits = 0;
+
+    /**
+     * Number of executed calls this frame.
+     */
+    private static int misses = 0;
+
+    /**
+     * Number of skipped calls last frame.
+     */
+    private static int lastFrameHits = 0;
+
+    /**
+     * Number of executed calls last frame.
+     */
+    private static int lastFrameMisses = 0;
+
+    static {
+        // Reset the tracked state
+        invalidate();
+    }
+
+    /**
+     * Invalidate all tracked state.
+     * The next state change for each type of state will always be executed.
+     */
+    public static void invalidate() {
+        program = UNKNOWN;
+        activeTextureUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        arrayBuffer = UNKNOWN;
+        vertexArray = UNKNOWN;
+        Arrays.fill(capabilityStates, EnabledState.UNDEFINED);
+        blendSource = UNKNOWN;
+        blendDestination = UNKNOWN;
+        cullFace = UNKNOWN;
+        lineWidth = UNKNOWN;
+    }
+
+    /**
+     * Start tracking a new frame.
+     * This stores the hit and miss counts of the current frame, and resets them.
+     */
+    public static void nextFrame() {
+        lastFrameHits = hits;
+        lastFrameMisses = misses;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Use the given shader program.
+     *
+     * @param programId Shader program ID, or zero to use no program.
+     */
+    public static void useProgram(int programId) {
+        // Skip the call if the program is already used
+        if(program == programId) {
+            hits++;
+            return;
+        }
+
+        // Use the program
+        GL20.glUseProgram(programId);
+        program = programId;
+        misses++;
+    }
+
+    /**
+     * Get the shader program that is currently used.
+     *
+     * @return Shader program ID, zero if no program is used, or -1 if unknown.
+     */
+    public static int getProgram() {
+        return program;
+    }
+
+    /**
+     * Forget the given program, because it has been deleted.
+     *
+     * @param programId Shader program ID.
+     */
+    public static void forgetProgram(int programId) {
+        if(program == programId)
+            program = UNKNOWN;
+    }
+
+    /**
+     * Set the active texture unit.
+     *
+     * @param unit Texture unit, such as GL_TEXTURE0.
+     */
+    public static void activeTexture(int unit) {
+        if(setActiveTexture(unit))
+            misses++;
+        else
+            hits++;
+    }
+
+    /**
+     * Set the active texture unit, without counting the call as a hit or miss.
+     *
+     * @param unit Texture unit, such as GL_TEXTURE0.
+     *
+     * @return True if the unit had to be activated, false if it was already active.
+     */
+    private static boolean setActiveTexture(int unit) {
+        // Skip the call if the unit is already active
+        final int index = unit - GL13.GL_TEXTURE0;
+        if(activeTextureUnit == index)
+            return false;
+
+        // Activate the unit
+        GL13.glActiveTexture(unit);
+        activeTextureUnit = index;
+        return true;
+    }
+
+    /**
+     * Bind a 2D texture to the given texture unit.
+     * The given unit is always the active unit afterwards, even if the texture was already bound to it.
+     * The call is counted once, as a hit if neither the unit had to be activated nor the texture had to be bound.
+     *
+     * @param unit Texture unit, such as GL_TEXTURE0.
+     * @param textureId Texture ID, or zero to unbind.
+     */
+    public static void bindTexture(int unit, int textureId) {
+        // Activate the unit, callers may upload or configure the texture through it afterwards
+        final boolean activated = setActiveTexture(unit);
+
+        // Skip the bind if the texture is already bound to this unit
+        final int index = unit - GL13.GL_TEXTURE0;
+        if(index >= 0 && index < TEXTURE_UNIT_COUNT && textures[index] == textureId) {
+            if(activated)
+                misses++;
+            else
+                hits++;
+            return;
+        }
+
+        // Bind the texture
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        if(index >= 0 && index < TEXTURE_UNIT_COUNT)
+            textures[index] = textureId;
+        misses++;
+    }
+
+    /**
+     * Bind a 2D texture to the texture unit that is currently active.
+     *
+     * @param textureId Texture ID, or zero to unbind.
+     */
+    public static void bindTexture(int textureId) {
+        // Bind to the first unit if the active unit is unknown
+        if(activeTextureUnit == UNKNOWN)
+            bindTexture(GL13.GL_TEXTURE0, textureId);
+        else
+            bindTexture(GL13.GL_TEXTURE0 + activeTextureUnit, textureId);
+    }
+
+    /**
+     * Forget the given texture, because it has been deleted.
+     *
+     * @param textureId Texture ID.
+     */
+    public static void forgetTexture(int textureId) {
+        for(int i = 0; i < TEXTURE_UNIT_COUNT; i++)
+            if(textures[i] == textureId)
+                textures[i] = UNKNOWN;
+    }
+
+    /**
+     * Bind the given array buffer.
+     *
+     * @param bufferId Buffer ID, or zero to unbind.
+     */
+    public static void bindArrayBuffer(int bufferId) {
+        // Skip the call if the buffer is already bound
+        if(arrayBuffer == bufferId) {
+            hits++;
+            return;
+        }
+
+        // Bind the buffer
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferId);
+        arrayBuffer = bufferId;
+        misses++;
+    }
+
+    /**
+     * Forget the given buffer, because it has been deleted.
+     *
+     * @param bufferId Buffer ID.
+     */
+    public static void forgetBuffer(int bufferId) {
+        if(arrayBuffer == bufferId)
+            arrayBuffer = UNKNOWN;
+    }
+
+    /**
+     * Bind the given vertex array object.
+     *
+     * @param vertexArrayId Vertex array object ID, or zero to unbind.
+     */
+    public static void bindVertexArray(int vertexArrayId) {
+        // Skip the call if the vertex array object is already bound
+        if(vertexArray == vertexArrayId) {
+            hits++;
+            return;
+        }
+
+        // Bind the vertex array object
+        GL30.glBindVertexArray(vertexArrayId);
+        vertexArray = vertexArrayId;
+        misses++;
+    }
+
+    /**
+     * Forget the given vertex array object, because it has been deleted.
+     *
+     * @param vertexArrayId Vertex array object ID.
+     */
+    public static void forgetVertexArray(int vertexArrayId) {
+        if(vertexArray == vertexArrayId)
+            vertexArray = UNKNOWN;
+    }
+
+    /**
+     * Enable the given capability.
+     *
+     * @param capability Capability, such as GL_BLEND.
+     */
+    public static void enable(int capability) {
+        setEnabled(capability, true);
+    }
+
+    /**
+     * Disable the given capability.
+     *
+     * @param capability Capability, such as GL_BLEND.
+     */
+    public static void disable(int capability) {
+        setEnabled(capability, false);
+    }
+
+    /**
+     * Enable or disable the given capability.
+     *
+     * @param capability Capability, such as GL_BLEND.
+     * @param enabled True to enable, false to disable.
+     */
+    public static void setEnabled(int capability, boolean enabled) {
+        // Get the index of the tracked capability
+        final int index = getCapabilityIndex(capability);
+        final EnabledState state = enabled ? EnabledState.ENABLED : EnabledState.DISABLED;
+
+        // Skip the call if the capability is already in the given state
+        if(capabilityStates[index] == state) {
+            hits++;
+            return;
+        }
+
+        // Enable or disable the capability
+        if(enabled)
+            GL11.glEnable(capability);
+        else
+            GL11.glDisable(capability);
+        capabilityStates[index] = state;
+        misses++;
+    }
+
+    /**
+     * Get the index of the given capability in the tracked capabilities.
+     * The capability is added if it isn't tracked yet.
+     *
+     * @param capability Capability.
+     *
+     * @return Capability index.
+     */
+    private static int getCapabilityIndex(int capability) {
+        // Find the capability
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0; i < capabilities.length; i++)
+            if(capabilities[i] == capability)
+                return i;
+
+        // Add the capability, with an undefined state
+        final int index = capabilities.length;
+        capabilities = Arrays.copyOf(capabilities, index + 1);
+        capabilityStates = Arrays.copyOf(capabilityStates, index + 1);
+        capabilities[index] = capability;
+        capabilityStates[index] = EnabledState.UNDEFINED;
+        return index;
+    }
+
+    /**
+     * Set the blending function.
+     *
+     * @param source Source factor.
+     * @param destination Destination factor.
+     */
+    public static void blendFunc(int source, int destination) {
+        // Skip the call if the function is already set
+        if(blendSource == source && blendDestination == destination) {
+            hits++;
+            return;
+        }
+
+        // Set the blending function
+        GL11.glBlendFunc(source, destination);
+        blendSource = source;
+        blendDestination = destination;
+        misses++;
+    }
+
+    /**
+     * Set the faces to cull.
+     *
+     * @param mode Face culling mode, such as GL_BACK.
+     */
+    public static void cullFace(int mode) {
+        // Skip the call if the mode is already set
+        if(cullFace == mode) {
+            hits++;
+            return;
+        }
+
+        // Set the face culling mode
+        GL11.glCullFace(mode);
+        cullFace = mode;
+        misses++;
+    }
+
+    /**
+     * Get the width of lines being rendered.
+     *
+     * @return Line width, or -1 if unknown.
+     */
+    public static float getLineWidth() {
+        return lineWidth;
+    }
+
+    /**
+     * Set the width of lines being rendered.
+     *
+     * @param width Line width.
+     */
+    public static void lineWidth(float width) {
+        // Skip the call if the width is already set
+        if(lineWidth == width) {
+            hits++;
+            return;
+        }
+
+        // Set the line width
+        GL11.glLineWidth(width);
+        lineWidth = width;
+        misses++;
+    }
+
+    /**
+     * Get the number of state changes that were skipped last frame, because they wouldn't change anything.
+     *
+     * @return Number of hits.
+     */
+    public static int getHitCount() {
+        return lastFrameHits;
+    }
+
+    /**
+     * Get the number of state changes that were executed last frame.
+     *
+     * @return Number of misses.
+     */
+    public static int getMissCount() {
+        return lastFrameMisses;
+    }
+}
@@ -22,8 +22,10 @@
 
 package com.timvisee.voxeltex.module.shader;
 
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
+import com.timvisee.voxeltex.module.shader.uniform.UniformHandle;
+import com.timvisee.voxeltex.module.shader.uniform.UniformTable;
 import org.joml.*;
-import org.lwjgl.BufferUtils;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -32,16 +34,26 @@ import static org.lwjgl.opengl.GL20.*;
 
 public abstract class AbstractShader implements ShaderInterface {
 
+    /**
+     * Attribute location of the per-instance model matrix in instanced shaders.
+     * A matrix uses four consecutive locations, one for each column.
+     */
+    public static final int ATTRIBUTE_INSTANCE_MODEL_MATRIX = 10;
+
+    /**
+     * Attribute location of the per-instance color in instanced shaders.
+     */
+    public static final int ATTRIBUTE_INSTANCE_COLOR = 14;
+
     /**
      * Program ID of this shader as defined by OpenGL.
      */
     protected int programId;
 
     /**
-     * Cached float buffer for a matrix.
-     * This is used to minimize object allocation which drastically improves performance.
+     * Table of uniforms in this shader program, resolved once after the program was linked.
      */
-    private static final FloatBuffer matrixFloatBufferCache = BufferUtils.createFloatBuffer(16);
+    private final UniformTable uniforms;
 
     /**
      * Constructor.
@@ -52,6 +64,9 @@ public abstract class AbstractShader implements ShaderInterface {
         // Set the fields
         this.programId = programId;
 
+        // Resolve the uniforms of the linked program
+        this.uniforms = UniformTable.resolve(programId);
+
         // Track the shader
         ShaderTracker.trackShader(this);
     }
@@ -64,18 +79,19 @@ public abstract class AbstractShader implements ShaderInterface {
     @Override
     public void bind() {
         // Bind the shader program to OpenGL
-        glUseProgram(this.programId);
+        RenderStateTracker.useProgram(this.programId);
     }
 
     @Override
     public void unbind() {
-        glUseProgram(0);
+        RenderStateTracker.useProgram(0);
     }
 
     @Override
     public void dispose() {
         // Dispose the shader from OpenGL
         glDeleteProgram(this.programId);
+        RenderStateTracker.forgetProgram(this.programId);
 
         // Untrack the shader
         ShaderTracker.untrackShader(this);
@@ -100,74 +116,76 @@ public abstract class AbstractShader implements ShaderInterface {
      * @return Uniform variable location.
      */
     public int getUniformLocation(String name) {
-        return glGetUniformLocation(this.programId, name);
+        return getUniform(name).getLocation();
+    }
+
+    @Override
+    public UniformHandle getUniform(String name) {
+        return this.uniforms.get(name);
     }
 
     @Override
     public void setUniform1f(String name, float value) {
-        glUniform1f(getUniformLocation(name), value);
+        getUniform(name).set1f(value);
     }
 
     @Override
     public void setUniform1i(String name, int value) {
-        glUniform1i(getUniformLocation(name), value);
+        getUniform(name).set1i(value);
     }
 
     @Override
     public void setUniform1iv(String name, IntBuffer buff) {
-        glUniform1iv(getUniformLocation(name), buff);
+        getUniform(name).set1iv(buff);
     }
 
     @Override
     public void setUniform2f(String name, Vector2f value) {
-        glUniform2f(getUniformLocation(name), value.x, value.y);
+        getUniform(name).set2f(value.x, value.y);
     }
 
     @Override
     public void setUniform2i(String name, Vector2i value) {
-        glUniform2i(getUniformLocation(name), value.x, value.y);
+        getUniform(name).set2i(value.x, value.y);
     }
 
     @Override
     public void setUniform3f(String name, Vector3f value) {
-        glUniform3f(getUniformLocation(name), value.x, value.y, value.z);
+        getUniform(name).set3f(value.x, value.y, value.z);
     }
 
     @Override
     public void setUniform3i(String name, Vector3i value) {
-        glUniform3i(getUniformLocation(name), value.x, value.y, value.z);
+        getUniform(name).set3i(value.x, value.y, value.z);
     }
 
     @Override
     public void setUniform3fv(String name, FloatBuffer buff) {
-        glUniform3fv(getUniformLocation(name), buff);
+        getUniform(name).set3fv(buff);
     }
 
     @Override
     public void setUniform4f(String name, Vector4f value) {
-        glUniform4f(getUniformLocation(name), value.x, value.y, value.z, value.w);
+        getUniform(name).set4f(value.x, value.y, value.z, value.w);
     }
 
     @Override
     public void setUniform4i(String name, Vector4i value) {
-        glUniform4i(getUniformLocation(name), value.x, value.y, value.z, value.w);
+        getUniform(name).set4i(value.x, value.y, value.z, value.w);
     }
 
     @Override
     public void setUniform4fv(String name, FloatBuffer buff) {
-        glUniform4fv(getUniformLocation(name), buff);
+        getUniform(name).set4fv(buff);
     }
 
     @Override
     public void setUniformMatrix4f(String name, Matrix4f matrix) {
-        // Synchronize so we don't modify the cached float buffer from multiple places at the same time
-        synchronized(matrixFloatBufferCache) {
-            setUniformMatrix4f(name, matrix, matrixFloatBufferCache);
-        }
+        getUniform(name).setMatrix4f(matrix);
     }
 
     @Override
     public void setUniformMatrix4f(String name, Matrix4f matrix, FloatBuffer buff) {
-        glUniformMatrix4fv(getUniformLocation(name), false, matrix.get(buff));
+        getUniform(name).setMatrix4f(matrix, buff);
     }
 }
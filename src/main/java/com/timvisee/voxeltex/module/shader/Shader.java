@@ -47,6 +47,16 @@ public class Shader extends AbstractShader {
         this(rawShader.compile());
     }
 
+    /**
+     * Get the instanced variant of this shader, which reads the model matrix and color of each instance from
+     * per-instance vertex attributes. See {@link #ATTRIBUTE_INSTANCE_MODEL_MATRIX} and {@link #ATTRIBUTE_INSTANCE_COLOR}.
+     *
+     * @return Instanced shader variant, or null if this shader doesn't have one.
+     */
+    public Shader getInstancedVariant() {
+        return null;
+    }
+
     @Override
     public void update(AbstractScene scene, Material material) {
         // Configure the projection and view matrix of the shader
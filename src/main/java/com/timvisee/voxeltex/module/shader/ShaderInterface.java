@@ -24,6 +24,7 @@ package com.timvisee.voxeltex.module.shader;
 
 import com.timvisee.voxeltex.architecture.scene.AbstractScene;
 import com.timvisee.voxeltex.module.material.Material;
+import com.timvisee.voxeltex.module.shader.uniform.UniformHandle;
 import org.joml.*;
 
 import java.nio.FloatBuffer;
@@ -60,6 +61,16 @@ public interface ShaderInterface {
      */
     void dispose();
 
+    /**
+     * Get the handle of a uniform variable, resolved when the shader program was linked.
+     * Handles should be stored and reused by callers that set the uniform frequently.
+     *
+     * @param name Uniform name.
+     *
+     * @return Uniform handle, which is invalid if the uniform doesn't exist.
+     */
+    UniformHandle getUniform(String name);
+
     /**
      * Set a variable to a float value.
      *
@@ -25,6 +25,8 @@ package com.timvisee.voxeltex.module.shader;
 import com.timvisee.voxeltex.module.shader.specific.BitmapFontShader;
 import com.timvisee.voxeltex.module.shader.specific.DefaultShader;
 import com.timvisee.voxeltex.module.shader.specific.GuiTextureShader;
+import com.timvisee.voxeltex.module.shader.specific.LightmappedShader;
+import com.timvisee.voxeltex.module.shader.specific.TexturedInstancedShader;
 import com.timvisee.voxeltex.module.shader.specific.TexturedShader;
 
 public class ShaderManager {
@@ -39,6 +41,16 @@ public class ShaderManager {
      */
     public static Shader SHADER_DEFAULT_TEXTURED;
 
+    /**
+     * Instanced variant of the default textured shader.
+     */
+    public static Shader SHADER_DEFAULT_TEXTURED_INSTANCED;
+
+    /**
+     * Default textured shader for geometry with baked lightmaps.
+     */
+    public static Shader SHADER_DEFAULT_LIGHTMAPPED;
+
     /**
      * Default bitmap font shader.
      */
@@ -55,6 +67,8 @@ public class ShaderManager {
     public static void load() {
         SHADER_DEFAULT = new DefaultShader();
         SHADER_DEFAULT_TEXTURED = new TexturedShader();
+        SHADER_DEFAULT_TEXTURED_INSTANCED = new TexturedInstancedShader();
+        SHADER_DEFAULT_LIGHTMAPPED = new LightmappedShader();
         SHADER_DEFAULT_BITMAP_FONT = new BitmapFontShader();
         SHADER_DEFAULT_GUI_TEXTURE = new GuiTextureShader();
     }
@@ -22,8 +22,41 @@
 
 package com.timvisee.voxeltex.module.shader.raw;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public abstract class AbstractRawShader implements RawShaderInterface {
 
+    /**
+     * Attribute locations to bind before the shader program is linked, by their attribute name.
+     */
+    private final Map<String, Integer> attributeLocations = new LinkedHashMap<>();
+
+    /**
+     * Bind a vertex attribute to a fixed location, when the shader program is linked.
+     *
+     * @param name Attribute name.
+     * @param location Attribute location.
+     *
+     * @return this for method chaining.
+     */
+    public AbstractRawShader bindAttributeLocation(String name, int location) {
+        // Store the location
+        this.attributeLocations.put(name, location);
+
+        // Return this for method chaining
+        return this;
+    }
+
+    /**
+     * Get the attribute locations to bind before the shader program is linked.
+     *
+     * @return Attribute locations by their attribute name.
+     */
+    public Map<String, Integer> getAttributeLocations() {
+        return this.attributeLocations;
+    }
+
     @Override
     public boolean hasVertexShader() {
         return getVertexShader() != null;
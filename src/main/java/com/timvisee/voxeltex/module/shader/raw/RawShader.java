@@ -25,6 +25,8 @@ package com.timvisee.voxeltex.module.shader.raw;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 
+import java.util.Map;
+
 public class RawShader extends AbstractRawShader {
 
     /**
@@ -133,6 +135,10 @@ public class RawShader extends AbstractRawShader {
         if(hasFragmentShader())
             GL20.glAttachShader(program, fragmentId);
 
+        // Bind the configured attribute locations, before the program is linked
+        for(Map.Entry<String, Integer> attribute : getAttributeLocations().entrySet())
+            GL20.glBindAttribLocation(program, attribute.getValue(), attribute.getKey());
+
         // Link the shader program to OpenGL and link it
         GL20.glLinkProgram(program);
         GL20.glValidateProgram(program);
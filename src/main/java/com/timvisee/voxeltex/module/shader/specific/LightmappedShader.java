@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.shader.specific;
+
+import com.timvisee.voxeltex.architecture.scene.AbstractScene;
+import com.timvisee.voxeltex.module.material.LightmapMaterial;
+import com.timvisee.voxeltex.module.material.Material;
+import com.timvisee.voxeltex.module.shader.Shader;
+import com.timvisee.voxeltex.module.shader.raw.AbstractRawShader;
+import com.timvisee.voxeltex.module.shader.raw.EngineAssetsRawShader;
+import com.timvisee.voxeltex.module.shader.uniform.UniformHandle;
+import org.lwjgl.opengl.GL13;
+
+/**
+ * Textured shader that reads its diffuse lighting from a baked lightmap instead of computing it from the lights.
+ * This shader is used for {@link LightmapMaterial}s, the lightmap texture coordinates are read from the second
+ * texture coordinate set.
+ */
+public class LightmappedShader extends Shader {
+
+    /**
+     * The engine asset path of the vertex shader.
+     */
+    private static final String SHADER_VERTEX_ASSET_PATH = "shaders/lightmapped.vert";
+
+    /**
+     * The engine asset path of the fragment shader.
+     */
+    private static final String SHADER_FRAGMENT_ASSET_PATH = "shaders/lightmapped.frag";
+
+    /**
+     * Texture unit the lightmap is bound to.
+     */
+    public static final int LIGHTMAP_TEXTURE_UNIT = GL13.GL_TEXTURE4;
+
+    /**
+     * Handle of the texture tiling uniform.
+     */
+    private final UniformHandle tilingUniform = getUniform("tiling");
+
+    /**
+     * Handle of the lightmap sampler uniform.
+     */
+    private final UniformHandle lightmapUniform = getUniform("lightmap");
+
+    /**
+     * Constructor.
+     */
+    public LightmappedShader() {
+        this(new EngineAssetsRawShader(SHADER_VERTEX_ASSET_PATH, SHADER_FRAGMENT_ASSET_PATH));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param programId OpenGL shader program ID.
+     */
+    public LightmappedShader(int programId) {
+        super(programId);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rawShader Raw shader.
+     */
+    public LightmappedShader(AbstractRawShader rawShader) {
+        super(rawShader);
+    }
+
+    @Override
+    public void update(AbstractScene scene, Material material) {
+        // Call the parent
+        super.update(scene, material);
+
+        // Send texture tiling data to the shader
+        if(material != null)
+            this.tilingUniform.set2f(material.getTiling().x, material.getTiling().y);
+
+        // Bind the lightmap of the material
+        this.lightmapUniform.set1i(LIGHTMAP_TEXTURE_UNIT - GL13.GL_TEXTURE0);
+        if(material instanceof LightmapMaterial)
+            ((LightmapMaterial) material).getLightmap().bind(LIGHTMAP_TEXTURE_UNIT);
+    }
+}
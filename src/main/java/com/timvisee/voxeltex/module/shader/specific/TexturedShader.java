@@ -25,8 +25,10 @@ package com.timvisee.voxeltex.module.shader.specific;
 import com.timvisee.voxeltex.architecture.scene.AbstractScene;
 import com.timvisee.voxeltex.module.material.Material;
 import com.timvisee.voxeltex.module.shader.Shader;
+import com.timvisee.voxeltex.module.shader.ShaderManager;
 import com.timvisee.voxeltex.module.shader.raw.AbstractRawShader;
 import com.timvisee.voxeltex.module.shader.raw.EngineAssetsRawShader;
+import com.timvisee.voxeltex.module.shader.uniform.UniformHandle;
 
 public class TexturedShader extends Shader {
 
@@ -40,6 +42,11 @@ public class TexturedShader extends Shader {
      */
     private static final String SHADER_FRAGMENT_ASSET_PATH = "shaders/textured.frag";
 
+    /**
+     * Handle of the texture tiling uniform.
+     */
+    private final UniformHandle tilingUniform = getUniform("tiling");
+
     /**
      * Constructor.
      */
@@ -65,6 +72,11 @@ public class TexturedShader extends Shader {
         super(rawShader);
     }
 
+    @Override
+    public Shader getInstancedVariant() {
+        return ShaderManager.SHADER_DEFAULT_TEXTURED_INSTANCED;
+    }
+
     @Override
     public void update(AbstractScene scene, Material material) {
         // Call the parent
@@ -75,6 +87,6 @@ public class TexturedShader extends Shader {
 
         // Send texture tiling data to the shader
         if(material != null)
-            setUniform2f("tiling", material.getTiling());
+            this.tilingUniform.set2f(material.getTiling().x, material.getTiling().y);
     }
 }
@@ -0,0 +1,489 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.shader.uniform;
+
+import org.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ * Handle to a uniform variable of a linked shader program.
+ *
+ * The location of the uniform is resolved once when the program is linked.
+ * The last value uploaded through this handle is cached, so setting a value that equals the uploaded value
+ * doesn't invoke any OpenGL calls. Values must only be set while the program of this handle is in use.
+ */
+public class UniformHandle {
+
+    /**
+     * Location value for uniforms that don't exist in the program.
+     */
+    public static final int LOCATION_INVALID = -1;
+
+    /**
+     * Name of the uniform.
+     */
+    private final String name;
+
+    /**
+     * Location of the uniform in the program.
+     */
+    private final int location;
+
+    /**
+     * OpenGL type of the uniform, such as GL_FLOAT_VEC4. Zero if unknown.
+     */
+    private final int type;
+
+    /**
+     * Array size of the uniform, one for uniforms that aren't an array.
+     */
+    private final int size;
+
+    /**
+     * Last uploaded float values.
+     */
+    private float[] floatCache = new float[0];
+
+    /**
+     * Last uploaded integer values.
+     */
+    private int[] intCache = new int[0];
+
+    /**
+     * Number of valid values in the caches, or -1 if no value has been uploaded yet.
+     */
+    private int cachedCount = -1;
+
+    /**
+     * Temporary array used to compare matrices against the cache.
+     */
+    private final float[] tempMatrix = new float[16];
+
+    /**
+     * Cached float buffer for a matrix.
+     * This is used to minimize object allocation which drastically improves performance.
+     */
+    private static final FloatBuffer matrixFloatBufferCache = BufferUtils.createFloatBuffer(16);
+
+    /**
+     * Constructor.
+     *
+     * @param name Uniform name.
+     * @param location Uniform location, or {@link #LOCATION_INVALID} if it doesn't exist.
+     * @param type OpenGL uniform type, or zero if unknown.
+     * @param size Uniform array size.
+     */
+    public UniformHandle(String name, int location, int type, int size) {
+        this.name = name;
+        this.location = location;
+        this.type = type;
+        this.size = size;
+    }
+
+    /**
+     * Get the name of the uniform.
+     *
+     * @return Uniform name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the location of the uniform.
+     *
+     * @return Uniform location, or {@link #LOCATION_INVALID} if it doesn't exist.
+     */
+    public int getLocation() {
+        return this.location;
+    }
+
+    /**
+     * Check whether this uniform exists in the program.
+     *
+     * @return True if the uniform exists, false if not.
+     */
+    public boolean isValid() {
+        return this.location != LOCATION_INVALID;
+    }
+
+    /**
+     * Get the OpenGL type of the uniform, such as GL_FLOAT_VEC4.
+     *
+     * @return Uniform type, or zero if unknown.
+     */
+    public int getType() {
+        return this.type;
+    }
+
+    /**
+     * Get the array size of the uniform.
+     *
+     * @return Array size, one if the uniform isn't an array.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Invalidate the cached value, so the next value is always uploaded.
+     */
+    public void invalidate() {
+        this.cachedCount = -1;
+    }
+
+    /**
+     * Set the uniform to a float value.
+     *
+     * @param x Value.
+     */
+    public void set1f(float x) {
+        if(isValid() && updateFloatCache(x, 0, 0, 0, 1))
+            glUniform1f(this.location, x);
+    }
+
+    /**
+     * Set the uniform to two float values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     */
+    public void set2f(float x, float y) {
+        if(isValid() && updateFloatCache(x, y, 0, 0, 2))
+            glUniform2f(this.location, x, y);
+    }
+
+    /**
+     * Set the uniform to three float values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     * @param z Third value.
+     */
+    public void set3f(float x, float y, float z) {
+        if(isValid() && updateFloatCache(x, y, z, 0, 3))
+            glUniform3f(this.location, x, y, z);
+    }
+
+    /**
+     * Set the uniform to four float values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     * @param z Third value.
+     * @param w Fourth value.
+     */
+    public void set4f(float x, float y, float z, float w) {
+        if(isValid() && updateFloatCache(x, y, z, w, 4))
+            glUniform4f(this.location, x, y, z, w);
+    }
+
+    /**
+     * Set the uniform to an integer value.
+     *
+     * @param x Value.
+     */
+    public void set1i(int x) {
+        if(isValid() && updateIntCache(x, 0, 0, 0, 1))
+            glUniform1i(this.location, x);
+    }
+
+    /**
+     * Set the uniform to two integer values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     */
+    public void set2i(int x, int y) {
+        if(isValid() && updateIntCache(x, y, 0, 0, 2))
+            glUniform2i(this.location, x, y);
+    }
+
+    /**
+     * Set the uniform to three integer values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     * @param z Third value.
+     */
+    public void set3i(int x, int y, int z) {
+        if(isValid() && updateIntCache(x, y, z, 0, 3))
+            glUniform3i(this.location, x, y, z);
+    }
+
+    /**
+     * Set the uniform to four integer values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     * @param z Third value.
+     * @param w Fourth value.
+     */
+    public void set4i(int x, int y, int z, int w) {
+        if(isValid() && updateIntCache(x, y, z, w, 4))
+            glUniform4i(this.location, x, y, z, w);
+    }
+
+    /**
+     * Set the uniform to an array of integers.
+     * The buffer is read from its position to its limit, its position isn't changed.
+     *
+     * @param buff Integer buffer.
+     */
+    public void set1iv(IntBuffer buff) {
+        if(isValid() && updateIntCache(buff))
+            glUniform1iv(this.location, buff);
+    }
+
+    /**
+     * Set the uniform to an array of floats.
+     * The buffer is read from its position to its limit, its position isn't changed.
+     *
+     * @param buff Float buffer.
+     */
+    public void set1fv(FloatBuffer buff) {
+        if(isValid() && updateFloatCache(buff))
+            glUniform1fv(this.location, buff);
+    }
+
+    /**
+     * Set the uniform to an array of three component float vectors.
+     * The buffer is read from its position to its limit, its position isn't changed.
+     *
+     * @param buff Float buffer.
+     */
+    public void set3fv(FloatBuffer buff) {
+        if(isValid() && updateFloatCache(buff))
+            glUniform3fv(this.location, buff);
+    }
+
+    /**
+     * Set the uniform to an array of four component float vectors.
+     * The buffer is read from its position to its limit, its position isn't changed.
+     *
+     * @param buff Float buffer.
+     */
+    public void set4fv(FloatBuffer buff) {
+        if(isValid() && updateFloatCache(buff))
+            glUniform4fv(this.location, buff);
+    }
+
+    /**
+     * Set the uniform to a matrix.
+     *
+     * @param matrix Matrix.
+     */
+    public void setMatrix4f(Matrix4f matrix) {
+        // Synchronize so we don't modify the cached float buffer from multiple places at the same time
+        synchronized(matrixFloatBufferCache) {
+            setMatrix4f(matrix, matrixFloatBufferCache);
+        }
+    }
+
+    /**
+     * Set the uniform to a matrix.
+     *
+     * @param matrix Matrix.
+     * @param buff Float buffer used to upload the matrix. (allocation free)
+     */
+    public synchronized void setMatrix4f(Matrix4f matrix, FloatBuffer buff) {
+        // Make sure the uniform exists
+        if(!isValid())
+            return;
+
+        // Compare the matrix with the last uploaded value
+        matrix.get(this.tempMatrix);
+        if(!updateFloatCache(this.tempMatrix))
+            return;
+
+        // Upload the matrix
+        glUniformMatrix4fv(this.location, false, matrix.get(buff));
+    }
+
+    /**
+     * Update the float cache with the given values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     * @param z Third value.
+     * @param w Fourth value.
+     * @param count Number of values that are used.
+     *
+     * @return True if the values changed and must be uploaded, false if they equal the cached values.
+     */
+    private boolean updateFloatCache(float x, float y, float z, float w, int count) {
+        // Make sure the cache is big enough
+        if(this.floatCache.length < 4)
+            this.floatCache = new float[Math.max(4, this.size * 4)];
+
+        // Compare the values with the cache
+        final float[] cache = this.floatCache;
+        if(this.cachedCount == count && cache[0] == x && cache[1] == y && cache[2] == z && cache[3] == w)
+            return false;
+
+        // Update the cache
+        cache[0] = x;
+        cache[1] = y;
+        cache[2] = z;
+        cache[3] = w;
+        this.cachedCount = count;
+        return true;
+    }
+
+    /**
+     * Update the float cache with the given values.
+     *
+     * @param values Values.
+     *
+     * @return True if the values changed and must be uploaded, false if they equal the cached values.
+     */
+    private boolean updateFloatCache(float[] values) {
+        // Make sure the cache is big enough
+        if(this.floatCache.length < values.length)
+            this.floatCache = new float[values.length];
+
+        // Compare the values with the cache
+        final float[] cache = this.floatCache;
+        if(this.cachedCount == values.length) {
+            boolean equal = true;
+            for(int i = 0; i < values.length; i++) {
+                if(cache[i] != values[i]) {
+                    equal = false;
+                    break;
+                }
+            }
+            if(equal)
+                return false;
+        }
+
+        // Update the cache
+        System.arraycopy(values, 0, cache, 0, values.length);
+        this.cachedCount = values.length;
+        return true;
+    }
+
+    /**
+     * Update the float cache with the values in the given buffer.
+     *
+     * @param buff Buffer, read from its position to its limit.
+     *
+     * @return True if the values changed and must be uploaded, false if they equal the cached values.
+     */
+    private boolean updateFloatCache(FloatBuffer buff) {
+        // Get the number of values and make sure the cache is big enough
+        final int position = buff.position();
+        final int count = buff.remaining();
+        if(this.floatCache.length < count)
+            this.floatCache = new float[count];
+
+        // Compare the values with the cache
+        final float[] cache = this.floatCache;
+        if(this.cachedCount == count) {
+            boolean equal = true;
+            for(int i = 0; i < count; i++) {
+                if(cache[i] != buff.get(position + i)) {
+                    equal = false;
+                    break;
+                }
+            }
+            if(equal)
+                return false;
+        }
+
+        // Update the cache
+        for(int i = 0; i < count; i++)
+            cache[i] = buff.get(position + i);
+        this.cachedCount = count;
+        return true;
+    }
+
+    /**
+     * Update the integer cache with the given values.
+     *
+     * @param x First value.
+     * @param y Second value.
+     * @param z Third value.
+     * @param w Fourth value.
+     * @param count Number of values that are used.
+     *
+     * @return True if the values changed and must be uploaded, false if they equal the cached values.
+     */
+    private boolean updateIntCache(int x, int y, int z, int w, int count) {
+        // Make sure the cache is big enough
+        if(this.intCache.length < 4)
+            this.intCache = new int[Math.max(4, this.size * 4)];
+
+        // Compare the values with the cache
+        final int[] cache = this.intCache;
+        if(this.cachedCount == count && cache[0] == x && cache[1] == y && cache[2] == z && cache[3] == w)
+            return false;
+
+        // Update the cache
+        cache[0] = x;
+        cache[1] = y;
+        cache[2] = z;
+        cache[3] = w;
+        this.cachedCount = count;
+        return true;
+    }
+
+    /**
+     * Update the integer cache with the values in the given buffer.
+     *
+     * @param buff Buffer, read from its position to its limit.
+     *
+     * @return True if the values changed and must be uploaded, false if they equal the cached values.
+     */
+    private boolean updateIntCache(IntBuffer buff) {
+        // Get the number of values and make sure the cache is big enough
+        final int position = buff.position();
+        final int count = buff.remaining();
+        if(this.intCache.length < count)
+            this.intCache = new int[count];
+
+        // Compare the values with the cache
+        final int[] cache = this.intCache;
+        if(this.cachedCount == count) {
+            boolean equal = true;
+            for(int i = 0; i < count; i++) {
+                if(cache[i] != buff.get(position + i)) {
+                    equal = false;
+                    break;
+                }
+            }
+            if(equal)
+                return false;
+        }
+
+        // Update the cache
+        for(int i = 0; i < count; i++)
+            cache[i] = buff.get(position + i);
+        this.cachedCount = count;
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.module.shader.uniform;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL20.*;
+
+public class UniformTable {
+
+    /**
+     * Suffix OpenGL adds to the names of array uniforms.
+     */
+    private static final String ARRAY_SUFFIX = "[0]";
+
+    /**
+     * Program ID of the shader this table is for.
+     */
+    private final int programId;
+
+    /**
+     * Uniform handles by their name.
+     */
+    private final Map<String, UniformHandle> handles = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param programId Program ID of the shader this table is for.
+     */
+    private UniformTable(int programId) {
+        this.programId = programId;
+    }
+
+    /**
+     * Resolve all active uniforms of a linked program into a new uniform table.
+     *
+     * @param programId Program ID of the linked shader.
+     *
+     * @return Uniform table.
+     */
+    public static UniformTable resolve(int programId) {
+        // Create the table
+        UniformTable table = new UniformTable(programId);
+
+        // Create buffers for the uniform size and type
+        final IntBuffer sizeBuffer = BufferUtils.createIntBuffer(1);
+        final IntBuffer typeBuffer = BufferUtils.createIntBuffer(1);
+
+        // Resolve each active uniform of the program
+        final int uniformCount = glGetProgrami(programId, GL_ACTIVE_UNIFORMS);
+        for(int i = 0; i < uniformCount; i++) {
+            // Get the uniform name, size and type
+            String name = glGetActiveUniform(programId, i, sizeBuffer, typeBuffer);
+
+            // Strip the array suffix from array uniforms
+            if(name.endsWith(ARRAY_SUFFIX))
+                name = name.substring(0, name.length() - ARRAY_SUFFIX.length());
+
+            // Skip built-in uniforms, which don't have a location
+            final int location = glGetUniformLocation(programId, name);
+            if(location == UniformHandle.LOCATION_INVALID)
+                continue;
+
+            // Create and store the handle
+            table.handles.put(name, new UniformHandle(name, location, typeBuffer.get(0), sizeBuffer.get(0)));
+        }
+
+        // Return the table
+        return table;
+    }
+
+    /**
+     * Get the program ID of the shader this table is for.
+     *
+     * @return Program ID.
+     */
+    public int getProgramId() {
+        return this.programId;
+    }
+
+    /**
+     * Get the handle of the uniform with the given name.
+     * If the program doesn't have an active uniform with this name, an invalid handle is returned,
+     * which ignores all values that are set.
+     *
+     * @param name Uniform name.
+     *
+     * @return Uniform handle.
+     */
+    public UniformHandle get(String name) {
+        // Get the handle
+        UniformHandle handle = this.handles.get(name);
+
+        // Create and store an invalid handle if the uniform doesn't exist, to speed up future lookups
+        if(handle == null) {
+            handle = new UniformHandle(name, UniformHandle.LOCATION_INVALID, 0, 0);
+            this.handles.put(name, handle);
+        }
+
+        // Return the handle
+        return handle;
+    }
+
+    /**
+     * Invalidate the cached values of all uniforms, so the next values are always uploaded.
+     */
+    public void invalidate() {
+        for(UniformHandle handle : this.handles.values())
+            handle.invalidate();
+    }
+}
@@ -23,6 +23,7 @@
 package com.timvisee.voxeltex.module.texture;
 
 import com.timvisee.voxeltex.module.Color;
+import com.timvisee.voxeltex.module.render.RenderStateTracker;
 import com.timvisee.voxeltex.util.BufferUtil;
 import org.lwjgl.opengl.GL13;
 
@@ -30,7 +31,6 @@ import java.nio.ByteBuffer;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL12.GL_BGR;
-import static org.lwjgl.opengl.GL13.glActiveTexture;
 
 public class Texture {
 
@@ -268,18 +268,15 @@ public class Texture {
      * @param glTextureId The OpenGL texture ID.
      */
     public void bind(int glTextureId) {
-        // Activate the first texture
-        glActiveTexture(glTextureId);
-
-        // Bind the texture
-        glBindTexture(GL_TEXTURE_2D, this.id);
+        // Activate the texture unit and bind the texture, through the render state tracker
+        RenderStateTracker.bindTexture(glTextureId, this.id);
     }
 
     /**
      * Unbind any textures from OpenGL.
      */
     public static void unbind() {
-        glBindTexture(GL_TEXTURE_2D, 0);
+        RenderStateTracker.bindTexture(0);
     }
 
     /**
@@ -348,6 +345,7 @@ public class Texture {
         // Remove the texture from OpenGL
         if(glIsTexture(id))
             glDeleteTextures(id);
+        RenderStateTracker.forgetTexture(id);
 
         // Remove the image from the texture manager
         TextureTracker.untrackTexture(this);
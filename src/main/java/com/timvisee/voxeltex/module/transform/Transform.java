@@ -24,6 +24,7 @@ package com.timvisee.voxeltex.module.transform;
 
 import com.timvisee.voxeltex.architecture.gameobject.AbstractGameObject;
 import com.timvisee.voxeltex.architecture.gameobject.GameObject;
+import com.timvisee.voxeltex.module.mesh.Bounds;
 import com.timvisee.voxeltex.runtime.global.Time;
 import com.timvisee.voxeltex.util.math.quaternion.QuaternionfFactory;
 import com.timvisee.voxeltex.util.math.vector.Vector3fFactory;
@@ -31,6 +32,8 @@ import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
+import java.util.List;
+
 public class Transform {
 
     /**
@@ -79,6 +82,51 @@ public class Transform {
      */
     private final Matrix4f tempMatrix = new Matrix4f();
 
+    /**
+     * Cached transformation matrix in local space.
+     */
+    private final Matrix4f localMatrix = new Matrix4f();
+
+    /**
+     * Cached transformation matrix in world space.
+     */
+    private final Matrix4f worldMatrix = new Matrix4f();
+
+    /**
+     * Position the cached matrices were built from.
+     * Used to detect changes made directly to the vector returned by {@link #getPosition()}.
+     */
+    private final Vector3f cachedPosition = Vector3fFactory.identity();
+
+    /**
+     * Rotation the cached matrices were built from.
+     * Used to detect changes made directly to the quaternion returned by {@link #getRotation()}.
+     */
+    private final Quaternionf cachedRotation = QuaternionfFactory.identity();
+
+    /**
+     * Scale the cached matrices were built from.
+     * Used to detect changes made directly to the vector returned by {@link #getScale()}.
+     */
+    private final Vector3f cachedScale = Vector3fFactory.one();
+
+    /**
+     * Version of the cached world matrix, incremented each time it changes.
+     */
+    private int worldVersion = 0;
+
+    /**
+     * Defines whether the cached local matrix is dirty, and must be rebuilt before it's used.
+     */
+    private boolean dirty = true;
+
+    /**
+     * Defines whether the cached world matrix is dirty, and must be rebuilt before it's used.
+     * This flag is set on the whole subtree when this transform or any of its parents changes, so a clean transform
+     * never has to look at its parents. If this flag is set, it is set on all children as well.
+     */
+    private volatile boolean worldDirty = true;
+
     /**
      * Constructor.
      *
@@ -116,8 +164,12 @@ public class Transform {
      *
      * @return Local transformation matrix.
      */
-    public Matrix4f getLocalMatrix(Matrix4f dest) {
-        return addLocalMatrix(dest.identity());
+    public synchronized Matrix4f getLocalMatrix(Matrix4f dest) {
+        // Make sure the cached matrices are up to date
+        validate();
+
+        // Copy the cached local matrix
+        return dest.set(this.localMatrix);
     }
 
     /**
@@ -150,8 +202,121 @@ public class Transform {
      *
      * @return World transformation matrix.
      */
-    public Matrix4f getWorldMatrix(Matrix4f dest) {
-        return addLocalMatrix(getParentWorldMatrix(dest));
+    public synchronized Matrix4f getWorldMatrix(Matrix4f dest) {
+        // Make sure the cached matrices are up to date
+        validate();
+
+        // Copy the cached world matrix
+        return dest.set(this.worldMatrix);
+    }
+
+    /**
+     * Get the version of the world matrix.
+     * The version changes each time the world matrix of this game object changes, including changes caused by any
+     * of its parents. This can be used to skip work when a game object hasn't moved.
+     *
+     * @return World matrix version.
+     */
+    public synchronized int getWorldVersion() {
+        return validate();
+    }
+
+    /**
+     * Mark the cached matrices as dirty, so they're rebuilt the next time they're used.
+     * This also marks the world matrices of all children as dirty.
+     *
+     * This is done automatically by the setters of this transform and when the game object is moved to a different
+     * parent. Changes made directly to the position, rotation and scale vectors are detected when this transform is
+     * used or updated, but children only see them after that. Call this method after changing the vectors directly
+     * to make children see the change right away.
+     */
+    public synchronized void markDirty() {
+        this.dirty = true;
+        invalidateWorld();
+    }
+
+    /**
+     * Mark the cached world matrix of this transform and all its children as dirty.
+     * Subtrees that are already dirty are skipped, because their children are dirty as well.
+     */
+    private void invalidateWorld() {
+        // Mark the world matrix of this transform as dirty
+        this.worldDirty = true;
+
+        // Mark the children as dirty
+        final List<AbstractGameObject> children = getOwner().getChildren();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = children.size(); i < size; i++) {
+            final Transform child = children.get(i).getTransform();
+            if(!child.worldDirty)
+                child.invalidateWorld();
+        }
+    }
+
+    /**
+     * Mark the cached matrices as dirty if the position, rotation or scale vector was changed directly.
+     */
+    private void detectChanges() {
+        if(!this.dirty && (!this.position.equals(this.cachedPosition)
+                || !this.rotation.equals(this.cachedRotation)
+                || !this.scale.equals(this.cachedScale)))
+            markDirty();
+    }
+
+    /**
+     * Rebuild the cached local and world matrices if they're out of date.
+     *
+     * Changes are pushed down to the children by marking their world matrices as dirty, so this is just a flag check
+     * if nothing changed. Only if the world matrix is dirty, the parent is validated to rebuild it.
+     *
+     * @return Version of the world matrix.
+     */
+    private synchronized int validate() {
+        // Detect changes made directly to the vectors of this transform
+        detectChanges();
+
+        // Return the current version if the world matrix is up to date
+        if(!this.worldDirty)
+            return this.worldVersion;
+
+        // Clear the flag before reading the parent, so a parent changing in the meantime marks it dirty again
+        this.worldDirty = false;
+
+        // Rebuild the local matrix if the transform changed
+        if(this.dirty) {
+            this.cachedPosition.set(this.position);
+            this.cachedRotation.set(this.rotation);
+            this.cachedScale.set(this.scale);
+            this.localMatrix.identity().translate(this.cachedPosition).rotate(this.cachedRotation).scale(this.cachedScale);
+            this.dirty = false;
+        }
+
+        // Start with the world matrix of the parent, or the world origin
+        if(getOwner().hasParent())
+            getOwner().getParent().getTransform().getWorldMatrix(this.worldMatrix);
+        else
+            this.worldMatrix.identity();
+
+        // Add the local transformation, and bump the version
+        this.worldMatrix.translate(this.cachedPosition).rotate(this.cachedRotation).scale(this.cachedScale);
+        this.worldVersion++;
+
+        return this.worldVersion;
+    }
+
+    /**
+     * Get the given local bounds of the game object in world space.
+     *
+     * @param localBounds Bounds in local space, such as the bounds of a mesh.
+     * @param dest Destination bounds. (allocation free)
+     *
+     * @return World space bounds.
+     */
+    public Bounds getWorldBounds(Bounds localBounds, Bounds dest) {
+        // Synchronize to ensure we aren't using the matrix cache multiple times at once
+        synchronized(tempMatrix) {
+            return localBounds.transform(getWorldMatrix(tempMatrix), dest);
+        }
     }
 
     /**
@@ -298,8 +463,9 @@ public class Transform {
      *
      * @param position Game object local position.
      */
-    public void setPosition(Vector3f position) {
+    public synchronized void setPosition(Vector3f position) {
         this.position.set(position);
+        markDirty();
     }
 
     /**
@@ -309,8 +475,9 @@ public class Transform {
      * @param y Y coordinate.
      * @param z Z coordinate.
      */
-    public void setPosition(float x, float y, float z) {
+    public synchronized void setPosition(float x, float y, float z) {
         this.position.set(x, y, z);
+        markDirty();
     }
 
     /**
@@ -383,9 +550,10 @@ public class Transform {
      *
      * @param rotation Game object local rotation.
      */
-    public void setRotation(Quaternionf rotation) {
+    public synchronized void setRotation(Quaternionf rotation) {
         // Set the rotation and normalize to prevent weird rotation glitches on non-normalized quaternions
         this.rotation.set(rotation).normalize();
+        markDirty();
     }
 
     /**
@@ -458,8 +626,9 @@ public class Transform {
      *
      * @param scale Game object local local.
      */
-    public void setScale(Vector3f scale) {
+    public synchronized void setScale(Vector3f scale) {
         this.scale.set(scale);
+        markDirty();
     }
 
     /**
@@ -469,8 +638,9 @@ public class Transform {
      * @param y Scale on the Y axis.
      * @param z Scale on the Z axis.
      */
-    public void setScale(float x, float y, float z) {
+    public synchronized void setScale(float x, float y, float z) {
         this.scale.set(x, y, z);
+        markDirty();
     }
 
     /**
@@ -624,10 +794,19 @@ public class Transform {
         // Update angular velocity based on angular acceleration
         angVel.fma(Time.deltaTimeFloat, this.angAcc);
 
-        // Update the rotation based on the angular velocity
-        this.rotation.integrate(Time.deltaTimeFloat, this.angVel.x, this.angVel.y, this.angVel.z);
+        // Update the rotation based on the angular velocity, skip resting objects to keep the cached matrices valid
+        if(this.angVel.x != 0.0f || this.angVel.y != 0.0f || this.angVel.z != 0.0f) {
+            this.rotation.integrate(Time.deltaTimeFloat, this.angVel.x, this.angVel.y, this.angVel.z);
+            markDirty();
+        }
+
+        // Update position based on linear velocity, skip resting objects to keep the cached matrices valid
+        if(this.linVel.x != 0.0f || this.linVel.y != 0.0f || this.linVel.z != 0.0f) {
+            this.position.fma(Time.deltaTimeFloat, this.linVel);
+            markDirty();
+        }
 
-        // Update position based on linear velocity
-        this.position.fma(Time.deltaTimeFloat, this.linVel);
+        // Detect changes made directly to the vectors, so the children see them as well
+        detectChanges();
     }
 }
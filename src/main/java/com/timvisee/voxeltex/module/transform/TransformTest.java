@@ -30,6 +30,7 @@ import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TransformTest {
 
@@ -827,4 +828,112 @@ public class TransformTest {
         // Make sure this doesn't throw any exceptions
         this.transform.update();
     }
-}
\ No newline at end of file
+
+    /**
+     * Compute the world matrix of the given game object without using any cached matrices,
+     * by chaining the local transformations from the root down to the game object.
+     *
+     * @param gameObject Game object.
+     * @param dest Destination matrix.
+     *
+     * @return World matrix.
+     */
+    private Matrix4f computeWorldMatrix(GameObject gameObject, Matrix4f dest) {
+        // Start with the world matrix of the parent, or the world origin
+        if(gameObject.hasParent())
+            computeWorldMatrix((GameObject) gameObject.getParent(), dest);
+        else
+            dest.identity();
+
+        // Add the local transformation
+        return gameObject.getTransform().addLocalMatrix(dest);
+    }
+
+    /**
+     * Assert that the cached world matrix of the given game object equals the world matrix computed from scratch.
+     *
+     * @param gameObject Game object.
+     */
+    private void assertWorldMatrixCached(GameObject gameObject) {
+        // Get the cached and the computed world matrix
+        final Matrix4f cached = gameObject.getTransform().getWorldMatrix();
+        final Matrix4f computed = computeWorldMatrix(gameObject, new Matrix4f());
+
+        // Compare all matrix elements
+        final float[] cachedElements = cached.get(new float[16]);
+        final float[] computedElements = computed.get(new float[16]);
+        for(int i = 0; i < 16; i++)
+            assertEquals(computedElements[i], cachedElements[i], 0.00001f);
+    }
+
+    @org.junit.Test
+    public void worldMatrixCache() throws Exception {
+        // Create a chain of game objects below the owner with a random transformation
+        GameObject last = this.owner;
+        final GameObject[] chain = new GameObject[4];
+        for(int i = 0; i < chain.length; i++) {
+            chain[i] = new GameObject("Chain " + i);
+            chain[i].getTransform().setPosition((float) Math.random(), (float) Math.random(), (float) Math.random());
+            chain[i].getTransform().setRotation(new Quaternionf().rotateXYZ((float) Math.random(), (float) Math.random(), (float) Math.random()));
+            chain[i].getTransform().setScale(1.0f + (float) Math.random(), 1.0f + (float) Math.random(), 1.0f + (float) Math.random());
+            last.addChild(chain[i]);
+            last = chain[i];
+        }
+        final GameObject leaf = chain[chain.length - 1];
+        assertWorldMatrixCached(leaf);
+
+        // Change the transform of the leaf through the API
+        leaf.getTransform().setPosition(4, 5, 6);
+        assertWorldMatrixCached(leaf);
+        leaf.getTransform().setScale(2, 2, 2);
+        assertWorldMatrixCached(leaf);
+
+        // Mutate the transforms of the leaf and a parent directly
+        leaf.getTransform().getPosition().add(1, 0, 0);
+        assertWorldMatrixCached(leaf);
+        chain[1].getTransform().getRotation().rotateY(0.5f);
+        chain[1].getTransform().markDirty();
+        assertWorldMatrixCached(leaf);
+        this.parent.getTransform().getScale().mul(3.0f);
+        this.parent.getTransform().update();
+        assertWorldMatrixCached(leaf);
+
+        // Change the transform of a parent through the API
+        this.owner.getTransform().setRotation(new Quaternionf().rotateZ(1.0f));
+        assertWorldMatrixCached(leaf);
+
+        // Integrate the velocity of a parent
+        chain[0].getTransform().setLinearVelocity(new Vector3f(1, 2, 3));
+        chain[0].getTransform().setAngularVelocity(new Vector3f(0.1f, 0.2f, 0.3f));
+        chain[0].getTransform().update();
+        assertWorldMatrixCached(leaf);
+
+        // Move a game object to a different parent
+        this.parent.addChild(chain[2]);
+        assertWorldMatrixCached(leaf);
+    }
+
+    @org.junit.Test
+    public void worldVersion() throws Exception {
+        // The version must be stable while nothing changes
+        final int version = this.transform.getWorldVersion();
+        this.transform.getWorldMatrix();
+        assertEquals(version, this.transform.getWorldVersion());
+
+        // The version must change when the parent is mutated directly and marked dirty
+        this.parent.getTransform().getPosition().add(1, 0, 0);
+        this.parent.getTransform().markDirty();
+        final int movedVersion = this.transform.getWorldVersion();
+        assertTrue(version != movedVersion);
+
+        // The version must change when the transform is changed through the API
+        this.transform.setScale(2, 2, 2);
+        assertTrue(movedVersion != this.transform.getWorldVersion());
+
+        // The version of the parent must not change when only the child changes
+        final int parentVersion = this.parent.getTransform().getWorldVersion();
+        this.transform.setPosition(3, 2, 1);
+        this.transform.getWorldMatrix();
+        assertEquals(parentVersion, this.parent.getTransform().getWorldVersion());
+    }
+}
@@ -0,0 +1,95 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.util;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class ListUtil {
+
+    /**
+     * Remove all items in the given removal queue from the given list, in a single order preserving compaction pass.
+     * Items are compared by identity. Items in the queue that aren't in the list, or that are queued multiple times,
+     * are ignored.
+     *
+     * This runs in linear time for random access lists, while removing each item separately with
+     * {@link List#remove(Object)} is quadratic when many items are removed at once.
+     *
+     * @param list List to remove the items from.
+     * @param queue Items to remove.
+     * @param <T> Item type.
+     *
+     * @return Number of removed items.
+     */
+    public static <T> int removeAll(List<T> list, List<? extends T> queue) {
+        // Remove single items directly
+        if(queue.isEmpty())
+            return 0;
+        if(queue.size() == 1)
+            return removeIdentity(list, queue.get(0)) ? 1 : 0;
+
+        // Build a set of the items to remove
+        final Set<Object> remove = Collections.newSetFromMap(new IdentityHashMap<>(queue.size() * 2));
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0, size = queue.size(); i < size; i++)
+            remove.add(queue.get(i));
+
+        // Move all items that are kept to the front of the list, preserving their order
+        int j = 0;
+        final int size = list.size();
+        for(int i = 0; i < size; i++) {
+            final T item = list.get(i);
+            if(remove.contains(item))
+                continue;
+            if(i != j)
+                list.set(j, item);
+            j++;
+        }
+
+        // Truncate the list
+        if(j < size)
+            list.subList(j, size).clear();
+        return size - j;
+    }
+
+    /**
+     * Remove the first occurrence of the given item from the list, compared by identity.
+     *
+     * @param list List to remove the item from.
+     * @param item Item to remove.
+     * @param <T> Item type.
+     *
+     * @return True if the item was removed, false if it wasn't in the list.
+     */
+    private static <T> boolean removeIdentity(List<T> list, Object item) {
+        for(int i = 0, size = list.size(); i < size; i++) {
+            if(list.get(i) == item) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
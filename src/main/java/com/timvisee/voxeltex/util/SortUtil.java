@@ -0,0 +1,109 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.voxeltex.util;
+
+public class SortUtil {
+
+    /**
+     * Number of bits that are sorted in each radix sort pass.
+     */
+    private static final int RADIX_BITS = 8;
+
+    /**
+     * Number of buckets used in each radix sort pass.
+     */
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+    /**
+     * Number of passes required to sort a full 64-bit key.
+     */
+    private static final int RADIX_PASSES = Long.SIZE / RADIX_BITS;
+
+    /**
+     * Sort the given keys in ascending unsigned order using a least significant digit radix sort.
+     * The values array is reordered along with the keys, which allows indices to be sorted by their key.
+     * The sort is stable, and passes in which all keys share the same digit are skipped.
+     *
+     * The temporary arrays must be able to hold at least the given number of elements,
+     * and are used to prevent any allocations while sorting.
+     *
+     * @param keys Keys to sort.
+     * @param values Values to reorder along with the keys.
+     * @param count Number of elements to sort, starting at the first index.
+     * @param tempKeys Temporary keys array.
+     * @param tempValues Temporary values array.
+     * @param histogram Temporary histogram array, with a length of at least 256.
+     */
+    public static void radixSort(long[] keys, int[] values, int count, long[] tempKeys, int[] tempValues, int[] histogram) {
+        // Define the source and destination arrays, these are swapped after each pass
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] destKeys = tempKeys;
+        int[] destValues = tempValues;
+
+        // Sort each digit, starting at the least significant one
+        for(int pass = 0; pass < RADIX_PASSES; pass++) {
+            // Determine the bit shift for this digit
+            final int shift = pass * RADIX_BITS;
+
+            // Reset and build the histogram for this digit
+            for(int i = 0; i < RADIX_BUCKETS; i++)
+                histogram[i] = 0;
+            for(int i = 0; i < count; i++)
+                histogram[(int) (srcKeys[i] >>> shift) & (RADIX_BUCKETS - 1)]++;
+
+            // Skip this pass if all keys share the same digit
+            if(count == 0 || histogram[(int) (srcKeys[0] >>> shift) & (RADIX_BUCKETS - 1)] == count)
+                continue;
+
+            // Convert the histogram into bucket offsets
+            int offset = 0;
+            for(int i = 0; i < RADIX_BUCKETS; i++) {
+                final int bucketSize = histogram[i];
+                histogram[i] = offset;
+                offset += bucketSize;
+            }
+
+            // Scatter the keys and values into their buckets
+            for(int i = 0; i < count; i++) {
+                final int target = histogram[(int) (srcKeys[i] >>> shift) & (RADIX_BUCKETS - 1)]++;
+                destKeys[target] = srcKeys[i];
+                destValues[target] = srcValues[i];
+            }
+
+            // Swap the source and destination arrays
+            long[] swapKeys = srcKeys;
+            srcKeys = destKeys;
+            destKeys = swapKeys;
+            int[] swapValues = srcValues;
+            srcValues = destValues;
+            destValues = swapValues;
+        }
+
+        // Copy the result back into the given arrays if it ended up in the temporary arrays
+        if(srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, count);
+            System.arraycopy(srcValues, 0, values, 0, count);
+        }
+    }
+}
@@ -34,8 +34,9 @@ void main() {
     // Determine the position
     position = modelMatrix * gl_Vertex;
 
-    // Pass the texture coordinates to the fragment shader
+    // Pass the texture coordinates and vertex color to the fragment shader
 	gl_TexCoord[0] = gl_MultiTexCoord0;
+	gl_FrontColor = gl_Color;
 
     // Set the vertex point position
 	gl_Position = gl_ModelViewProjectionMatrix * gl_Vertex;
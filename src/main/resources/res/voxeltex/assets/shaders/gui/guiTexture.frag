@@ -32,5 +32,5 @@ varying vec4 position;
 
 void main(void) {
     // Determine and set the fragment color
-    gl_FragColor = texture2D(texture, gl_TexCoord[0].st * tiling) * color;
+    gl_FragColor = texture2D(texture, gl_TexCoord[0].st * tiling) * color * gl_Color;
 }
@@ -0,0 +1,48 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+#version 120
+
+// Texture and tiling data
+uniform sampler2D texture;
+uniform vec2 tiling = vec2(1.0, 1.0);
+uniform float ambientBrightness = 0.25;
+
+// Baked lighting, before the diffuse factor and ambient light are applied
+uniform sampler2D lightmap;
+
+// Lightmap texture coordinates
+varying vec2 lightmapCoord;
+
+// Vertex color
+varying vec4 vertexColor;
+
+void main(void) {
+    // Read the baked diffuse lighting
+    vec3 diffuse = texture2D(lightmap, lightmapCoord).rgb;
+
+    // Multiply the diffuse lighting by three for better appearance and add the ambient light, like the light shader
+    diffuse = diffuse * 3.0 + vec3(ambientBrightness);
+
+    // Determine and set the fragment color
+    gl_FragColor = vec4(diffuse, 1.0) * texture2D(texture, gl_TexCoord[0].st * tiling) * vertexColor;
+}
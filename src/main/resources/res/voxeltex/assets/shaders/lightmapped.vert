@@ -0,0 +1,42 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+#version 120
+
+// Mesh color
+uniform vec4 color = vec4(1, 1, 1, 1);
+
+// Lightmap texture coordinates and vertex color
+varying vec2 lightmapCoord;
+varying vec4 vertexColor;
+
+void main() {
+    // Pass the texture and lightmap coordinates to the fragment shader
+	gl_TexCoord[0] = gl_MultiTexCoord0;
+    lightmapCoord = gl_MultiTexCoord1.st;
+
+    // Set the vertex point position
+	gl_Position = gl_ModelViewProjectionMatrix * gl_Vertex;
+
+    // Pass the color to the fragment shader
+    vertexColor = color;
+}
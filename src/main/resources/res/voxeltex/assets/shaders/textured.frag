@@ -26,7 +26,6 @@
 uniform sampler2D texture;
 uniform vec2 tiling = vec2(1.0, 1.0);
 uniform float ambientBrightness = 0.25;
-uniform vec4 color = vec4(1, 1, 1, 1);
 
 // Fragment position data
 varying vec4 position;
@@ -34,59 +33,127 @@ varying vec4 position;
 // Surface normal
 varying vec3 surfaceNormal;
 
-// Light data
-const int LIGHT_COUNT_MAX = 16;
-uniform int lightCount;
-uniform int lightType[LIGHT_COUNT_MAX];
-uniform vec3 lightPosition[LIGHT_COUNT_MAX];
-uniform vec3 lightRotation[LIGHT_COUNT_MAX];
-uniform vec4 lightColor[LIGHT_COUNT_MAX];
+// Vertex color
+varying vec4 vertexColor;
+
+// Directional light data
+const int DIRECTIONAL_LIGHT_COUNT_MAX = 16;
+uniform int directionalLightCount;
+uniform vec3 directionalLightDirection[DIRECTIONAL_LIGHT_COUNT_MAX];
+uniform vec4 directionalLightColor[DIRECTIONAL_LIGHT_COUNT_MAX];
+
+// Object light data, the most relevant point lights of the drawn object, or a negative count to use the light clusters
+const int OBJECT_LIGHT_COUNT_MAX = 8;
+uniform int objectLightCount = -1;
+uniform vec4 objectLightPosition[OBJECT_LIGHT_COUNT_MAX];
+uniform vec4 objectLightColor[OBJECT_LIGHT_COUNT_MAX];
+
+// Clustered light data, three texels per light: position and range, color and brightness, rotation and type
+const int CLUSTER_LIGHT_COUNT_MAX = 64;
+const float LIGHT_DATA_TEXELS = 3.0;
+uniform sampler2D clusterLightData;
+uniform sampler2D clusterGrid;
+uniform sampler2D clusterLightIndices;
+uniform vec3 clusterCount;
+uniform vec2 clusterScreenScale;
+uniform vec2 clusterDepth;
+uniform vec3 clusterTextureSize;
+uniform vec3 cameraPosition;
+uniform vec3 cameraForward;
+
+// Calculate the diffuse color of a point light, with its position and range, and its color and brightness
+vec3 processPointLight(vec3 normal, vec4 lightPosition, vec4 lightColor) {
+    // Calculate the distance to the light, and skip lights that are out of range
+    float lightDistance = distance(position.xyz, lightPosition.xyz);
+    if(lightDistance > lightPosition.w)
+        return vec3(0.0);
+
+    // Calculate the light direction
+    vec3 lightDirection = lightPosition.xyz - position.xyz;
+
+    // Calculate the dot product of both vectors and clamp the brightness to zero and above
+    float brightness = max(dot(normal, normalize(lightDirection)), 0.0) /
+            (lightDistance * lightDistance) *
+            lightColor.w;
+
+    // Calculate the diffuse color
+    return brightness * lightColor.xyz;
+}
 
-void main(void) {
-    // Create a variable to define the diffuse color in
+// Calculate the diffuse color of all lights in the cluster of this fragment
+vec3 processClusterLights(vec3 normal) {
     vec3 diffuse = vec3(0.0);
 
-    // Calculate the lighting for all different lights
-    for(int i = 0; i < lightCount; i++) {
-        // Process a directional light
-        if(lightType[i] == 1) {
-            // Calculate the dot product of both vectors and clamp the brightness to zero and above
-            float brightness = max(dot(normalize(surfaceNormal), normalize(lightRotation[i])), 0.0) * lightColor[i].w;
-
-            // Calculate the diffuse color and append it to the result
-            diffuse += brightness * lightColor[i].xyz;
-        }
+    // Determine the screen tile of this fragment
+    vec2 tile = clamp(floor(gl_FragCoord.xy * clusterScreenScale), vec2(0.0), clusterCount.xy - 1.0);
+
+    // Determine the depth slice of this fragment, logarithmic like the slices on the CPU
+    float viewDepth = dot(position.xyz - cameraPosition, cameraForward);
+    float slice = 0.0;
+    if(viewDepth >= clusterDepth.x)
+        slice = min(floor(log(viewDepth / clusterDepth.x) * clusterDepth.y) + 1.0, clusterCount.z - 1.0);
+
+    // Fetch the offset and number of lights of the cluster
+    vec2 cluster = texture2D(clusterGrid, vec2(
+            (tile.y * clusterCount.x + tile.x + 0.5) / (clusterCount.x * clusterCount.y),
+            (slice + 0.5) / clusterCount.z
+    )).xy;
+    int clusterLightCount = int(cluster.y + 0.5);
+
+    // Calculate the lighting for all lights in the cluster
+    for(int i = 0; i < CLUSTER_LIGHT_COUNT_MAX; i++) {
+        if(i >= clusterLightCount)
+            break;
+
+        // Fetch the index of the light
+        float index = cluster.x + float(i);
+        float lightIndex = texture2D(clusterLightIndices, vec2(
+                (mod(index, clusterTextureSize.x) + 0.5) / clusterTextureSize.x,
+                (floor(index / clusterTextureSize.x) + 0.5) / clusterTextureSize.y
+        )).x;
+
+        // Fetch the light position, range, color and type
+        float lightRow = (lightIndex + 0.5) / clusterTextureSize.z;
+        vec4 lightPosition = texture2D(clusterLightData, vec2(0.5 / LIGHT_DATA_TEXELS, lightRow));
+        vec4 lightColor = texture2D(clusterLightData, vec2(1.5 / LIGHT_DATA_TEXELS, lightRow));
+        float lightType = texture2D(clusterLightData, vec2(2.5 / LIGHT_DATA_TEXELS, lightRow)).w;
 
         // Process a point light
-        if(lightType[i] == 2) {
-            // Calculate the distance to the light
-            float lightDistance = distance(position.xyz, lightPosition[i]);
+        if(lightType < 2.5)
+            diffuse += processPointLight(normal, lightPosition, lightColor);
 
-            // Skip the light processing if the light is too far away for optimization
-            // TODO: Is this calibrated properly?
-//            if(lightDistance > lightColor[i].w * lightColor[i].w * 100.0)
-//                continue;
+        // Process a spot light
+        // TODO: Process spot light here!
+        // if(lightType > 2.5) { }
+    }
 
-            // Calculate the light direction
-            vec3 lightDirection = lightPosition[i] - position.xyz;
+    return diffuse;
+}
 
-            // Calculate the dot product of both vectors and clamp the brightness to zero and above
-            float brightness = max(dot(normalize(surfaceNormal), normalize(lightDirection)), 0.0) /
-                    (lightDistance * lightDistance) *
-                    lightColor[i].w;
+void main(void) {
+    // Create a variable to define the diffuse color in
+    vec3 diffuse = vec3(0.0);
+    vec3 normal = normalize(surfaceNormal);
 
-            // Calculate the diffuse color and append it to the result
-            diffuse += brightness * lightColor[i].xyz;
-        }
+    // Calculate the lighting for all directional lights
+    for(int i = 0; i < directionalLightCount; i++) {
+        // Calculate the dot product of both vectors and clamp the brightness to zero and above
+        float brightness = max(dot(normal, normalize(directionalLightDirection[i])), 0.0) * directionalLightColor[i].w;
 
-        // Process a spot light
-        // TODO: Process spot light here!
-        // if(lightType[i] == 3) { }
+        // Calculate the diffuse color and append it to the result
+        diffuse += brightness * directionalLightColor[i].xyz;
     }
 
+    // Calculate the lighting for the selected lights of the object, or for the lights of the cluster
+    if(objectLightCount >= 0) {
+        for(int i = 0; i < objectLightCount; i++)
+            diffuse += processPointLight(normal, objectLightPosition[i], objectLightColor[i]);
+    } else
+        diffuse += processClusterLights(normal);
+
     // Multiply the diffuse lighting by three for better appearance and add the ambient light
     diffuse = diffuse * 3.0 + vec3(ambientBrightness);
 
     // Determine and set the fragment color
-    gl_FragColor = vec4(diffuse, 1.0) * texture2D(texture, gl_TexCoord[0].st * tiling) * color;
+    gl_FragColor = vec4(diffuse, 1.0) * texture2D(texture, gl_TexCoord[0].st * tiling) * vertexColor;
 }
@@ -27,9 +27,13 @@ uniform mat4 projectionMatrix;
 uniform mat4 viewMatrix = mat4(1.0);
 uniform mat4 modelMatrix = mat4(1.0);
 
-// Surface normal and vertex position
+// Mesh color
+uniform vec4 color = vec4(1, 1, 1, 1);
+
+// Surface normal, vertex position and color
 varying vec3 surfaceNormal;
 varying vec4 position;
+varying vec4 vertexColor;
 
 void main() {
     // Determine the position
@@ -43,4 +47,7 @@ void main() {
 
     // Calculate the surface normal
     surfaceNormal = (modelMatrix * vec4(gl_Normal, 0.0)).xyz;
+
+    // Pass the color to the fragment shader
+    vertexColor = color;
 }
@@ -0,0 +1,49 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016. All rights reserved.                         *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ * @website http://timvisee.com/                                              *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software"), *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+#version 120
+
+// Per-instance model matrix and color
+attribute mat4 instanceModelMatrix;
+attribute vec4 instanceColor;
+
+// Surface normal, vertex position and color
+varying vec3 surfaceNormal;
+varying vec4 position;
+varying vec4 vertexColor;
+
+void main() {
+    // Determine the position
+    position = instanceModelMatrix * gl_Vertex;
+
+    // Pass the texture coordinates to the fragment shader
+	gl_TexCoord[0] = gl_MultiTexCoord0;
+
+    // Set the vertex point position, the model view matrix only contains the camera view
+	gl_Position = gl_ModelViewProjectionMatrix * position;
+
+    // Calculate the surface normal
+    surfaceNormal = (instanceModelMatrix * vec4(gl_Normal, 0.0)).xyz;
+
+    // Pass the color to the fragment shader
+    vertexColor = instanceColor;
+}